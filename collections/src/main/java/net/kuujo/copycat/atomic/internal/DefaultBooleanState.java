@@ -15,6 +15,8 @@
  */
 package net.kuujo.copycat.atomic.internal;
 
+import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,10 +30,12 @@ public class DefaultBooleanState implements BooleanState {
   private AtomicBoolean value;
 
   @Override
+  @Initializer
   public void init(StateContext<BooleanState> context) {
+    // Values installed from a snapshot are plain atomic values, so they're wrapped before being used.
     value = context.get("value");
-    if (value == null) {
-      value = new AtomicBoolean();
+    if (!(value instanceof Snapshottable)) {
+      value = new SnapshottableBoolean(value != null ? value.get() : false);
       context.put("value", value);
     }
   }
@@ -56,4 +60,18 @@ public class DefaultBooleanState implements BooleanState {
     return this.value.compareAndSet(expect, update);
   }
 
+  /**
+   * Atomic value that snapshots its current value.
+   */
+  private static class SnapshottableBoolean extends AtomicBoolean implements Snapshottable<AtomicBoolean> {
+    private SnapshottableBoolean(boolean value) {
+      super(value);
+    }
+
+    @Override
+    public AtomicBoolean snapshot() {
+      return new AtomicBoolean(get());
+    }
+  }
+
 }
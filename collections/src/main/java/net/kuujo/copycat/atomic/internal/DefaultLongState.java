@@ -15,6 +15,8 @@
  */
 package net.kuujo.copycat.atomic.internal;
 
+import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,10 +30,12 @@ public class DefaultLongState implements LongState {
   private AtomicLong value;
 
   @Override
+  @Initializer
   public void init(StateContext<LongState> context) {
+    // Values installed from a snapshot are plain atomic values, so they're wrapped before being used.
     value = context.get("value");
-    if (value == null) {
-      value = new AtomicLong();
+    if (!(value instanceof Snapshottable)) {
+      value = new SnapshottableLong(value != null ? value.get() : 0);
       context.put("value", value);
     }
   }
@@ -86,4 +90,18 @@ public class DefaultLongState implements LongState {
     return this.value.compareAndSet(expect, update);
   }
 
+  /**
+   * Atomic value that snapshots its current value.
+   */
+  private static class SnapshottableLong extends AtomicLong implements Snapshottable<AtomicLong> {
+    private SnapshottableLong(long value) {
+      super(value);
+    }
+
+    @Override
+    public AtomicLong snapshot() {
+      return new AtomicLong(get());
+    }
+  }
+
 }
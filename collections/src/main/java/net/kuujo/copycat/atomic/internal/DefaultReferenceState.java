@@ -15,6 +15,8 @@
  */
 package net.kuujo.copycat.atomic.internal;
 
+import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -28,10 +30,12 @@ public class DefaultReferenceState<T> implements ReferenceState<T> {
   private AtomicReference<T> value;
 
   @Override
+  @Initializer
   public void init(StateContext<ReferenceState<T>> context) {
+    // Values installed from a snapshot are plain atomic values, so they're wrapped before being used.
     value = context.get("value");
-    if (value == null) {
-      value = new AtomicReference<>();
+    if (!(value instanceof Snapshottable)) {
+      value = new SnapshottableReference<>(value != null ? value.get() : null);
       context.put("value", value);
     }
   }
@@ -56,4 +60,18 @@ public class DefaultReferenceState<T> implements ReferenceState<T> {
     return this.value.compareAndSet(expect, update);
   }
 
+  /**
+   * Atomic value that snapshots its current value.
+   */
+  private static class SnapshottableReference<T> extends AtomicReference<T> implements Snapshottable<AtomicReference<T>> {
+    private SnapshottableReference(T value) {
+      super(value);
+    }
+
+    @Override
+    public AtomicReference<T> snapshot() {
+      return new AtomicReference<>(get());
+    }
+  }
+
 }
@@ -16,6 +16,7 @@
 package net.kuujo.copycat.collections.internal.collection;
 
 import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.Collection;
@@ -30,16 +31,21 @@ public abstract class AbstractCollectionState<T extends CollectionState<T, V>, U
   protected U collection;
 
   /**
-   * Creates the collection.
+   * Creates the collection.<p>
+   *
+   * The collection must be {@link Snapshottable} so that snapshots can be taken without copying the collection.
+   *
+   * @param values The initial collection values, or {@code null} if the collection is empty.
    */
-  protected abstract U createCollection();
+  protected abstract U createCollection(Collection<V> values);
 
   @Override
   @Initializer
   public void init(StateContext<T> context) {
+    // Collections installed from a snapshot are plain collections, so they're wrapped before being used.
     collection = context.get("value");
-    if (collection == null) {
-      collection = createCollection();
+    if (!(collection instanceof Snapshottable)) {
+      collection = createCollection(collection);
       context.put("value", collection);
     }
   }
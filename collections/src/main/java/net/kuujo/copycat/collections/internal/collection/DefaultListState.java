@@ -15,7 +15,8 @@
  */
 package net.kuujo.copycat.collections.internal.collection;
 
-import java.util.ArrayList;
+import net.kuujo.copycat.state.SnapshottableList;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.ListIterator;
@@ -28,8 +29,8 @@ import java.util.ListIterator;
 public class DefaultListState<T> extends AbstractCollectionState<ListState<T>, List<T>, T> implements ListState<T> {
 
   @Override
-  protected List<T> createCollection() {
-    return new ArrayList<>();
+  protected List<T> createCollection(Collection<T> values) {
+    return values != null ? new SnapshottableList<>(values) : new SnapshottableList<>();
   }
 
   @Override
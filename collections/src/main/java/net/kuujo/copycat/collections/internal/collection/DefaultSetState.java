@@ -15,7 +15,9 @@
  */
 package net.kuujo.copycat.collections.internal.collection;
 
-import java.util.HashSet;
+import net.kuujo.copycat.state.SnapshottableSet;
+
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -26,8 +28,8 @@ import java.util.Set;
 public class DefaultSetState<T> extends AbstractCollectionState<SetState<T>, Set<T>, T> implements SetState<T> {
 
   @Override
-  protected Set<T> createCollection() {
-    return new HashSet<>();
+  protected Set<T> createCollection(Collection<T> values) {
+    return values != null ? new SnapshottableSet<>(values) : new SnapshottableSet<>();
   }
 
 }
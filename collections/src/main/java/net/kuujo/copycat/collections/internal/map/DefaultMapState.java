@@ -16,10 +16,11 @@
 package net.kuujo.copycat.collections.internal.map;
 
 import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
+import net.kuujo.copycat.state.SnapshottableMap;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
@@ -36,9 +37,10 @@ public class DefaultMapState<K, V> implements MapState<K, V> {
   @Override
   @Initializer
   public void init(StateContext<MapState<K, V>> context) {
+    // Maps installed from a snapshot are plain maps, so they're wrapped before being used.
     map = context.get("value");
-    if (map == null) {
-      map = new HashMap<>();
+    if (!(map instanceof Snapshottable)) {
+      map = map != null ? new SnapshottableMap<>(map) : new SnapshottableMap<>();
       context.put("value", map);
     }
   }
@@ -16,13 +16,18 @@
 package net.kuujo.copycat.collections.internal.map;
 
 import net.kuujo.copycat.state.Initializer;
+import net.kuujo.copycat.state.Snapshottable;
+import net.kuujo.copycat.state.SnapshottableMap;
 import net.kuujo.copycat.state.StateContext;
 
 import java.util.*;
 import java.util.function.BiFunction;
 
 /**
- * Default asynchronous multimap state.
+ * Default asynchronous multimap state.<p>
+ *
+ * Value collections may be shared with a snapshot of the map, so they're never modified in place. Instead, each
+ * modification replaces the collection for a key with a modified copy.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -32,9 +37,10 @@ public class DefaultMultiMapState<K, V> implements MultiMapState<K, V> {
   @Override
   @Initializer
   public void init(StateContext<MultiMapState<K, V>> context) {
+    // Maps installed from a snapshot are plain maps, so they're wrapped before being used.
     map = context.get("value");
-    if (map == null) {
-      map = new HashMap<>();
+    if (!(map instanceof Snapshottable)) {
+      map = map != null ? new SnapshottableMap<>(map) : new SnapshottableMap<>();
       context.put("value", map);
     }
   }
@@ -76,12 +82,10 @@ public class DefaultMultiMapState<K, V> implements MultiMapState<K, V> {
 
   @Override
   public Collection<V> put(K key, V value) {
-    Collection<V> values = map.get(key);
-    if (values == null) {
-      values = new ArrayList<>();
-      map.put(key, values);
-    }
+    Collection<V> current = map.get(key);
+    Collection<V> values = current != null ? new ArrayList<>(current) : new ArrayList<>();
     values.add(value);
+    map.put(key, values);
     return values;
   }
 
@@ -92,13 +96,16 @@ public class DefaultMultiMapState<K, V> implements MultiMapState<K, V> {
 
   @Override
   public boolean remove(K key, V value) {
-    Collection<V> values = map.get(key);
-    if (values != null) {
-      boolean result = values.remove(value);
+    Collection<V> current = map.get(key);
+    if (current != null && current.contains(value)) {
+      Collection<V> values = new ArrayList<>(current);
+      values.remove(value);
       if (values.isEmpty()) {
         map.remove(key);
+      } else {
+        map.put(key, values);
       }
-      return result;
+      return true;
     }
     return false;
   }
@@ -146,9 +153,12 @@ public class DefaultMultiMapState<K, V> implements MultiMapState<K, V> {
 
   @Override
   public boolean replace(K key, V oldValue, V newValue) {
-    Collection<V> values = map.get(key);
-    if (values != null && values.remove(oldValue)) {
+    Collection<V> current = map.get(key);
+    if (current != null && current.contains(oldValue)) {
+      Collection<V> values = new ArrayList<>(current);
+      values.remove(oldValue);
       values.add(newValue);
+      map.put(key, values);
       return true;
     }
     return false;
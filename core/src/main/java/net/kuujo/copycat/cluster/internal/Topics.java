@@ -41,14 +41,29 @@ public class Topics {
    */
   public static final String APPEND = "append";
 
+  /**
+   * Member install snapshot topic.
+   */
+  public static final String INSTALL_SNAPSHOT = "install-snapshot";
+
   /**
    * Member query topic.
    */
   public static final String QUERY = "query";
 
+  /**
+   * Member read index topic.
+   */
+  public static final String READ_INDEX = "read-index";
+
   /**
    * Member commit topic.
    */
   public static final String COMMIT = "commit";
 
+  /**
+   * Member multiplexed heartbeat topic.
+   */
+  public static final String HEARTBEAT = "heartbeat";
+
 }
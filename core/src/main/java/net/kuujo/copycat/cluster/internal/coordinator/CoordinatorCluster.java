@@ -21,12 +21,10 @@ import net.kuujo.copycat.cluster.internal.CoordinatedMember;
 import net.kuujo.copycat.cluster.internal.MemberInfo;
 import net.kuujo.copycat.cluster.internal.Router;
 import net.kuujo.copycat.raft.RaftContext;
-import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.serializer.Serializer;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -35,14 +33,16 @@ import java.util.concurrent.ScheduledExecutorService;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class CoordinatorCluster extends AbstractCluster {
+  private final ScheduledExecutorService memberExecutor;
 
-  public CoordinatorCluster(int id, ClusterCoordinator coordinator, RaftContext context, Router router, Serializer serializer, ScheduledExecutorService executor, Executor userExecutor) {
+  public CoordinatorCluster(int id, ClusterCoordinator coordinator, RaftContext context, Router router, Serializer serializer, ScheduledExecutorService executor, Executor userExecutor, ScheduledExecutorService memberExecutor) {
     super(id, coordinator, context, router, serializer, executor, userExecutor);
+    this.memberExecutor = memberExecutor;
   }
 
   @Override
   protected CoordinatedMember createMember(MemberInfo info) {
-    AbstractMemberCoordinator memberCoordinator = new DefaultRemoteMemberCoordinator(info, coordinator.config().getClusterConfig().getProtocol(), Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(String.format("copycat-coordinator-%s", info.uri()))));
+    AbstractMemberCoordinator memberCoordinator = new DefaultRemoteMemberCoordinator(info, coordinator.config().getClusterConfig().getProtocol(), memberExecutor);
     try {
       memberCoordinator.open().get();
     } catch (InterruptedException | ExecutionException e) {
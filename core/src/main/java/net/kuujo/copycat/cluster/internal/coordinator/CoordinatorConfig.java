@@ -35,6 +35,7 @@ public class CoordinatorConfig extends AbstractConfigurable {
   public static final String COORDINATOR_NAME = "name";
   public static final String COORDINATOR_CLUSTER = "cluster";
   public static final String COORDINATOR_EXECUTOR = "executor";
+  public static final String COORDINATOR_EVENT_LOOPS = "event-loops";
 
   private final Executor DEFAULT_COORDINATOR_EXECUTOR = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-coordinator-%d"));
 
@@ -119,6 +120,41 @@ public class CoordinatorConfig extends AbstractConfigurable {
     return this;
   }
 
+  /**
+   * Sets the number of event loop threads shared by the coordinator's resources.
+   *
+   * Each resource's Raft context is pinned to one of the event loops, so the number of threads used by the Raft
+   * protocol does not grow with the number of resources.
+   *
+   * @param eventLoops The number of event loop threads.
+   * @throws java.lang.IllegalArgumentException If the number of event loops is not positive
+   */
+  public void setEventLoops(int eventLoops) {
+    this.config = config.withValue(COORDINATOR_EVENT_LOOPS, ConfigValueFactory.fromAnyRef(Assert.arg(eventLoops, eventLoops > 0, "event loops must be positive")));
+  }
+
+  /**
+   * Returns the number of event loop threads shared by the coordinator's resources.
+   *
+   * @return The number of event loop threads. Defaults to the number of available processors.
+   */
+  public int getEventLoops() {
+    return config.hasPath(COORDINATOR_EVENT_LOOPS) ? config.getInt(COORDINATOR_EVENT_LOOPS) : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Sets the number of event loop threads shared by the coordinator's resources, returning the configuration for
+   * method chaining.
+   *
+   * @param eventLoops The number of event loop threads.
+   * @return The coordinator configuration.
+   * @throws java.lang.IllegalArgumentException If the number of event loops is not positive
+   */
+  public CoordinatorConfig withEventLoops(int eventLoops) {
+    setEventLoops(eventLoops);
+    return this;
+  }
+
   /**
    * Sets the coordinator executor.
    *
@@ -24,12 +24,16 @@ import net.kuujo.copycat.cluster.internal.manager.MemberManager;
 import net.kuujo.copycat.log.BufferedLog;
 import net.kuujo.copycat.raft.RaftConfig;
 import net.kuujo.copycat.raft.RaftContext;
+import net.kuujo.copycat.raft.protocol.AppendRequest;
+import net.kuujo.copycat.raft.protocol.AppendResponse;
 import net.kuujo.copycat.raft.protocol.RaftProtocol;
+import net.kuujo.copycat.raft.protocol.RaftProtocolSerializer;
 import net.kuujo.copycat.raft.protocol.Request;
 import net.kuujo.copycat.raft.protocol.Response;
 import net.kuujo.copycat.resource.Resource;
 import net.kuujo.copycat.resource.internal.ResourceManager;
 import net.kuujo.copycat.util.ConfigurationException;
+import net.kuujo.copycat.util.concurrent.EventLoopGroup;
 import net.kuujo.copycat.util.concurrent.Futures;
 import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.internal.Assert;
@@ -48,6 +52,9 @@ import java.util.concurrent.*;
 public class DefaultClusterCoordinator implements ClusterCoordinator {
   private final ThreadFactory threadFactory = new NamedThreadFactory("copycat-coordinator-%d");
   private final ScheduledExecutorService executor;
+  private final ScheduledExecutorService memberExecutor;
+  private final EventLoopGroup eventLoops;
+  private final HeartbeatMultiplexer heartbeats;
   private final CoordinatorConfig config;
   private final DefaultLocalMemberCoordinator localMember;
   final Map<String, AbstractMemberCoordinator> members = new ConcurrentHashMap<>(128);
@@ -59,15 +66,18 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
   public DefaultClusterCoordinator(CoordinatorConfig config) {
     this.config = config.copy();
     this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    this.memberExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-coordinator-members-%d"));
+    this.eventLoops = new EventLoopGroup(config.getEventLoops(), "copycat-event-loop-%d");
 
     // Set up permanent cluster members based on the given cluster configuration.
     this.localMember = new DefaultLocalMemberCoordinator(new MemberInfo(config.getClusterConfig().getLocalMember(), config.getClusterConfig().getMembers().contains(config.getClusterConfig().getLocalMember()) ? Member.Type.ACTIVE : Member.Type.PASSIVE, Member.Status.ALIVE), config.getClusterConfig().getProtocol(), Executors.newSingleThreadExecutor(threadFactory));
     this.members.put(config.getClusterConfig().getLocalMember(), localMember);
     for (String member : config.getClusterConfig().getMembers()) {
       if (!this.members.containsKey(member)) {
-        this.members.put(member, new DefaultRemoteMemberCoordinator(new MemberInfo(member, Member.Type.ACTIVE, Member.Status.ALIVE), config.getClusterConfig().getProtocol(), Executors.newSingleThreadScheduledExecutor(threadFactory)));
+        this.members.put(member, new DefaultRemoteMemberCoordinator(new MemberInfo(member, Member.Type.ACTIVE, Member.Status.ALIVE), config.getClusterConfig().getProtocol(), memberExecutor));
       }
     }
+    this.heartbeats = new HeartbeatMultiplexer(localMember, members::get, memberExecutor);
 
     // Set up the global Raft state context and cluster.
     CoordinatedResourceConfig resourceConfig = new CoordinatedResourceConfig()
@@ -77,7 +87,7 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
       .withLog(new BufferedLog());
     ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-coordinator"));
     this.context = new RaftContext(config.getName(), config.getClusterConfig().getLocalMember(), new RaftConfig(resourceConfig.toMap()), executor);
-    this.cluster = new CoordinatorCluster(0, this, context, new ResourceRouter(executor), new KryoSerializer(), executor, config.getExecutor());
+    this.cluster = new CoordinatorCluster(0, this, context, new ResourceRouter(0, executor, heartbeats), new KryoSerializer(), executor, config.getExecutor(), memberExecutor);
   }
 
   @Override
@@ -126,9 +136,12 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
   @SuppressWarnings("unchecked")
   public <T extends Resource<T>> T getResource(String name, CoordinatedResourceConfig config) {
     ResourceHolder resource = resources.computeIfAbsent(name, n -> {
-      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-" + name + "-%d"));
+      // Each resource is pinned to one of a fixed number of shared event loops rather than being given its own thread.
+      // The Raft context never blocks its loop while waiting for the state machine: entries, snapshots and log replays
+      // are applied asynchronously and the context is called back on its loop once the state machine has caught up.
+      ScheduledExecutorService executor = eventLoops.next();
       RaftContext state = new RaftContext(name, member().uri(), new RaftConfig(config.toMap()), executor);
-      ClusterManager cluster = new CoordinatedCluster(name.hashCode(), this, state, new ResourceRouter(executor), config.getSerializer(), executor, config.getExecutor());
+      ClusterManager cluster = new CoordinatedCluster(name.hashCode(), this, state, new ResourceRouter(name.hashCode(), executor, heartbeats), config.getSerializer(), executor, config.getExecutor());
       ResourceManager context = new ResourceManager(name, config, cluster, state, this);
       try {
         return new ResourceHolder(config.getResourceType().getConstructor(ResourceManager.class).newInstance(context), cluster, state);
@@ -182,8 +195,7 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
     for (ResourceHolder resource : resources.values()) {
       if (resource.cluster.isOpen()) {
         futures.add(resource.state.close()
-          .thenCompose(v -> resource.cluster.close())
-          .thenRun(() -> resource.state.executor().shutdown()));
+          .thenCompose(v -> resource.cluster.close()));
       }
     }
     return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
@@ -202,6 +214,7 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
       futures[i++] = member.open();
     }
     return CompletableFuture.allOf(futures)
+      .thenRun(heartbeats::open)
       .thenRun(() -> cluster.addMembershipListener(this::handleMembershipEvent))
       .thenComposeAsync(v -> cluster.open(), executor)
       .thenComposeAsync(v -> context.open(), executor)
@@ -231,8 +244,13 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
     return closeResources()
       .thenComposeAsync(v -> context.close(), executor)
       .thenComposeAsync(v -> cluster.close(), executor)
+      .thenRun(heartbeats::close)
       .thenComposeAsync(v -> CompletableFuture.allOf(futures))
-      .thenRun(executor::shutdown);
+      .thenRun(() -> {
+        eventLoops.shutdown();
+        memberExecutor.shutdown();
+        executor.shutdown();
+      });
   }
 
   @Override
@@ -250,11 +268,15 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
    */
   private static class ResourceRouter implements Router {
     private static final int PROTOCOL_ID = 1;
-    private final Serializer serializer = new KryoSerializer();
+    private final Serializer serializer = new RaftProtocolSerializer();
+    private final int address;
     private final Executor executor;
+    private final HeartbeatMultiplexer heartbeats;
 
-    private ResourceRouter(Executor executor) {
+    private ResourceRouter(int address, Executor executor, HeartbeatMultiplexer heartbeats) {
+      this.address = address;
       this.executor = executor;
+      this.heartbeats = heartbeats;
     }
 
     @Override
@@ -263,13 +285,18 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
       cluster.member().registerHandler(Topics.POLL, PROTOCOL_ID, protocol::poll, serializer, executor);
       cluster.member().registerHandler(Topics.VOTE, PROTOCOL_ID, protocol::vote, serializer, executor);
       cluster.member().registerHandler(Topics.APPEND, PROTOCOL_ID, protocol::append, serializer, executor);
+      cluster.member().registerHandler(Topics.INSTALL_SNAPSHOT, PROTOCOL_ID, protocol::installSnapshot, serializer, executor);
       cluster.member().registerHandler(Topics.QUERY, PROTOCOL_ID, protocol::query, serializer, executor);
+      cluster.member().registerHandler(Topics.READ_INDEX, PROTOCOL_ID, protocol::readIndex, serializer, executor);
       cluster.member().registerHandler(Topics.COMMIT, PROTOCOL_ID, protocol::commit, serializer, executor);
       protocol.syncHandler(request -> handleOutboundRequest(Topics.SYNC, request, cluster));
       protocol.pollHandler(request -> handleOutboundRequest(Topics.POLL, request, cluster));
       protocol.voteHandler(request -> handleOutboundRequest(Topics.VOTE, request, cluster));
       protocol.appendHandler(request -> handleOutboundRequest(Topics.APPEND, request, cluster));
+      protocol.heartbeatHandler(request -> handleOutboundHeartbeat(request, cluster));
+      protocol.installSnapshotHandler(request -> handleOutboundRequest(Topics.INSTALL_SNAPSHOT, request, cluster));
       protocol.queryHandler(request -> handleOutboundRequest(Topics.QUERY, request, cluster));
+      protocol.readIndexHandler(request -> handleOutboundRequest(Topics.READ_INDEX, request, cluster));
       protocol.commitHandler(request -> handleOutboundRequest(Topics.COMMIT, request, cluster));
     }
 
@@ -284,19 +311,34 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
       return Futures.exceptionalFuture(new IllegalStateException(String.format("Invalid member URI %s", request.uri())));
     }
 
+    /**
+     * Handles an outbound idle heartbeat, which is multiplexed with heartbeats from other resources.
+     */
+    private CompletableFuture<AppendResponse> handleOutboundHeartbeat(AppendRequest request, ClusterManager cluster) {
+      if (request.uri().equals(cluster.member().uri())) {
+        return handleOutboundRequest(Topics.APPEND, request, cluster);
+      }
+      return heartbeats.send(request.uri(), address, PROTOCOL_ID, serializer.writeObject(request)).thenApplyAsync(serializer::readObject, executor);
+    }
+
     @Override
     public void destroyRoutes(ClusterManager cluster, RaftProtocol protocol) {
       cluster.member().unregisterHandler(Topics.SYNC, PROTOCOL_ID);
       cluster.member().unregisterHandler(Topics.POLL, PROTOCOL_ID);
       cluster.member().unregisterHandler(Topics.VOTE, PROTOCOL_ID);
       cluster.member().unregisterHandler(Topics.APPEND, PROTOCOL_ID);
+      cluster.member().unregisterHandler(Topics.INSTALL_SNAPSHOT, PROTOCOL_ID);
       cluster.member().unregisterHandler(Topics.QUERY, PROTOCOL_ID);
+      cluster.member().unregisterHandler(Topics.READ_INDEX, PROTOCOL_ID);
       cluster.member().unregisterHandler(Topics.COMMIT, PROTOCOL_ID);
       protocol.syncHandler(null);
       protocol.pollHandler(null);
       protocol.voteHandler(null);
       protocol.appendHandler(null);
+      protocol.heartbeatHandler(null);
+      protocol.installSnapshotHandler(null);
       protocol.queryHandler(null);
+      protocol.readIndexHandler(null);
       protocol.commitHandler(null);
     }
   }
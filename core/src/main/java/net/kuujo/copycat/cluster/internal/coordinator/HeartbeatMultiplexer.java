@@ -0,0 +1,288 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.cluster.internal.coordinator;
+
+import net.kuujo.copycat.cluster.internal.Topics;
+import net.kuujo.copycat.protocol.ProtocolException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Multiplexes heartbeats for many resources into a single message per member.<p>
+ *
+ * Each resource runs its own Raft algorithm, so when a node leads many resources it sends a heartbeat for each resource
+ * to each follower every heartbeat interval even if the cluster is idle. Rather than sending each heartbeat as a
+ * separate message, heartbeats sent to the same member are held for a short delay and then sent to the member together
+ * as a single message. The receiving member's multiplexer dispatches each heartbeat to the handler registered by the
+ * heartbeat's resource and returns the responses in a single message, which is then split back out to each sender.
+ * Leaders heartbeat on interval boundaries, so idle resources with the same heartbeat interval share a single message
+ * per member per interval.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class HeartbeatMultiplexer {
+  private static final int ADDRESS = 0;
+  private static final int ID = 0;
+  private static final byte STATUS_OK = 0;
+  private static final byte STATUS_ERROR = 1;
+
+  /**
+   * The time in milliseconds for which heartbeats are held before being sent, which is small relative to heartbeat
+   * intervals and election timeouts.
+   */
+  static final long FLUSH_DELAY = 5;
+
+  /**
+   * The time in milliseconds for which a multiplexed message waits for each resource to respond. Resources that
+   * respond later are failed so that a busy resource doesn't hold back the responses of all other resources.
+   */
+  static final long RESPONSE_TIMEOUT = 25;
+
+  private final LocalMemberCoordinator localMember;
+  private final Function<String, MemberCoordinator> members;
+  private final ScheduledExecutorService executor;
+  private final Map<String, List<Heartbeat>> heartbeats = new HashMap<>();
+
+  HeartbeatMultiplexer(LocalMemberCoordinator localMember, Function<String, MemberCoordinator> members, ScheduledExecutorService executor) {
+    this.localMember = localMember;
+    this.members = members;
+    this.executor = executor;
+  }
+
+  /**
+   * Registers the multiplexed heartbeat handler.
+   */
+  void open() {
+    localMember.register(Topics.HEARTBEAT, ADDRESS, ID, this::handle);
+  }
+
+  /**
+   * Unregisters the multiplexed heartbeat handler.
+   */
+  void close() {
+    localMember.unregister(Topics.HEARTBEAT, ADDRESS, ID);
+  }
+
+  /**
+   * Sends a heartbeat to a member.
+   *
+   * @param uri The URI of the member to which to send the heartbeat.
+   * @param address The internal address of the heartbeat's resource.
+   * @param id The internal handler identifier.
+   * @param request The serialized heartbeat request.
+   * @return A completable future to be completed with the serialized heartbeat response.
+   */
+  CompletableFuture<ByteBuffer> send(String uri, int address, int id, ByteBuffer request) {
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    boolean flush;
+    synchronized (heartbeats) {
+      List<Heartbeat> memberHeartbeats = heartbeats.get(uri);
+      flush = memberHeartbeats == null;
+      if (flush) {
+        memberHeartbeats = new ArrayList<>();
+        heartbeats.put(uri, memberHeartbeats);
+      }
+      memberHeartbeats.add(new Heartbeat(address, id, request, future));
+    }
+
+    // The first heartbeat queued for the member schedules the flush for all heartbeats queued before it runs.
+    if (flush) {
+      executor.schedule(() -> flush(uri), FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+    return future;
+  }
+
+  /**
+   * Sends all queued heartbeats to a member.
+   */
+  private void flush(String uri) {
+    List<Heartbeat> memberHeartbeats;
+    synchronized (heartbeats) {
+      memberHeartbeats = heartbeats.remove(uri);
+    }
+    if (memberHeartbeats == null) {
+      return;
+    }
+
+    MemberCoordinator member = members.apply(uri);
+    if (member == null) {
+      IllegalStateException error = new IllegalStateException(String.format("Invalid member URI %s", uri));
+      memberHeartbeats.forEach(heartbeat -> heartbeat.future.completeExceptionally(error));
+      return;
+    }
+
+    // A single heartbeat is sent directly to its resource since there's nothing to multiplex.
+    if (memberHeartbeats.size() == 1) {
+      Heartbeat heartbeat = memberHeartbeats.get(0);
+      member.send(Topics.APPEND, heartbeat.address, heartbeat.id, heartbeat.request).whenComplete((response, error) -> {
+        if (error == null) {
+          heartbeat.future.complete(response);
+        } else {
+          heartbeat.future.completeExceptionally(error);
+        }
+      });
+      return;
+    }
+
+    member.send(Topics.HEARTBEAT, ADDRESS, ID, encodeRequests(memberHeartbeats)).whenComplete((response, error) -> {
+      if (error == null) {
+        decodeResponses(response, memberHeartbeats);
+      } else {
+        memberHeartbeats.forEach(heartbeat -> heartbeat.future.completeExceptionally(error));
+      }
+    });
+  }
+
+  /**
+   * Handles a multiplexed heartbeat message, dispatching each heartbeat to its resource.
+   *
+   * @param message The multiplexed heartbeat message.
+   * @return A completable future to be completed with the multiplexed heartbeat responses.
+   */
+  @SuppressWarnings("unchecked")
+  CompletableFuture<ByteBuffer> handle(ByteBuffer message) {
+    int count = message.getInt();
+    CompletableFuture<ByteBuffer>[] futures = new CompletableFuture[count];
+    for (int i = 0; i < count; i++) {
+      int address = message.getInt();
+      int id = message.getInt();
+      int length = message.getInt();
+      ByteBuffer request = message.slice();
+      request.limit(length);
+      message.position(message.position() + length);
+      futures[i] = localMember.send(Topics.APPEND, address, id, request);
+    }
+
+    // Respond once all resources have responded or the response timeout has passed, whichever is first.
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    ScheduledFuture<?> timeout = executor.schedule(() -> future.complete(encodeResponses(futures)), RESPONSE_TIMEOUT, TimeUnit.MILLISECONDS);
+    CompletableFuture.allOf(futures).whenComplete((result, error) -> {
+      timeout.cancel(false);
+      future.complete(encodeResponses(futures));
+    });
+    return future;
+  }
+
+  /**
+   * Encodes a list of heartbeat requests as a multiplexed message.
+   */
+  private static ByteBuffer encodeRequests(List<Heartbeat> heartbeats) {
+    int size = 4;
+    for (Heartbeat heartbeat : heartbeats) {
+      size += 12 + heartbeat.request.remaining();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(heartbeats.size());
+    for (Heartbeat heartbeat : heartbeats) {
+      buffer.putInt(heartbeat.address);
+      buffer.putInt(heartbeat.id);
+      buffer.putInt(heartbeat.request.remaining());
+      buffer.put(heartbeat.request.duplicate());
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Encodes the heartbeat responses as a multiplexed message. Failed heartbeats and heartbeats that have not yet been
+   * completed are encoded with an error message so that the failure can be reported to the sender.
+   */
+  private static ByteBuffer encodeResponses(CompletableFuture<ByteBuffer>[] futures) {
+    ByteBuffer[] responses = new ByteBuffer[futures.length];
+    int size = 4;
+    for (int i = 0; i < futures.length; i++) {
+      ByteBuffer response;
+      byte status;
+      if (futures[i].isDone()) {
+        try {
+          response = futures[i].join().duplicate();
+          status = STATUS_OK;
+        } catch (Exception e) {
+          Throwable cause = e.getCause() != null ? e.getCause() : e;
+          response = ByteBuffer.wrap(String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+          status = STATUS_ERROR;
+        }
+      } else {
+        response = ByteBuffer.wrap("Heartbeat timed out".getBytes(StandardCharsets.UTF_8));
+        status = STATUS_ERROR;
+      }
+      responses[i] = ByteBuffer.allocate(5 + response.remaining()).put(status).putInt(response.remaining()).put(response);
+      responses[i].flip();
+      size += responses[i].remaining();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(responses.length);
+    for (ByteBuffer response : responses) {
+      buffer.put(response);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Decodes a multiplexed response message, completing each heartbeat with its response.
+   */
+  private static void decodeResponses(ByteBuffer message, List<Heartbeat> heartbeats) {
+    int count = message.getInt();
+    if (count != heartbeats.size()) {
+      ProtocolException error = new ProtocolException("Invalid heartbeat response count %d", count);
+      heartbeats.forEach(heartbeat -> heartbeat.future.completeExceptionally(error));
+      return;
+    }
+
+    for (Heartbeat heartbeat : heartbeats) {
+      byte status = message.get();
+      int length = message.getInt();
+      byte[] bytes = new byte[length];
+      message.get(bytes);
+      if (status == STATUS_OK) {
+        heartbeat.future.complete(ByteBuffer.wrap(bytes));
+      } else {
+        heartbeat.future.completeExceptionally(new ProtocolException("%s", new String(bytes, StandardCharsets.UTF_8)));
+      }
+    }
+  }
+
+  /**
+   * Heartbeat waiting to be sent.
+   */
+  private static class Heartbeat {
+    private final int address;
+    private final int id;
+    private final ByteBuffer request;
+    private final CompletableFuture<ByteBuffer> future;
+
+    private Heartbeat(int address, int id, ByteBuffer request, CompletableFuture<ByteBuffer> future) {
+      this.address = address;
+      this.id = id;
+      this.request = request;
+      this.future = future;
+    }
+  }
+
+}
@@ -15,16 +15,18 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.internal.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract log. Not threadsafe.
@@ -38,6 +40,15 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
   protected LogSegment currentSegment;
   private long nextSegmentId;
   private long lastFlush;
+  private final LogTermIndex termIndex = new LogTermIndex();
+  private LogEntryCache cache;
+  private final Object flushLock = new Object();
+  private final TreeMap<Long, CompletableFuture<Long>> flushFutures = new TreeMap<>();
+  private volatile ScheduledExecutorService flushExecutor;
+  private LogSegment flushSegment;
+  private long appendedIndex;
+  private long flushedIndex;
+  private boolean flushScheduled;
 
   protected AbstractLogManager(Log config) {
     this.config = config.copy();
@@ -121,6 +132,7 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     for (LogSegment segment : loadSegments()) {
       segment.open();
       segments.put(segment.index(), segment);
+      nextSegmentId = Math.max(nextSegmentId, segment.id());
     }
 
     // If a segment doesn't already exist, create an initial segment starting at index 1.
@@ -131,6 +143,47 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     }
 
     clean();
+
+    // Rebuild the term index from the segments that remain after cleaning.
+    termIndex.clear();
+    for (LogSegment segment : segments.values()) {
+      termIndex.index(segment);
+    }
+
+    if (isCached()) {
+      cache = new LogEntryCache(config.getCacheSize());
+    }
+
+    // If group commit is enabled, start the thread on which grouped flushes are performed. Entries that were
+    // already in the log when it was opened are considered flushed.
+    if (isGroupCommit()) {
+      flushExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-log-flush-%d"));
+      Long lastIndex = currentSegment.lastIndex();
+      appendedIndex = lastIndex != null ? lastIndex : 0;
+      flushedIndex = appendedIndex;
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether recently appended entries are cached.<p>
+   *
+   * Logs that keep their segments in memory can override this method to disable the entry cache.
+   *
+   * @return Indicates whether recently appended entries are cached.
+   */
+  protected boolean isCached() {
+    return config.getCacheSize() > 0;
+  }
+
+  /**
+   * Returns a boolean indicating whether the log groups flushes of its segments.<p>
+   *
+   * Logs that are made durable by some other means can override this method to disable grouped segment flushes.
+   *
+   * @return Indicates whether the log groups flushes of its segments.
+   */
+  protected boolean isGroupCommit() {
+    return config.isGroupCommit();
   }
 
   /**
@@ -183,7 +236,52 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
   public long appendEntry(ByteBuffer entry) throws IOException {
     assertIsOpen();
     checkRollOver();
-    return currentSegment.appendEntry(entry);
+    long index = currentSegment.appendEntry(entry);
+    termIndex.append(index, LogTermIndex.termOf(entry));
+    if (cache != null) {
+      cache.put(index, entry);
+    }
+    if (flushExecutor != null) {
+      appended(index);
+    }
+    return index;
+  }
+
+  /**
+   * Appends a batch of entries to the log, splitting the batch across segments as the log rolls over.
+   */
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    assertIsOpen();
+    Assert.isNotNull(entries, "entries");
+    List<Long> indexes = new ArrayList<>(entries.size());
+    int start = 0;
+    while (start < entries.size()) {
+      checkRollOver();
+
+      // Add entries to the batch until the current segment would be rolled over by a single append.
+      long size = currentSegment.size();
+      int end = start;
+      while (end < entries.size() && (end == start || size < config.getSegmentSize())) {
+        size += entries.get(end).limit();
+        end++;
+      }
+
+      indexes.addAll(currentSegment.appendEntries(entries.subList(start, end)));
+      start = end;
+    }
+
+    for (int i = 0; i < indexes.size(); i++) {
+      termIndex.append(indexes.get(i), LogTermIndex.termOf(entries.get(i)));
+      if (cache != null) {
+        cache.put(indexes.get(i), entries.get(i));
+      }
+    }
+
+    if (flushExecutor != null && !indexes.isEmpty()) {
+      appended(indexes.get(indexes.size() - 1));
+    }
+    return indexes;
   }
 
   @Override
@@ -216,15 +314,93 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
   }
 
   /**
-   * Returns the entry for the {@code index} by checking the current segment first, then looking up
-   * the correct segment.
+   * Returns the entry for the {@code index} by checking the entry cache first, then the current segment, then looking
+   * up the correct segment.
    */
   @Override
   @SuppressWarnings("resource")
   public ByteBuffer getEntry(long index) {
     assertIsOpen();
+    if (cache != null) {
+      ByteBuffer entry = cache.get(index);
+      if (entry != null) {
+        return entry;
+      }
+    }
+
     LogSegment segment = currentSegment.containsIndex(index) ? currentSegment : segment(index);
-    return segment.getEntry(index);
+    ByteBuffer entry = segment.getEntry(index);
+    if (cache != null && entry != null) {
+      cache.fill(index, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Returns a range of entries by reading the range from each segment it spans. Bulk reads bypass the entry cache so
+   * that reading old entries doesn't evict recently written entries, and since the log's state is only read rather
+   * than modified, a range may be read by a thread other than the one that writes to the log as long as the range
+   * is not concurrently removed or compacted.
+   */
+  @Override
+  public List<ByteBuffer> getEntries(long from, long to) {
+    assertIsOpen();
+    List<ByteBuffer> entries = new ArrayList<>((int) Math.max(to - from + 1, 0));
+    long index = from;
+    while (index <= to) {
+      LogSegment segment = segment(index);
+      Long lastIndex = segment.lastIndex();
+      Assert.index(index, lastIndex != null && index <= lastIndex, "Invalid log index %d", index);
+      long end = Math.min(to, lastIndex);
+      entries.addAll(segment.getEntries(index, end));
+      index = end + 1;
+    }
+    return entries;
+  }
+
+  @Override
+  public Long termAt(long index) {
+    assertIsOpen();
+    return containsIndex(index) ? termIndex.termAt(index) : null;
+  }
+
+  @Override
+  public Long firstIndexOf(long term) {
+    assertIsOpen();
+    Long firstIndex = firstIndex();
+    Long index = firstIndex != null ? termIndex.firstIndexOf(term) : null;
+    // Terms of compacted entries may remain in the index, so the index is bounded by the first index in the log.
+    if (index != null && index < firstIndex) {
+      Long firstTerm = termIndex.termAt(firstIndex);
+      return firstTerm != null && firstTerm == term ? firstIndex : null;
+    }
+    return index;
+  }
+
+  @Override
+  public Long lastIndexOf(long term) {
+    assertIsOpen();
+    Long lastIndex = lastIndex();
+    Long index = lastIndex != null ? termIndex.lastIndexOf(term, lastIndex) : null;
+    return index != null && index >= firstIndex() ? index : null;
+  }
+
+  /**
+   * Returns the number of entry reads that were served by the entry cache.
+   *
+   * @return The number of entry cache hits.
+   */
+  public long cacheHits() {
+    return cache != null ? cache.hits() : 0;
+  }
+
+  /**
+   * Returns the number of entry reads that were not served by the entry cache.
+   *
+   * @return The number of entry cache misses.
+   */
+  public long cacheMisses() {
+    return cache != null ? cache.misses() : 0;
   }
 
   @Override
@@ -245,6 +421,19 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
       }
     }
 
+    termIndex.removeAfter(index);
+    if (cache != null) {
+      cache.removeAfter(index);
+    }
+
+    // Removed entries must be flushed again if they're replaced.
+    if (flushExecutor != null) {
+      synchronized (flushLock) {
+        appendedIndex = Math.min(appendedIndex, index);
+        flushedIndex = Math.min(flushedIndex, index);
+      }
+    }
+
     LogSegment lastSegment = lastSegment();
     if (lastSegment != null) {
       currentSegment = lastSegment;
@@ -298,11 +487,24 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
         segment.delete();
       }
     }
+
+    termIndex.removeBefore(index);
+    if (cache != null) {
+      cache.removeBefore(index);
+    }
   }
 
   @Override
   public void flush() {
     assertIsOpen();
+    // If group commit is enabled then schedule a grouped flush rather than flushing the log synchronously.
+    if (flushExecutor != null) {
+      synchronized (flushLock) {
+        scheduleFlush();
+      }
+      return;
+    }
+
     // Only flush the current segment is flush-on-write is enabled or the flush timeout has passed since the last flush.
     // Flushes will be attempted each time the algorithm is done writing entries to the log.
     if (config.isFlushOnWrite()) {
@@ -313,8 +515,135 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     }
   }
 
+  @Override
+  public CompletableFuture<Long> flush(long index) {
+    assertIsOpen();
+    if (flushExecutor == null) {
+      flush();
+      return CompletableFuture.completedFuture(index);
+    }
+
+    synchronized (flushLock) {
+      if (index <= flushedIndex) {
+        return CompletableFuture.completedFuture(index);
+      }
+      CompletableFuture<Long> future = flushFutures.computeIfAbsent(index, i -> new CompletableFuture<>());
+      scheduleFlush();
+      return future;
+    }
+  }
+
+  /**
+   * Records the last index appended to the log for group commit.
+   */
+  private void appended(long index) {
+    synchronized (flushLock) {
+      appendedIndex = index;
+      flushSegment = currentSegment;
+    }
+  }
+
+  /**
+   * Schedules a grouped flush if entries have been appended since the last flush. Must be called while holding the
+   * flush lock.
+   */
+  private void scheduleFlush() {
+    if (flushExecutor != null && !flushScheduled && appendedIndex > flushedIndex) {
+      flushScheduled = true;
+      flushExecutor.schedule(this::groupFlush, config.getGroupCommitInterval(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Flushes all entries appended within the group commit interval and completes the flush futures for those entries.
+   */
+  private void groupFlush() {
+    LogSegment segment;
+    long index;
+    synchronized (flushLock) {
+      segment = flushSegment;
+      index = appendedIndex;
+      flushScheduled = false;
+    }
+
+    // Flush outside of the lock to allow entries to continue to be appended to the log during the flush.
+    Throwable error = null;
+    try {
+      if (segment != null) {
+        segment.flush();
+      }
+    } catch (Exception e) {
+      LOGGER.error("Failed to flush log", e);
+      error = e;
+    }
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>();
+    List<Long> indexes = new ArrayList<>();
+    synchronized (flushLock) {
+      if (error == null) {
+        flushedIndex = Math.max(flushedIndex, index);
+      }
+      SortedMap<Long, CompletableFuture<Long>> flushed = flushFutures.headMap(index, true);
+      indexes.addAll(flushed.keySet());
+      futures.addAll(flushed.values());
+      flushed.clear();
+      if (!flushFutures.isEmpty()) {
+        scheduleFlush();
+      }
+    }
+
+    for (int i = 0; i < futures.size(); i++) {
+      if (error == null) {
+        futures.get(i).complete(indexes.get(i));
+      } else {
+        futures.get(i).completeExceptionally(new LogException(error, "Failed to flush log"));
+      }
+    }
+  }
+
   @Override
   public synchronized void close() throws IOException {
+    // If group commit is enabled, stop the flush thread and flush any remaining entries before closing segments.
+    if (flushExecutor != null) {
+      ScheduledExecutorService executor = flushExecutor;
+      synchronized (flushLock) {
+        flushExecutor = null;
+      }
+      executor.shutdownNow();
+
+      // Pending flushes must be completed even if the final flush fails, otherwise callers waiting on them would hang.
+      RuntimeException error = null;
+      try {
+        if (currentSegment != null) {
+          currentSegment.flush();
+        }
+      } catch (RuntimeException e) {
+        error = e;
+        throw e;
+      } finally {
+        List<Map.Entry<Long, CompletableFuture<Long>>> futures;
+        synchronized (flushLock) {
+          if (error == null) {
+            flushedIndex = appendedIndex;
+          }
+          futures = new ArrayList<>(flushFutures.entrySet());
+          flushFutures.clear();
+          flushSegment = null;
+          flushScheduled = false;
+        }
+        for (Map.Entry<Long, CompletableFuture<Long>> entry : futures) {
+          if (error == null) {
+            entry.getValue().complete(entry.getKey());
+          } else {
+            entry.getValue().completeExceptionally(new LogException(error, "Failed to flush log"));
+          }
+        }
+      }
+    }
+
+    cache = null;
+    termIndex.clear();
+
     for (LogSegment segment : segments.values())
       segment.close();
     segments.clear();
@@ -1,6 +1,12 @@
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Base LogSegment implementation.
@@ -31,6 +37,32 @@ public abstract class AbstractLogSegment extends AbstractLoggable implements Log
     return firstIndex;
   }
 
+  /**
+   * Appends a batch of entries to the segment. By default entries are appended one at a time.
+   */
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    Assert.isNotNull(entries, "entries");
+    List<Long> indexes = new ArrayList<>(entries.size());
+    for (ByteBuffer entry : entries) {
+      indexes.add(appendEntry(entry));
+    }
+    return indexes;
+  }
+
+  /**
+   * Gets a range of entries from the segment. By default entries are read one at a time.
+   */
+  @Override
+  public List<ByteBuffer> getEntries(long from, long to) {
+    assertIsOpen();
+    List<ByteBuffer> entries = new ArrayList<>((int) Math.max(to - from + 1, 0));
+    for (long index = from; index <= to; index++) {
+      entries.add(getEntry(index));
+    }
+    return entries;
+  }
+
   @Override
   public String toString() {
     return String.format("%s..%s", firstIndex(), lastIndex());
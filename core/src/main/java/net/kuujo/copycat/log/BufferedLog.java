@@ -69,6 +69,24 @@ public class BufferedLog extends Log {
     return this;
   }
 
+  @Override
+  public BufferedLog withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public BufferedLog withGroupCommitInterval(long groupCommitInterval) {
+    setGroupCommitInterval(groupCommitInterval);
+    return this;
+  }
+
+  @Override
+  public BufferedLog withCacheSize(int cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   @Override
   public LogManager getLogManager(String name) {
     return new BufferedLogManager(this);
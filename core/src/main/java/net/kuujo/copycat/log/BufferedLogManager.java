@@ -40,4 +40,10 @@ class BufferedLogManager extends AbstractLogManager {
     return new BufferedLogSegment(this, segmentNumber, firstIndex);
   }
 
+  @Override
+  protected boolean isCached() {
+    // Entries are already held in memory, so caching them would only copy them.
+    return false;
+  }
+
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory snapshot store.<p>
+ *
+ * Snapshots are stored as the list of chunks in which they were written rather than as a single contiguous buffer, so
+ * a snapshot is never copied in its entirety when written or read. Completed snapshots are never modified, so they
+ * can be safely read from any thread once published.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class BufferedSnapshotStore implements SnapshotStore {
+  private volatile BufferedSnapshot snapshot;
+  private volatile boolean open;
+
+  @Override
+  public void open() {
+    open = true;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public Snapshot currentSnapshot() {
+    return snapshot;
+  }
+
+  @Override
+  public SnapshotWriter createSnapshot(long index, long term) {
+    Assert.state(open, "Snapshot store is not open");
+    return new BufferedSnapshotWriter(new BufferedSnapshot(index, term));
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+  @Override
+  public void delete() {
+    snapshot = null;
+  }
+
+  /**
+   * Buffered snapshot.
+   */
+  private static class BufferedSnapshot implements Snapshot {
+    private final long index;
+    private final long term;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private long size;
+
+    private BufferedSnapshot(long index, long term) {
+      this.index = index;
+      this.term = term;
+    }
+
+    @Override
+    public long index() {
+      return index;
+    }
+
+    @Override
+    public long term() {
+      return term;
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) {
+      Assert.index(offset, offset >= 0 && offset <= size, "Snapshot offset out of bounds");
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, size - offset));
+      int i = chunkAt(offset);
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        ByteBuffer chunk = chunks.get(i).duplicate();
+        chunk.position((int) (position - offsets.get(i)));
+        if (chunk.remaining() > buffer.remaining()) {
+          chunk.limit(chunk.position() + buffer.remaining());
+        }
+        position += chunk.remaining();
+        buffer.put(chunk);
+        i++;
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    /**
+     * Returns the position of the chunk containing the given offset.
+     */
+    private int chunkAt(long offset) {
+      int low = 0;
+      int high = offsets.size() - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (offsets.get(middle) <= offset) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return low;
+    }
+  }
+
+  /**
+   * Buffered snapshot writer.
+   */
+  private class BufferedSnapshotWriter implements SnapshotWriter {
+    private final BufferedSnapshot snapshot;
+
+    private BufferedSnapshotWriter(BufferedSnapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    public long index() {
+      return snapshot.index;
+    }
+
+    @Override
+    public long term() {
+      return snapshot.term;
+    }
+
+    @Override
+    public long size() {
+      return snapshot.size;
+    }
+
+    @Override
+    public void write(ByteBuffer chunk) {
+      if (chunk.hasRemaining()) {
+        ByteBuffer copy = ByteBuffer.allocate(chunk.remaining());
+        copy.put(chunk);
+        copy.flip();
+        snapshot.offsets.add(snapshot.size);
+        snapshot.chunks.add(copy);
+        snapshot.size += copy.limit();
+      }
+    }
+
+    @Override
+    public Snapshot complete() {
+      synchronized (BufferedSnapshotStore.this) {
+        BufferedSnapshot current = BufferedSnapshotStore.this.snapshot;
+        if (current != null && current.index > snapshot.index) {
+          return current;
+        }
+        BufferedSnapshotStore.this.snapshot = snapshot;
+        return snapshot;
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+}
@@ -0,0 +1,641 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log shared by all file logs in a directory.<p>
+ *
+ * When a {@link FileLog} is shared, each resource's log manager writes entries to its own segments without forcing
+ * them to disk, and the entries are made durable by appending them to a single segmented journal that's shared by
+ * all resources in the log directory. Flushes are performed on the journal rather than on each resource's segments,
+ * so with group commit a single flush covers all entries written by all resources within the group commit interval.
+ * Journal records are tagged with the name of the resource that wrote them, and each journal segment begins each
+ * resource's records with a record that assigns the resource name a numeric identifier within the segment.<p>
+ *
+ * Each time the journal rolls over to a new segment, the journal is checkpointed by flushing the segments of each
+ * resource, after which older journal segments are deleted. When a resource's log is opened, the resource's records
+ * from any remaining journal segments are replayed into the log to recover entries that were not flushed to the
+ * resource's segments. Journals are reference counted and shared by all logs for the same directory in the process.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class FileJournal {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileJournal.class);
+  private static final Map<File, FileJournal> JOURNALS = new HashMap<>();
+  private static final String JOURNAL_DIRECTORY = "journal";
+  private static final byte DEFINE = 1;
+  private static final byte APPEND = 2;
+  private static final byte TRUNCATE = 3;
+  private static final int HEADER_SIZE = 17;
+  private static final int CHECKSUM_SIZE = 4;
+
+  private final File directory;
+  private final long segmentSize;
+  private final long groupCommitInterval;
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+  private final Map<String, List<Location>> recovered = new HashMap<>();
+  private final Set<FileLogManager> logs = new HashSet<>();
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-log-journal-%d"));
+  private final Object flushLock = new Object();
+  private final TreeMap<Long, CompletableFuture<Long>> flushFutures = new TreeMap<>();
+  private Segment currentSegment;
+  private long position;
+  private long flushedPosition;
+  private boolean flushScheduled;
+  private int references;
+
+  private FileJournal(File directory, FileLog config) {
+    this.directory = directory;
+    this.segmentSize = config.getSegmentSize();
+    this.groupCommitInterval = config.getGroupCommitInterval();
+  }
+
+  /**
+   * Acquires a reference to the journal for the given log's directory, opening the journal if necessary.
+   *
+   * @param config The log configuration.
+   * @return The journal for the log's directory.
+   * @throws IOException If the journal could not be opened.
+   */
+  static FileJournal acquire(FileLog config) throws IOException {
+    File directory = new File(config.getDirectory(), JOURNAL_DIRECTORY).getCanonicalFile();
+    synchronized (JOURNALS) {
+      FileJournal journal = JOURNALS.get(directory);
+      if (journal == null) {
+        journal = new FileJournal(directory, config);
+        journal.open();
+        JOURNALS.put(directory, journal);
+      }
+      journal.references++;
+      return journal;
+    }
+  }
+
+  /**
+   * Releases a reference to the journal, closing the journal once it's no longer referenced.
+   */
+  void release() {
+    synchronized (JOURNALS) {
+      if (--references == 0) {
+        JOURNALS.remove(directory);
+        close();
+      }
+    }
+  }
+
+  /**
+   * Opens the journal, indexing the records in existing segments and starting a new segment.
+   */
+  private void open() throws IOException {
+    directory.mkdirs();
+    File[] files = directory.listFiles(file -> file.isFile() && file.getName().startsWith("journal-") && file.getName().endsWith(".log"));
+    if (files != null) {
+      for (File file : files) {
+        try {
+          long id = Long.parseLong(file.getName().substring(file.getName().indexOf('-') + 1, file.getName().lastIndexOf('.')));
+          segments.put(id, new Segment(id, file));
+        } catch (NumberFormatException e) {
+          LOGGER.warn("Ignoring invalid journal segment {}", file);
+        }
+      }
+    }
+
+    for (Segment segment : segments.values()) {
+      index(segment);
+    }
+    currentSegment = createSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+  }
+
+  /**
+   * Indexes the records in an existing segment, truncating the segment at the first incomplete or corrupt record.
+   */
+  private void index(Segment segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      Map<Integer, String> names = new HashMap<>();
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        Record record = readRecord(channel, position, size);
+        if (record == null) {
+          LOGGER.warn("Truncating journal segment {} at corrupt record at position {}", segment.file, position);
+          channel.truncate(position);
+          break;
+        }
+
+        if (record.type == DEFINE) {
+          names.put(record.id, new String(record.data.array(), StandardCharsets.UTF_8));
+        } else {
+          String name = names.get(record.id);
+          if (name != null) {
+            recovered.computeIfAbsent(name, n -> new ArrayList<>()).add(new Location(segment.id, position));
+          }
+        }
+        position += record.size();
+      }
+    }
+  }
+
+  /**
+   * Creates and opens a new segment for writing.
+   */
+  private Segment createSegment(long id) throws IOException {
+    Segment segment = new Segment(id, new File(directory, String.format("journal-%d.log", id)));
+    segment.channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment.channel.position(segment.channel.size());
+    segments.put(id, segment);
+    return segment;
+  }
+
+  /**
+   * Registers a log to be flushed when the journal is checkpointed.
+   *
+   * @param log The log to register.
+   */
+  synchronized void register(FileLogManager log) {
+    logs.add(log);
+  }
+
+  /**
+   * Unregisters a log. The log must be flushed before it's unregistered.
+   *
+   * @param log The log to unregister.
+   */
+  synchronized void unregister(FileLogManager log) {
+    logs.remove(log);
+  }
+
+  /**
+   * Replays the journal records for the given resource.<p>
+   *
+   * Records are replayed in the order in which they were written, and once a resource's records have been replayed
+   * they're no longer retained by the journal on its behalf.
+   *
+   * @param name The resource name.
+   * @param replayer The replayer to which to pass records.
+   * @throws IOException If the records could not be read.
+   */
+  void replay(String name, Replayer replayer) throws IOException {
+    List<Location> locations;
+    Map<Long, Segment> segments;
+    synchronized (this) {
+      locations = recovered.get(name);
+      segments = new HashMap<>(this.segments);
+    }
+    if (locations == null) {
+      return;
+    }
+
+    Map<Long, FileChannel> channels = new HashMap<>();
+    try {
+      for (Location location : locations) {
+        FileChannel channel = channels.get(location.segment);
+        if (channel == null) {
+          channel = FileChannel.open(segments.get(location.segment).file.toPath(), StandardOpenOption.READ);
+          channels.put(location.segment, channel);
+        }
+        Record record = readRecord(channel, location.position, channel.size());
+        if (record != null) {
+          if (record.type == APPEND) {
+            replayer.append(record.index, record.data);
+          } else if (record.type == TRUNCATE) {
+            replayer.truncate(record.index);
+          }
+        }
+      }
+    } finally {
+      for (FileChannel channel : channels.values()) {
+        channel.close();
+      }
+    }
+
+    synchronized (this) {
+      recovered.remove(name);
+    }
+  }
+
+  /**
+   * Discards the journal records recovered for the given resource without replaying them. Called when a resource's
+   * log is deleted so that segments containing only the deleted resource's records are no longer retained.
+   *
+   * @param name The resource name.
+   */
+  synchronized void discard(String name) {
+    recovered.remove(name);
+  }
+
+  /**
+   * Appends a batch of entries written by a resource.
+   *
+   * @param name The resource name.
+   * @param firstIndex The index of the first entry.
+   * @param entries The entries to append.
+   * @return The journal position after the entries.
+   * @throws IOException If the entries could not be appended.
+   */
+  synchronized long append(String name, long firstIndex, List<ByteBuffer> entries) throws IOException {
+    int id = define(name);
+    for (int i = 0; i < entries.size(); i++) {
+      writeRecord(APPEND, id, firstIndex + i, entries.get(i));
+    }
+    return position;
+  }
+
+  /**
+   * Appends the removal of all entries after the given index by a resource.
+   *
+   * @param name The resource name.
+   * @param index The index after which entries were removed.
+   * @return The journal position after the record.
+   * @throws IOException If the record could not be appended.
+   */
+  synchronized long truncate(String name, long index) throws IOException {
+    writeRecord(TRUNCATE, define(name), index, ByteBuffer.allocate(0));
+    return position;
+  }
+
+  /**
+   * Returns the identifier of the given resource within the current segment, rolling over to a new segment if
+   * necessary and writing a record assigning the identifier if the resource hasn't written to the segment.
+   */
+  private int define(String name) throws IOException {
+    if (currentSegment.channel.position() >= segmentSize) {
+      rollOver();
+    }
+
+    Integer id = currentSegment.names.get(name);
+    if (id == null) {
+      id = currentSegment.names.size() + 1;
+      currentSegment.names.put(name, id);
+      writeRecord(DEFINE, id, 0, ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8)));
+    }
+    return id;
+  }
+
+  /**
+   * Writes a checksummed record to the current segment.
+   */
+  private void writeRecord(byte type, int id, long index, ByteBuffer entry) throws IOException {
+    ByteBuffer data = entry.duplicate();
+    data.rewind();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.put(type).putInt(id).putLong(index).putInt(data.remaining());
+    header.flip();
+
+    CRC32 checksum = new CRC32();
+    checksum.update(header.array(), 0, HEADER_SIZE);
+    checksum.update(data.duplicate());
+    ByteBuffer trailer = ByteBuffer.allocate(CHECKSUM_SIZE);
+    trailer.putInt(0, (int) checksum.getValue());
+
+    ByteBuffer[] buffers = new ByteBuffer[]{header, data, trailer};
+    long size = HEADER_SIZE + data.remaining() + CHECKSUM_SIZE;
+    long remaining = size;
+    while (remaining > 0) {
+      remaining -= currentSegment.channel.write(buffers);
+    }
+    position += size;
+  }
+
+  /**
+   * Reads the record at the given position, returning {@code null} if the record is incomplete or corrupt.
+   */
+  private static Record readRecord(FileChannel channel, long position, long size) throws IOException {
+    if (position + HEADER_SIZE + CHECKSUM_SIZE > size) {
+      return null;
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    read(channel, header, position);
+    header.flip();
+    byte type = header.get();
+    int id = header.getInt();
+    long index = header.getLong();
+    int length = header.getInt();
+    if (type < DEFINE || type > TRUNCATE || length < 0 || position + HEADER_SIZE + length + CHECKSUM_SIZE > size) {
+      return null;
+    }
+
+    ByteBuffer data = ByteBuffer.allocate(length);
+    read(channel, data, position + HEADER_SIZE);
+    data.flip();
+    ByteBuffer trailer = ByteBuffer.allocate(CHECKSUM_SIZE);
+    read(channel, trailer, position + HEADER_SIZE + length);
+
+    CRC32 checksum = new CRC32();
+    checksum.update(header.array(), 0, HEADER_SIZE);
+    checksum.update(data.array(), 0, length);
+    if (trailer.getInt(0) != (int) checksum.getValue()) {
+      return null;
+    }
+    return new Record(type, id, index, data);
+  }
+
+  /**
+   * Reads from the channel until the buffer is full.
+   */
+  private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new LogException("Unexpected end of journal segment");
+      }
+    }
+  }
+
+  /**
+   * Rolls over to a new segment and schedules a checkpoint to delete the previous segments. The previous segment is
+   * flushed before it's closed, so a flush that finds the segment closed has nothing left to flush.
+   */
+  private void rollOver() throws IOException {
+    Segment segment = currentSegment;
+    segment.channel.force(false);
+    segment.channel.close();
+    currentSegment = createSegment(segment.id + 1);
+    executor.execute(this::checkpoint);
+  }
+
+  /**
+   * Flushes the segments of all registered logs and deletes the journal segments preceding the current segment.
+   * Segments that contain records that have not yet been replayed by their resource are retained.
+   */
+  private void checkpoint() {
+    long segmentId;
+    List<FileLogManager> logs;
+    synchronized (this) {
+      segmentId = currentSegment.id;
+      logs = new ArrayList<>(this.logs);
+    }
+
+    for (FileLogManager log : logs) {
+      try {
+        log.checkpoint();
+      } catch (Exception e) {
+        LOGGER.error("Failed to checkpoint journal", e);
+        return;
+      }
+    }
+
+    deleteSegments(segmentId);
+  }
+
+  /**
+   * Deletes all closed segments preceding the given segment, retaining segments that contain records that have not
+   * yet been replayed.
+   */
+  private synchronized void deleteSegments(long segmentId) {
+    Set<Long> retained = new HashSet<>();
+    for (List<Location> locations : recovered.values()) {
+      for (Location location : locations) {
+        retained.add(location.segment);
+      }
+    }
+
+    for (Iterator<Segment> iterator = segments.headMap(segmentId, false).values().iterator(); iterator.hasNext();) {
+      Segment segment = iterator.next();
+      if (!retained.contains(segment.id)) {
+        iterator.remove();
+        segment.file.delete();
+      }
+    }
+  }
+
+  /**
+   * Flushes the journal up to the given position.
+   *
+   * @param position The position up to which to flush the journal.
+   */
+  void flush(long position) {
+    synchronized (flushLock) {
+      if (position <= flushedPosition) {
+        return;
+      }
+    }
+    try {
+      force();
+    } catch (IOException e) {
+      throw new LogException(e, "Failed to flush journal");
+    }
+  }
+
+  /**
+   * Schedules a grouped flush of the journal up to the given position.
+   *
+   * @param position The position up to which to flush the journal.
+   * @return A completable future to be completed with the position once the journal has been flushed.
+   */
+  CompletableFuture<Long> groupFlush(long position) {
+    synchronized (flushLock) {
+      if (position <= flushedPosition) {
+        return CompletableFuture.completedFuture(position);
+      }
+      CompletableFuture<Long> future = flushFutures.computeIfAbsent(position, p -> new CompletableFuture<>());
+      if (!flushScheduled) {
+        flushScheduled = true;
+        executor.schedule(this::flushGroup, groupCommitInterval, TimeUnit.MILLISECONDS);
+      }
+      return future;
+    }
+  }
+
+  /**
+   * Flushes all records written within the group commit interval and completes the flush futures for those records.
+   */
+  private void flushGroup() {
+    synchronized (flushLock) {
+      flushScheduled = false;
+    }
+
+    // Flush outside of the lock to allow records to continue to be appended to the journal during the flush.
+    Throwable error = null;
+    long position;
+    synchronized (this) {
+      position = this.position;
+    }
+    try {
+      force();
+    } catch (Exception e) {
+      LOGGER.error("Failed to flush journal", e);
+      error = e;
+    }
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>();
+    List<Long> positions = new ArrayList<>();
+    synchronized (flushLock) {
+      SortedMap<Long, CompletableFuture<Long>> flushed = flushFutures.headMap(position, true);
+      positions.addAll(flushed.keySet());
+      futures.addAll(flushed.values());
+      flushed.clear();
+      if (!flushFutures.isEmpty() && !flushScheduled) {
+        flushScheduled = true;
+        executor.schedule(this::flushGroup, groupCommitInterval, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    for (int i = 0; i < futures.size(); i++) {
+      if (error == null) {
+        futures.get(i).complete(positions.get(i));
+      } else {
+        futures.get(i).completeExceptionally(new LogException(error, "Failed to flush journal"));
+      }
+    }
+  }
+
+  /**
+   * Forces all records written to the journal to disk.
+   */
+  private void force() throws IOException {
+    long position;
+    FileChannel channel;
+    synchronized (this) {
+      position = this.position;
+      channel = currentSegment.channel;
+    }
+
+    try {
+      channel.force(false);
+    } catch (ClosedChannelException e) {
+      // The segment was closed by a roll over or by closing the journal, both of which flush the segment.
+    }
+
+    synchronized (flushLock) {
+      flushedPosition = Math.max(flushedPosition, position);
+    }
+  }
+
+  /**
+   * Closes the journal, flushing all records and completing all pending flushes. Since logs flush their segments
+   * before releasing the journal, all segments are deleted once the journal is closed unless they contain records
+   * that have not yet been replayed.
+   */
+  private void close() {
+    // The executor must not be interrupted since interrupting a thread that's flushing a file closes the file.
+    executor.shutdown();
+    long position;
+    synchronized (this) {
+      position = this.position;
+      try {
+        currentSegment.channel.force(false);
+        currentSegment.channel.close();
+        deleteSegments(Long.MAX_VALUE);
+      } catch (IOException e) {
+        LOGGER.error("Failed to close journal", e);
+      }
+    }
+
+    List<Map.Entry<Long, CompletableFuture<Long>>> futures;
+    synchronized (flushLock) {
+      flushedPosition = position;
+      futures = new ArrayList<>(flushFutures.entrySet());
+      flushFutures.clear();
+    }
+    futures.forEach(entry -> entry.getValue().complete(entry.getKey()));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[directory=%s]", getClass().getSimpleName(), directory);
+  }
+
+  /**
+   * Journal record replayer.
+   */
+  interface Replayer {
+
+    /**
+     * Replays an appended entry.
+     *
+     * @param index The entry index.
+     * @param entry The entry.
+     * @throws IOException If the entry could not be replayed.
+     */
+    void append(long index, ByteBuffer entry) throws IOException;
+
+    /**
+     * Replays the removal of entries.
+     *
+     * @param index The index after which entries were removed.
+     */
+    void truncate(long index);
+
+  }
+
+  /**
+   * Journal segment.
+   */
+  private static class Segment {
+    private final long id;
+    private final File file;
+    private final Map<String, Integer> names = new HashMap<>();
+    private FileChannel channel;
+
+    private Segment(long id, File file) {
+      this.id = id;
+      this.file = file;
+    }
+  }
+
+  /**
+   * Location of a record that has yet to be replayed.
+   */
+  private static class Location {
+    private final long segment;
+    private final long position;
+
+    private Location(long segment, long position) {
+      this.segment = segment;
+      this.position = position;
+    }
+  }
+
+  /**
+   * Journal record.
+   */
+  private static class Record {
+    private final byte type;
+    private final int id;
+    private final long index;
+    private final ByteBuffer data;
+
+    private Record(byte type, int id, long index, ByteBuffer data) {
+      this.type = type;
+      this.id = id;
+      this.index = index;
+      this.data = data;
+    }
+
+    private long size() {
+      return HEADER_SIZE + data.limit() + CHECKSUM_SIZE;
+    }
+  }
+
+}
@@ -28,6 +28,7 @@ import java.util.Map;
  */
 public class FileLog extends Log {
   private static final String FILE_LOG_DIRECTORY = "directory";
+  private static final String FILE_LOG_SHARED = "shared";
 
   public FileLog() {
     super();
@@ -111,6 +112,40 @@ public class FileLog extends Log {
     return this;
   }
 
+  /**
+   * Sets whether resources share a single write-ahead log.<p>
+   *
+   * When the log is shared, each resource continues to read and compact its own log segments, but entries are made
+   * durable by appending them to a journal that's shared by all resources using the same log directory. Flushes are
+   * performed on the shared journal rather than on each resource's segments, so with group commit enabled a single
+   * flush covers the writes of all resources within the group commit interval.
+   *
+   * @param shared Whether resources share a single write-ahead log.
+   */
+  public void setShared(boolean shared) {
+    this.config = config.withValue(FILE_LOG_SHARED, ConfigValueFactory.fromAnyRef(shared));
+  }
+
+  /**
+   * Returns a boolean indicating whether resources share a single write-ahead log.
+   *
+   * @return Indicates whether resources share a single write-ahead log.
+   */
+  public boolean isShared() {
+    return config.hasPath(FILE_LOG_SHARED) && config.getBoolean(FILE_LOG_SHARED);
+  }
+
+  /**
+   * Sets whether resources share a single write-ahead log, returning the log configuration for method chaining.
+   *
+   * @param shared Whether resources share a single write-ahead log.
+   * @return The log configuration.
+   */
+  public FileLog withShared(boolean shared) {
+    setShared(shared);
+    return this;
+  }
+
   @Override
   public FileLog withSegmentSize(int segmentSize) {
     setSegmentSize(segmentSize);
@@ -135,9 +170,32 @@ public class FileLog extends Log {
     return this;
   }
 
+  @Override
+  public FileLog withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public FileLog withGroupCommitInterval(long groupCommitInterval) {
+    setGroupCommitInterval(groupCommitInterval);
+    return this;
+  }
+
+  @Override
+  public FileLog withCacheSize(int cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   @Override
   public LogManager getLogManager(String name) {
     return new FileLogManager(name, this);
   }
 
+  @Override
+  public SnapshotStore getSnapshotStore(String name) {
+    return new FileSnapshotStore(name, getDirectory());
+  }
+
 }
@@ -15,26 +15,39 @@
  */
 package net.kuujo.copycat.log;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * File log.
+ * File log.<p>
+ *
+ * If the log is {@link FileLog#isShared() shared} then entries written to the log's segments are made durable by a
+ * {@link FileJournal} shared with all other logs in the same directory rather than by flushing the log's segments.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class FileLogManager extends AbstractLogManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileLogManager.class);
   final FileLog config;
   final File base;
+  private final String name;
+  private FileJournal journal;
+  private volatile LogSegment journalSegment;
+  private long journalPosition;
+  private long lastFlush;
 
   FileLogManager(String name, FileLog config) {
     super(config);
     this.config = config.copy();
     this.base = new File(config.getDirectory(), name);
+    this.name = name;
   }
 
   @Override
@@ -44,7 +57,7 @@ public class FileLogManager extends AbstractLogManager {
     for (File file : config.getDirectory().listFiles(File::isFile)) {
       if (file.getName().startsWith(base.getName() + "-") && file.getName().endsWith(".metadata")) {
         try {
-          long id = Long.valueOf(file.getName().substring(file.getName().lastIndexOf('-') + 1), file.getName().lastIndexOf('.')).longValue();
+          long id = Long.valueOf(file.getName().substring(file.getName().lastIndexOf('-') + 1, file.getName().lastIndexOf('.'))).longValue();
           if (!segments.containsKey(id)) {
             // Open the metadata file, determine the segment's first index, and create a log segment.
             try (RandomAccessFile metaFile = new RandomAccessFile(file, "r")) {
@@ -65,4 +78,178 @@ public class FileLogManager extends AbstractLogManager {
     return new FileLogSegment(this, segmentId, firstIndex);
   }
 
+  @Override
+  protected boolean isGroupCommit() {
+    return super.isGroupCommit() && !config.isShared();
+  }
+
+  @Override
+  public synchronized void open() throws IOException {
+    super.open();
+    if (config.isShared()) {
+      journal = FileJournal.acquire(config);
+      try {
+        journal.replay(name, new JournalReplayer());
+      } catch (IOException | RuntimeException e) {
+        journal.release();
+        journal = null;
+        throw e;
+      }
+      journalSegment = segment();
+      journal.register(this);
+    }
+  }
+
+  @Override
+  public long appendEntry(ByteBuffer entry) throws IOException {
+    long index = super.appendEntry(entry);
+    if (journal != null) {
+      journalSegment = segment();
+      journalPosition = journal.append(name, index, Collections.singletonList(entry));
+    }
+    return index;
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    List<Long> indexes = super.appendEntries(entries);
+    if (journal != null && !indexes.isEmpty()) {
+      journalSegment = segment();
+      journalPosition = journal.append(name, indexes.get(0), entries);
+    }
+    return indexes;
+  }
+
+  @Override
+  public void removeAfter(long index) {
+    super.removeAfter(index);
+    if (journal != null) {
+      journalSegment = segment();
+      try {
+        journalPosition = journal.truncate(name, index);
+      } catch (IOException e) {
+        throw new LogException(e, "Failed to write journal");
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (journal == null) {
+      super.flush();
+    } else if (config.isGroupCommit()) {
+      journal.groupFlush(journalPosition);
+    } else if (config.isFlushOnWrite()) {
+      journal.flush(journalPosition);
+    } else if (System.currentTimeMillis() - lastFlush > config.getFlushInterval()) {
+      journal.flush(journalPosition);
+      lastFlush = System.currentTimeMillis();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Long> flush(long index) {
+    if (journal != null && config.isGroupCommit()) {
+      assertIsOpen();
+      return journal.groupFlush(journalPosition).thenApply(position -> index);
+    }
+    return super.flush(index);
+  }
+
+  /**
+   * Flushes the segment most recently written through the journal so that the journal can discard the segment's
+   * records. Called by the journal on its own thread while the log may be appending to the segment, so the segment
+   * must support concurrent flushes. Segments that are closed concurrently have either been flushed when the log
+   * rolled over or closed, or deleted by compaction, so they need not be flushed.
+   */
+  void checkpoint() {
+    LogSegment segment = journalSegment;
+    if (segment != null) {
+      try {
+        segment.flush();
+      } catch (RuntimeException e) {
+        if (segment.isOpen()) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (journal != null) {
+      LogSegment segment = segment();
+      if (segment != null) {
+        segment.flush();
+      }
+      journal.unregister(this);
+      journal.release();
+      journal = null;
+      journalSegment = null;
+    }
+    super.close();
+  }
+
+  @Override
+  public void delete() {
+    // Record the removal of all entries so that deleted entries aren't recovered from the journal, and discard any
+    // records that were never replayed so that they no longer retain the journal's segments.
+    if (config.isShared()) {
+      try {
+        FileJournal journal = this.journal != null ? this.journal : FileJournal.acquire(config);
+        try {
+          journal.flush(journal.truncate(name, 0));
+          journal.discard(name);
+        } finally {
+          if (journal != this.journal) {
+            journal.release();
+          }
+        }
+      } catch (IOException e) {
+        throw new LogException(e, "Failed to write journal");
+      }
+    }
+    super.delete();
+  }
+
+  /**
+   * Replays journal records into the log's segments. Entries that are already in the log are skipped, and entries
+   * that conflict with entries in the log replace them.
+   */
+  private class JournalReplayer implements FileJournal.Replayer {
+    @Override
+    public void append(long index, ByteBuffer entry) throws IOException {
+      long firstIndex = index();
+      Long lastIndex = lastIndex();
+      long nextIndex = lastIndex != null ? lastIndex + 1 : firstIndex;
+      if (index < firstIndex) {
+        return;
+      } else if (index < nextIndex) {
+        ByteBuffer existing = getEntry(index).duplicate();
+        existing.rewind();
+        if (existing.equals(entry)) {
+          return;
+        } else if (index > firstIndex || firstIndex == 1) {
+          FileLogManager.super.removeAfter(index - 1);
+        } else {
+          LOGGER.warn("Cannot replace entry {} at the start of compacted log {}", index, name);
+          return;
+        }
+      } else if (index > nextIndex) {
+        LOGGER.warn("Cannot replay entry {} after last index {} of log {}", index, lastIndex, name);
+        return;
+      }
+      FileLogManager.super.appendEntry(entry);
+    }
+
+    @Override
+    public void truncate(long index) {
+      long firstIndex = index();
+      Long lastIndex = lastIndex();
+      if (lastIndex != null && index < lastIndex && (index >= firstIndex || index == 0 && firstIndex == 1)) {
+        FileLogManager.super.removeAfter(index);
+      }
+    }
+  }
+
 }
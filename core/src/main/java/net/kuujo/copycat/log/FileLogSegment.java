@@ -15,12 +15,17 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.internal.Assert;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * File log segment.
@@ -28,6 +33,8 @@ import java.nio.file.StandardOpenOption;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class FileLogSegment extends AbstractLogSegment {
+  private static final int INDEX_ENTRY_SIZE = 8;
+  private static final int INDEX_CHUNK_SIZE = 1024 * 64;
   private final FileLogManager log;
   private final File logFile;
   private final File indexFile;
@@ -37,7 +44,8 @@ public class FileLogSegment extends AbstractLogSegment {
   private FileChannel indexFileChannel;
   private Long firstIndex;
   private Long lastIndex;
-  private final ByteBuffer indexBuffer = ByteBuffer.allocate(8);
+  private volatile MappedByteBuffer indexBuffer;
+  private final Object flushLock = new Object();
 
   FileLogSegment(FileLogManager log, long id, long firstIndex) {
     super(id, firstIndex);
@@ -83,11 +91,56 @@ public class FileLogSegment extends AbstractLogSegment {
     logFileChannel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
     logFileChannel.position(logFileChannel.size());
     indexFileChannel = FileChannel.open(this.indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
-    indexFileChannel.position(indexFileChannel.size());
+    indexBuffer = indexFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(indexFileChannel.size(), INDEX_CHUNK_SIZE));
 
-    if (indexFileChannel.size() > 0) {
+    long entries = countEntries();
+    if (entries > 0) {
       firstIndex = super.firstIndex;
-      lastIndex = firstIndex + indexFileChannel.size() / 8 - 1;
+      lastIndex = firstIndex + entries - 1;
+    }
+  }
+
+  /**
+   * Counts the number of entries in the index.
+   *
+   * The index file is grown in chunks, so its size does not reflect the number of entries it contains. Entries are
+   * never empty, so positions are strictly increasing and the first unused slot is the first position that does not
+   * fall after the previous position within the log file.
+   */
+  private long countEntries() throws IOException {
+    long logSize = logFileChannel.size();
+    if (logSize == 0) {
+      return 0;
+    }
+
+    long slots = indexBuffer.capacity() / INDEX_ENTRY_SIZE;
+    long previous = 0;
+    long count = 1;
+    while (count < slots) {
+      long position = indexBuffer.getLong((int) (count * INDEX_ENTRY_SIZE));
+      if (position <= previous || position >= logSize) {
+        break;
+      }
+      previous = position;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Ensures the mapped index is large enough to store the given number of entries, growing the index file in chunks.
+   */
+  private void ensureIndexCapacity(long entries) throws IOException {
+    long required = entries * INDEX_ENTRY_SIZE;
+    if (required > indexBuffer.capacity()) {
+      long capacity = indexBuffer.capacity();
+      while (capacity < required) {
+        capacity += INDEX_CHUNK_SIZE;
+      }
+      synchronized (flushLock) {
+        indexBuffer.force();
+        indexBuffer = indexFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      }
     }
   }
 
@@ -99,7 +152,7 @@ public class FileLogSegment extends AbstractLogSegment {
 
   @Override
   public boolean isOpen() {
-    return logFileChannel != null && indexFileChannel != null;
+    return logFileChannel != null && indexBuffer != null;
   }
 
   @Override
@@ -145,14 +198,54 @@ public class FileLogSegment extends AbstractLogSegment {
     return index;
   }
 
+  /**
+   * Appends a batch of entries to the segment using a single gathering write.
+   */
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    assertIsOpen();
+    Assert.isNotNull(entries, "entries");
+    List<Long> indexes = new ArrayList<>(entries.size());
+    if (entries.isEmpty()) {
+      return indexes;
+    }
+
+    try {
+      ByteBuffer[] buffers = new ByteBuffer[entries.size()];
+      long[] positions = new long[entries.size()];
+      long position = logFileChannel.position();
+      long remaining = 0;
+      for (int i = 0; i < buffers.length; i++) {
+        ByteBuffer entry = entries.get(i);
+        entry.rewind();
+        buffers[i] = entry;
+        positions[i] = position + remaining;
+        remaining += entry.remaining();
+        indexes.add(nextIndex());
+      }
+
+      // A gathering write may not write all buffers at once, so continue writing until all bytes have been written.
+      while (remaining > 0) {
+        remaining -= logFileChannel.write(buffers);
+      }
+
+      ensureIndexCapacity(indexes.get(indexes.size() - 1) - firstIndex + 1);
+      for (int i = 0; i < positions.length; i++) {
+        indexBuffer.putLong((int) ((indexes.get(i) - firstIndex) * INDEX_ENTRY_SIZE), positions[i]);
+      }
+    } catch (IOException e) {
+      throw new LogException(e);
+    }
+    return indexes;
+  }
+
   /**
    * Stores the position of an entry in the log.
    */
   private void storePosition(long index, long position) {
     try {
-      ByteBuffer buffer = ByteBuffer.allocate(8).putLong(position);
-      buffer.flip();
-      indexFileChannel.write(buffer, (index - firstIndex) * 8);
+      ensureIndexCapacity(index - firstIndex + 1);
+      indexBuffer.putLong((int) ((index - firstIndex) * INDEX_ENTRY_SIZE), position);
     } catch (IOException e) {
       throw new LogException(e);
     }
@@ -168,11 +261,7 @@ public class FileLogSegment extends AbstractLogSegment {
       } else if (lastIndex == null || index > lastIndex) {
         return logFileChannel.size();
       }
-      indexFileChannel.read(indexBuffer, (index - firstIndex) * 8);
-      indexBuffer.flip();
-      long position = indexBuffer.getLong();
-      indexBuffer.clear();
-      return position;
+      return indexBuffer.getLong((int) ((index - firstIndex) * INDEX_ENTRY_SIZE));
     } catch (IOException e) {
       throw new LogException(e);
     }
@@ -212,13 +301,54 @@ public class FileLogSegment extends AbstractLogSegment {
     }
   }
 
+  /**
+   * Gets a range of entries from the segment using a single read of the range's bytes.
+   */
+  @Override
+  public List<ByteBuffer> getEntries(long from, long to) {
+    assertIsOpen();
+    List<ByteBuffer> entries = new ArrayList<>((int) Math.max(to - from + 1, 0));
+    if (from > to) {
+      return entries;
+    }
+
+    assertContainsIndex(from);
+    assertContainsIndex(to);
+    try {
+      long startPosition = findPosition(from);
+      ByteBuffer buffer = ByteBuffer.allocate((int) (findPosition(to + 1) - startPosition));
+      // A positional read may not fill the buffer at once, so continue reading until the range has been read.
+      while (buffer.hasRemaining()) {
+        if (logFileChannel.read(buffer, startPosition + buffer.position()) < 0) {
+          throw new LogException("Unexpected end of log segment");
+        }
+      }
+
+      // Each entry is a view of the shared buffer between its own position and that of the following entry.
+      long position = startPosition;
+      for (long index = from; index <= to; index++) {
+        long nextPosition = findPosition(index + 1);
+        buffer.limit((int) (nextPosition - startPosition));
+        buffer.position((int) (position - startPosition));
+        entries.add(buffer.slice());
+        position = nextPosition;
+      }
+    } catch (IOException e) {
+      throw new LogException(e);
+    }
+    return entries;
+  }
+
   @Override
   public void removeAfter(long index) {
     assertIsOpen();
     if (containsIndex(index + 1)) {
       try {
         logFileChannel.truncate(findPosition(index + 1));
-        indexFileChannel.truncate(((index + 1) - firstIndex) * 8);
+        // The index file is mapped, so rather than truncating it clear the removed slots.
+        for (long i = index + 1; i <= lastIndex; i++) {
+          indexBuffer.putLong((int) ((i - firstIndex) * INDEX_ENTRY_SIZE), 0);
+        }
         if (index >= firstIndex) {
           lastIndex = index;
         } else {
@@ -231,23 +361,37 @@ public class FileLogSegment extends AbstractLogSegment {
     }
   }
 
+  /**
+   * Flushes the segment. Segments may be flushed by a group commit or journal thread while entries are appended, so
+   * flushes are synchronized with remapping the index and closing the segment. A segment that has already been closed
+   * was flushed when it was closed.
+   */
   @Override
   public void flush() {
-    try {
-      logFileChannel.force(false);
-      indexFileChannel.force(false);
-    } catch (IOException e) {
-      throw new LogException(e);
+    synchronized (flushLock) {
+      if (logFileChannel == null) {
+        return;
+      }
+      try {
+        logFileChannel.force(false);
+        indexBuffer.force();
+      } catch (IOException e) {
+        throw new LogException(e);
+      }
     }
   }
 
   @Override
   public void close() throws IOException {
     assertIsOpen();
-    logFileChannel.close();
-    logFileChannel = null;
-    indexFileChannel.close();
-    indexFileChannel = null;
+    synchronized (flushLock) {
+      logFileChannel.close();
+      logFileChannel = null;
+      indexBuffer.force();
+      indexBuffer = null;
+      indexFileChannel.close();
+      indexFileChannel = null;
+    }
   }
 
   @Override
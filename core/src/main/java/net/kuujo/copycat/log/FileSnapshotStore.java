@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File based snapshot store.<p>
+ *
+ * Each snapshot is stored in a file named for the resource and the snapshot index and term. Snapshots are written to
+ * a temporary file which is synced and atomically renamed when the snapshot is completed, so a partially written
+ * snapshot is never loaded after a crash. Completing a snapshot deletes all other snapshot files. Snapshots are
+ * completed while holding the store's lock so that a snapshot completed on another thread never replaces or deletes a
+ * newer snapshot.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class FileSnapshotStore implements SnapshotStore {
+  private static final String SNAPSHOT_EXTENSION = ".snapshot";
+  private static final String TEMP_EXTENSION = ".tmp";
+  private final String name;
+  private final File directory;
+  private volatile FileSnapshot snapshot;
+  private volatile boolean open;
+
+  FileSnapshotStore(String name, File directory) {
+    this.name = name;
+    this.directory = directory;
+  }
+
+  @Override
+  public synchronized void open() throws IOException {
+    directory.mkdirs();
+    snapshot = null;
+    for (File file : files()) {
+      if (file.getName().endsWith(TEMP_EXTENSION)) {
+        Files.deleteIfExists(file.toPath());
+      } else {
+        FileSnapshot snapshot = parse(file);
+        if (snapshot != null && (this.snapshot == null || snapshot.index > this.snapshot.index)) {
+          this.snapshot = snapshot;
+        }
+      }
+    }
+    open = true;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public Snapshot currentSnapshot() {
+    return snapshot;
+  }
+
+  @Override
+  public SnapshotWriter createSnapshot(long index, long term) throws IOException {
+    Assert.state(open, "Snapshot store is not open");
+    return new FileSnapshotWriter(new FileSnapshot(new File(directory, String.format("%s-%d-%d%s", name, index, term, SNAPSHOT_EXTENSION)), index, term));
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+  @Override
+  public synchronized void delete() {
+    for (File file : files()) {
+      file.delete();
+    }
+    snapshot = null;
+  }
+
+  /**
+   * Returns all snapshot and temporary snapshot files for the store.
+   */
+  private File[] files() {
+    File[] files = directory.listFiles(file -> file.isFile() && parse(file) != null);
+    return files != null ? files : new File[0];
+  }
+
+  /**
+   * Parses the snapshot index and term from a snapshot or temporary snapshot file name.<p>
+   *
+   * Only files named exactly {@code <name>-<index>-<term>.snapshot} or {@code <name>-<index>-<term>.snapshot.tmp} belong
+   * to the store. Other resources' snapshots may be stored in the same directory under names that start with this
+   * store's name, and those must never be loaded or deleted by this store.
+   *
+   * @return The parsed snapshot, or {@code null} if the file is not a snapshot of this store.
+   */
+  private FileSnapshot parse(File file) {
+    String fileName = file.getName();
+    if (fileName.endsWith(TEMP_EXTENSION)) {
+      fileName = fileName.substring(0, fileName.length() - TEMP_EXTENSION.length());
+    }
+    if (!fileName.startsWith(name + "-") || !fileName.endsWith(SNAPSHOT_EXTENSION)
+      || fileName.length() <= name.length() + 1 + SNAPSHOT_EXTENSION.length()) {
+      return null;
+    }
+
+    String[] parts = fileName.substring(name.length() + 1, fileName.length() - SNAPSHOT_EXTENSION.length()).split("-", -1);
+    if (parts.length != 2 || !isNumber(parts[0]) || !isNumber(parts[1])) {
+      return null;
+    }
+    try {
+      return new FileSnapshot(file, Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a boolean value indicating whether the given string is a non-empty sequence of decimal digits.
+   */
+  private static boolean isNumber(String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isDigit(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * File snapshot.
+   */
+  private static class FileSnapshot implements Snapshot {
+    private final File file;
+    private final long index;
+    private final long term;
+
+    private FileSnapshot(File file, long index, long term) {
+      this.file = file;
+      this.index = index;
+      this.term = term;
+    }
+
+    @Override
+    public long index() {
+      return index;
+    }
+
+    @Override
+    public long term() {
+      return term;
+    }
+
+    @Override
+    public long size() {
+      return file.length();
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) throws IOException {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        Assert.index(offset, offset >= 0 && offset <= channel.size(), "Snapshot offset out of bounds");
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, channel.size() - offset));
+        while (buffer.hasRemaining()) {
+          channel.read(buffer, offset + buffer.position());
+        }
+        buffer.flip();
+        return buffer;
+      }
+    }
+  }
+
+  /**
+   * File snapshot writer.
+   */
+  private class FileSnapshotWriter implements SnapshotWriter {
+    private final FileSnapshot snapshot;
+    private final File tempFile;
+    private final FileChannel channel;
+    private long size;
+    private boolean completed;
+
+    private FileSnapshotWriter(FileSnapshot snapshot) throws IOException {
+      this.snapshot = snapshot;
+      this.tempFile = new File(snapshot.file.getPath() + TEMP_EXTENSION);
+      this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public long index() {
+      return snapshot.index;
+    }
+
+    @Override
+    public long term() {
+      return snapshot.term;
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+
+    @Override
+    public void write(ByteBuffer chunk) throws IOException {
+      Assert.state(!completed, "Snapshot already completed");
+      while (chunk.hasRemaining()) {
+        size += channel.write(chunk);
+      }
+    }
+
+    @Override
+    public Snapshot complete() throws IOException {
+      Assert.state(!completed, "Snapshot already completed");
+      channel.force(true);
+      channel.close();
+      synchronized (FileSnapshotStore.this) {
+        FileSnapshot current = FileSnapshotStore.this.snapshot;
+        if (current != null && current.index > snapshot.index) {
+          Files.deleteIfExists(tempFile.toPath());
+          completed = true;
+          return current;
+        }
+
+        Files.move(tempFile.toPath(), snapshot.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        completed = true;
+        for (File file : files()) {
+          if (!file.equals(snapshot.file) && !file.getName().endsWith(TEMP_EXTENSION)) {
+            file.delete();
+          }
+        }
+        FileSnapshotStore.this.snapshot = snapshot;
+        return snapshot;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!completed) {
+        channel.close();
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+  }
+
+}
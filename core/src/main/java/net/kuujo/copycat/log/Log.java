@@ -73,6 +73,24 @@ public abstract class Log extends LogConfig {
     return this;
   }
 
+  @Override
+  public Log withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public Log withGroupCommitInterval(long groupCommitInterval) {
+    setGroupCommitInterval(groupCommitInterval);
+    return this;
+  }
+
+  @Override
+  public Log withCacheSize(int cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   /**
    * Gets a log manager for the given resource.
    *
@@ -81,4 +99,17 @@ public abstract class Log extends LogConfig {
    */
   public abstract LogManager getLogManager(String name);
 
+  /**
+   * Gets a snapshot store for the given resource.<p>
+   *
+   * By default snapshots are held in memory. Persistent logs should override this method to store snapshots alongside
+   * the log segments.
+   *
+   * @param name The resource name.
+   * @return The resource snapshot store.
+   */
+  public SnapshotStore getSnapshotStore(String name) {
+    return new BufferedSnapshotStore();
+  }
+
 }
@@ -32,6 +32,9 @@ public abstract class LogConfig extends AbstractConfigurable implements Configur
   private static final String LOG_SEGMENT_INTERVAL = "segment.interval";
   private static final String LOG_FLUSH_ON_WRITE = "flush.on-write";
   private static final String LOG_FLUSH_INTERVAL = "flush.interval";
+  private static final String LOG_GROUP_COMMIT = "flush.group-commit";
+  private static final String LOG_GROUP_COMMIT_INTERVAL = "flush.group-commit-interval";
+  private static final String LOG_CACHE_SIZE = "cache.size";
 
   private static final String DEFAULT_CONFIGURATION = "log-defaults";
   private static final String CONFIGURATION = "log";
@@ -181,4 +184,102 @@ public abstract class LogConfig extends AbstractConfigurable implements Configur
     return this;
   }
 
+  /**
+   * Sets whether to group flushes to disk across multiple writes.
+   *
+   * When group commit is enabled, writes that occur within the group commit interval are flushed to disk with a
+   * single flush, and {@link LogManager#flush(long)} futures are completed once the entries have been flushed.
+   *
+   * @param groupCommit Whether to group flushes to disk across multiple writes.
+   */
+  public void setGroupCommit(boolean groupCommit) {
+    this.config = config.withValue(LOG_GROUP_COMMIT, ConfigValueFactory.fromAnyRef(groupCommit));
+  }
+
+  /**
+   * Returns whether to group flushes to disk across multiple writes.
+   *
+   * @return Whether to group flushes to disk across multiple writes.
+   */
+  public boolean isGroupCommit() {
+    return config.hasPath(LOG_GROUP_COMMIT) && config.getBoolean(LOG_GROUP_COMMIT);
+  }
+
+  /**
+   * Sets whether to group flushes to disk across multiple writes, returning the log configuration for method chaining.
+   *
+   * @param groupCommit Whether to group flushes to disk across multiple writes.
+   * @return The log configuration.
+   */
+  public LogConfig withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  /**
+   * Sets the group commit interval in milliseconds.
+   *
+   * @param groupCommitInterval The interval within which writes are grouped into a single flush.
+   * @throws java.lang.IllegalArgumentException If the group commit interval is not positive
+   */
+  public void setGroupCommitInterval(long groupCommitInterval) {
+    this.config = config.withValue(LOG_GROUP_COMMIT_INTERVAL, ConfigValueFactory.fromAnyRef(Assert.arg(groupCommitInterval, groupCommitInterval > 0, "group commit interval must be positive")));
+  }
+
+  /**
+   * Returns the group commit interval in milliseconds.
+   *
+   * @return The interval within which writes are grouped into a single flush.
+   */
+  public long getGroupCommitInterval() {
+    return config.hasPath(LOG_GROUP_COMMIT_INTERVAL) ? config.getLong(LOG_GROUP_COMMIT_INTERVAL) : 2;
+  }
+
+  /**
+   * Sets the group commit interval, returning the log configuration for method chaining.
+   *
+   * @param groupCommitInterval The interval within which writes are grouped into a single flush.
+   * @return The log configuration.
+   * @throws java.lang.IllegalArgumentException If the group commit interval is not positive
+   */
+  public LogConfig withGroupCommitInterval(long groupCommitInterval) {
+    setGroupCommitInterval(groupCommitInterval);
+    return this;
+  }
+
+  /**
+   * Sets the maximum size of the log entry cache in bytes.
+   *
+   * The entry cache holds the most recently appended entries in memory so that reads from the tail of the log, such
+   * as those performed when replicating entries, don't have to go to disk. A cache size of {@code 0} disables the cache.
+   * The cache is disabled by default since each log holds its own cache, and it's never used by in-memory logs.
+   *
+   * @param cacheSize The maximum size of the log entry cache in bytes.
+   * @throws java.lang.IllegalArgumentException If the cache size is negative
+   */
+  public void setCacheSize(int cacheSize) {
+    this.config = config.withValue(LOG_CACHE_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(cacheSize, cacheSize >= 0, "cache size must be positive")));
+  }
+
+  /**
+   * Returns the maximum size of the log entry cache in bytes.
+   *
+   * @return The maximum size of the log entry cache in bytes. Defaults to {@code 0}, disabling the cache.
+   */
+  public int getCacheSize() {
+    return config.hasPath(LOG_CACHE_SIZE) ? config.getInt(LOG_CACHE_SIZE) : 0;
+  }
+
+  /**
+   * Sets the maximum size of the log entry cache in bytes, returning the log configuration for method chaining.
+   *
+   * @param cacheSize The maximum size of the log entry cache in bytes.
+   * @return The log configuration.
+   * @throws java.lang.IllegalArgumentException If the cache size is negative
+   */
+  public LogConfig withCacheSize(int cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
 }
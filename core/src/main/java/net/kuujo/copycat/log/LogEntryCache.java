@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Size bounded cache of recent log entries.<p>
+ *
+ * Entries are copied into the cache when they're written and evicted oldest first once the total size of cached
+ * entries exceeds the maximum cache size. A single cached copy is shared by all readers of an entry, with each read
+ * returning a duplicate buffer that has its own position and limit. Readers must not modify the contents of entries
+ * returned by the cache. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class LogEntryCache {
+  private final int maxSize;
+  private final TreeMap<Long, ByteBuffer> entries = new TreeMap<>();
+  private long size;
+  private long hits;
+  private long misses;
+
+  LogEntryCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Adds an entry to the cache, evicting the oldest entries if the cache is full.
+   *
+   * @param index The index of the entry.
+   * @param entry The entry to cache. The entry is copied from position {@code 0} to its limit.
+   */
+  public void put(long index, ByteBuffer entry) {
+    remove(index);
+    if (entry.limit() > maxSize) {
+      return;
+    }
+
+    ByteBuffer source = entry.duplicate();
+    source.rewind();
+    ByteBuffer copy = ByteBuffer.allocate(source.limit());
+    copy.put(source);
+    copy.flip();
+    entries.put(index, copy);
+    size += copy.limit();
+
+    while (size > maxSize) {
+      Map.Entry<Long, ByteBuffer> eldest = entries.pollFirstEntry();
+      size -= eldest.getValue().limit();
+    }
+  }
+
+  /**
+   * Adds an entry that was read from disk to the cache if it's newer than the oldest cached entry.
+   *
+   * @param index The index of the entry.
+   * @param entry The entry to cache.
+   */
+  public void fill(long index, ByteBuffer entry) {
+    if (entries.isEmpty() || index > entries.firstKey()) {
+      put(index, entry);
+    }
+  }
+
+  /**
+   * Gets an entry from the cache.
+   *
+   * @param index The index of the entry to get.
+   * @return A duplicate of the cached entry or {@code null} if the entry is not cached.
+   */
+  public ByteBuffer get(long index) {
+    ByteBuffer entry = entries.get(index);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.duplicate();
+  }
+
+  /**
+   * Removes all entries after the given index from the cache.
+   *
+   * @param index The index after which to remove entries.
+   */
+  public void removeAfter(long index) {
+    remove(entries.tailMap(index, false).entrySet().iterator());
+  }
+
+  /**
+   * Removes all entries prior to the given index from the cache.
+   *
+   * @param index The index before which to remove entries.
+   */
+  public void removeBefore(long index) {
+    remove(entries.headMap(index, false).entrySet().iterator());
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+   * Returns the total size of cached entries in bytes.
+   *
+   * @return The total size of cached entries in bytes.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of reads that were served by the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of reads that were not served by the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public long misses() {
+    return misses;
+  }
+
+  /**
+   * Removes a single entry from the cache.
+   */
+  private void remove(long index) {
+    ByteBuffer entry = entries.remove(index);
+    if (entry != null) {
+      size -= entry.limit();
+    }
+  }
+
+  /**
+   * Removes all entries from the given iterator.
+   */
+  private void remove(Iterator<Map.Entry<Long, ByteBuffer>> iterator) {
+    while (iterator.hasNext()) {
+      size -= iterator.next().getValue().limit();
+      iterator.remove();
+    }
+  }
+
+}
@@ -17,6 +17,7 @@ package net.kuujo.copycat.log;
 
 import java.io.IOException;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Log manager.
@@ -68,6 +69,51 @@ public interface LogManager extends Loggable {
    */
   void rollOver(long index) throws IOException;
 
+  /**
+   * Returns the term of the entry at the given index.
+   *
+   * Log entries are expected to be prefixed with the 8 byte term in which they were written. Terms are held in an
+   * in-memory index that is rebuilt when the log is opened, so looking up a term does not read the entry from disk.
+   *
+   * @param index The index of the entry for which to return the term.
+   * @return The term of the entry at the given index or {@code null} if the log does not contain the index.
+   * @throws IllegalStateException If the log is not open.
+   */
+  Long termAt(long index);
+
+  /**
+   * Returns the first index of the given term in the log.
+   *
+   * Since terms never decrease as indexes increase, all entries in a term are contiguous in the log. The lookup uses
+   * the in-memory term index and does not read entries from disk.
+   *
+   * @param term The term for which to return the first index.
+   * @return The first index of the given term or {@code null} if the log contains no entries in the term.
+   * @throws IllegalStateException If the log is not open.
+   */
+  Long firstIndexOf(long term);
+
+  /**
+   * Returns the last index of the given term in the log.
+   *
+   * @param term The term for which to return the last index.
+   * @return The last index of the given term or {@code null} if the log contains no entries in the term.
+   * @throws IllegalStateException If the log is not open.
+   */
+  Long lastIndexOf(long term);
+
+  /**
+   * Flushes the log to disk up to the given index.
+   *
+   * If group commit is enabled then the flush is grouped with other writes that occur within the group commit
+   * interval, otherwise the log is flushed according to its flush configuration before the future is returned.
+   *
+   * @param index The index up to which to flush the log.
+   * @return A completable future to be completed once the given index has been flushed to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  CompletableFuture<Long> flush(long index);
+
   /**
    * Compacts the log, removing all segments up to and including the given index.
    *
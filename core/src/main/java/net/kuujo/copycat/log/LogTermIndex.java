@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Run length index of log entry terms.<p>
+ *
+ * Log entries are prefixed with the 8 byte term in which they were written, and terms never decrease as indexes
+ * increase. Rather than storing a term for each entry, the index stores the first index of each run of entries with
+ * the same term. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class LogTermIndex {
+  private final TreeMap<Long, Long> terms = new TreeMap<>();
+
+  /**
+   * Returns the term prefix of the given entry.
+   *
+   * @param entry The entry for which to return the term.
+   * @return The entry term or {@code 0} if the entry is too small to contain a term.
+   */
+  static long termOf(ByteBuffer entry) {
+    return entry.limit() >= 8 ? entry.getLong(0) : 0;
+  }
+
+  /**
+   * Rebuilds the index for the entries in the given segment.
+   *
+   * Since terms are monotonically increasing, term changes are located by binary search rather than by reading every
+   * entry in the segment.
+   *
+   * @param segment The segment to index.
+   */
+  public void index(LogSegment segment) {
+    Long firstIndex = segment.firstIndex();
+    Long lastIndex = segment.lastIndex();
+    if (firstIndex != null && lastIndex != null) {
+      index(segment, firstIndex, termOf(segment.getEntry(firstIndex)), lastIndex, termOf(segment.getEntry(lastIndex)));
+    }
+  }
+
+  /**
+   * Indexes the term changes between two indexes in a segment.
+   */
+  private void index(LogSegment segment, long low, long lowTerm, long high, long highTerm) {
+    if (lowTerm == highTerm) {
+      append(low, lowTerm);
+    } else if (high - low <= 1) {
+      append(low, lowTerm);
+      append(high, highTerm);
+    } else {
+      long middle = low + (high - low) / 2;
+      long middleTerm = termOf(segment.getEntry(middle));
+      index(segment, low, lowTerm, middle, middleTerm);
+      index(segment, middle, middleTerm, high, highTerm);
+    }
+  }
+
+  /**
+   * Records the term of an appended entry.
+   *
+   * @param index The index of the entry.
+   * @param term The term of the entry.
+   */
+  public void append(long index, long term) {
+    Map.Entry<Long, Long> last = terms.lastEntry();
+    if (last == null || last.getValue() != term) {
+      terms.put(index, term);
+    }
+  }
+
+  /**
+   * Returns the term of the entry at the given index.
+   *
+   * @param index The index for which to return the term.
+   * @return The term of the entry at the given index or {@code null} if the index precedes all indexed entries.
+   */
+  public Long termAt(long index) {
+    Map.Entry<Long, Long> entry = terms.floorEntry(index);
+    return entry != null ? entry.getValue() : null;
+  }
+
+  /**
+   * Returns the first indexed index of the given term.
+   *
+   * @param term The term for which to return the first index.
+   * @return The first index of the given term or {@code null} if the term is not indexed.
+   */
+  public Long firstIndexOf(long term) {
+    for (Map.Entry<Long, Long> entry : terms.entrySet()) {
+      if (entry.getValue() == term) {
+        return entry.getKey();
+      } else if (entry.getValue() > term) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the last index of the given term.
+   *
+   * @param term The term for which to return the last index.
+   * @param lastIndex The last index in the log, which is the last index of the last indexed term.
+   * @return The last index of the given term or {@code null} if the term is not indexed.
+   */
+  public Long lastIndexOf(long term, long lastIndex) {
+    Long firstIndex = firstIndexOf(term);
+    if (firstIndex == null) {
+      return null;
+    }
+    Long nextIndex = terms.higherKey(firstIndex);
+    return nextIndex != null ? nextIndex - 1 : lastIndex;
+  }
+
+  /**
+   * Removes all terms after the given index from the index.
+   *
+   * @param index The index after which to remove terms.
+   */
+  public void removeAfter(long index) {
+    terms.tailMap(index, false).clear();
+  }
+
+  /**
+   * Removes all terms that only apply to entries before the given index.
+   *
+   * @param index The index before which to remove terms.
+   */
+  public void removeBefore(long index) {
+    Long floor = terms.floorKey(index);
+    if (floor != null) {
+      terms.headMap(floor, false).clear();
+    }
+  }
+
+  /**
+   * Removes all terms from the index.
+   */
+  public void clear() {
+    terms.clear();
+  }
+
+}
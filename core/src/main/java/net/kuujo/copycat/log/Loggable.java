@@ -18,6 +18,7 @@ package net.kuujo.copycat.log;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Logger.
@@ -72,6 +73,17 @@ public interface Loggable extends Closeable {
    */
   long appendEntry(ByteBuffer entry) throws IOException;
 
+  /**
+   * Appends a batch of entries to the logger.
+   *
+   * @param entries The entries to append.
+   * @return The appended entry indexes.
+   * @throws IllegalStateException If the log is not open.
+   * @throws NullPointerException If the entries are null.
+   * @throws java.io.IOException If a new segment cannot be opened
+   */
+  List<Long> appendEntries(List<ByteBuffer> entries) throws IOException;
+
   /**
    * Returns the immutable first index in the log.
    *
@@ -114,6 +126,20 @@ public interface Loggable extends Closeable {
    */
   ByteBuffer getEntry(long index);
 
+  /**
+   * Gets a contiguous range of entries from the log.<p>
+   *
+   * Implementations may read the range with fewer, larger reads than would be required to read each entry
+   * individually, so this method should be preferred when reading large numbers of sequential entries.
+   *
+   * @param from The index of the first entry to get (inclusive).
+   * @param to The index of the last entry to get (inclusive).
+   * @return The entries in the given range, ordered by index.
+   * @throws IllegalStateException If the log is not open.
+   * @throws IndexOutOfBoundsException If the log does not contain an index in the given range.
+   */
+  List<ByteBuffer> getEntries(long from, long to);
+
   /**
    * Removes all entries after the given index (exclusive).
    *
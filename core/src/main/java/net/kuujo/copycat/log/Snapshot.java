@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Persisted state machine snapshot.<p>
+ *
+ * A snapshot represents the state of a resource after applying all entries up to and including the snapshot index.
+ * Snapshots are read in chunks so that large snapshots never have to be held in memory in their entirety.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface Snapshot {
+
+  /**
+   * Returns the index of the last entry included in the snapshot.
+   *
+   * @return The snapshot index.
+   */
+  long index();
+
+  /**
+   * Returns the term of the last entry included in the snapshot.
+   *
+   * @return The snapshot term.
+   */
+  long term();
+
+  /**
+   * Returns the snapshot size in bytes.
+   *
+   * @return The snapshot size in bytes.
+   */
+  long size();
+
+  /**
+   * Reads a chunk of the snapshot.
+   *
+   * @param offset The offset from which to read.
+   * @param length The maximum number of bytes to read.
+   * @return A buffer containing at most {@code length} bytes starting at the given offset.
+   * @throws IOException If the snapshot could not be read.
+   */
+  ByteBuffer read(long offset, int length) throws IOException;
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Resource snapshot store.<p>
+ *
+ * The snapshot store holds the most recent completed snapshot for a resource separately from the resource log. Once a
+ * snapshot has been completed, entries up to and including the snapshot index no longer need to be retained in the
+ * log and can be compacted.<p>
+ *
+ * Snapshots may be written and completed on a thread other than the thread that reads the current snapshot, so
+ * implementations must safely publish completed snapshots. Completing a snapshot never replaces a newer snapshot.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface SnapshotStore extends Closeable {
+
+  /**
+   * Opens the snapshot store, loading the most recent completed snapshot.
+   *
+   * @throws IOException If the store could not be opened.
+   */
+  void open() throws IOException;
+
+  /**
+   * Returns a boolean indicating whether the store is open.
+   *
+   * @return Indicates whether the store is open.
+   */
+  boolean isOpen();
+
+  /**
+   * Returns the most recent completed snapshot.
+   *
+   * @return The most recent completed snapshot or {@code null} if no snapshot has been completed.
+   */
+  Snapshot currentSnapshot();
+
+  /**
+   * Creates a new snapshot writer.
+   *
+   * @param index The index of the last entry included in the snapshot.
+   * @param term The term of the last entry included in the snapshot.
+   * @return A writer for the new snapshot.
+   * @throws IOException If the snapshot could not be created.
+   */
+  SnapshotWriter createSnapshot(long index, long term) throws IOException;
+
+  /**
+   * Closes the snapshot store.
+   *
+   * @throws IOException If the store could not be closed.
+   */
+  @Override
+  void close() throws IOException;
+
+  /**
+   * Deletes all snapshots in the store.
+   */
+  void delete();
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental snapshot writer.<p>
+ *
+ * Snapshot chunks are written in order and the snapshot does not become visible in its store until the writer is
+ * completed. Closing a writer that has not been completed discards the partially written snapshot.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface SnapshotWriter extends Closeable {
+
+  /**
+   * Returns the index of the snapshot being written.
+   *
+   * @return The snapshot index.
+   */
+  long index();
+
+  /**
+   * Returns the term of the snapshot being written.
+   *
+   * @return The snapshot term.
+   */
+  long term();
+
+  /**
+   * Returns the number of bytes written to the snapshot so far.
+   *
+   * @return The number of bytes written.
+   */
+  long size();
+
+  /**
+   * Appends a chunk to the snapshot.
+   *
+   * @param chunk The chunk to append. The chunk is read from its position to its limit.
+   * @throws IOException If the chunk could not be written.
+   */
+  void write(ByteBuffer chunk) throws IOException;
+
+  /**
+   * Completes the snapshot, replacing any earlier snapshot in the store.<p>
+   *
+   * If a snapshot with a greater index was completed while this snapshot was being written then this snapshot is
+   * discarded and the newer snapshot is returned.
+   *
+   * @return The completed snapshot, or the current snapshot if it's newer than this snapshot.
+   * @throws IOException If the snapshot could not be persisted.
+   */
+  Snapshot complete() throws IOException;
+
+  /**
+   * Discards the snapshot if it has not been completed.
+   */
+  @Override
+  void close() throws IOException;
+
+}
@@ -32,6 +32,24 @@ public enum Consistency {
    */
   DEFAULT("default"),
 
+  /**
+   * Indicates that reads may be served by any member whose state lags the leader by no more than a configured bound.<p>
+   *
+   * Followers serve bounded reads locally if their state is within a configured number of entries of the leader's
+   * last known commit index, or if it was up to date with the leader's commit index within a configured amount of
+   * time. Otherwise bounded reads are forwarded to the leader.
+   */
+  BOUNDED("bounded"),
+
+  /**
+   * Indicates that consistency should be guaranteed for reads while the leader holds a lease.<p>
+   *
+   * Lease reads are served by the leader without contacting other members of the cluster as long as a majority of
+   * the cluster has acknowledged the leader within the election timeout. Lease reads rely on clocks not drifting by
+   * more than the configured clock drift, and fall back to {@link #STRONG} reads when the leader does not hold a lease.
+   */
+  LEASE("lease"),
+
   /**
    * Indicates that consistency should be guaranteed for reads.
    */
@@ -43,6 +61,10 @@ public enum Consistency {
         return WEAK;
       case "default":
         return DEFAULT;
+      case "bounded":
+        return BOUNDED;
+      case "lease":
+        return LEASE;
       case "strong":
         return STRONG;
       default:
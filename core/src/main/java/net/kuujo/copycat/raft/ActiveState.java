@@ -15,10 +15,12 @@
  */
 package net.kuujo.copycat.raft;
 
+import net.kuujo.copycat.log.Snapshot;
 import net.kuujo.copycat.raft.protocol.*;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -46,7 +48,11 @@ abstract class ActiveState extends PassiveState {
   @Override
   public CompletableFuture<AppendResponse> append(final AppendRequest request) {
     context.checkThread();
-    CompletableFuture<AppendResponse> future = CompletableFuture.completedFuture(logResponse(handleAppend(logRequest(request))));
+    AppendResponse response = logResponse(handleAppend(logRequest(request)));
+
+    // Entries must be on disk before they're acknowledged, since the leader counts the response toward commitment.
+    CompletableFuture<AppendResponse> future = request.entries().isEmpty() ? CompletableFuture.completedFuture(response) : flushLog(response);
+
     // If a transition is required then transition back to the follower state.
     // If the node is already a follower then the transition will be ignored.
     if (transition) {
@@ -56,6 +62,38 @@ abstract class ActiveState extends PassiveState {
     return future;
   }
 
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    context.checkThread();
+    CompletableFuture<InstallSnapshotResponse> future = handleInstallSnapshot(logRequest(request)).thenApply(this::logResponse);
+    if (transition) {
+      transition(Type.FOLLOWER);
+      transition = false;
+    }
+    return future;
+  }
+
+  @Override
+  protected CompletableFuture<InstallSnapshotResponse> handleInstallSnapshot(InstallSnapshotRequest request) {
+    // Snapshots are only accepted from the leader of the current term.
+    if (request.term() > context.getTerm() || (request.term() == context.getTerm() && context.getLeader() == null)) {
+      context.setTerm(request.term());
+      context.setLeader(request.leader());
+      transition = true;
+    }
+
+    if (request.term() < context.getTerm()) {
+      LOGGER.warn("{} - Rejected {}: request term is less than the current term ({})", context.getLocalMember(), request, context.getTerm());
+      return CompletableFuture.completedFuture(InstallSnapshotResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(context.getTerm())
+        .withSucceeded(false)
+        .withOffset(request.offset())
+        .build());
+    }
+    return super.handleInstallSnapshot(request);
+  }
+
   /**
    * Starts the append process.
    */
@@ -77,7 +115,7 @@ abstract class ActiveState extends PassiveState {
         .withUri(context.getLocalMember())
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
+        .withLogIndex(lastIndex())
         .build();
     } else if (request.logIndex() != null && request.logTerm() != null) {
       return doCheckPreviousEntry(request);
@@ -90,24 +128,23 @@ abstract class ActiveState extends PassiveState {
    * Checks the previous log entry for consistency.
    */
   private AppendResponse doCheckPreviousEntry(AppendRequest request) {
-    if (request.logIndex() != null && context.log().lastIndex() == null) {
-      LOGGER.warn("{} - Rejected {}: Previous index ({}) is greater than the local log's last index ({})", context.getLocalMember(), request, request.logIndex(), context.log().lastIndex());
-      return AppendResponse.builder()
-        .withUri(context.getLocalMember())
-        .withTerm(context.getTerm())
-        .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
-        .build();
-    } else if (request.logIndex() != null && context.log().lastIndex() != null && request.logIndex() > context.log().lastIndex()) {
-      LOGGER.warn("{} - Rejected {}: Previous index ({}) is greater than the local log's last index ({})", context.getLocalMember(), request, request.logIndex(), context.log().lastIndex());
+    Long lastIndex = lastIndex();
+    if (lastIndex == null || request.logIndex() > lastIndex) {
+      LOGGER.warn("{} - Rejected {}: Previous index ({}) is greater than the local log's last index ({})", context.getLocalMember(), request, request.logIndex(), lastIndex);
       return AppendResponse.builder()
         .withUri(context.getLocalMember())
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
+        .withLogIndex(lastIndex)
         .build();
     }
 
+    // Entries up to and including the snapshot index are committed, so they're known to match the leader's log.
+    Snapshot snapshot = context.snapshots().currentSnapshot();
+    if (snapshot != null && request.logIndex() <= snapshot.index()) {
+      return doAppendEntries(request);
+    }
+
     // If the previous log entry is not in the log then reject the request.
     if (!context.log().containsIndex(request.logIndex())) {
       LOGGER.warn("{} - Rejected {}: Request entry not found in local log", context.getLocalMember(), request);
@@ -115,19 +152,23 @@ abstract class ActiveState extends PassiveState {
         .withUri(context.getLocalMember())
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
+        .withLogIndex(lastIndex())
         .build();
     }
 
     // If the previous entry term doesn't match the local previous term then reject the request.
-    ByteBuffer entry = context.log().getEntry(request.logIndex());
-    if (entry.getLong() != request.logTerm()) {
+    // The conflicting term and its first index are returned so the leader can skip back over the whole term rather
+    // than retrying one entry at a time.
+    Long term = context.log().termAt(request.logIndex());
+    if (term == null || term.longValue() != request.logTerm()) {
       LOGGER.warn("{} - Rejected {}: Request entry term does not match local log", context.getLocalMember(), request);
+      Long conflictIndex = term != null ? context.log().firstIndexOf(term) : null;
       return AppendResponse.builder()
         .withUri(context.getLocalMember())
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
+        .withLogIndex(lastIndex())
+        .withConflict(conflictIndex != null ? term : null, conflictIndex)
         .build();
     } else {
       return doAppendEntries(request);
@@ -142,11 +183,21 @@ abstract class ActiveState extends PassiveState {
     // then remove those entries to be replaced by the request entries.
     if (!request.entries().isEmpty()) {
       long index = request.logIndex() != null ? request.logIndex() : 0L;
+      List<ByteBuffer> entries = request.entries();
+
+      // Skip any entries that are already included in the local snapshot.
+      int i = 0;
+      Snapshot snapshot = context.snapshots().currentSnapshot();
+      if (snapshot != null && snapshot.index() > index) {
+        i = (int) Math.min(entries.size(), snapshot.index() - index);
+      }
 
       // If the request contains the first entries in the log, check whether the local log needs to be rolled over.
+      // The log is only rolled over if the entries can't be appended contiguously to the local log.
       Long rollOverIndex = null;
-      if (request.firstIndex() && (context.log().segment().firstIndex() == null || context.log().segment().firstIndex() != index + 1)) {
-        rollOverIndex = index + 1;
+      if (request.firstIndex() && i < entries.size() && !context.log().containsIndex(index + i) && !context.log().containsIndex(index + i + 1)
+        && (context.log().segment().firstIndex() == null || context.log().segment().firstIndex() != index + i + 1)) {
+        rollOverIndex = index + i + 1;
         try {
           context.log().rollOver(rollOverIndex);
         } catch (IOException e) {
@@ -161,56 +212,48 @@ abstract class ActiveState extends PassiveState {
             .withUri(context.getLocalMember())
             .withTerm(context.getTerm())
             .withSucceeded(false)
-            .withLogIndex(context.log().lastIndex())
+            .withLogIndex(lastIndex())
             .build();
         }
       }
 
-      // Iterate through request entries and append them to the log.
-      for (ByteBuffer entry : request.entries()) {
-        index++;
-        // Replicated snapshot entries are *always* immediately logged and applied to the state machine
-        // since snapshots are only taken of committed state machine state. This will cause all previous
-        // entries to be removed from the log.
-        if (context.log().containsIndex(index)) {
-          // Compare the term of the received entry with the matching entry in the log.
-          ByteBuffer match = context.log().getEntry(index);
-          if (entry.getLong() != match.getLong()) {
-            // We found an invalid entry in the log. Remove the invalid entry and append the new entry.
-            // If appending to the log fails, apply commits and reply false to the append request.
-            LOGGER.warn("{} - Synced entry does not match local log, removing incorrect entries", context.getLocalMember());
-            try {
-              context.log().removeAfter(index - 1);
-              context.log().appendEntry(entry);
-            } catch (IOException e) {
-              doApplyCommits(request.commitIndex());
-              return AppendResponse.builder()
-                .withUri(context.getLocalMember())
-                .withTerm(context.getTerm())
-                .withSucceeded(false)
-                .withLogIndex(context.log().lastIndex())
-                .build();
-            }
-            LOGGER.debug("{} - Appended {} to log at index {}", context.getLocalMember(), entry, index);
-          }
-        } else {
-          // If appending to the log fails, apply commits and reply false to the append request.
-          try {
-            context.log().appendEntry(entry);
-          } catch (IOException e) {
-            doApplyCommits(request.commitIndex());
-            return AppendResponse.builder()
-              .withUri(context.getLocalMember())
-              .withTerm(context.getTerm())
-              .withSucceeded(false)
-              .withLogIndex(context.log().lastIndex())
-              .build();
-          }
-          LOGGER.debug("{} - Appended {} to log at index {}", context.getLocalMember(), entry, index);
+      // Iterate through request entries and skip any entries that are already in the log. If an entry is found
+      // that conflicts with the local log, remove the invalid entry and all entries that follow it.
+      for (; i < entries.size(); i++) {
+        long entryIndex = index + i + 1;
+        if (!context.log().containsIndex(entryIndex)) {
+          break;
+        }
+
+        // Compare the term of the received entry with the matching entry in the log.
+        ByteBuffer entry = entries.get(i);
+        long term = entry.getLong();
+        entry.rewind();
+        if (term != context.log().termAt(entryIndex)) {
+          LOGGER.warn("{} - Synced entry does not match local log, removing incorrect entries", context.getLocalMember());
+          context.log().removeAfter(entryIndex - 1);
+          break;
         }
       }
 
-      // If the log was rolled over, compact the log and then flush the log to disk.
+      // Append the remaining entries to the log in a single batch.
+      // If appending to the log fails, apply commits and reply false to the append request.
+      if (i < entries.size()) {
+        try {
+          context.log().appendEntries(entries.subList(i, entries.size()));
+        } catch (IOException e) {
+          doApplyCommits(request.commitIndex());
+          return AppendResponse.builder()
+            .withUri(context.getLocalMember())
+            .withTerm(context.getTerm())
+            .withSucceeded(false)
+            .withLogIndex(lastIndex())
+            .build();
+        }
+        LOGGER.debug("{} - Appended {} entries to log at index {}", context.getLocalMember(), entries.size() - i, index + i + 1);
+      }
+
+      // If the log was rolled over, compact the log. The log is flushed to disk before the response is sent.
       try {
         if (rollOverIndex != null) {
           context.log().compact(rollOverIndex);
@@ -222,10 +265,8 @@ abstract class ActiveState extends PassiveState {
           .withUri(context.getLocalMember())
           .withTerm(context.getTerm())
           .withSucceeded(false)
-          .withLogIndex(context.log().lastIndex())
+          .withLogIndex(lastIndex())
           .build();
-      } finally {
-        context.log().flush();
       }
     }
 
@@ -235,7 +276,7 @@ abstract class ActiveState extends PassiveState {
       .withUri(context.getLocalMember())
       .withTerm(context.getTerm())
       .withSucceeded(true)
-      .withLogIndex(context.log().lastIndex())
+      .withLogIndex(lastIndex())
       .build();
   }
 
@@ -243,52 +284,15 @@ abstract class ActiveState extends PassiveState {
    * Applies commits to the local state machine.
    */
   private void doApplyCommits(Long commitIndex) {
-    // If the synced commit index is greater than the local commit index then
-    // apply commits to the local state machine.
-    // Also, it's possible that one of the previous command applications failed
-    // due to asynchronous communication errors, so alternatively check if the
-    // local commit index is greater than last applied. If all the state machine
-    // commands have not yet been applied then we want to re-attempt to apply them.
+    // If the synced commit index is greater than the local commit index then update the local commit index with
+    // min(request commit, last log index). Entries up to the commit index are then queued to be applied, resuming
+    // from the last queued entry in case earlier entries were held back while the apply queue was full.
     if (commitIndex != null && !context.log().isEmpty()) {
-      LOGGER.debug("{} - Applying {} commits", context.getLocalMember(), context.getLastApplied() != null ? commitIndex - Math.max(context.getLastApplied(), context.log().firstIndex()) : commitIndex);
-      if (context.getCommitIndex() == null || commitIndex > context.getCommitIndex() || context.getCommitIndex() > context.getLastApplied()) {
-        // Update the local commit index with min(request commit, last log // index)
-        Long lastIndex = context.log().lastIndex();
-        if (lastIndex != null) {
-          context.setCommitIndex(Math.min(Math.max(commitIndex, context.getCommitIndex() != null ? context.getCommitIndex() : commitIndex), lastIndex));
-
-          // If the updated commit index indicates that commits remain to be
-          // applied to the state machine, iterate entries and apply them.
-          if (context.getLastApplied() == null || context.getCommitIndex() > context.getLastApplied()) {
-            // Starting after the last applied entry, iterate through new entries
-            // and apply them to the state machine up to the commit index.
-            for (long i = (context.getLastApplied() != null ? Long.valueOf(context.getLastApplied() + 1) : context.log().firstIndex()); i <= Math.min(context.getCommitIndex(), lastIndex); i++) {
-              // Apply the entry to the state machine.
-              applyEntry(i);
-            }
-          }
-        }
-      }
-    }
-  }
-
-  /**
-   * Applies the given entry.
-   */
-  protected void applyEntry(long index) {
-    if ((context.getLastApplied() == null && index == context.log().firstIndex()) || (context.getLastApplied() != null && context.getLastApplied() == index - 1)) {
-      ByteBuffer entry = context.log().getEntry(index);
-
-      // Extract a view of the entry after the entry term.
-      long term = entry.getLong();
-      ByteBuffer userEntry = entry.slice();
-
-      try {
-        context.consumer().apply(term, index, userEntry);
-      } catch (Exception e) {
-      } finally {
-        context.setLastApplied(index);
+      long index = Math.min(commitIndex, context.log().lastIndex());
+      if (context.getCommitIndex() == null || index > context.getCommitIndex()) {
+        context.setCommitIndex(index);
       }
+      applyCommits();
     }
   }
 
@@ -398,22 +402,21 @@ abstract class ActiveState extends PassiveState {
    * Returns a boolean value indicating whether the given candidate's log is up-to-date.
    */
   private boolean logUpToDate(Long index, Long term, Request request) {
-    // If the log is empty then vote for the candidate.
-    if (context.log().isEmpty()) {
+    // If the log and snapshot are empty then vote for the candidate.
+    if (context.log().isEmpty() && context.snapshots().currentSnapshot() == null) {
       LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getLocalMember(), request);
       return true;
     } else {
       // Otherwise, load the last entry in the log. The last entry should be
       // at least as up to date as the candidates entry and term.
-      Long lastIndex = context.log().lastIndex();
+      Long lastIndex = lastIndex();
       if (lastIndex != null) {
-        ByteBuffer entry = context.log().getEntry(lastIndex);
-        if (entry == null) {
+        Long lastTerm = termAt(lastIndex);
+        if (lastTerm == null) {
           LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getLocalMember(), request);
           return true;
         }
 
-        long lastTerm = entry.getLong();
         if (index != null && index >= lastIndex) {
           if (term >= lastTerm) {
             LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getLocalMember(), request);
@@ -20,7 +20,6 @@ import net.kuujo.copycat.raft.protocol.VoteRequest;
 import net.kuujo.copycat.raft.protocol.VoteResponse;
 import net.kuujo.copycat.util.internal.Quorum;
 
-import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
@@ -104,15 +103,14 @@ class CandidateState extends ActiveState {
       }
     });
 
-    // First, load the last log entry to get its term. We load the entry
-    // by its index since the index is required by the protocol.
-    Long lastIndex = context.log().lastIndex();
-    ByteBuffer lastEntry = lastIndex != null ? context.log().getEntry(lastIndex) : null;
+    // First, look up the last log entry's term. The term is read from the log's term index
+    // rather than loading the entry itself.
+    Long lastIndex = lastIndex();
+    final Long lastTerm = lastIndex != null ? termAt(lastIndex) : null;
 
     // Once we got the last log term, iterate through each current member
     // of the cluster and vote each member for a vote.
     LOGGER.info("{} - Requesting votes from {}", context.getLocalMember(), context.getActiveMembers());
-    final Long lastTerm = lastEntry != null ? lastEntry.getLong() : null;
     for (String member : context.getActiveMembers()) {
       LOGGER.debug("{} - Requesting vote from {} for term {}", context.getLocalMember(), member, context.getTerm());
       VoteRequest request = VoteRequest.builder()
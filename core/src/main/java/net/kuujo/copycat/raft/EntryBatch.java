@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contiguous range of committed entries to be applied to the state machine.<p>
+ *
+ * Batches are passed to the batch consumer on the apply thread. The consumer must complete or fail each entry in the
+ * batch with the entry's output, which is returned to the committer of the entry if the entry was committed locally.
+ * Entries are positioned after the entry term. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class EntryBatch {
+  private final long firstIndex;
+  private final List<Long> terms;
+  private final List<ByteBuffer> entries;
+  private final List<Object> decoded;
+  private ByteBuffer[] results;
+  private Throwable[] errors;
+  private boolean[] completed;
+
+  EntryBatch(long firstIndex) {
+    this(firstIndex, 16);
+  }
+
+  EntryBatch(long firstIndex, int capacity) {
+    this.firstIndex = firstIndex;
+    this.terms = new ArrayList<>(capacity);
+    this.entries = new ArrayList<>(capacity);
+    this.decoded = new ArrayList<>(capacity);
+  }
+
+  /**
+   * Adds the next entry to the batch.
+   *
+   * @param term The entry term.
+   * @param entry The entry, positioned after the entry term.
+   * @param decoded The decoded entry or {@code null} if the entry was not decoded.
+   * @return The entry batch.
+   */
+  EntryBatch add(long term, ByteBuffer entry, Object decoded) {
+    Assert.state(results == null, "batch already applied");
+    terms.add(term);
+    entries.add(entry);
+    this.decoded.add(decoded);
+    return this;
+  }
+
+  /**
+   * Returns the index of the first entry in the batch.
+   *
+   * @return The index of the first entry in the batch.
+   */
+  public long firstIndex() {
+    return firstIndex;
+  }
+
+  /**
+   * Returns the index of the last entry in the batch.
+   *
+   * @return The index of the last entry in the batch.
+   */
+  public long lastIndex() {
+    return firstIndex + entries.size() - 1;
+  }
+
+  /**
+   * Returns the number of entries in the batch.
+   *
+   * @return The number of entries in the batch.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns a boolean indicating whether the batch is empty.
+   *
+   * @return Indicates whether the batch is empty.
+   */
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * Returns the log index of the entry at the given position in the batch.
+   *
+   * @param i The position of the entry in the batch.
+   * @return The log index of the entry.
+   */
+  public long index(int i) {
+    return firstIndex + Assert.index(i, i >= 0 && i < entries.size(), "batch position out of bounds");
+  }
+
+  /**
+   * Returns the term of the entry at the given position in the batch.
+   *
+   * @param i The position of the entry in the batch.
+   * @return The term of the entry.
+   */
+  public long term(int i) {
+    return terms.get(i);
+  }
+
+  /**
+   * Returns the entry at the given position in the batch.
+   *
+   * @param i The position of the entry in the batch.
+   * @return The entry, positioned after the entry term.
+   */
+  public ByteBuffer entry(int i) {
+    return entries.get(i);
+  }
+
+  /**
+   * Returns the decoded entry at the given position in the batch.<p>
+   *
+   * Entries are only decoded ahead of time when they're replayed, so the consumer must be able to decode any entry
+   * for which this method returns {@code null}.
+   *
+   * @param i The position of the entry in the batch.
+   * @return The entry as decoded by the registered decoder or {@code null} if the entry was not decoded.
+   */
+  public Object decodedEntry(int i) {
+    return decoded.get(i);
+  }
+
+  /**
+   * Completes the entry at the given position in the batch with the entry output.
+   *
+   * @param i The position of the entry in the batch.
+   * @param result The entry output.
+   * @return The entry batch.
+   */
+  public EntryBatch complete(int i, ByteBuffer result) {
+    init();
+    results[i] = result;
+    errors[i] = null;
+    completed[i] = true;
+    return this;
+  }
+
+  /**
+   * Fails the entry at the given position in the batch.
+   *
+   * @param i The position of the entry in the batch.
+   * @param error The error with which to fail the entry.
+   * @return The entry batch.
+   */
+  public EntryBatch fail(int i, Throwable error) {
+    init();
+    results[i] = null;
+    errors[i] = Assert.isNotNull(error, "error");
+    completed[i] = true;
+    return this;
+  }
+
+  /**
+   * Fails all entries in the batch that have not been completed.
+   */
+  void failRemaining(Throwable error) {
+    init();
+    for (int i = 0; i < completed.length; i++) {
+      if (!completed[i]) {
+        fail(i, error);
+      }
+    }
+  }
+
+  /**
+   * Returns the output of the entry at the given position in the batch.
+   */
+  ByteBuffer result(int i) {
+    return results != null ? results[i] : null;
+  }
+
+  /**
+   * Returns the error with which the entry at the given position in the batch failed.
+   */
+  Throwable error(int i) {
+    return errors != null ? errors[i] : null;
+  }
+
+  /**
+   * Allocates the batch outputs once the batch is applied.
+   */
+  private void init() {
+    if (results == null) {
+      results = new ByteBuffer[entries.size()];
+      errors = new Throwable[entries.size()];
+      completed = new boolean[entries.size()];
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[firstIndex=%d, size=%d]", getClass().getSimpleName(), firstIndex, entries.size());
+  }
+
+}
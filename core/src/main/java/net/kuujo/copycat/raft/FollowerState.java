@@ -14,10 +14,10 @@
  */
 package net.kuujo.copycat.raft;
 
+import net.kuujo.copycat.protocol.Consistency;
 import net.kuujo.copycat.raft.protocol.*;
 import net.kuujo.copycat.util.internal.Quorum;
 
-import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
@@ -32,6 +32,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 class FollowerState extends ActiveState {
   private final Random random = new Random();
   private ScheduledFuture<?> currentTimer;
+  private long leaderTime;
+  private boolean leaderHeard;
+  private long leaderCommitIndex;
+  private long upToDateTime;
+  private boolean upToDate;
 
   public FollowerState(RaftContext context) {
     super(context);
@@ -107,15 +112,14 @@ class FollowerState extends ActiveState {
       }
     });
 
-    // First, load the last log entry to get its term. We load the entry
-    // by its index since the index is required by the protocol.
-    Long lastIndex = context.log().lastIndex();
-    ByteBuffer lastEntry = lastIndex != null ? context.log().getEntry(lastIndex) : null;
+    // First, look up the last log entry's term. The term is read from the log's term index
+    // rather than loading the entry itself.
+    Long lastIndex = lastIndex();
+    final Long lastTerm = lastIndex != null ? termAt(lastIndex) : null;
 
     // Once we got the last log term, iterate through each current member
     // of the cluster and vote each member for a vote.
     LOGGER.info("{} - Polling members {}", context.getLocalMember(), context.getActiveMembers());
-    final Long lastTerm = lastEntry != null ? lastEntry.getLong() : null;
     for (String member : context.getActiveMembers()) {
       LOGGER.debug("{} - Polling {} for next term {}", context.getLocalMember(), member, context.getTerm() + 1);
       PollRequest request = PollRequest.builder()
@@ -156,11 +160,93 @@ class FollowerState extends ActiveState {
     resetHeartbeatTimeout();
     CompletableFuture<AppendResponse> response = super.append(request);
     resetHeartbeatTimeout();
+    if (request.term() == context.getTerm()) {
+      leaderTime = System.nanoTime();
+      leaderHeard = true;
+
+      // Record the leader's commit index and whether the local state machine had caught up to it.
+      if (request.commitIndex() != null) {
+        leaderCommitIndex = Math.max(leaderCommitIndex, request.commitIndex());
+      }
+      if (context.getLastApplied() != null ? context.getLastApplied() >= leaderCommitIndex : leaderCommitIndex == 0) {
+        upToDateTime = leaderTime;
+        upToDate = true;
+      }
+    }
+    return response;
+  }
+
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    resetHeartbeatTimeout();
+    CompletableFuture<InstallSnapshotResponse> response = super.installSnapshot(request);
+    resetHeartbeatTimeout();
+    if (request.term() == context.getTerm()) {
+      leaderTime = System.nanoTime();
+      leaderHeard = true;
+    }
     return response;
   }
 
+  @Override
+  public CompletableFuture<QueryResponse> query(QueryRequest request) {
+    context.checkThread();
+    if (request.consistency() == Consistency.BOUNDED && isWithinBounds()) {
+      logRequest(request);
+      CompletableFuture<QueryResponse> future = new CompletableFuture<>();
+      applyLocalQuery(request, future);
+      return future;
+    }
+    return super.query(request);
+  }
+
+  /**
+   * Returns a boolean value indicating whether the local state is within the configured staleness bounds of the
+   * leader's state. The state is within bounds if either the last applied index is within the maximum number of
+   * entries of the leader's last known commit index or the state was up to date as of a recent leader request.
+   */
+  private boolean isWithinBounds() {
+    long lastApplied = context.getLastApplied() != null ? context.getLastApplied() : 0;
+    if (hasRecentLeader() && leaderCommitIndex - lastApplied <= context.getConfig().getBoundedMaxEntries()) {
+      return true;
+    }
+    return upToDate && System.nanoTime() - upToDateTime <= TimeUnit.MILLISECONDS.toNanos(context.getConfig().getBoundedMaxStaleness());
+  }
+
+  /**
+   * Returns a boolean value indicating whether a request was received from the current leader within the election
+   * timeout. Leaders rely on followers not electing a new leader within that time to serve lease reads.
+   */
+  private boolean hasRecentLeader() {
+    return leaderHeard && System.nanoTime() - leaderTime < TimeUnit.MILLISECONDS.toNanos(context.getElectionTimeout());
+  }
+
+  @Override
+  protected PollResponse handlePoll(PollRequest request) {
+    // If a request was recently received from the leader then reject the poll.
+    if (hasRecentLeader() && !request.candidate().equals(context.getLeader())) {
+      LOGGER.debug("{} - Rejected {}: a leader was heard from within the election timeout", context.getLocalMember(), request);
+      return PollResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(context.getTerm())
+        .withAccepted(false)
+        .build();
+    }
+    return super.handlePoll(request);
+  }
+
   @Override
   protected VoteResponse handleVote(VoteRequest request) {
+    // If a request was recently received from the leader then reject the vote without updating the term.
+    if (hasRecentLeader() && !request.candidate().equals(context.getLeader())) {
+      LOGGER.debug("{} - Rejected {}: a leader was heard from within the election timeout", context.getLocalMember(), request);
+      return VoteResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(context.getTerm())
+        .withVoted(false)
+        .build();
+    }
+
     // Reset the heartbeat timeout if we voted for another candidate.
     VoteResponse response = super.handleVote(request);
     if (response.voted()) {
@@ -15,13 +15,16 @@
 package net.kuujo.copycat.raft;
 
 import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.cluster.MessageHandler;
+import net.kuujo.copycat.log.Snapshot;
+import net.kuujo.copycat.protocol.Consistency;
 import net.kuujo.copycat.raft.protocol.*;
-import net.kuujo.copycat.util.function.TriFunction;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -31,9 +34,14 @@ import java.util.concurrent.TimeUnit;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 class LeaderState extends ActiveState {
-  private static final int MAX_BATCH_SIZE = 1024 * 1024;
   private ScheduledFuture<?> currentTimer;
   private final Replicator replicator = new Replicator();
+  private final List<PendingCommit> pendingCommits = new ArrayList<>();
+  private final TreeMap<Long, CommittedBatch> committedBatches = new TreeMap<>();
+  private Long logIndex;
+  private int pendingCommitSize;
+  private boolean batchScheduled;
+  private ScheduledFuture<?> batchTimer;
 
   public LeaderState(RaftContext context) {
     super(context);
@@ -61,19 +69,28 @@ class LeaderState extends ActiveState {
   }
 
   /**
-   * Applies all unapplied entries to the log.
+   * Applies all unapplied entries in the log.<p>
+   *
+   * Entries that were appended to the log before this node became the leader are applied from the log. Entries
+   * appended by this leader are applied from the batches in which they were committed.
    */
   private void applyEntries() {
     Long lastIndex = context.log().lastIndex();
     if (lastIndex != null) {
-      int count = 0;
-      for (long commitIndex = context.getCommitIndex() != null ? Long.valueOf(context.getCommitIndex() + 1) : context.log().firstIndex(); commitIndex <= lastIndex; commitIndex++) {
-        context.setCommitIndex(commitIndex);
-        applyEntry(commitIndex);
-        count++;
+      if (context.getCommitIndex() == null || context.getCommitIndex() < lastIndex) {
+        context.setCommitIndex(lastIndex);
       }
-      LOGGER.debug("{} - Applied {} entries to log", context.getLocalMember(), count);
+      logIndex = lastIndex;
+      applyCommits();
+    }
+  }
+
+  @Override
+  protected void applyCommits() {
+    if (logIndex != null) {
+      applyEntries(logIndex);
     }
+    applyBatches();
   }
 
   /**
@@ -82,9 +99,11 @@ class LeaderState extends ActiveState {
   private void startHeartbeatTimer() {
     // Set a timer that will be used to periodically synchronize with other nodes
     // in the cluster. This timer acts as a heartbeat to ensure this node remains
-    // the leader.
+    // the leader. Since the leader commits as soon as it's opened, heartbeats are sent on interval boundaries so
+    // that heartbeats for resources with the same heartbeat interval can be multiplexed into a single message.
     LOGGER.debug("{} - Setting heartbeat timer", context.getLocalMember());
-    currentTimer = context.executor().scheduleAtFixedRate(this::heartbeatMembers, 0, context.getHeartbeatInterval(), TimeUnit.MILLISECONDS);
+    long interval = context.getHeartbeatInterval();
+    currentTimer = context.executor().scheduleAtFixedRate(this::heartbeatMembers, interval - System.currentTimeMillis() % interval, interval, TimeUnit.MILLISECONDS);
   }
 
   /**
@@ -93,7 +112,7 @@ class LeaderState extends ActiveState {
   private void heartbeatMembers() {
     context.checkThread();
     if (isOpen()) {
-      replicator.commit();
+      replicator.commit(true);
     }
   }
 
@@ -131,7 +150,7 @@ class LeaderState extends ActiveState {
         .withUri(context.getLocalMember())
         .withTerm(context.getTerm())
         .withSucceeded(false)
-        .withLogIndex(context.log().lastIndex())
+        .withLogIndex(lastIndex())
         .build()));
     } else {
       transition(Type.FOLLOWER);
@@ -139,57 +158,117 @@ class LeaderState extends ActiveState {
     }
   }
 
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    context.checkThread();
+    if (request.term() > context.getTerm()) {
+      return super.installSnapshot(request);
+    } else {
+      return CompletableFuture.completedFuture(logResponse(InstallSnapshotResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(context.getTerm())
+        .withSucceeded(false)
+        .withOffset(request.offset())
+        .build()));
+    }
+  }
+
   @Override
   public CompletableFuture<QueryResponse> query(QueryRequest request) {
     context.checkThread();
     logRequest(request);
 
     CompletableFuture<QueryResponse> future = new CompletableFuture<>();
-    TriFunction<Long, Long, ByteBuffer, ByteBuffer> consumer = context.consumer();
-
     switch (request.consistency()) {
-      // Consistency mode WEAK or DEFAULT is immediately evaluated and returned.
+      // Consistency mode WEAK, DEFAULT or BOUNDED is evaluated as soon as the query's minimum index has been applied.
       case WEAK:
       case DEFAULT:
-        future.complete(logResponse(QueryResponse.builder()
-          .withUri(context.getLocalMember())
-          .withResult(consumer.apply(context.getTerm(), null, request.entry()))
-          .build()));
+      case BOUNDED:
+        applyQuery(0, context.getTerm(), request, future);
+        break;
+      // Consistency mode LEASE is applied locally if the leader holds a lease, otherwise it's treated as STRONG.
+      case LEASE:
+        if (replicator.hasLease()) {
+          applyQuery(context.getCommitIndex() != null ? context.getCommitIndex() : 0, context.getTerm(), request, future);
+        } else {
+          readIndexQuery(request, future);
+        }
         break;
-      // Consistency mode STRONG requires synchronous consistency check prior to applying the query.
+      // Consistency mode STRONG uses the ReadIndex protocol.
       case STRONG:
-        LOGGER.debug("{} - Synchronizing logs to index {} for read", context.getLocalMember(), context.log().lastIndex());
-        long term = context.getTerm();
-        replicator.commit().whenComplete((index, error) -> {
-          context.checkThread();
-          if (isOpen()) {
-            if (error == null) {
-              try {
-                future.complete(logResponse(QueryResponse.builder()
-                  .withUri(context.getLocalMember())
-                  .withResult(consumer.apply(term, null, request.entry()))
-                  .build()));
-              } catch (Exception e) {
-                future.complete(logResponse(QueryResponse.builder()
-                  .withUri(context.getLocalMember())
-                  .withStatus(Response.Status.ERROR)
-                  .withError(e)
-                  .build()));
-              }
-            } else {
-              future.complete(logResponse(QueryResponse.builder()
-                .withUri(context.getLocalMember())
-                .withStatus(Response.Status.ERROR)
-                .withError(error)
-                .build()));
-            }
-          }
-        });
+        readIndexQuery(request, future);
         break;
     }
     return future;
   }
 
+  /**
+   * Applies a query using the ReadIndex protocol.
+   *
+   * The current commit index is recorded as the read index and leadership is confirmed by a heartbeat round that is
+   * shared by all reads received in the same interval. Once leadership is confirmed, the query is applied as soon as
+   * entries have been applied up to the read index.
+   */
+  private void readIndexQuery(QueryRequest request, CompletableFuture<QueryResponse> future) {
+    long readIndex = context.getCommitIndex() != null ? context.getCommitIndex() : 0;
+    long term = context.getTerm();
+    LOGGER.debug("{} - Confirming leadership for read at index {}", context.getLocalMember(), readIndex);
+    replicator.commit().whenComplete((result, error) -> {
+      context.checkThread();
+      if (isOpen()) {
+        if (error == null) {
+          applyQuery(readIndex, term, request, future);
+        } else {
+          future.complete(logResponse(QueryResponse.builder()
+            .withUri(context.getLocalMember())
+            .withStatus(Response.Status.ERROR)
+            .withError(error)
+            .build()));
+        }
+      }
+    });
+  }
+
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(final ReadIndexRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    CompletableFuture<ReadIndexResponse> future = new CompletableFuture<>();
+    long readIndex = context.getCommitIndex() != null ? context.getCommitIndex() : 0;
+    long term = context.getTerm();
+
+    // If the follower's queries only require LEASE consistency and the leader holds a lease then the commit index
+    // can be returned without confirming leadership.
+    if (request.consistency() == Consistency.LEASE && replicator.hasLease()) {
+      future.complete(logResponse(ReadIndexResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(term)
+        .withIndex(readIndex)
+        .build()));
+    } else {
+      replicator.commit().whenComplete((result, error) -> {
+        context.checkThread();
+        if (isOpen()) {
+          if (error == null) {
+            future.complete(logResponse(ReadIndexResponse.builder()
+              .withUri(context.getLocalMember())
+              .withTerm(term)
+              .withIndex(readIndex)
+              .build()));
+          } else {
+            future.complete(logResponse(ReadIndexResponse.builder()
+              .withUri(context.getLocalMember())
+              .withStatus(Response.Status.ERROR)
+              .withError(error)
+              .build()));
+          }
+        }
+      });
+    }
+    return future;
+  }
+
   @Override
   public CompletableFuture<CommitResponse> commit(final CommitRequest request) {
     context.checkThread();
@@ -197,7 +276,6 @@ class LeaderState extends ActiveState {
 
     CompletableFuture<CommitResponse> future = new CompletableFuture<>();
     ByteBuffer entry = request.entry();
-    TriFunction<Long, Long, ByteBuffer, ByteBuffer> consumer = context.consumer();
 
     // Create a log entry containing the current term and entry.
     ByteBuffer logEntry = ByteBuffer.allocate(entry.capacity() + 8);
@@ -206,50 +284,184 @@ class LeaderState extends ActiveState {
     logEntry.put(entry);
     entry.flip();
 
-    // Try to append the entry to the log. If appending the entry fails then just reply with an exception immediately.
-    final long index;
+    // Add the entry to the current batch. If the batch is full then commit it immediately, otherwise schedule
+    // the batch to be committed once the batch delay has passed.
+    pendingCommits.add(new PendingCommit(term, entry, logEntry, future));
+    pendingCommitSize += logEntry.limit();
+    if (pendingCommits.size() >= context.getConfig().getCommitBatchCount() || pendingCommitSize >= context.getConfig().getCommitBatchSize()) {
+      commitBatch();
+    } else if (!batchScheduled) {
+      batchScheduled = true;
+      long batchDelay = context.getConfig().getCommitBatchDelay();
+      if (batchDelay > 0) {
+        batchTimer = context.executor().schedule(this::commitBatch, batchDelay, TimeUnit.MICROSECONDS);
+      } else {
+        context.executor().execute(this::commitBatch);
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Commits the current batch of entries.
+   *
+   * All entries in the batch are appended to the log together, flushed once and replicated once. Once the batch
+   * has been committed, entries are applied and their responses completed in log order.
+   */
+  private void commitBatch() {
+    context.checkThread();
+    batchScheduled = false;
+    if (batchTimer != null) {
+      batchTimer.cancel(false);
+      batchTimer = null;
+    }
+
+    if (pendingCommits.isEmpty() || !isOpen()) {
+      return;
+    }
+
+    List<PendingCommit> commits = new ArrayList<>(pendingCommits);
+    pendingCommits.clear();
+    pendingCommitSize = 0;
+
+    List<ByteBuffer> entries = new ArrayList<>(commits.size());
+    for (PendingCommit commit : commits) {
+      entries.add(commit.logEntry);
+    }
+
+    // Try to append the entries to the log. If appending the entries fails then just reply with an exception immediately.
+    final List<Long> indexes;
+    final CompletableFuture<Long> flushFuture;
     try {
-      index = context.log().appendEntry(logEntry);
-      context.log().flush();
+      indexes = context.log().appendEntries(entries);
+      flushFuture = context.log().flush(indexes.get(indexes.size() - 1));
     } catch (IOException e) {
-      future.completeExceptionally(new CopycatException(e));
-      return future;
+      for (PendingCommit commit : commits) {
+        commit.future.completeExceptionally(new CopycatException(e));
+      }
+      return;
     }
 
-    LOGGER.debug("{} - Appended entry to log at index {}", context.getLocalMember(), index);
-    LOGGER.debug("{} - Replicating logs up to index {} for write", context.getLocalMember(), index);
+    long lastIndex = indexes.get(indexes.size() - 1);
+    LOGGER.debug("{} - Appended {} entries to log at indexes {} through {}", context.getLocalMember(), indexes.size(), indexes.get(0), lastIndex);
+    LOGGER.debug("{} - Replicating logs up to index {} for write", context.getLocalMember(), lastIndex);
 
-    // Attempt to replicate the entry to a quorum of the cluster.
-    replicator.commit(index).whenComplete((resultIndex, error) -> {
+    // Attempt to replicate the entries to a quorum of the cluster. Once the entries have been committed the batch is
+    // queued to be applied in log order.
+    replicator.commit(lastIndex).thenRun(() -> {
       context.checkThread();
       if (isOpen()) {
-        if (error == null) {
-          try {
-            future.complete(logResponse(CommitResponse.builder()
-              .withUri(context.getLocalMember())
-              .withResult(consumer.apply(term, index, entry))
-              .build()));
-          } catch (Exception e) {
-            future.complete(logResponse(CommitResponse.builder()
-              .withUri(context.getLocalMember())
-              .withStatus(Response.Status.ERROR)
-              .withError(e)
-              .build()));
-          } finally {
-            context.setLastApplied(index);
-          }
+        EntryBatch batch = new EntryBatch(indexes.get(0), commits.size());
+        for (int i = 0; i < commits.size(); i++) {
+          batch.add(commits.get(i).term, commits.get(i).entry, null);
+        }
+        committedBatches.put(batch.firstIndex(), new CommittedBatch(batch, commits, flushFuture));
+        applyBatches();
+      }
+    });
+  }
+
+  /**
+   * Queues committed batches to be applied in log order while there's space in the apply queue.<p>
+   *
+   * Batches that can't be queued yet, either because the apply queue is full or because earlier entries have not yet
+   * been queued, are queued from {@link #applied()} once the state machine catches up. If the log uses group commit
+   * then the entries may not yet be on disk, so a batch is also held back until the local flush has completed.
+   */
+  private void applyBatches() {
+    while (!committedBatches.isEmpty() && !context.isApplyQueueFull()) {
+      CommittedBatch committed = committedBatches.firstEntry().getValue();
+      Long queuedIndex = context.getQueuedIndex();
+      long nextIndex = queuedIndex != null ? queuedIndex + 1 : context.log().firstIndex();
+      if (committed.batch.firstIndex() != nextIndex) {
+        return;
+      }
+
+      if (!committed.flushFuture.isDone()) {
+        if (!committed.flushWaiting) {
+          committed.flushWaiting = true;
+          committed.flushFuture.whenCompleteAsync((flushIndex, error) -> {
+            if (isOpen()) {
+              applyBatches();
+            }
+          }, context.executor());
+        }
+        return;
+      }
+
+      committedBatches.pollFirstEntry();
+      applyBatch(committed);
+    }
+  }
+
+  /**
+   * Applies a committed batch on the apply thread, returning each entry's output to its committer from there.<p>
+   *
+   * Entries that have been committed are applied even if the local flush failed, since they've been replicated to a
+   * majority of the cluster, but their committers are notified of the failure.
+   */
+  private void applyBatch(CommittedBatch committed) {
+    Throwable flushError = null;
+    try {
+      committed.flushFuture.getNow(null);
+    } catch (CompletionException e) {
+      flushError = e.getCause();
+    }
+
+    EntryBatch batch = committed.batch;
+    List<PendingCommit> commits = committed.commits;
+    Throwable error = flushError;
+    context.setQueuedIndex(batch.lastIndex());
+    context.apply(batch).whenComplete((result, applyError) -> {
+      for (int i = 0; i < commits.size(); i++) {
+        Throwable entryError = error != null ? error : applyError != null ? applyError : batch.error(i);
+        if (entryError == null) {
+          commits.get(i).future.complete(logResponse(CommitResponse.builder()
+            .withUri(context.getLocalMember())
+            .withResult(batch.result(i))
+            .withIndex(batch.index(i))
+            .build()));
         } else {
-          future.complete(logResponse(CommitResponse.builder()
+          commits.get(i).future.complete(logResponse(CommitResponse.builder()
             .withUri(context.getLocalMember())
             .withStatus(Response.Status.ERROR)
-            .withError(error)
+            .withError(entryError)
             .build()));
         }
       }
     });
-    return future;
   }
 
+  /**
+   * Fails any entries that are waiting to be committed in the current batch or to be applied.
+   */
+  private void failPendingCommits() {
+    if (batchTimer != null) {
+      batchTimer.cancel(false);
+      batchTimer = null;
+    }
+    for (PendingCommit commit : pendingCommits) {
+      commit.future.complete(logResponse(CommitResponse.builder()
+        .withUri(context.getLocalMember())
+        .withStatus(Response.Status.ERROR)
+        .withError(new CopycatException("Leader state closed"))
+        .build()));
+    }
+    pendingCommits.clear();
+    pendingCommitSize = 0;
+
+    // Batches that were committed but not yet queued are applied from the log by the next state.
+    for (CommittedBatch committed : committedBatches.values()) {
+      for (PendingCommit commit : committed.commits) {
+        commit.future.complete(logResponse(CommitResponse.builder()
+          .withUri(context.getLocalMember())
+          .withStatus(Response.Status.ERROR)
+          .withError(new CopycatException("Leader state closed"))
+          .build()));
+      }
+    }
+    committedBatches.clear();
+  }
 
   /**
    * Cancels the ping timer.
@@ -263,7 +475,7 @@ class LeaderState extends ActiveState {
 
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return super.close().thenRun(this::cancelPingTimer);
+    return super.close().thenRun(this::cancelPingTimer).thenRun(this::failPendingCommits);
   }
 
   /**
@@ -273,27 +485,44 @@ class LeaderState extends ActiveState {
     private final List<Replica> replicas;
     private final int quorum;
     private final int quorumIndex;
-    private final List<Long> commitTimes;
+    private final long startTime = System.nanoTime();
+    private final long leaseTimeout;
     private long commitTime;
     private CompletableFuture<Void> commitFuture;
+    private boolean commitIdle;
     private CompletableFuture<Void> nextCommitFuture;
+    private boolean nextCommitIdle;
     private final TreeMap<Long, CompletableFuture<Long>> commitFutures = new TreeMap<>();
 
     @SuppressWarnings("all")
     private Replicator() {
       replicas = new ArrayList<>(context.getActiveMembers().size() - 1);
-      commitTimes = new ArrayList<>(context.getActiveMembers().size() - 1);
-      int i = 0;
       for (String member : context.getActiveMembers()) {
         if (!member.equals(context.getLocalMember())) {
-          replicas.add(new Replica(i++, member));
-          commitTimes.add(System.currentTimeMillis());
+          replicas.add(new Replica(member));
         }
       }
 
       // Quorum is floor(replicas.size / 2) since this node is implicitly counted in the quorum count.
       this.quorum = (int) Math.floor(context.getActiveMembers().size() / 2.0);
       this.quorumIndex = quorum - 1;
+      this.leaseTimeout = TimeUnit.MILLISECONDS.toNanos(context.getElectionTimeout() - context.getConfig().getLeaseClockDrift());
+    }
+
+    /**
+     * Returns a boolean value indicating whether the leader holds a read lease.
+     *
+     * The lease is renewed each time a majority of the cluster acknowledges a request from this leader. Followers
+     * will not start a new election until at least the election timeout has passed since they received a request
+     * from this leader, so the lease lasts for the election timeout minus the allowed clock drift from the time the
+     * acknowledged request was sent.
+     */
+    private boolean hasLease() {
+      if (leaseTimeout <= 0) {
+        return false;
+      }
+      long leaseTime = quorumCommitTime();
+      return leaseTime - startTime >= 0 && System.nanoTime() - leaseTime < leaseTimeout;
     }
 
     /**
@@ -302,15 +531,29 @@ class LeaderState extends ActiveState {
      * @return A completable future to be completed the next time entries are committed to a majority of the cluster.
      */
     private CompletableFuture<Void> commit() {
+      return commit(false);
+    }
+
+    /**
+     * Triggers a commit.
+     *
+     * @param idle Indicates whether the commit is an idle heartbeat. A heartbeat round is idle if it was only
+     *             triggered by idle heartbeats, in which case its empty requests are sent with the heartbeat handler.
+     * @return A completable future to be completed the next time entries are committed to a majority of the cluster.
+     */
+    private CompletableFuture<Void> commit(boolean idle) {
       if (commitFuture == null) {
         commitFuture = new CompletableFuture<>();
-        commitTime = System.currentTimeMillis();
-        replicas.forEach(Replica::commit);
+        commitIdle = idle;
+        commitTime = System.nanoTime();
+        replicas.forEach(Replica::heartbeat);
         return commitFuture;
       } else if (nextCommitFuture == null) {
         nextCommitFuture = new CompletableFuture<>();
+        nextCommitIdle = idle;
         return nextCommitFuture;
       } else {
+        nextCommitIdle &= idle;
         return nextCommitFuture;
       }
     }
@@ -330,26 +573,44 @@ class LeaderState extends ActiveState {
 
     /**
      * Sets a commit time.
+     *
+     * @param replica The replica that acknowledged a request.
+     * @param time The time at which the acknowledged request was sent.
      */
-    private void commitTime(int id) {
-      commitTimes.set(id, System.currentTimeMillis());
-
-      // Sort the list of commit times. Use the quorum index to get the last time the majority of the cluster
-      // was contacted. If the current commitFuture's time is less than the commit time then trigger the
-      // commit future and reset it to the next commit future.
-      Collections.sort(commitTimes);
-      long commitTime = commitTimes.get(quorumIndex);
-      if (commitFuture != null && this.commitTime >= commitTime) {
+    private void commitTime(Replica replica, long time) {
+      replica.commitTime = Math.max(replica.commitTime, time);
+
+      // Use the quorum index to get the latest time at which a majority of the cluster acknowledged a request sent by
+      // this leader. If the current commitFuture's time is less than the
+      // commit time then trigger the commit future and reset it to the next commit future.
+      long commitTime = quorumCommitTime();
+      if (commitFuture != null && this.commitTime <= commitTime) {
         commitFuture.complete(null);
         commitFuture = nextCommitFuture;
+        commitIdle = nextCommitIdle;
         nextCommitFuture = null;
         if (this.commitFuture != null) {
-          this.commitTime = System.currentTimeMillis();
-          replicas.forEach(Replica::commit);
+          this.commitTime = System.nanoTime();
+          replicas.forEach(Replica::heartbeat);
         }
       }
     }
 
+    /**
+     * Returns the latest send time of a request that has been acknowledged by a majority of the cluster.
+     */
+    private long quorumCommitTime() {
+      if (replicas.isEmpty()) {
+        return System.nanoTime();
+      }
+      long[] commitTimes = new long[replicas.size()];
+      for (int i = 0; i < replicas.size(); i++) {
+        commitTimes[i] = replicas.get(i).commitTime;
+      }
+      Arrays.sort(commitTimes);
+      return commitTimes[commitTimes.length - 1 - quorumIndex];
+    }
+
     /**
      * Checks whether any futures can be completed.
      */
@@ -380,54 +641,204 @@ class LeaderState extends ActiveState {
 
     /**
      * Remote replica.
+     *
+     * Each replica pipelines append requests to its member, allowing up to the configured replication window of
+     * requests to be in flight at once. The next index is advanced optimistically as requests are sent. If a request
+     * is rejected or fails, the next index is reset and the replica's generation is incremented so that responses to
+     * requests sent before the reset do not reset the next index again.
+     *
+     * If the replica needs entries that have been compacted from the log, the current snapshot is sent instead. Only
+     * a single snapshot chunk is in flight at a time, and the transfer resumes from the offset the member reports.
      */
     private class Replica {
       private final List<ByteBuffer> EMPTY_LIST = new ArrayList<>(0);
-      private final int id;
       private final String member;
+      private final int window;
+      private final int batchSize;
       private Long nextIndex;
       private Long matchIndex;
-      private boolean committing;
+      private int inflight;
+      private long generation;
+      private long requests;
+      private long sendTime = startTime - 1;
+      private long commitTime = startTime - 1;
+      private Snapshot snapshot;
+      private long snapshotOffset;
 
-      private Replica(int id, String member) {
-        this.id = id;
+      private Replica(String member) {
         this.member = member;
+        this.window = context.getConfig().getReplicationWindow();
+        this.batchSize = context.getConfig().getReplicationBatchSize();
       }
 
       /**
        * Triggers a commit for the replica.
        */
       private void commit() {
-        if (!committing && isOpen()) {
-          // If the log is empty then send an empty commit.
-          // If the next index hasn't yet been set then we send an empty commit first.
-          // If the next index is greater than the last index then send an empty commit.
-          if (context.log().isEmpty() || nextIndex == null || nextIndex > context.log().lastIndex()) {
+        // If the replica needs entries that are only available in the snapshot then send the snapshot.
+        if (needsSnapshot()) {
+          if (inflight == 0 && isOpen()) {
+            snapshotCommit();
+          }
+          return;
+        }
+
+        // If the next index hasn't yet been set then only a single empty commit may be in flight until the
+        // replica responds, otherwise fill the replication window with entries.
+        if (nextIndex == null) {
+          if (inflight == 0 && isOpen()) {
+            emptyCommit();
+          }
+          return;
+        }
+
+        // If the log is empty or the next index is greater than the last index then send an empty commit
+        // if no other requests are in flight. In-flight requests will serve as a heartbeat.
+        if (context.log().isEmpty() || nextIndex > context.log().lastIndex()) {
+          if (inflight == 0 && isOpen()) {
             emptyCommit();
-          } else {
-            entriesCommit();
           }
+          return;
+        }
+
+        while (inflight < window && hasMoreEntries() && isOpen()) {
+          entriesCommit();
         }
       }
 
+      /**
+       * Sends a heartbeat to the replica.
+       *
+       * If sending pending entries does not result in a new request being sent then an empty commit is sent, since
+       * heartbeat rounds must be acknowledged by requests sent after the round started.
+       */
+      private void heartbeat() {
+        long sent = requests;
+        if (hasMoreEntries() || needsSnapshot()) {
+          commit();
+        }
+        if (requests == sent && inflight < window && isOpen() && !needsSnapshot()) {
+          heartbeatCommit();
+        }
+      }
+
+      /**
+       * Sends a heartbeat if a heartbeat round is in progress and no request has been sent to the replica since the
+       * round started.
+       *
+       * If the replication window was full when the round started then no request could be sent, and the round can
+       * only be completed by requests sent after it started. This is called each time a response frees a slot in the
+       * window so the round doesn't stall waiting on a request that was never sent.
+       */
+      private void heartbeatIfPending() {
+        if (isOpen() && commitFuture != null && sendTime - Replicator.this.commitTime < 0) {
+          heartbeat();
+        }
+      }
+
+      /**
+       * Returns a boolean value indicating whether the next entries for the replica have been compacted from the log.
+       */
+      private boolean needsSnapshot() {
+        Snapshot snapshot = context.snapshots().currentSnapshot();
+        return snapshot != null && nextIndex != null && nextIndex <= snapshot.index()
+          && (context.log().isEmpty() || nextIndex < context.log().firstIndex());
+      }
+
+      /**
+       * Sends the next chunk of the current snapshot.
+       */
+      private void snapshotCommit() {
+        // If the snapshot has changed since the last chunk was sent then restart the transfer.
+        Snapshot snapshot = context.snapshots().currentSnapshot();
+        if (this.snapshot == null || this.snapshot.index() != snapshot.index() || this.snapshot.term() != snapshot.term()) {
+          this.snapshot = snapshot;
+          this.snapshotOffset = 0;
+        }
+
+        long offset = snapshotOffset;
+        ByteBuffer data;
+        try {
+          data = snapshot.read(offset, batchSize);
+        } catch (IOException e) {
+          LOGGER.error("{} - Failed to read snapshot: {}", context.getLocalMember(), e.getMessage());
+          return;
+        }
+
+        InstallSnapshotRequest request = InstallSnapshotRequest.builder()
+          .withUri(member)
+          .withTerm(context.getTerm())
+          .withLeader(context.getLocalMember())
+          .withIndex(snapshot.index())
+          .withSnapshotTerm(snapshot.term())
+          .withOffset(offset)
+          .withData(data)
+          .withComplete(offset + data.remaining() >= snapshot.size())
+          .build();
+
+        long sendTime = System.nanoTime();
+        this.sendTime = sendTime;
+        requests++;
+        inflight++;
+        LOGGER.debug("{} - Sent {} to {}", context.getLocalMember(), request, member);
+        installSnapshotHandler.apply(request).whenCompleteAsync((response, error) -> {
+          inflight--;
+          context.checkThread();
+
+          if (isOpen()) {
+            if (error == null) {
+              LOGGER.debug("{} - Received {} from {}", context.getLocalMember(), response, member);
+              if (response.status() == Response.Status.OK) {
+                if (response.term() <= context.getTerm()) {
+                  commitTime(this, sendTime);
+                }
+
+                if (response.term() > context.getTerm()) {
+                  transition(Type.FOLLOWER);
+                } else if (this.snapshot == snapshot) {
+                  if (response.succeeded() && response.offset() >= snapshot.size()) {
+                    // Once the snapshot has been installed, resume replicating entries that follow the snapshot.
+                    this.snapshot = null;
+                    if (updateMatchIndex(snapshot.index())) {
+                      commitEntries();
+                    }
+                    updateNextIndex();
+                    commit();
+                  } else {
+                    // Continue from the offset expected by the replica. If the replica rejected the chunk without
+                    // making progress then wait for the next heartbeat to retry.
+                    snapshotOffset = response.offset();
+                    if (response.succeeded() || response.offset() != offset) {
+                      commit();
+                    }
+                  }
+                }
+              } else {
+                LOGGER.warn("{} - {}", context.getLocalMember(), response.error() != null ? response.error().getMessage() : "");
+              }
+            } else {
+              LOGGER.warn("{} - {}", context.getLocalMember(), error.getMessage());
+            }
+            heartbeatIfPending();
+          }
+        }, context.executor());
+      }
+
       /**
        * Gets the previous index.
        */
       private Long getPrevIndex() {
         if (nextIndex == null) {
-          return context.log().isEmpty() ? null : context.log().lastIndex();
+          return lastIndex();
         }
         return nextIndex - 1 > 0 ? nextIndex - 1 : null;
       }
 
       /**
-       * Gets the previous entry.
+       * Gets the previous entry term.
        */
-      private ByteBuffer getPrevEntry(Long prevIndex) {
-        if (prevIndex != null && context.log().containsIndex(prevIndex)) {
-          return context.log().getEntry(prevIndex);
-        }
-        return null;
+      private Long getPrevTerm(Long prevIndex) {
+        return prevIndex != null ? termAt(prevIndex) : null;
       }
 
       /**
@@ -445,7 +856,7 @@ class LeaderState extends ActiveState {
 
         List<ByteBuffer> entries = new ArrayList<>(1024);
         int size = 0;
-        while (size < MAX_BATCH_SIZE && index <= context.log().lastIndex()) {
+        while (size < batchSize && index <= context.log().lastIndex()) {
           ByteBuffer entry = context.log().getEntry(index);
           size += entry.limit();
           entries.add(entry);
@@ -459,8 +870,18 @@ class LeaderState extends ActiveState {
        */
       private void emptyCommit() {
         Long prevIndex = getPrevIndex();
-        ByteBuffer prevEntry = getPrevEntry(prevIndex);
-        commit(prevIndex, prevEntry, EMPTY_LIST);
+        Long prevTerm = getPrevTerm(prevIndex);
+        commit(prevIndex, prevTerm, EMPTY_LIST);
+      }
+
+      /**
+       * Performs an empty commit for the current heartbeat round. Empty requests for idle rounds are sent with the
+       * heartbeat handler, while requests for rounds that reads are waiting on are sent with the append handler.
+       */
+      private void heartbeatCommit() {
+        Long prevIndex = getPrevIndex();
+        Long prevTerm = getPrevTerm(prevIndex);
+        commit(prevIndex, prevTerm, EMPTY_LIST, commitIdle && heartbeatHandler != null ? heartbeatHandler : appendHandler);
       }
 
       /**
@@ -468,48 +889,69 @@ class LeaderState extends ActiveState {
        */
       private void entriesCommit() {
         Long prevIndex = getPrevIndex();
-        ByteBuffer prevEntry = getPrevEntry(prevIndex);
+        Long prevTerm = getPrevTerm(prevIndex);
         List<ByteBuffer> entries = getEntries(prevIndex);
-        commit(prevIndex, prevEntry, entries);
+        commit(prevIndex, prevTerm, entries);
+
+        // Optimistically advance the next index past the entries that were sent so the next request in the
+        // window can be sent before this request is acknowledged.
+        if (!entries.isEmpty()) {
+          nextIndex = (prevIndex != null ? prevIndex : context.log().firstIndex() - 1) + entries.size() + 1;
+        }
       }
 
       /**
        * Sends a commit message.
        */
-      private void commit(Long prevIndex, ByteBuffer prevEntry, List<ByteBuffer> entries) {
+      private void commit(Long prevIndex, Long prevTerm, List<ByteBuffer> entries) {
+        commit(prevIndex, prevTerm, entries, appendHandler);
+      }
+
+      /**
+       * Sends a commit message with the given handler.
+       */
+      private void commit(Long prevIndex, Long prevTerm, List<ByteBuffer> entries, MessageHandler<AppendRequest, AppendResponse> handler) {
         AppendRequest request = AppendRequest.builder()
           .withUri(member)
           .withTerm(context.getTerm())
           .withLeader(context.getLocalMember())
           .withLogIndex(prevIndex)
-          .withLogTerm(prevEntry != null ? prevEntry.getLong() : null)
+          .withLogTerm(prevTerm)
           .withEntries(entries)
-          .withFirstIndex(prevIndex == null || context.log().firstIndex() == prevIndex + 1)
+          .withFirstIndex(prevIndex == null || Long.valueOf(prevIndex + 1).equals(context.log().firstIndex()))
           .withCommitIndex(context.getCommitIndex())
           .build();
 
-        committing = true;
+        // The last index that will be matched by the replica if the request succeeds.
+        Long lastIndex = entries.isEmpty() ? prevIndex : Long.valueOf((prevIndex != null ? prevIndex : context.log().firstIndex() - 1) + entries.size());
+        long requestGeneration = generation;
+        long sendTime = System.nanoTime();
+        this.sendTime = sendTime;
+
+        requests++;
+        inflight++;
         LOGGER.debug("{} - Sent {} to {}", context.getLocalMember(), request, member);
-        appendHandler.apply(request).whenCompleteAsync((response, error) -> {
-          committing = false;
+        handler.apply(request).whenCompleteAsync((response, error) -> {
+          inflight--;
           context.checkThread();
 
           if (isOpen()) {
             if (error == null) {
               LOGGER.debug("{} - Received {} from {}", context.getLocalMember(), response, member);
               if (response.status() == Response.Status.OK) {
-                // Update the commit time for the replica. This will cause heartbeat futures to be triggered.
-                commitTime(id);
+                // Update the commit time for the replica. This will cause heartbeat futures to be triggered. Responses
+                // from replicas in a higher term do not acknowledge this leader.
+                if (response.term() <= context.getTerm()) {
+                  commitTime(this, sendTime);
+                }
 
-                // If replication succeeded then trigger commit futures.
+                // If replication succeeded then trigger commit futures. Responses may arrive out of order, so
+                // the match index is only ever increased.
                 if (response.succeeded()) {
-                  updateMatchIndex(response);
-                  updateNextIndex();
-
-                  // If entries were committed to the replica then check commit indexes.
-                  if (!entries.isEmpty()) {
+                  if (updateMatchIndex(lastIndex)) {
                     commitEntries();
                   }
+                  updateNextIndex();
 
                   // If there are more entries to send then attempt to send another commit.
                   if (hasMoreEntries()) {
@@ -518,8 +960,11 @@ class LeaderState extends ActiveState {
                 } else if (response.term() > context.getTerm()) {
                   transition(Type.FOLLOWER);
                 } else {
-                  resetMatchIndex(response);
-                  resetNextIndex();
+                  // Only reset the next index if the rejected request was sent after the last reset. Requests
+                  // that were pipelined behind a rejected request will be rejected as well.
+                  if (requestGeneration == generation) {
+                    resetNextIndex(prevIndex, response);
+                  }
 
                   // If there are more entries to send then attempt to send another commit.
                   if (hasMoreEntries()) {
@@ -531,10 +976,13 @@ class LeaderState extends ActiveState {
                 transition(Type.FOLLOWER);
               } else {
                 LOGGER.warn("{} - {}", context.getLocalMember(), response.error() != null ? response.error().getMessage() : "");
+                resetNextIndex(requestGeneration);
               }
             } else {
               LOGGER.warn("{} - {}", context.getLocalMember(), error.getMessage());
+              resetNextIndex(requestGeneration);
             }
+            heartbeatIfPending();
           }
         }, context.executor());
       }
@@ -543,22 +991,20 @@ class LeaderState extends ActiveState {
        * Returns a boolean value indicating whether there are more entries to send.
        */
       private boolean hasMoreEntries() {
-        return nextIndex != null && !context.log().isEmpty() && nextIndex < context.log().lastIndex();
+        return nextIndex != null && !context.log().isEmpty() && nextIndex <= context.log().lastIndex();
       }
 
       /**
-       * Updates the match index when a response is received.
+       * Updates the match index when a request succeeds.
+       *
+       * @return Indicates whether the match index was increased.
        */
-      private void updateMatchIndex(AppendResponse response) {
-        // If the replica returned a valid match index then update the existing match index. Because the
-        // replicator pipelines replication, we perform a MAX(matchIndex, logIndex) to get the true match index.
-        if (response.logIndex() != null) {
-          if (matchIndex != null) {
-            matchIndex = Math.max(matchIndex, response.logIndex());
-          } else {
-            matchIndex = response.logIndex();
-          }
+      private boolean updateMatchIndex(Long lastIndex) {
+        if (lastIndex != null && (matchIndex == null || lastIndex > matchIndex)) {
+          matchIndex = lastIndex;
+          return true;
         }
+        return false;
       }
 
       /**
@@ -567,41 +1013,97 @@ class LeaderState extends ActiveState {
       private void updateNextIndex() {
         // If the match index was set, update the next index to be greater than the match index if necessary.
         // Note that because of pipelining append requests, the next index can potentially be much larger than
-        // the match index. We rely on the algorithm to reject invalid append requests.
+        // the match index.
         if (matchIndex != null) {
           if (nextIndex != null) {
             nextIndex = Math.max(nextIndex, matchIndex + 1);
           } else {
             nextIndex = matchIndex + 1;
           }
+        } else if (nextIndex == null && !context.log().isEmpty()) {
+          nextIndex = context.log().firstIndex();
         }
       }
 
       /**
-       * Resets the match index when a response fails.
+       * Resets the next index when a request is rejected by the replica.
        */
-      private void resetMatchIndex(AppendResponse response) {
-        if (matchIndex == null) {
-          matchIndex = response.logIndex();
-        } else if (response.logIndex() != null) {
-          matchIndex = Math.max(matchIndex, response.logIndex());
+      private void resetNextIndex(Long prevIndex, AppendResponse response) {
+        // Step back to the entry before the rejected request's previous entry, or to the end of the replica's
+        // log if the replica's log is shorter than that. The next index never moves behind the match index, and
+        // only moves behind the first index in the log if a snapshot can be sent in place of compacted entries.
+        long firstIndex = context.log().isEmpty() || context.snapshots().currentSnapshot() != null ? 1 : context.log().firstIndex();
+        long index = prevIndex != null ? prevIndex : firstIndex;
+
+        // If the replica reported a conflicting term then skip the whole term. Entries with the same index and term
+        // are identical, so if the leader's log has entries in the conflicting term before the previous entry then
+        // the replica's log can only match up to the last of them. Otherwise none of the replica's entries in the
+        // term match and the replica is sent entries from the first index of the term.
+        if (response.conflictTerm() != null && prevIndex != null) {
+          Long termIndex = context.log().lastIndexOf(response.conflictTerm());
+          index = Math.min(index, termIndex != null && termIndex < prevIndex ? termIndex + 1 : response.conflictIndex());
         }
-        LOGGER.debug("{} - Reset match index for {} to {}", context.getLocalMember(), member, matchIndex);
+        if (response.logIndex() != null) {
+          index = Math.min(index, response.logIndex() + 1);
+        }
+        if (matchIndex != null) {
+          index = Math.max(index, matchIndex + 1);
+        }
+        nextIndex = Math.max(index, firstIndex);
+        generation++;
+        LOGGER.debug("{} - Reset next index for {} to {}", context.getLocalMember(), member, nextIndex);
       }
 
       /**
-       * Resets the next index when a response fails.
+       * Resets the next index to the match index when a request fails, since the entries in the failed request
+       * and any requests pipelined behind it may not have been received.
        */
-      private void resetNextIndex() {
-        if (matchIndex != null) {
-          nextIndex = matchIndex + 1;
-        } else {
-          nextIndex = context.log().firstIndex();
+      private void resetNextIndex(long requestGeneration) {
+        if (requestGeneration == generation) {
+          if (matchIndex != null) {
+            nextIndex = matchIndex + 1;
+          } else if (!context.log().isEmpty()) {
+            nextIndex = context.log().firstIndex();
+          }
+          generation++;
+          LOGGER.debug("{} - Reset next index for {} to {}", context.getLocalMember(), member, nextIndex);
         }
-        LOGGER.debug("{} - Reset next index for {} to {}", context.getLocalMember(), member, nextIndex);
       }
 
     }
   }
 
+  /**
+   * Batch of entries that has been committed and is waiting to be applied.
+   */
+  private static class CommittedBatch {
+    private final EntryBatch batch;
+    private final List<PendingCommit> commits;
+    private final CompletableFuture<Long> flushFuture;
+    private boolean flushWaiting;
+
+    private CommittedBatch(EntryBatch batch, List<PendingCommit> commits, CompletableFuture<Long> flushFuture) {
+      this.batch = batch;
+      this.commits = commits;
+      this.flushFuture = flushFuture;
+    }
+  }
+
+  /**
+   * Entry waiting to be committed in a batch.
+   */
+  private static class PendingCommit {
+    private final long term;
+    private final ByteBuffer entry;
+    private final ByteBuffer logEntry;
+    private final CompletableFuture<CommitResponse> future;
+
+    private PendingCommit(long term, ByteBuffer entry, ByteBuffer logEntry, CompletableFuture<CommitResponse> future) {
+      this.term = term;
+      this.entry = entry;
+      this.logEntry = logEntry;
+      this.future = future;
+    }
+  }
+
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft;
+
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Replays large ranges of committed entries, decoding entries ahead of the state machine.<p>
+ *
+ * Entries are read from the log in batches on the context thread using bulk log reads, so the log is never read
+ * concurrently with appends or truncations. If a decoder is registered on the context, each batch is then decoded on
+ * a decoder pool shared by all replays so that entries can be deserialized in parallel. Decoded batches are queued to
+ * be applied strictly in order on the context thread as they complete, and the replay never waits for the decoder or
+ * the state machine: once the apply queue is full the replay is resumed by the state as the state machine catches up.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class LogReplayer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LogReplayer.class);
+
+  /**
+   * The minimum number of entries for which a replay is worth the cost of decoding entries ahead of time.
+   */
+  static final int MIN_ENTRIES = 1024;
+  private static final int BATCH_SIZE = 256;
+  private static final int READ_AHEAD = 8;
+  private static final long PROGRESS_INTERVAL = 5000;
+  private static final ExecutorService DECODER_EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new NamedThreadFactory("copycat-replay-decoder-%d", true));
+
+  private final RaftContext context;
+  private final PassiveState state;
+  private final Deque<CompletableFuture<Batch>> batches = new ArrayDeque<>(READ_AHEAD);
+  private boolean replaying;
+  private long firstIndex;
+  private long lastIndex;
+  private long readIndex;
+  private long startTime;
+  private long lastProgress;
+
+  LogReplayer(RaftContext context, PassiveState state) {
+    this.context = context;
+    this.state = state;
+  }
+
+  /**
+   * Returns a boolean value indicating whether a replay is in progress.
+   *
+   * @return Indicates whether a replay is in progress.
+   */
+  boolean isReplaying() {
+    return replaying;
+  }
+
+  /**
+   * Replays a range of entries, or extends the current replay up to the given last index.<p>
+   *
+   * Entries are queued to be applied via the state in order. This method returns once as many entries as possible
+   * have been queued without waiting, and the replay continues each time a batch has been decoded or this method is
+   * called again.
+   *
+   * @param firstIndex The first index to replay (inclusive).
+   * @param lastIndex The last index to replay (inclusive).
+   */
+  void replay(long firstIndex, long lastIndex) {
+    context.checkThread();
+    if (!replaying) {
+      replaying = true;
+      this.firstIndex = firstIndex;
+      this.lastIndex = lastIndex;
+      this.readIndex = firstIndex;
+      this.startTime = System.currentTimeMillis();
+      this.lastProgress = startTime;
+      context.setReplayProgress(lastIndex - firstIndex + 1, 0, startTime);
+      LOGGER.info("{} - Replaying {} entries from index {}", context.getLocalMember(), lastIndex - firstIndex + 1, firstIndex);
+    } else if (lastIndex > this.lastIndex) {
+      this.lastIndex = lastIndex;
+    }
+    resume();
+  }
+
+  /**
+   * Queues decoded batches to be applied and reads ahead of the state machine.
+   */
+  private void resume() {
+    if (!replaying || !state.isOpen()) {
+      return;
+    }
+
+    // Batches that are already complete when they're read are applied without waiting for another resume, since the
+    // state machine may have nothing left to apply and so may never resume the replay itself.
+    try {
+      do {
+        applyBatches();
+        if (replaying) {
+          readBatches();
+        }
+      } while (replaying && !batches.isEmpty() && batches.peek().isDone() && !context.isApplyQueueFull());
+    } finally {
+      state.flushEntries();
+    }
+
+    if (replaying && batches.isEmpty() && readIndex > lastIndex) {
+      complete();
+    }
+  }
+
+  /**
+   * Queues batches that have been decoded to be applied in order while there's space in the apply queue.
+   */
+  private void applyBatches() {
+    while (!batches.isEmpty() && batches.peek().isDone() && !context.isApplyQueueFull()) {
+      Batch batch;
+      try {
+        batch = batches.poll().join();
+      } catch (CompletionException e) {
+        cancel(e.getCause());
+        return;
+      }
+
+      // Entries that were already queued, for instance because a snapshot was installed while the batch was being
+      // decoded, are skipped. If the log no longer agrees with the batch then the replay is abandoned and remaining
+      // entries are read from the log when they're applied.
+      if (!isValid(batch)) {
+        cancel(new IllegalStateException("log changed during replay"));
+        return;
+      }
+
+      for (int i = 0; i < batch.entries.size(); i++) {
+        state.applyEntry(batch.firstIndex + i, batch.entries.get(i), batch.decoded != null ? batch.decoded[i] : null);
+      }
+
+      long replayed = batch.firstIndex + batch.entries.size() - firstIndex;
+      context.setReplayProgress(lastIndex - firstIndex + 1, replayed, startTime);
+      if (System.currentTimeMillis() - lastProgress >= PROGRESS_INTERVAL) {
+        lastProgress = System.currentTimeMillis();
+        LOGGER.info("{} - Replayed {} of {} entries ({} entries/s, {} ms remaining)", context.getLocalMember(), replayed, lastIndex - firstIndex + 1, (long) context.getReplayRate(), context.getReplayEta());
+      }
+    }
+  }
+
+  /**
+   * Returns a boolean value indicating whether a batch is still committed and matches the log.<p>
+   *
+   * Entries up to the commit index are never removed from the log, and if the log agrees with the term of the last
+   * entry in the batch then it agrees with all preceding entries, so only the last entry needs to be checked.
+   */
+  private boolean isValid(Batch batch) {
+    long batchLastIndex = batch.firstIndex + batch.entries.size() - 1;
+    Long commitIndex = context.getCommitIndex();
+    if (commitIndex == null || commitIndex < batchLastIndex) {
+      return false;
+    }
+    Long queuedIndex = context.getQueuedIndex();
+    if (queuedIndex != null && queuedIndex >= batchLastIndex) {
+      return true;
+    }
+    Long term = context.log().termAt(batchLastIndex);
+    return term != null && term == batch.entries.get(batch.entries.size() - 1).getLong(0);
+  }
+
+  /**
+   * Reads batches of entries ahead of the state machine on the context thread, passing each batch to the decoder
+   * executor if necessary.
+   */
+  private void readBatches() {
+    Function<ByteBuffer, Object> decoder = context.decoder();
+    Long queuedIndex = context.getQueuedIndex();
+    if (queuedIndex != null && readIndex <= queuedIndex) {
+      readIndex = queuedIndex + 1;
+    }
+
+    while (batches.size() < READ_AHEAD && readIndex <= lastIndex) {
+      long batchFirstIndex = readIndex;
+      List<ByteBuffer> entries;
+      try {
+        entries = copyEntries(context.log().getEntries(batchFirstIndex, Math.min(batchFirstIndex + BATCH_SIZE - 1, lastIndex)));
+      } catch (Exception e) {
+        cancel(e);
+        return;
+      }
+      readIndex += entries.size();
+
+      if (decoder != null) {
+        CompletableFuture<Batch> future = CompletableFuture.supplyAsync(() -> decode(batchFirstIndex, entries, decoder), DECODER_EXECUTOR);
+        batches.add(future);
+        future.whenCompleteAsync((batch, error) -> resume(), context.executor());
+      } else {
+        batches.add(CompletableFuture.completedFuture(new Batch(batchFirstIndex, entries, null)));
+      }
+    }
+  }
+
+  /**
+   * Copies entries read from the log, since entries may share their contents with the log and the decoder may
+   * temporarily modify them.
+   */
+  private static List<ByteBuffer> copyEntries(List<ByteBuffer> entries) {
+    List<ByteBuffer> copies = new ArrayList<>(entries.size());
+    for (ByteBuffer entry : entries) {
+      ByteBuffer duplicate = entry.duplicate();
+      duplicate.rewind();
+      copies.add(PassiveState.copyEntry(duplicate));
+    }
+    return copies;
+  }
+
+  /**
+   * Decodes a batch of entries.
+   */
+  private static Batch decode(long firstIndex, List<ByteBuffer> entries, Function<ByteBuffer, Object> decoder) {
+    Object[] decoded = new Object[entries.size()];
+    for (int i = 0; i < decoded.length; i++) {
+      // Entries that fail to decode are left to be decoded by the consumer when they're applied. Note that entries
+      // are not passed to the decoder as read-only buffers since some deserializers temporarily modify their input.
+      try {
+        ByteBuffer entry = entries.get(i).duplicate();
+        entry.position(8);
+        decoded[i] = decoder.apply(entry.slice());
+      } catch (Exception e) {
+      }
+    }
+    return new Batch(firstIndex, entries, decoded);
+  }
+
+  /**
+   * Completes the replay.
+   */
+  private void complete() {
+    replaying = false;
+    long entries = lastIndex - firstIndex + 1;
+    context.setReplayProgress(entries, entries, startTime);
+    LOGGER.info("{} - Replayed {} entries in {} ms ({} entries/s)", context.getLocalMember(), entries, System.currentTimeMillis() - startTime, (long) context.getReplayRate());
+  }
+
+  /**
+   * Abandons the replay. Any entries that were not replayed are applied by the state from the log.
+   */
+  private void cancel(Throwable error) {
+    LOGGER.warn("{} - Failed to replay entries: {}", context.getLocalMember(), error.getMessage());
+    close();
+  }
+
+  /**
+   * Closes the replayer, discarding any batches that have not been applied.
+   */
+  void close() {
+    replaying = false;
+    batches.clear();
+  }
+
+  /**
+   * Batch of read entries.
+   */
+  private static class Batch {
+    private final long firstIndex;
+    private final List<ByteBuffer> entries;
+    private final Object[] decoded;
+
+    private Batch(long firstIndex, List<ByteBuffer> entries, Object[] decoded) {
+      this.firstIndex = firstIndex;
+      this.entries = entries;
+      this.decoded = decoded;
+    }
+  }
+
+}
@@ -15,6 +15,9 @@
  */
 package net.kuujo.copycat.raft;
 
+import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.log.Snapshot;
+import net.kuujo.copycat.log.SnapshotWriter;
 import net.kuujo.copycat.protocol.Consistency;
 import net.kuujo.copycat.raft.protocol.*;
 
@@ -32,10 +35,19 @@ import java.util.concurrent.TimeUnit;
  */
 public class PassiveState extends RaftState {
   private static final int MAX_BATCH_SIZE = 1024 * 1024;
+  private static final int MAX_APPLY_BATCH_SIZE = 256;
   private ScheduledFuture<?> currentTimer;
+  private final TreeMap<Long, List<PendingQuery>> pendingReads = new TreeMap<>();
+  private List<PendingQuery> readIndexBatch = new ArrayList<>();
+  private boolean readIndexPending;
+  private final Set<String> snapshotting = new HashSet<>();
+  private SnapshotWriter snapshotWriter;
+  private EntryBatch applyBatch;
+  private final LogReplayer replayer;
 
   public PassiveState(RaftContext context) {
     super(context);
+    this.replayer = new LogReplayer(context, this);
   }
 
   @Override
@@ -110,6 +122,19 @@ public class PassiveState extends RaftState {
    * Recursively sends sync requests to the given member.
    */
   private void recursiveSync(ReplicaInfo member, boolean requireEntries, CompletableFuture<Void> future) {
+    // If the member is behind the local snapshot then send the snapshot before any entries.
+    Snapshot snapshot = context.snapshots().currentSnapshot();
+    if (!requireEntries && snapshot != null && context.getLeader() != null && context.getTerm() > 0
+      && (member.getIndex() == null || member.getIndex() < snapshot.index())) {
+      if (snapshotting.add(member.getUri())) {
+        future.whenComplete((result, error) -> snapshotting.remove(member.getUri()));
+        syncSnapshot(member, snapshot, 0, future);
+      } else {
+        future.complete(null);
+      }
+      return;
+    }
+
     // Get a list of entries up to 1MB in size.
     List<ByteBuffer> entries = new ArrayList<>(1024);
     Long firstIndex = null;
@@ -163,6 +188,55 @@ public class PassiveState extends RaftState {
     }
   }
 
+  /**
+   * Sends a snapshot to the given member one chunk at a time, continuing with entries once the snapshot is complete.
+   */
+  private void syncSnapshot(ReplicaInfo member, Snapshot snapshot, long offset, CompletableFuture<Void> future) {
+    ByteBuffer data;
+    try {
+      data = snapshot.read(offset, context.getConfig().getReplicationBatchSize());
+    } catch (IOException e) {
+      LOGGER.error("{} - Failed to read snapshot: {}", context.getLocalMember(), e.getMessage());
+      future.completeExceptionally(e);
+      return;
+    }
+
+    InstallSnapshotRequest request = InstallSnapshotRequest.builder()
+      .withUri(member.getUri())
+      .withTerm(context.getTerm())
+      .withLeader(context.getLeader())
+      .withIndex(snapshot.index())
+      .withSnapshotTerm(snapshot.term())
+      .withOffset(offset)
+      .withData(data)
+      .withComplete(offset + data.remaining() >= snapshot.size())
+      .build();
+
+    LOGGER.debug("{} - Sending snapshot chunk to {}", context.getLocalMember(), member.getUri());
+    installSnapshotHandler.apply(request).whenCompleteAsync((response, error) -> {
+      context.checkThread();
+      if (isOpen()) {
+        if (error == null) {
+          if (response.status() == Response.Status.OK) {
+            if (response.succeeded() && response.offset() >= snapshot.size()) {
+              recursiveSync(member, true, future);
+            } else if (response.succeeded() || response.offset() != offset) {
+              syncSnapshot(member, snapshot, response.offset(), future);
+            } else {
+              future.complete(null);
+            }
+          } else {
+            LOGGER.warn("{} - Received error response from {}", context.getLocalMember(), member.getUri());
+            future.completeExceptionally(response.error());
+          }
+        } else {
+          LOGGER.warn("{} - Snapshot sync to {} failed: {}", context.getLocalMember(), member, error.getMessage());
+          future.completeExceptionally(error);
+        }
+      }
+    }, context.executor());
+  }
+
   @Override
   public CompletableFuture<SyncResponse> sync(SyncRequest request) {
     context.checkThread();
@@ -180,7 +254,7 @@ public class PassiveState extends RaftState {
 
     // If the local log doesn't contain the previous index and the given index is not the first index in the
     // requestor's log then reply immediately.
-    if (!request.firstIndex() && request.logIndex() != null && !context.log().containsIndex(request.logIndex())) {
+    if (!request.firstIndex() && request.logIndex() != null && termAt(request.logIndex()) == null) {
       return CompletableFuture.completedFuture(logResponse(SyncResponse.builder()
         .withUri(context.getLocalMember())
         .withMembers(context.getMemberInfo())
@@ -203,30 +277,25 @@ public class PassiveState extends RaftState {
       }
     }
 
-    // Iterate through provided entries and append any that are missing from the log. Only committed entries are
-    // replicated via gossip, so we don't have to worry about consistency checks here.
-    for (int i = 0; i < request.entries().size(); i++) {
-      long index = request.logIndex() != null ? request.logIndex() + i + 1 : i + 1;
-      if (!context.log().containsIndex(index)) {
-        ByteBuffer entry = request.entries().get(i);
-        try {
-          context.log().appendEntry(entry);
-          context.setCommitIndex(index);
-
-          // Extract a view of the entry after the entry term.
-          long term = entry.getLong();
-          ByteBuffer userEntry = entry.slice();
+    // Find the first entry that is missing from the log and append all remaining entries in a single batch. Only
+    // committed entries are replicated via gossip, so we don't have to worry about consistency checks here.
+    List<ByteBuffer> entries = request.entries();
+    long firstIndex = request.logIndex() != null ? request.logIndex() + 1 : 1;
+    int i = 0;
+    while (i < entries.size() && context.log().containsIndex(firstIndex + i)) {
+      i++;
+    }
 
-          try {
-            context.consumer().apply(term, index, userEntry);
-          } catch (Exception e) {
-          }
+    if (i < entries.size()) {
+      try {
+        context.log().appendEntries(entries.subList(i, entries.size()));
+        LOGGER.debug("{} - Appended {} entries to log at index {}", context.getLocalMember(), entries.size() - i, firstIndex + i);
 
-          context.setLastApplied(index);
-          LOGGER.debug("{} - Appended {} to log at index {}", context.getLocalMember(), entry, index);
-        } catch (IOException e) {
-          break;
-        }
+        // Apply the appended entries to the state machine.
+        context.setCommitIndex(firstIndex + entries.size() - 1);
+        applyCommits();
+      } catch (IOException e) {
+        LOGGER.error("{} - Failed to append entries to log", context.getLocalMember(), e);
       }
     }
 
@@ -238,36 +307,489 @@ public class PassiveState extends RaftState {
       }
     } catch (IOException e) {
       LOGGER.error("{} - Failed to compact log", context.getLocalMember());
-    } finally {
-      // Flush the log to disk.
-      context.log().flush();
     }
 
-    // Reply with the updated vector clock.
-    return CompletableFuture.completedFuture(logResponse(SyncResponse.builder()
+    // Flush the log to disk and reply with the updated vector clock.
+    return flushLog(logResponse(SyncResponse.builder()
       .withUri(context.getLocalMember())
       .withMembers(context.getMemberInfo())
       .build()));
   }
 
+  /**
+   * Flushes the log, returning a future to be completed with the given response once all entries in the log are on
+   * disk.<p>
+   *
+   * With group commit enabled, flushing the log only schedules a flush, so responses that acknowledge appended
+   * entries must wait for the flush to complete before they're sent.
+   *
+   * @param response The response to complete once the log has been flushed.
+   * @return A completable future to be completed with the response on the context thread.
+   */
+  protected <T extends Response> CompletableFuture<T> flushLog(T response) {
+    Long lastIndex = context.log().lastIndex();
+    if (lastIndex == null) {
+      context.log().flush();
+      return CompletableFuture.completedFuture(response);
+    }
+
+    CompletableFuture<Long> future = context.log().flush(lastIndex);
+    if (future.isDone() && !future.isCompletedExceptionally()) {
+      return CompletableFuture.completedFuture(response);
+    }
+    return future.thenApplyAsync(index -> response, context.executor());
+  }
+
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    context.checkThread();
+    return handleInstallSnapshot(logRequest(request)).thenApply(this::logResponse);
+  }
+
+  /**
+   * Writes a snapshot chunk to the snapshot store, installing the snapshot once its last chunk has been written.<p>
+   *
+   * Chunks must be received in order. A chunk at offset {@code 0} starts a new snapshot, and a chunk at any other
+   * offset is rejected unless it immediately follows the last chunk written. Rejections include the offset from
+   * which the snapshot should be resent, so interrupted transfers are resumed rather than restarted. The response to
+   * the last chunk is sent once the snapshot has been installed on the apply thread.
+   */
+  protected CompletableFuture<InstallSnapshotResponse> handleInstallSnapshot(InstallSnapshotRequest request) {
+    // If the snapshot has already been completed then there's no need to resend it.
+    Snapshot current = context.snapshots().currentSnapshot();
+    if (snapshotWriter == null && current != null && current.index() == request.index() && current.term() == request.snapshotTerm()) {
+      return CompletableFuture.completedFuture(installSnapshotResponse(true, current.size()));
+    }
+
+    try {
+      if (request.offset() == 0 && (snapshotWriter == null || snapshotWriter.size() > 0
+        || snapshotWriter.index() != request.index() || snapshotWriter.term() != request.snapshotTerm())) {
+        closeSnapshotWriter();
+        snapshotWriter = context.snapshots().createSnapshot(request.index(), request.snapshotTerm());
+      }
+
+      if (snapshotWriter == null || snapshotWriter.index() != request.index() || snapshotWriter.term() != request.snapshotTerm()) {
+        LOGGER.debug("{} - Rejected {}: no snapshot in progress", context.getLocalMember(), request);
+        return CompletableFuture.completedFuture(installSnapshotResponse(false, 0));
+      } else if (request.offset() != snapshotWriter.size()) {
+        LOGGER.debug("{} - Rejected {}: expected offset {}", context.getLocalMember(), request, snapshotWriter.size());
+        return CompletableFuture.completedFuture(installSnapshotResponse(false, snapshotWriter.size()));
+      }
+
+      snapshotWriter.write(request.data());
+      long offset = snapshotWriter.size();
+      if (request.complete()) {
+        Snapshot snapshot = snapshotWriter.complete();
+        snapshotWriter = null;
+        return installSnapshot(snapshot).handle((result, error) -> {
+          if (error != null) {
+            LOGGER.error("{} - Failed to install snapshot: {}", context.getLocalMember(), error.getMessage());
+          }
+          return installSnapshotResponse(error == null, offset);
+        });
+      }
+      return CompletableFuture.completedFuture(installSnapshotResponse(true, offset));
+    } catch (IOException e) {
+      LOGGER.error("{} - Failed to write snapshot: {}", context.getLocalMember(), e.getMessage());
+      closeSnapshotWriter();
+      return CompletableFuture.completedFuture(installSnapshotResponse(false, 0));
+    }
+  }
+
+  /**
+   * Installs a completed snapshot and discards the entries it replaces from the log.
+   *
+   * @return A completable future to be completed once the snapshot has been installed on the apply thread.
+   */
+  private CompletableFuture<Void> installSnapshot(Snapshot snapshot) throws IOException {
+    if (context.getQueuedIndex() != null && context.getQueuedIndex() >= snapshot.index()) {
+      LOGGER.debug("{} - Skipped installing snapshot at index {}: entries already applied", context.getLocalMember(), snapshot.index());
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // Entries following the snapshot are only retained if the log agrees with the snapshot's last entry.
+    Long firstIndex = context.log().firstIndex();
+    boolean matches = context.log().containsIndex(snapshot.index()) && context.log().termAt(snapshot.index()) == snapshot.term();
+    if (!matches && (firstIndex == null || firstIndex != snapshot.index() + 1)) {
+      if (context.log().containsIndex(snapshot.index()) && context.log().lastIndex() > snapshot.index()) {
+        context.log().removeAfter(snapshot.index());
+      }
+      context.log().rollOver(snapshot.index() + 1);
+      context.log().compact(snapshot.index() + 1);
+    }
+
+    LOGGER.info("{} - Installing snapshot at index {}", context.getLocalMember(), snapshot.index());
+    return context.installSnapshot(snapshot);
+  }
+
+  /**
+   * Builds an install snapshot response.
+   */
+  private InstallSnapshotResponse installSnapshotResponse(boolean succeeded, long offset) {
+    return InstallSnapshotResponse.builder()
+      .withUri(context.getLocalMember())
+      .withTerm(context.getTerm())
+      .withSucceeded(succeeded)
+      .withOffset(offset)
+      .build();
+  }
+
+  /**
+   * Discards any partially written snapshot.
+   */
+  private void closeSnapshotWriter() {
+    if (snapshotWriter != null) {
+      try {
+        snapshotWriter.close();
+      } catch (IOException e) {
+        LOGGER.warn("{} - Failed to discard snapshot: {}", context.getLocalMember(), e.getMessage());
+      }
+      snapshotWriter = null;
+    }
+  }
+
+  /**
+   * Returns the index of the last entry in the log, or the snapshot index if the log does not extend past the
+   * current snapshot.
+   */
+  protected Long lastIndex() {
+    Long lastIndex = context.log().lastIndex();
+    Snapshot snapshot = context.snapshots().currentSnapshot();
+    if (snapshot != null && (lastIndex == null || lastIndex < snapshot.index())) {
+      return snapshot.index();
+    }
+    return lastIndex;
+  }
+
+  /**
+   * Returns the term of the entry at the given index in the log or the snapshot term if the index is the index of
+   * the current snapshot.
+   */
+  protected Long termAt(long index) {
+    if (context.log().containsIndex(index)) {
+      return context.log().termAt(index);
+    }
+    Snapshot snapshot = context.snapshots().currentSnapshot();
+    if (snapshot != null && snapshot.index() == index) {
+      return snapshot.term();
+    }
+    return null;
+  }
+
   @Override
   public CompletableFuture<QueryResponse> query(QueryRequest request) {
     context.checkThread();
     logRequest(request);
     // If the request allows inconsistency, immediately execute the query and return the result.
     if (request.consistency() == Consistency.WEAK) {
+      CompletableFuture<QueryResponse> future = new CompletableFuture<>();
+      applyLocalQuery(request, future);
+      return future;
+    } else if (context.getLeader() == null) {
       return CompletableFuture.completedFuture(logResponse(QueryResponse.builder()
         .withUri(context.getLocalMember())
-        .withResult(context.consumer().apply(context.getTerm(), null, request.entry()))
+        .withStatus(Response.Status.ERROR)
+        .withError(new IllegalStateException("Not the leader"))
         .build()));
-    } else if (context.getLeader() == null) {
-      return CompletableFuture.completedFuture(logResponse(QueryResponse.builder()
+    } else if (request.consistency() == Consistency.BOUNDED) {
+      // Passive members don't track the leader's commit index, so bounded queries are forwarded to the leader.
+      CompletableFuture<QueryResponse> future = new CompletableFuture<>();
+      forwardQuery(request, future);
+      return future;
+    } else {
+      // Linearizable queries are applied to the local state machine once it has caught up to the leader's read index.
+      CompletableFuture<QueryResponse> future = new CompletableFuture<>();
+      readIndexBatch.add(new PendingQuery(context.getTerm(), request, future));
+      if (!readIndexPending) {
+        readIndex();
+      }
+      return future;
+    }
+  }
+
+  /**
+   * Requests a read index from the leader for all queries received since the last read index request.<p>
+   *
+   * Only a single read index request is outstanding at any time. Queries received while a request is in flight are
+   * batched and share the next read index request.
+   */
+  private void readIndex() {
+    List<PendingQuery> batch = readIndexBatch;
+    readIndexBatch = new ArrayList<>();
+    readIndexPending = true;
+
+    // If any query in the batch requires STRONG consistency then the leader must confirm its leadership.
+    Consistency consistency = Consistency.LEASE;
+    for (PendingQuery query : batch) {
+      if (query.request.consistency() == Consistency.STRONG) {
+        consistency = Consistency.STRONG;
+        break;
+      }
+    }
+
+    ReadIndexRequest request = ReadIndexRequest.builder()
+      .withUri(context.getLeader())
+      .withConsistency(consistency)
+      .build();
+
+    LOGGER.debug("{} - Requesting read index for {} queries from {}", context.getLocalMember(), batch.size(), request.uri());
+    readIndexHandler.apply(request).whenCompleteAsync((response, error) -> {
+      context.checkThread();
+      if (isOpen()) {
+        readIndexPending = false;
+        if (error == null && response.status() == Response.Status.OK) {
+          for (PendingQuery query : batch) {
+            applyQuery(response.index(), query.term, query.request, query.future);
+          }
+        } else {
+          // If the read index could not be determined then fall back to forwarding the queries to the leader.
+          for (PendingQuery query : batch) {
+            forwardQuery(query.request, query.future);
+          }
+        }
+
+        if (!readIndexBatch.isEmpty()) {
+          if (context.getLeader() != null) {
+            readIndex();
+          } else {
+            List<PendingQuery> queries = readIndexBatch;
+            readIndexBatch = new ArrayList<>();
+            for (PendingQuery query : queries) {
+              forwardQuery(query.request, query.future);
+            }
+          }
+        }
+      } else {
+        failQueries(batch);
+      }
+    }, context.executor());
+  }
+
+  /**
+   * Forwards a query to the leader.
+   */
+  protected void forwardQuery(QueryRequest request, CompletableFuture<QueryResponse> future) {
+    if (context.getLeader() == null) {
+      future.complete(logResponse(QueryResponse.builder()
         .withUri(context.getLocalMember())
         .withStatus(Response.Status.ERROR)
         .withError(new IllegalStateException("Not the leader"))
         .build()));
     } else {
-      return queryHandler.apply(QueryRequest.builder(request).withUri(context.getLeader()).build());
+      queryHandler.apply(QueryRequest.builder(request).withUri(context.getLeader()).build()).whenComplete((response, error) -> {
+        if (error == null) {
+          future.complete(response);
+        } else {
+          future.completeExceptionally(error);
+        }
+      });
+    }
+  }
+
+  /**
+   * Applies a query that doesn't require a read index to the local state machine.<p>
+   *
+   * If entries have not yet been queued up to the query's minimum index then the query is forwarded to the leader
+   * rather than waiting for this member to catch up, since a lagging member may not catch up for some time. Queries
+   * for entries that have been queued wait for the state machine to apply them.
+   */
+  protected void applyLocalQuery(QueryRequest request, CompletableFuture<QueryResponse> future) {
+    if (request.index() != null && (context.getQueuedIndex() == null || context.getQueuedIndex() < request.index())) {
+      LOGGER.debug("{} - Forwarding query behind minimum index {} to leader", context.getLocalMember(), request.index());
+      forwardQuery(request, future);
+    } else {
+      applyQuery(0, context.getTerm(), request, future);
+    }
+  }
+
+  /**
+   * Applies a query once entries have been applied up to the given read index or the query's minimum index, whichever
+   * is greater.
+   */
+  protected void applyQuery(long readIndex, long term, QueryRequest request, CompletableFuture<QueryResponse> future) {
+    if (request.index() != null) {
+      readIndex = Math.max(readIndex, request.index());
+    }
+    if (readIndex > 0 && (context.getLastApplied() == null || context.getLastApplied() < readIndex)) {
+      pendingReads.computeIfAbsent(readIndex, i -> new ArrayList<>()).add(new PendingQuery(term, request, future));
+      return;
+    }
+
+    // The query is applied on the apply thread after all entries up to the read index have been applied.
+    context.apply(term, null, request.entry(), null).whenComplete((result, error) -> {
+      if (error == null) {
+        future.complete(logResponse(QueryResponse.builder()
+          .withUri(context.getLocalMember())
+          .withResult(result)
+          .build()));
+      } else {
+        future.complete(logResponse(QueryResponse.builder()
+          .withUri(context.getLocalMember())
+          .withStatus(Response.Status.ERROR)
+          .withError(error)
+          .build()));
+      }
+    });
+  }
+
+  @Override
+  protected void applied() {
+    applyCommits();
+    applyReads();
+  }
+
+  /**
+   * Queues committed entries that have not yet been queued to be applied to the state machine.
+   */
+  protected void applyCommits() {
+    Long commitIndex = context.getCommitIndex();
+    if (commitIndex != null) {
+      applyEntries(commitIndex);
+    }
+  }
+
+  /**
+   * Queues entries up to the given index to be applied to the state machine, starting after the last queued entry.<p>
+   *
+   * Entries are only queued while there's space in the apply queue. Once the queue is full the remaining entries are
+   * left in the log and queued from {@link #applied()} as the state machine catches up, so the context thread never
+   * waits for the state machine. Large ranges, such as those applied when recovering from the log, are replayed
+   * through a {@link LogReplayer} which decodes entries ahead of the state machine, and once a replay has started the
+   * replay is extended with any entries committed before it completes.
+   *
+   * @param index The index up to which to queue entries.
+   */
+  protected void applyEntries(long index) {
+    Long lastIndex = context.log().lastIndex();
+    if (lastIndex == null) {
+      return;
+    }
+
+    long firstIndex = context.getQueuedIndex() != null ? context.getQueuedIndex() + 1 : context.log().firstIndex();
+    lastIndex = Math.min(index, lastIndex);
+    if (firstIndex > lastIndex || !context.log().containsIndex(firstIndex) || context.isApplyQueueFull()) {
+      return;
+    }
+
+    LOGGER.debug("{} - Applying {} commits", context.getLocalMember(), lastIndex - firstIndex + 1);
+    if (replayer.isReplaying() || lastIndex - firstIndex + 1 >= LogReplayer.MIN_ENTRIES) {
+      replayer.replay(firstIndex, lastIndex);
+    } else {
+      try {
+        for (long i = firstIndex; i <= lastIndex && !context.isApplyQueueFull(); i++) {
+          applyEntry(i, null, null);
+        }
+      } finally {
+        flushEntries();
+      }
+    }
+  }
+
+  /**
+   * Queues the given entry to be applied, reading the entry from the log if it has not already been read.<p>
+   *
+   * Entries are only queued if they immediately follow the last queued entry.
+   */
+  protected void applyEntry(long index, ByteBuffer entry, Object decoded) {
+    Long queuedIndex = context.getQueuedIndex();
+    if ((queuedIndex == null && index == context.log().firstIndex()) || (queuedIndex != null && queuedIndex == index - 1)) {
+      // Entries read from the log may share their contents with the log, so the state machine is given a copy.
+      ByteBuffer userEntry;
+      long term;
+      if (entry == null) {
+        entry = context.log().getEntry(index);
+        term = entry.getLong();
+        userEntry = copyEntry(entry);
+      } else {
+        term = entry.getLong();
+        userEntry = entry.slice();
+      }
+
+      queueEntry(term, index, userEntry, decoded);
+    }
+  }
+
+  /**
+   * Queues a committed entry to be applied to the state machine.<p>
+   *
+   * Contiguous entries are applied to the state machine in batches, so queued entries are not passed to the apply
+   * thread until the batch is full or {@link #flushEntries()} is called. The entry is considered queued as soon as
+   * it's added to the batch, but the last applied index is only advanced once the state machine has applied it.
+   */
+  protected void queueEntry(long term, long index, ByteBuffer entry, Object decoded) {
+    if (applyBatch != null && applyBatch.lastIndex() != index - 1) {
+      flushEntries();
+    }
+    if (applyBatch == null) {
+      applyBatch = new EntryBatch(index);
+    }
+    applyBatch.add(term, entry, decoded);
+    context.setQueuedIndex(index);
+    if (applyBatch.size() >= MAX_APPLY_BATCH_SIZE) {
+      flushEntries();
+    }
+  }
+
+  /**
+   * Passes queued entries to the apply thread.
+   */
+  protected void flushEntries() {
+    if (applyBatch != null) {
+      context.apply(applyBatch);
+      applyBatch = null;
+    }
+  }
+
+  /**
+   * Returns a copy of an entry from its current position.<p>
+   *
+   * Entries are applied to the state machine on the apply thread, and some deserializers temporarily modify the
+   * buffers they read, so entries that may be shared with the log are copied before they're applied.
+   */
+  protected static ByteBuffer copyEntry(ByteBuffer entry) {
+    ByteBuffer copy = ByteBuffer.allocate(entry.remaining());
+    copy.put(entry.duplicate());
+    copy.flip();
+    return copy;
+  }
+
+  /**
+   * Applies queries that were waiting for entries to be applied up to their read index.
+   */
+  protected void applyReads() {
+    Long lastApplied = context.getLastApplied();
+    if (lastApplied != null && !pendingReads.isEmpty()) {
+      SortedMap<Long, List<PendingQuery>> reads = pendingReads.headMap(lastApplied, true);
+      List<PendingQuery> ready = new ArrayList<>();
+      reads.values().forEach(ready::addAll);
+      reads.clear();
+      for (PendingQuery query : ready) {
+        applyQuery(lastApplied, query.term, query.request, query.future);
+      }
+    }
+  }
+
+  /**
+   * Fails any queries that are waiting for a read index or for entries to be applied.
+   */
+  private void failPendingReads() {
+    List<PendingQuery> queries = new ArrayList<>(readIndexBatch);
+    pendingReads.values().forEach(queries::addAll);
+    readIndexBatch.clear();
+    pendingReads.clear();
+    failQueries(queries);
+  }
+
+  /**
+   * Fails the given queries.
+   */
+  private void failQueries(List<PendingQuery> queries) {
+    for (PendingQuery query : queries) {
+      query.future.complete(logResponse(QueryResponse.builder()
+        .withUri(context.getLocalMember())
+        .withStatus(Response.Status.ERROR)
+        .withError(new CopycatException("State closed"))
+        .build()));
     }
   }
 
@@ -298,7 +820,7 @@ public class PassiveState extends RaftState {
 
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return super.close().thenRun(this::cancelSyncTimer);
+    return super.close().thenRun(this::cancelSyncTimer).thenRun(replayer::close).thenRun(this::failPendingReads).thenRun(this::closeSnapshotWriter);
   }
 
   @Override
@@ -306,4 +828,19 @@ public class PassiveState extends RaftState {
     return String.format("%s[context=%s]", getClass().getSimpleName(), context);
   }
 
+  /**
+   * Query waiting to be applied to the state machine.
+   */
+  private static class PendingQuery {
+    private final long term;
+    private final QueryRequest request;
+    private final CompletableFuture<QueryResponse> future;
+
+    private PendingQuery(long term, QueryRequest request, CompletableFuture<QueryResponse> future) {
+      this.term = term;
+      this.request = request;
+      this.future = future;
+    }
+  }
+
 }
@@ -33,6 +33,15 @@ import java.util.concurrent.TimeUnit;
 public class RaftConfig extends AbstractConfigurable {
   private static final String RESOURCE_ELECTION_TIMEOUT = "election.timeout";
   private static final String RESOURCE_HEARTBEAT_INTERVAL = "heartbeat.interval";
+  private static final String RESOURCE_REPLICATION_WINDOW = "replication.window";
+  private static final String RESOURCE_REPLICATION_BATCH_SIZE = "replication.batch-size";
+  private static final String RESOURCE_COMMIT_BATCH_DELAY = "commit.batch-delay";
+  private static final String RESOURCE_COMMIT_BATCH_SIZE = "commit.batch-size";
+  private static final String RESOURCE_COMMIT_BATCH_COUNT = "commit.batch-count";
+  private static final String RESOURCE_APPLY_QUEUE_SIZE = "apply.queue-size";
+  private static final String RESOURCE_LEASE_CLOCK_DRIFT = "lease.clock-drift";
+  private static final String RESOURCE_BOUNDED_MAX_ENTRIES = "bounded.max-entries";
+  private static final String RESOURCE_BOUNDED_MAX_STALENESS = "bounded.max-staleness";
   private static final String RESOURCE_REPLICAS = "replicas";
   private static final String RESOURCE_LOG = "log";
 
@@ -163,6 +172,384 @@ public class RaftConfig extends AbstractConfigurable {
     return this;
   }
 
+  /**
+   * Sets the maximum number of append requests that may be in flight to a single replica.
+   *
+   * @param replicationWindow The maximum number of outstanding append requests per replica.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  public void setReplicationWindow(int replicationWindow) {
+    this.config = config.withValue(RESOURCE_REPLICATION_WINDOW, ConfigValueFactory.fromAnyRef(Assert.arg(replicationWindow, replicationWindow > 0, "replication window must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of append requests that may be in flight to a single replica.
+   *
+   * @return The maximum number of outstanding append requests per replica.
+   */
+  public int getReplicationWindow() {
+    return config.hasPath(RESOURCE_REPLICATION_WINDOW) ? config.getInt(RESOURCE_REPLICATION_WINDOW) : 4;
+  }
+
+  /**
+   * Sets the maximum number of append requests that may be in flight to a single replica, returning the resource
+   * configuration for method chaining.
+   *
+   * @param replicationWindow The maximum number of outstanding append requests per replica.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  public RaftConfig withReplicationWindow(int replicationWindow) {
+    setReplicationWindow(replicationWindow);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of bytes of entries to send in a single append request.
+   *
+   * @param replicationBatchSize The maximum append request batch size in bytes.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public void setReplicationBatchSize(int replicationBatchSize) {
+    this.config = config.withValue(RESOURCE_REPLICATION_BATCH_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(replicationBatchSize, replicationBatchSize > 0, "replication batch size must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of bytes of entries to send in a single append request.
+   *
+   * @return The maximum append request batch size in bytes.
+   */
+  public int getReplicationBatchSize() {
+    return config.hasPath(RESOURCE_REPLICATION_BATCH_SIZE) ? config.getInt(RESOURCE_REPLICATION_BATCH_SIZE) : 1024 * 1024;
+  }
+
+  /**
+   * Sets the maximum number of bytes of entries to send in a single append request, returning the resource
+   * configuration for method chaining.
+   *
+   * @param replicationBatchSize The maximum append request batch size in bytes.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public RaftConfig withReplicationBatchSize(int replicationBatchSize) {
+    setReplicationBatchSize(replicationBatchSize);
+    return this;
+  }
+
+  /**
+   * Sets the time for which the leader collects commits into a single batch.
+   *
+   * If the batch delay is {@code 0} then the leader batches only those commits that are already queued to be
+   * processed, adding no latency to individual commits.
+   *
+   * @param commitBatchDelay The commit batch delay in microseconds.
+   * @throws java.lang.IllegalArgumentException If the batch delay is negative
+   */
+  public void setCommitBatchDelay(long commitBatchDelay) {
+    this.config = config.withValue(RESOURCE_COMMIT_BATCH_DELAY, ConfigValueFactory.fromAnyRef(Assert.arg(commitBatchDelay, commitBatchDelay >= 0, "commit batch delay must be positive")));
+  }
+
+  /**
+   * Sets the time for which the leader collects commits into a single batch.
+   *
+   * @param commitBatchDelay The commit batch delay.
+   * @param unit The batch delay unit.
+   * @throws java.lang.IllegalArgumentException If the batch delay is negative
+   */
+  public void setCommitBatchDelay(long commitBatchDelay, TimeUnit unit) {
+    setCommitBatchDelay(unit.toMicros(commitBatchDelay));
+  }
+
+  /**
+   * Returns the time for which the leader collects commits into a single batch.
+   *
+   * @return The commit batch delay in microseconds.
+   */
+  public long getCommitBatchDelay() {
+    return config.hasPath(RESOURCE_COMMIT_BATCH_DELAY) ? config.getLong(RESOURCE_COMMIT_BATCH_DELAY) : 0;
+  }
+
+  /**
+   * Sets the time for which the leader collects commits into a single batch, returning the resource configuration
+   * for method chaining.
+   *
+   * @param commitBatchDelay The commit batch delay in microseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch delay is negative
+   */
+  public RaftConfig withCommitBatchDelay(long commitBatchDelay) {
+    setCommitBatchDelay(commitBatchDelay);
+    return this;
+  }
+
+  /**
+   * Sets the time for which the leader collects commits into a single batch, returning the resource configuration
+   * for method chaining.
+   *
+   * @param commitBatchDelay The commit batch delay.
+   * @param unit The batch delay unit.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch delay is negative
+   */
+  public RaftConfig withCommitBatchDelay(long commitBatchDelay, TimeUnit unit) {
+    setCommitBatchDelay(commitBatchDelay, unit);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of bytes of entries in a single commit batch.
+   *
+   * @param commitBatchSize The maximum commit batch size in bytes.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public void setCommitBatchSize(int commitBatchSize) {
+    this.config = config.withValue(RESOURCE_COMMIT_BATCH_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(commitBatchSize, commitBatchSize > 0, "commit batch size must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of bytes of entries in a single commit batch.
+   *
+   * @return The maximum commit batch size in bytes.
+   */
+  public int getCommitBatchSize() {
+    return config.hasPath(RESOURCE_COMMIT_BATCH_SIZE) ? config.getInt(RESOURCE_COMMIT_BATCH_SIZE) : 1024 * 1024;
+  }
+
+  /**
+   * Sets the maximum number of bytes of entries in a single commit batch, returning the resource configuration for
+   * method chaining.
+   *
+   * @param commitBatchSize The maximum commit batch size in bytes.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public RaftConfig withCommitBatchSize(int commitBatchSize) {
+    setCommitBatchSize(commitBatchSize);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of entries in a single commit batch.
+   *
+   * @param commitBatchCount The maximum number of entries in a commit batch.
+   * @throws java.lang.IllegalArgumentException If the batch count is not positive
+   */
+  public void setCommitBatchCount(int commitBatchCount) {
+    this.config = config.withValue(RESOURCE_COMMIT_BATCH_COUNT, ConfigValueFactory.fromAnyRef(Assert.arg(commitBatchCount, commitBatchCount > 0, "commit batch count must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of entries in a single commit batch.
+   *
+   * @return The maximum number of entries in a commit batch.
+   */
+  public int getCommitBatchCount() {
+    return config.hasPath(RESOURCE_COMMIT_BATCH_COUNT) ? config.getInt(RESOURCE_COMMIT_BATCH_COUNT) : 1024;
+  }
+
+  /**
+   * Sets the maximum number of entries in a single commit batch, returning the resource configuration for method
+   * chaining.
+   *
+   * @param commitBatchCount The maximum number of entries in a commit batch.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch count is not positive
+   */
+  public RaftConfig withCommitBatchCount(int commitBatchCount) {
+    setCommitBatchCount(commitBatchCount);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of batches of committed entries and queries that may be waiting to be applied to the
+   * state machine.
+   *
+   * Entries are applied to the state machine on a separate thread from the Raft protocol. If the state machine falls
+   * behind by more than the queue size then committed entries are held in the log until the state machine catches up,
+   * while the protocol continues to handle requests.
+   *
+   * @param applyQueueSize The maximum number of operations waiting to be applied.
+   * @throws java.lang.IllegalArgumentException If the queue size is not positive
+   */
+  public void setApplyQueueSize(int applyQueueSize) {
+    this.config = config.withValue(RESOURCE_APPLY_QUEUE_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(applyQueueSize, applyQueueSize > 0, "apply queue size must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of batches of committed entries and queries that may be waiting to be applied to the
+   * state machine.
+   *
+   * @return The maximum number of operations waiting to be applied.
+   */
+  public int getApplyQueueSize() {
+    return config.hasPath(RESOURCE_APPLY_QUEUE_SIZE) ? config.getInt(RESOURCE_APPLY_QUEUE_SIZE) : 4096;
+  }
+
+  /**
+   * Sets the maximum number of batches of committed entries and queries that may be waiting to be applied to the
+   * state machine, returning the resource configuration for method chaining.
+   *
+   * @param applyQueueSize The maximum number of operations waiting to be applied.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the queue size is not positive
+   */
+  public RaftConfig withApplyQueueSize(int applyQueueSize) {
+    setApplyQueueSize(applyQueueSize);
+    return this;
+  }
+
+  /**
+   * Sets the maximum clock drift allowed for lease reads.
+   *
+   * The leader holds a read lease for the election timeout minus the clock drift after a majority of the cluster
+   * acknowledges a request. If the clock drift is not less than the election timeout then lease reads fall back to
+   * strong reads.
+   *
+   * @param clockDrift The maximum clock drift in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public void setLeaseClockDrift(long clockDrift) {
+    this.config = config.withValue(RESOURCE_LEASE_CLOCK_DRIFT, ConfigValueFactory.fromAnyRef(Assert.arg(clockDrift, clockDrift >= 0, "clock drift must be positive")));
+  }
+
+  /**
+   * Sets the maximum clock drift allowed for lease reads.
+   *
+   * @param clockDrift The maximum clock drift.
+   * @param unit The clock drift unit.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public void setLeaseClockDrift(long clockDrift, TimeUnit unit) {
+    setLeaseClockDrift(unit.toMillis(clockDrift));
+  }
+
+  /**
+   * Returns the maximum clock drift allowed for lease reads.
+   *
+   * @return The maximum clock drift in milliseconds.
+   */
+  public long getLeaseClockDrift() {
+    return config.hasPath(RESOURCE_LEASE_CLOCK_DRIFT) ? config.getLong(RESOURCE_LEASE_CLOCK_DRIFT) : 100;
+  }
+
+  /**
+   * Sets the maximum clock drift allowed for lease reads, returning the resource configuration for method chaining.
+   *
+   * @param clockDrift The maximum clock drift in milliseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public RaftConfig withLeaseClockDrift(long clockDrift) {
+    setLeaseClockDrift(clockDrift);
+    return this;
+  }
+
+  /**
+   * Sets the maximum clock drift allowed for lease reads, returning the resource configuration for method chaining.
+   *
+   * @param clockDrift The maximum clock drift.
+   * @param unit The clock drift unit.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public RaftConfig withLeaseClockDrift(long clockDrift, TimeUnit unit) {
+    setLeaseClockDrift(clockDrift, unit);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of entries by which bounded reads may lag the leader's commit index.
+   *
+   * A follower serves a bounded read locally if it has heard from the leader within the election timeout and its
+   * last applied index is within this number of entries of the leader's last known commit index.
+   *
+   * @param maxEntries The maximum number of entries by which bounded reads may lag.
+   * @throws java.lang.IllegalArgumentException If the number of entries is negative
+   */
+  public void setBoundedMaxEntries(long maxEntries) {
+    this.config = config.withValue(RESOURCE_BOUNDED_MAX_ENTRIES, ConfigValueFactory.fromAnyRef(Assert.arg(maxEntries, maxEntries >= 0, "max entries must be positive")));
+  }
+
+  /**
+   * Returns the maximum number of entries by which bounded reads may lag the leader's commit index.
+   *
+   * @return The maximum number of entries by which bounded reads may lag.
+   */
+  public long getBoundedMaxEntries() {
+    return config.hasPath(RESOURCE_BOUNDED_MAX_ENTRIES) ? config.getLong(RESOURCE_BOUNDED_MAX_ENTRIES) : 100;
+  }
+
+  /**
+   * Sets the maximum number of entries by which bounded reads may lag the leader's commit index, returning the
+   * resource configuration for method chaining.
+   *
+   * @param maxEntries The maximum number of entries by which bounded reads may lag.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the number of entries is negative
+   */
+  public RaftConfig withBoundedMaxEntries(long maxEntries) {
+    setBoundedMaxEntries(maxEntries);
+    return this;
+  }
+
+  /**
+   * Sets the maximum staleness of bounded reads.
+   *
+   * A follower serves a bounded read locally if it had applied all entries up to the leader's commit index as of a
+   * request received from the leader within this amount of time.
+   *
+   * @param maxStaleness The maximum staleness in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the staleness is negative
+   */
+  public void setBoundedMaxStaleness(long maxStaleness) {
+    this.config = config.withValue(RESOURCE_BOUNDED_MAX_STALENESS, ConfigValueFactory.fromAnyRef(Assert.arg(maxStaleness, maxStaleness >= 0, "max staleness must be positive")));
+  }
+
+  /**
+   * Sets the maximum staleness of bounded reads.
+   *
+   * @param maxStaleness The maximum staleness.
+   * @param unit The staleness unit.
+   * @throws java.lang.IllegalArgumentException If the staleness is negative
+   */
+  public void setBoundedMaxStaleness(long maxStaleness, TimeUnit unit) {
+    setBoundedMaxStaleness(unit.toMillis(maxStaleness));
+  }
+
+  /**
+   * Returns the maximum staleness of bounded reads.
+   *
+   * @return The maximum staleness in milliseconds.
+   */
+  public long getBoundedMaxStaleness() {
+    return config.hasPath(RESOURCE_BOUNDED_MAX_STALENESS) ? config.getLong(RESOURCE_BOUNDED_MAX_STALENESS) : 250;
+  }
+
+  /**
+   * Sets the maximum staleness of bounded reads, returning the resource configuration for method chaining.
+   *
+   * @param maxStaleness The maximum staleness in milliseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the staleness is negative
+   */
+  public RaftConfig withBoundedMaxStaleness(long maxStaleness) {
+    setBoundedMaxStaleness(maxStaleness);
+    return this;
+  }
+
+  /**
+   * Sets the maximum staleness of bounded reads, returning the resource configuration for method chaining.
+   *
+   * @param maxStaleness The maximum staleness.
+   * @param unit The staleness unit.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the staleness is negative
+   */
+  public RaftConfig withBoundedMaxStaleness(long maxStaleness, TimeUnit unit) {
+    setBoundedMaxStaleness(maxStaleness, unit);
+    return this;
+  }
+
   /**
    * Sets the set of replicas for the resource.
    *
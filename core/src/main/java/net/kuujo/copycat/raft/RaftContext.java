@@ -18,8 +18,11 @@ package net.kuujo.copycat.raft;
 import net.kuujo.copycat.CopycatException;
 import net.kuujo.copycat.cluster.MessageHandler;
 import net.kuujo.copycat.log.LogManager;
+import net.kuujo.copycat.log.Snapshot;
+import net.kuujo.copycat.log.SnapshotStore;
 import net.kuujo.copycat.raft.protocol.*;
 import net.kuujo.copycat.util.concurrent.Futures;
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.function.TriFunction;
 import net.kuujo.copycat.util.internal.Assert;
 import org.slf4j.Logger;
@@ -28,9 +31,9 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -41,18 +44,29 @@ import java.util.stream.Collectors;
 public class RaftContext extends Observable implements RaftProtocol {
   private final Logger LOGGER = LoggerFactory.getLogger(RaftContext.class);
   private final ScheduledExecutorService executor;
+  private volatile ThreadPoolExecutor applyExecutor;
   private Thread thread;
   private final RaftConfig config;
   private final LogManager log;
+  private final SnapshotStore snapshots;
   private RaftState state;
   private TriFunction<Long, Long, ByteBuffer, ByteBuffer> consumer;
+  private Consumer<EntryBatch> batchConsumer;
+  private Consumer<Snapshot> installer;
+  private Function<ByteBuffer, Object> decoder;
+  private Long decodedIndex;
+  private Object decodedEntry;
   private MessageHandler<SyncRequest, SyncResponse> syncHandler;
   private MessageHandler<PollRequest, PollResponse> pollHandler;
   private MessageHandler<VoteRequest, VoteResponse> voteHandler;
   private MessageHandler<AppendRequest, AppendResponse> appendHandler;
+  private MessageHandler<AppendRequest, AppendResponse> heartbeatHandler;
+  private MessageHandler<InstallSnapshotRequest, InstallSnapshotResponse> installSnapshotHandler;
   private MessageHandler<QueryRequest, QueryResponse> queryHandler;
+  private MessageHandler<ReadIndexRequest, ReadIndexResponse> readIndexHandler;
   private MessageHandler<CommitRequest, CommitResponse> commitHandler;
   private CompletableFuture<Void> openFuture;
+  private final String name;
   private final String localMember;
   private final Set<String> activeMembers;
   private Set<String> members;
@@ -65,12 +79,20 @@ public class RaftContext extends Observable implements RaftProtocol {
   private String lastVotedFor;
   private Long firstCommitIndex;
   private Long commitIndex;
+  private Long queuedIndex;
   private Long lastApplied;
+  private final int applyQueueSize;
+  private int applyPending;
   private long electionTimeout = 500;
   private long heartbeatInterval = 250;
   private volatile boolean open;
+  private volatile long replayEntries;
+  private volatile long replayedEntries;
+  private volatile long replayStartTime;
+  private volatile long replayTime;
 
   public RaftContext(String name, String uri, RaftConfig config, ScheduledExecutorService executor) {
+    this.name = name;
     this.executor = executor;
     this.config = config;
     this.localMember = Assert.isNotNull(uri, "uri");
@@ -80,8 +102,10 @@ public class RaftContext extends Observable implements RaftProtocol {
     this.localMemberInfo = new ReplicaInfo(uri);
     this.memberInfo.put(uri, localMemberInfo);
     this.log = config.getLog().getLogManager(name);
+    this.snapshots = config.getLog().getSnapshotStore(name);
     this.electionTimeout = config.getElectionTimeout();
     this.heartbeatInterval = config.getHeartbeatInterval();
+    this.applyQueueSize = config.getApplyQueueSize();
     try {
       executor.submit(() -> this.thread = Thread.currentThread()).get();
     } catch (InterruptedException | ExecutionException e) {
@@ -409,6 +433,42 @@ public class RaftContext extends Observable implements RaftProtocol {
     return lastApplied;
   }
 
+  /**
+   * Sets the index of the last entry queued to be applied to the state machine.
+   *
+   * @param queuedIndex The last queued index.
+   * @return The Raft context.
+   */
+  RaftContext setQueuedIndex(Long queuedIndex) {
+    this.queuedIndex = this.queuedIndex != null ? Assert.arg(Assert.isNotNull(queuedIndex, "queuedIndex"), queuedIndex >= this.queuedIndex, "cannot decrease queued index") : queuedIndex;
+    return this;
+  }
+
+  /**
+   * Returns the index of the last entry queued to be applied to the state machine.<p>
+   *
+   * Entries are queued to be applied on the apply thread once they're committed, and the last applied index is only
+   * advanced once the state machine has applied them, so the queued index is always at least the last applied index.
+   *
+   * @return The last queued index.
+   */
+  public Long getQueuedIndex() {
+    return queuedIndex;
+  }
+
+  /**
+   * Returns a boolean value indicating whether the apply queue is full.<p>
+   *
+   * Once the configured number of batches are waiting to be applied, no more committed entries should be queued until
+   * the state machine has caught up. The current state is notified via {@link RaftState#applied()} each time a batch
+   * has been applied.
+   *
+   * @return Indicates whether the apply queue is full.
+   */
+  boolean isApplyQueueFull() {
+    return applyPending >= applyQueueSize;
+  }
+
   /**
    * Sets the state election timeout.
    *
@@ -459,7 +519,148 @@ public class RaftContext extends Observable implements RaftProtocol {
   }
 
   /**
-   * Registers an entry consumer on the context.
+   * Returns the executor on which entries and queries are applied to the state machine.<p>
+   *
+   * Committed entries, queries and snapshots are applied to the state machine in order on a single apply thread so
+   * that expensive state machine operations don't delay the Raft protocol. Tasks submitted to the apply executor are
+   * run after all entries that have been applied before the task was submitted. The apply executor never blocks the
+   * submitting thread; the Raft states stop queueing committed entries while the apply queue is full instead.
+   *
+   * @return The apply executor.
+   * @throws IllegalStateException If the context is not open
+   */
+  public Executor applyExecutor() {
+    Executor executor = applyExecutor;
+    Assert.state(executor != null, "context not open");
+    return executor;
+  }
+
+  /**
+   * Applies an entry or query to the state machine on the apply thread.
+   *
+   * @param term The entry term.
+   * @param index The entry index or {@code null} if the entry is a query.
+   * @param entry The entry to apply.
+   * @param decoded The decoded entry or {@code null} if the entry has not been decoded.
+   * @return A completable future to be completed on the apply thread with the state machine output.
+   */
+  CompletableFuture<ByteBuffer> apply(long term, Long index, ByteBuffer entry, Object decoded) {
+    if (index != null) {
+      return apply(new EntryBatch(index, 1).add(term, entry, decoded)).thenCompose(batch -> {
+        Throwable error = batch.error(0);
+        return error == null ? CompletableFuture.completedFuture(batch.result(0)) : Futures.exceptionalFuture(error);
+      });
+    }
+
+    ThreadPoolExecutor executor = applyExecutor;
+    if (executor == null) {
+      return Futures.exceptionalFuture(new IllegalStateException("Context not open"));
+    }
+
+    CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        TriFunction<Long, Long, ByteBuffer, ByteBuffer> consumer = this.consumer;
+        try {
+          future.complete(consumer != null ? consumer.apply(term, null, entry) : null);
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Applies a batch of committed entries to the state machine on the apply thread.<p>
+   *
+   * If a batch consumer is registered then the batch is passed to the batch consumer in a single call, otherwise each
+   * entry in the batch is passed to the entry consumer in order.
+   *
+   * @param batch The batch of entries to apply.
+   * @return A completable future to be completed on the apply thread once the batch has been applied. The output of
+   *         each entry is recorded in the batch.
+   */
+  CompletableFuture<EntryBatch> apply(EntryBatch batch) {
+    ThreadPoolExecutor executor = applyExecutor;
+    if (executor == null) {
+      return Futures.exceptionalFuture(new IllegalStateException("Context not open"));
+    }
+
+    CompletableFuture<EntryBatch> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        applyBatch(batch);
+        applied(batch.lastIndex());
+        future.complete(batch);
+      });
+      applyPending++;
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Records that entries have been applied up to the given index once the apply thread has finished with them.<p>
+   *
+   * The last applied index is updated on the context thread, after which the current state is notified so that it
+   * can queue any entries that were held back while the apply queue was full.
+   */
+  private void applied(long index) {
+    try {
+      executor.execute(() -> {
+        applyPending--;
+        setLastApplied(index);
+        RaftState state = this.state;
+        if (state != null) {
+          state.applied();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("{} - Context executor closed, not recording applied index {}", localMember, index);
+    }
+  }
+
+  /**
+   * Applies a batch of entries on the apply thread.
+   */
+  private void applyBatch(EntryBatch batch) {
+    Consumer<EntryBatch> batchConsumer = this.batchConsumer;
+    if (batchConsumer != null) {
+      try {
+        batchConsumer.accept(batch);
+      } catch (Exception e) {
+        batch.failRemaining(e);
+      }
+      batch.failRemaining(new IllegalStateException("Entry not completed by batch consumer"));
+    } else {
+      TriFunction<Long, Long, ByteBuffer, ByteBuffer> consumer = this.consumer;
+      for (int i = 0; i < batch.size(); i++) {
+        long index = batch.index(i);
+        Object decoded = batch.decodedEntry(i);
+        decodedIndex = decoded != null ? index : null;
+        decodedEntry = decoded;
+        try {
+          batch.complete(i, consumer != null ? consumer.apply(batch.term(i), index, batch.entry(i)) : null);
+        } catch (Exception e) {
+          batch.fail(i, e);
+        } finally {
+          decodedIndex = null;
+          decodedEntry = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Registers an entry consumer on the context.<p>
+   *
+   * The consumer is called on the apply thread with committed entries in order, and with queries once all entries
+   * they depend upon have been applied. If a batch consumer is registered then committed entries are passed to the
+   * batch consumer instead.
    *
    * @param consumer The entry consumer.
    * @return The Copycat context.
@@ -478,6 +679,149 @@ public class RaftContext extends Observable implements RaftProtocol {
     return consumer;
   }
 
+  /**
+   * Registers a batch consumer on the context.<p>
+   *
+   * If a batch consumer is registered, committed entries are passed to the batch consumer on the apply thread in
+   * contiguous batches rather than being passed to the entry consumer one at a time, allowing the state machine to
+   * amortize the cost of applying entries across the batch. Queries are still passed to the entry consumer.
+   *
+   * @param batchConsumer The batch consumer.
+   * @return The Copycat context.
+   */
+  public RaftContext batchConsumer(Consumer<EntryBatch> batchConsumer) {
+    this.batchConsumer = batchConsumer;
+    return this;
+  }
+
+  /**
+   * Returns the batch consumer.
+   *
+   * @return The batch consumer.
+   */
+  public Consumer<EntryBatch> batchConsumer() {
+    return batchConsumer;
+  }
+
+  /**
+   * Registers an entry decoder on the context.<p>
+   *
+   * When a large range of committed entries is replayed, for instance when the log is recovered on startup, each
+   * entry is passed to the decoder on one of a pool of replay threads before it's applied, allowing entries to be
+   * deserialized in parallel while the consumer applies entries in order. The decoder is called with a view of the
+   * entry after the entry term, which it must not modify, and must be threadsafe. An entry is never decoded while it's
+   * being applied. The consumer can retrieve the decoded entry via
+   * {@link #decodedEntry(long)} while the entry is being applied.
+   *
+   * @param decoder The entry decoder.
+   * @return The Copycat context.
+   */
+  public RaftContext decoder(Function<ByteBuffer, Object> decoder) {
+    this.decoder = decoder;
+    return this;
+  }
+
+  /**
+   * Returns the entry decoder.
+   *
+   * @return The entry decoder.
+   */
+  public Function<ByteBuffer, Object> decoder() {
+    return decoder;
+  }
+
+  /**
+   * Returns the decoded entry that is being applied.<p>
+   *
+   * Entries are only decoded ahead of time when they're replayed, so the consumer must be able to decode any entry
+   * for which this method returns {@code null}. This method must be called from the apply thread.
+   *
+   * @param index The index of the entry being applied.
+   * @return The entry as decoded by the registered decoder or {@code null} if the entry was not decoded.
+   */
+  public Object decodedEntry(long index) {
+    return decodedIndex != null && decodedIndex == index ? decodedEntry : null;
+  }
+
+  /**
+   * Records the progress of a replay of committed entries.
+   *
+   * @param entries The total number of entries being replayed.
+   * @param replayed The number of entries that have been replayed.
+   * @param startTime The time at which the replay started.
+   * @return The Raft context.
+   */
+  RaftContext setReplayProgress(long entries, long replayed, long startTime) {
+    this.replayEntries = entries;
+    this.replayedEntries = replayed;
+    this.replayStartTime = startTime;
+    this.replayTime = System.currentTimeMillis();
+    return this;
+  }
+
+  /**
+   * Returns the number of entries in the current or most recent replay of committed entries.<p>
+   *
+   * Replay progress may be read from any thread while the context is replaying entries.
+   *
+   * @return The number of entries being replayed or {@code 0} if no entries have been replayed.
+   */
+  public long getReplayEntries() {
+    return replayEntries;
+  }
+
+  /**
+   * Returns the number of entries that have been applied by the current or most recent replay.
+   *
+   * @return The number of entries that have been replayed.
+   */
+  public long getReplayedEntries() {
+    return replayedEntries;
+  }
+
+  /**
+   * Returns the rate at which entries were applied by the current or most recent replay.
+   *
+   * @return The replay rate in entries per second.
+   */
+  public double getReplayRate() {
+    long elapsed = replayTime - replayStartTime;
+    return elapsed > 0 ? replayedEntries * 1000d / elapsed : 0;
+  }
+
+  /**
+   * Returns the estimated time remaining until the current replay completes.
+   *
+   * @return The estimated time remaining in milliseconds or {@code 0} if no replay is in progress.
+   */
+  public long getReplayEta() {
+    double rate = getReplayRate();
+    return rate > 0 ? (long) ((replayEntries - replayedEntries) * 1000 / rate) : 0;
+  }
+
+  /**
+   * Registers a snapshot installer on the context.<p>
+   *
+   * The installer is called with the current snapshot when the context is opened and whenever a snapshot is
+   * received from the leader. It must replace the state machine's state with the state in the snapshot.
+   *
+   * @param installer The snapshot installer.
+   * @return The Copycat context.
+   */
+  public RaftContext installer(Consumer<Snapshot> installer) {
+    this.installer = installer;
+    return this;
+  }
+
+  /**
+   * Returns the snapshot installer.
+   *
+   * @return The snapshot installer.
+   */
+  public Consumer<Snapshot> installer() {
+    return installer;
+  }
+
   /**
    * Returns the state log.
    *
@@ -487,6 +831,91 @@ public class RaftContext extends Observable implements RaftProtocol {
     return log;
   }
 
+  /**
+   * Returns the snapshot store.
+   *
+   * @return The snapshot store.
+   */
+  public SnapshotStore snapshots() {
+    return snapshots;
+  }
+
+  /**
+   * Installs a snapshot received from another member.<p>
+   *
+   * Entries up to and including the snapshot index are considered committed and queued as soon as the snapshot is
+   * queued to be installed, and applied once the snapshot has been installed. The snapshot is installed on the apply
+   * thread once all previously queued entries have been applied.
+   *
+   * @param snapshot The snapshot to install.
+   * @return A completable future to be completed once the snapshot has been installed.
+   */
+  CompletableFuture<Void> installSnapshot(Snapshot snapshot) {
+    Assert.state(queuedIndex == null || queuedIndex < snapshot.index(), "cannot install snapshot at or before queued index");
+    if (commitIndex == null || commitIndex < snapshot.index()) {
+      setCommitIndex(snapshot.index());
+    }
+    return applySnapshot(snapshot);
+  }
+
+  /**
+   * Queues a snapshot to be installed on the apply thread.
+   */
+  private CompletableFuture<Void> applySnapshot(Snapshot snapshot) {
+    ThreadPoolExecutor executor = applyExecutor;
+    if (executor == null) {
+      return Futures.exceptionalFuture(new IllegalStateException("Context not open"));
+    }
+
+    Consumer<Snapshot> installer = this.installer;
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        Exception error = null;
+        try {
+          if (installer != null) {
+            installer.accept(snapshot);
+          }
+        } catch (Exception e) {
+          error = e;
+        }
+        applied(snapshot.index());
+        if (error == null) {
+          future.complete(null);
+        } else {
+          future.completeExceptionally(error);
+        }
+      });
+      applyPending++;
+      setQueuedIndex(snapshot.index());
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Recovers the state machine from the current snapshot when the context is opened.<p>
+   *
+   * The snapshot is persisted along with the index and term of the last entry it includes, so once the snapshot has
+   * been installed only entries after the snapshot index need to be replayed from the log. Entries that precede the
+   * snapshot index but have not yet been compacted from the log are skipped.
+   *
+   * @return A completable future to be completed once the snapshot has been installed.
+   */
+  private CompletableFuture<Void> recoverSnapshot() {
+    Snapshot snapshot = snapshots.currentSnapshot();
+    if (snapshot == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    Long lastIndex = log.lastIndex();
+    LOGGER.info("{} - Recovering from snapshot at index {}, {} entries remain to be replayed", localMember, snapshot.index(), lastIndex != null ? Math.max(lastIndex - snapshot.index(), 0) : 0);
+    commitIndex = snapshot.index();
+    localMemberInfo.setIndex(commitIndex);
+    return applySnapshot(snapshot);
+  }
+
   @Override
   public CompletableFuture<SyncResponse> sync(SyncRequest request) {
     return wrapCall(request, state::sync);
@@ -531,6 +960,23 @@ public class RaftContext extends Observable implements RaftProtocol {
     return wrapCall(request, state::append);
   }
 
+  @Override
+  public RaftContext heartbeatHandler(MessageHandler<AppendRequest, AppendResponse> handler) {
+    this.heartbeatHandler = handler;
+    return this;
+  }
+
+  @Override
+  public RaftContext installSnapshotHandler(MessageHandler<InstallSnapshotRequest, InstallSnapshotResponse> handler) {
+    this.installSnapshotHandler = handler;
+    return this;
+  }
+
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    return wrapCall(request, state::installSnapshot);
+  }
+
   @Override
   public RaftContext queryHandler(MessageHandler<QueryRequest, QueryResponse> handler) {
     this.queryHandler = handler;
@@ -542,6 +988,17 @@ public class RaftContext extends Observable implements RaftProtocol {
     return wrapCall(request, state::query);
   }
 
+  @Override
+  public RaftContext readIndexHandler(MessageHandler<ReadIndexRequest, ReadIndexResponse> handler) {
+    this.readIndexHandler = handler;
+    return this;
+  }
+
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    return wrapCall(request, state::readIndex);
+  }
+
   @Override
   public RaftContext commitHandler(MessageHandler<CommitRequest, CommitResponse> handler) {
     this.commitHandler = handler;
@@ -622,9 +1079,12 @@ public class RaftContext extends Observable implements RaftProtocol {
   private void registerHandlers(RaftState state) {
     state.syncHandler(syncHandler);
     state.appendHandler(appendHandler);
+    state.heartbeatHandler(heartbeatHandler);
+    state.installSnapshotHandler(installSnapshotHandler);
     state.pollHandler(pollHandler);
     state.voteHandler(voteHandler);
     state.queryHandler(queryHandler);
+    state.readIndexHandler(readIndexHandler);
     state.commitHandler(commitHandler);
     state.transitionHandler(this::transition);
   }
@@ -644,19 +1104,54 @@ public class RaftContext extends Observable implements RaftProtocol {
       return openFuture;
     }
     openFuture = new CompletableFuture<>();
+    // The apply queue is unbounded since the Raft states stop queueing entries once the configured number of batches
+    // are waiting to be applied, and the queue must never block the context thread.
+    applyExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("copycat-" + name + "-apply-%d"));
     executor.execute(() -> {
       try {
         open = true;
         log.open();
-        transition(activeMembers.contains(localMember) ? RaftState.Type.FOLLOWER : RaftState.Type.PASSIVE);
+        snapshots.open();
+        CompletableFuture<Void> recoverFuture = recoverSnapshot();
+        if (recoverFuture.isDone()) {
+          start(recoverFuture);
+        } else {
+          // Requests are rejected by the start state until the snapshot has been installed.
+          transition(RaftState.Type.START);
+          recoverFuture.whenCompleteAsync((result, error) -> start(recoverFuture), executor);
+        }
       } catch (Exception e) {
-        openFuture.completeExceptionally(e);
-        openFuture = null;
+        failOpen(e);
       }
     });
     return openFuture;
   }
 
+  /**
+   * Transitions to the initial state once the state machine has been recovered from the current snapshot.
+   */
+  private void start(CompletableFuture<Void> recoverFuture) {
+    try {
+      recoverFuture.join();
+      transition(activeMembers.contains(localMember) ? RaftState.Type.FOLLOWER : RaftState.Type.PASSIVE);
+    } catch (CompletionException e) {
+      failOpen(e.getCause());
+    } catch (Exception e) {
+      failOpen(e);
+    }
+  }
+
+  /**
+   * Fails the open future and shuts down the apply executor if the context could not be opened.
+   */
+  private synchronized void failOpen(Throwable error) {
+    if (openFuture != null) {
+      openFuture.completeExceptionally(error);
+      openFuture = null;
+    }
+    shutdownApplyExecutor();
+  }
+
   @Override
   public boolean isOpen() {
     return open;
@@ -677,6 +1172,7 @@ public class RaftContext extends Observable implements RaftProtocol {
         if (error == null) {
           try {
             log.close();
+            snapshots.close();
             future.complete(null);
           } catch (Exception e) {
             future.completeExceptionally(e);
@@ -684,6 +1180,7 @@ public class RaftContext extends Observable implements RaftProtocol {
         } else {
           try {
             log.close();
+            snapshots.close();
             future.completeExceptionally(error);
           } catch (Exception e) {
             future.completeExceptionally(error);
@@ -691,6 +1188,30 @@ public class RaftContext extends Observable implements RaftProtocol {
         }
       });
     });
+
+    // The context is closed once any entries that remain to be applied have been applied.
+    CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    future.whenComplete((result, error) -> shutdownApplyExecutor().whenComplete((applyResult, applyError) -> {
+      if (error == null) {
+        closeFuture.complete(null);
+      } else {
+        closeFuture.completeExceptionally(error);
+      }
+    }));
+    return closeFuture;
+  }
+
+  /**
+   * Shuts down the apply executor once all queued entries have been applied.
+   */
+  private CompletableFuture<Void> shutdownApplyExecutor() {
+    ThreadPoolExecutor applyExecutor = this.applyExecutor;
+    if (applyExecutor == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    this.applyExecutor = null;
+    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {}, applyExecutor);
+    applyExecutor.shutdown();
     return future;
   }
 
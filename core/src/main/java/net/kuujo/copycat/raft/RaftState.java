@@ -33,8 +33,11 @@ abstract class RaftState implements RaftProtocol {
   protected MessageHandler<PollRequest, PollResponse> pollHandler;
   protected MessageHandler<VoteRequest, VoteResponse> voteHandler;
   protected MessageHandler<AppendRequest, AppendResponse> appendHandler;
+  protected MessageHandler<AppendRequest, AppendResponse> heartbeatHandler;
+  protected MessageHandler<InstallSnapshotRequest, InstallSnapshotResponse> installSnapshotHandler;
   protected MessageHandler<CommitRequest, CommitResponse> commitHandler;
   protected MessageHandler<QueryRequest, QueryResponse> queryHandler;
+  protected MessageHandler<ReadIndexRequest, ReadIndexResponse> readIndexHandler;
   protected MessageHandler<Type, Type> transitionHandler;
   private volatile boolean open;
 
@@ -104,6 +107,16 @@ abstract class RaftState implements RaftProtocol {
    */
   public abstract Type type();
 
+  /**
+   * Called on the context thread each time the state machine has applied a batch of entries or a snapshot.<p>
+   *
+   * By the time this method is called the context's last applied index has been updated, so states can queue any
+   * committed entries that were held back while the apply queue was full and apply reads that were waiting for the
+   * state machine to catch up.
+   */
+  protected void applied() {
+  }
+
   /**
    * Logs a request.
    */
@@ -164,6 +177,12 @@ abstract class RaftState implements RaftProtocol {
     return exceptionalFuture(new IllegalStateException("Invalid Copycat state"));
   }
 
+  @Override
+  public RaftState heartbeatHandler(MessageHandler<AppendRequest, AppendResponse> handler) {
+    this.heartbeatHandler = handler;
+    return this;
+  }
+
   @Override
   public RaftProtocol queryHandler(MessageHandler<QueryRequest, QueryResponse> handler) {
     this.queryHandler = handler;
@@ -175,6 +194,28 @@ abstract class RaftState implements RaftProtocol {
     return exceptionalFuture(new IllegalStateException("Invalid Copycat state"));
   }
 
+  @Override
+  public RaftProtocol installSnapshotHandler(MessageHandler<InstallSnapshotRequest, InstallSnapshotResponse> handler) {
+    this.installSnapshotHandler = handler;
+    return this;
+  }
+
+  @Override
+  public CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+    return exceptionalFuture(new IllegalStateException("Invalid Copycat state"));
+  }
+
+  @Override
+  public RaftProtocol readIndexHandler(MessageHandler<ReadIndexRequest, ReadIndexResponse> handler) {
+    this.readIndexHandler = handler;
+    return this;
+  }
+
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    return exceptionalFuture(new IllegalStateException("Invalid Copycat state"));
+  }
+
   @Override
   public RaftState commitHandler(MessageHandler<CommitRequest, CommitResponse> handler) {
     this.commitHandler = handler;
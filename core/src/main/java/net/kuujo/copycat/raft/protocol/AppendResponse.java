@@ -47,6 +47,8 @@ public class AppendResponse extends AbstractResponse {
   private long term;
   private boolean succeeded;
   private Long logIndex;
+  private Long conflictTerm;
+  private Long conflictIndex;
 
   /**
    * Returns the requesting node's current term.
@@ -75,9 +77,29 @@ public class AppendResponse extends AbstractResponse {
     return logIndex;
   }
 
+  /**
+   * Returns the term of the replica's entry that conflicted with the request's previous entry.
+   *
+   * @return The term of the conflicting entry or {@code null} if the request was not rejected due to a conflicting
+   *         entry.
+   */
+  public Long conflictTerm() {
+    return conflictTerm;
+  }
+
+  /**
+   * Returns the first index of the conflicting term in the replica's log.
+   *
+   * @return The first index of the conflicting term or {@code null} if the request was not rejected due to a
+   *         conflicting entry.
+   */
+  public Long conflictIndex() {
+    return conflictIndex;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(member, term, succeeded, logIndex);
+    return Objects.hash(member, term, succeeded, logIndex, conflictTerm, conflictIndex);
   }
 
   @Override
@@ -88,14 +110,16 @@ public class AppendResponse extends AbstractResponse {
         && response.member.equals(member)
         && response.term == term
         && response.succeeded == succeeded
-        && response.logIndex.equals(logIndex);
+        && Objects.equals(response.logIndex, logIndex)
+        && Objects.equals(response.conflictTerm, conflictTerm)
+        && Objects.equals(response.conflictIndex, conflictIndex);
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[status=%s, term=%d, succeeded=%b, logIndex=%d]", getClass().getSimpleName(), status, term, succeeded, logIndex);
+    return String.format("%s[status=%s, term=%d, succeeded=%b, logIndex=%d, conflictTerm=%d, conflictIndex=%d]", getClass().getSimpleName(), status, term, succeeded, logIndex, conflictTerm, conflictIndex);
   }
 
   /**
@@ -143,6 +167,20 @@ public class AppendResponse extends AbstractResponse {
       return this;
     }
 
+    /**
+     * Sets the term and first index of the replica's entry that conflicted with the request's previous entry.
+     *
+     * @param term The term of the conflicting entry.
+     * @param index The first index of the conflicting term in the replica's log.
+     * @return The append response builder.
+     */
+    public Builder withConflict(Long term, Long index) {
+      Assert.arg(term, (term == null) == (index == null), "conflict term and index must both be set");
+      response.conflictTerm = Assert.arg(term, term == null || term > 0, "conflict term must be greater than zero");
+      response.conflictIndex = Assert.index(index, index == null || index > 0, "conflict index must be greater than zero");
+      return this;
+    }
+
     @Override
     public AppendResponse build() {
       super.build();
@@ -14,6 +14,8 @@
  */
 package net.kuujo.copycat.raft.protocol;
 
+import net.kuujo.copycat.util.internal.Assert;
+
 import java.nio.ByteBuffer;
 import java.util.Objects;
 
@@ -44,6 +46,7 @@ public class CommitResponse extends AbstractResponse {
   }
 
   private ByteBuffer result;
+  private Long index;
 
   /**
    * Returns the commit result.
@@ -54,9 +57,18 @@ public class CommitResponse extends AbstractResponse {
     return result;
   }
 
+  /**
+   * Returns the index at which the entry was committed.
+   *
+   * @return The index at which the entry was committed or {@code null} if the commit failed.
+   */
+  public Long index() {
+    return index;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(member, status, result);
+    return Objects.hash(member, status, result, index);
   }
 
   @Override
@@ -66,14 +78,15 @@ public class CommitResponse extends AbstractResponse {
       return response.member.equals(member)
         && response.status == status
         && ((response.result == null && result == null)
-        || response.result != null && result != null && response.result.equals(result));
+        || response.result != null && result != null && response.result.equals(result))
+        && Objects.equals(response.index, index);
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[status=%s, result=%s]", getClass().getSimpleName(), status, result);
+    return String.format("%s[status=%s, result=%s, index=%s]", getClass().getSimpleName(), status, result, index);
   }
 
   /**
@@ -99,6 +112,17 @@ public class CommitResponse extends AbstractResponse {
       return this;
     }
 
+    /**
+     * Sets the index at which the entry was committed.
+     *
+     * @param index The index at which the entry was committed.
+     * @return The response builder.
+     */
+    public Builder withIndex(Long index) {
+      response.index = Assert.index(index, index == null || index > 0, "index must be greater than zero");
+      return this;
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(response);
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft.protocol;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Protocol install snapshot request.<p>
+ *
+ * Snapshots are sent to members whose logs are behind the leader's first log index as a sequence of chunks. Each
+ * request carries the offset of its chunk within the snapshot so that a member can detect missed or duplicate chunks
+ * and the leader can resume a transfer from the last offset acknowledged by the member.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class InstallSnapshotRequest extends AbstractRequest {
+
+  /**
+   * Returns a new install snapshot request builder.
+   *
+   * @return A new install snapshot request builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns an install snapshot request builder for an existing request.
+   *
+   * @param request The request to build.
+   * @return The install snapshot request builder.
+   */
+  public static Builder builder(InstallSnapshotRequest request) {
+    return new Builder(request);
+  }
+
+  private long term;
+  private String leader;
+  private long index;
+  private long snapshotTerm;
+  private long offset;
+  private ByteBuffer data;
+  private boolean complete;
+
+  /**
+   * Returns the requesting node's current term.
+   *
+   * @return The requesting node's current term.
+   */
+  public long term() {
+    return term;
+  }
+
+  /**
+   * Returns the requesting leader address.
+   *
+   * @return The leader's address.
+   */
+  public String leader() {
+    return leader;
+  }
+
+  /**
+   * Returns the index of the last entry included in the snapshot.
+   *
+   * @return The snapshot index.
+   */
+  public long index() {
+    return index;
+  }
+
+  /**
+   * Returns the term of the last entry included in the snapshot.
+   *
+   * @return The snapshot term.
+   */
+  public long snapshotTerm() {
+    return snapshotTerm;
+  }
+
+  /**
+   * Returns the offset of the chunk within the snapshot.
+   *
+   * @return The chunk offset.
+   */
+  public long offset() {
+    return offset;
+  }
+
+  /**
+   * Returns the snapshot chunk.
+   *
+   * @return The snapshot chunk.
+   */
+  public ByteBuffer data() {
+    return data;
+  }
+
+  /**
+   * Returns a boolean indicating whether this is the last chunk of the snapshot.
+   *
+   * @return Indicates whether this is the last chunk of the snapshot.
+   */
+  public boolean complete() {
+    return complete;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(member, term, leader, index, snapshotTerm, offset, data, complete);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof InstallSnapshotRequest) {
+      InstallSnapshotRequest request = (InstallSnapshotRequest) object;
+      return request.member.equals(member)
+        && request.term == term
+        && request.leader.equals(leader)
+        && request.index == index
+        && request.snapshotTerm == snapshotTerm
+        && request.offset == offset
+        && request.data.equals(data)
+        && request.complete == complete;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[term=%d, leader=%s, index=%d, snapshotTerm=%d, offset=%d, data=[%d], complete=%b]", getClass().getSimpleName(), term, leader, index, snapshotTerm, offset, data.remaining(), complete);
+  }
+
+  /**
+   * Install snapshot request builder.
+   */
+  public static class Builder extends AbstractRequest.Builder<Builder, InstallSnapshotRequest> {
+    private Builder() {
+      this(new InstallSnapshotRequest());
+    }
+
+    private Builder(InstallSnapshotRequest request) {
+      super(request);
+    }
+
+    /**
+     * Sets the request term.
+     *
+     * @param term The request term.
+     * @return The install snapshot request builder.
+     */
+    public Builder withTerm(long term) {
+      request.term = Assert.arg(term, term > 0, "term must be greater than zero");
+      return this;
+    }
+
+    /**
+     * Sets the request leader.
+     *
+     * @param leader The request leader.
+     * @return The install snapshot request builder.
+     */
+    public Builder withLeader(String leader) {
+      request.leader = Assert.isNotNull(leader, "leader");
+      return this;
+    }
+
+    /**
+     * Sets the snapshot index.
+     *
+     * @param index The index of the last entry included in the snapshot.
+     * @return The install snapshot request builder.
+     */
+    public Builder withIndex(long index) {
+      request.index = Assert.index(index, index > 0, "index must be greater than zero");
+      return this;
+    }
+
+    /**
+     * Sets the snapshot term.
+     *
+     * @param term The term of the last entry included in the snapshot.
+     * @return The install snapshot request builder.
+     */
+    public Builder withSnapshotTerm(long term) {
+      request.snapshotTerm = Assert.arg(term, term > 0, "term must be greater than zero");
+      return this;
+    }
+
+    /**
+     * Sets the chunk offset.
+     *
+     * @param offset The offset of the chunk within the snapshot.
+     * @return The install snapshot request builder.
+     */
+    public Builder withOffset(long offset) {
+      request.offset = Assert.arg(offset, offset >= 0, "offset must be greater than or equal to zero");
+      return this;
+    }
+
+    /**
+     * Sets the snapshot chunk.
+     *
+     * @param data The snapshot chunk.
+     * @return The install snapshot request builder.
+     */
+    public Builder withData(ByteBuffer data) {
+      request.data = Assert.isNotNull(data, "data");
+      return this;
+    }
+
+    /**
+     * Sets whether this is the last chunk of the snapshot.
+     *
+     * @param complete Whether this is the last chunk of the snapshot.
+     * @return The install snapshot request builder.
+     */
+    public Builder withComplete(boolean complete) {
+      request.complete = complete;
+      return this;
+    }
+
+    @Override
+    public InstallSnapshotRequest build() {
+      super.build();
+      Assert.arg(request.term, request.term > 0, "term must be greater than zero");
+      Assert.isNotNull(request.leader, "leader");
+      Assert.index(request.index, request.index > 0, "index must be greater than zero");
+      Assert.arg(request.snapshotTerm, request.snapshotTerm > 0, "term must be greater than zero");
+      Assert.isNotNull(request.data, "data");
+      return request;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(request);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).request.equals(request);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[request=%s]", getClass().getCanonicalName(), request);
+    }
+
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft.protocol;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.Objects;
+
+/**
+ * Protocol install snapshot response.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class InstallSnapshotResponse extends AbstractResponse {
+
+  /**
+   * Returns a new install snapshot response builder.
+   *
+   * @return A new install snapshot response builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns an install snapshot response builder for an existing response.
+   *
+   * @param response The response to build.
+   * @return The install snapshot response builder.
+   */
+  public static Builder builder(InstallSnapshotResponse response) {
+    return new Builder(response);
+  }
+
+  private long term;
+  private boolean succeeded;
+  private long offset;
+
+  /**
+   * Returns the responding node's current term.
+   *
+   * @return The responding node's current term.
+   */
+  public long term() {
+    return term;
+  }
+
+  /**
+   * Returns a boolean indicating whether the chunk was accepted.
+   *
+   * @return Indicates whether the chunk was accepted.
+   */
+  public boolean succeeded() {
+    return succeeded;
+  }
+
+  /**
+   * Returns the next snapshot offset expected by the responding node.
+   *
+   * @return The offset from which the leader should continue sending the snapshot.
+   */
+  public long offset() {
+    return offset;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(member, status, term, succeeded, offset);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof InstallSnapshotResponse) {
+      InstallSnapshotResponse response = (InstallSnapshotResponse) object;
+      return response.member.equals(member)
+        && response.status == status
+        && response.term == term
+        && response.succeeded == succeeded
+        && response.offset == offset;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[term=%d, succeeded=%b, offset=%d]", getClass().getSimpleName(), term, succeeded, offset);
+  }
+
+  /**
+   * Install snapshot response builder.
+   */
+  public static class Builder extends AbstractResponse.Builder<Builder, InstallSnapshotResponse> {
+    protected Builder() {
+      this(new InstallSnapshotResponse());
+    }
+
+    protected Builder(InstallSnapshotResponse response) {
+      super(response);
+    }
+
+    /**
+     * Sets the response term.
+     *
+     * @param term The response term.
+     * @return The install snapshot response builder.
+     */
+    public Builder withTerm(long term) {
+      response.term = Assert.arg(term, term >= 0, "term must be greater than or equal to zero");
+      return this;
+    }
+
+    /**
+     * Sets whether the chunk was accepted.
+     *
+     * @param succeeded Whether the chunk was accepted.
+     * @return The install snapshot response builder.
+     */
+    public Builder withSucceeded(boolean succeeded) {
+      response.succeeded = succeeded;
+      return this;
+    }
+
+    /**
+     * Sets the next expected snapshot offset.
+     *
+     * @param offset The offset from which the leader should continue sending the snapshot.
+     * @return The install snapshot response builder.
+     */
+    public Builder withOffset(long offset) {
+      response.offset = Assert.arg(offset, offset >= 0, "offset must be greater than or equal to zero");
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(response);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).response.equals(response);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[response=%s]", getClass().getCanonicalName(), response);
+    }
+
+  }
+
+}
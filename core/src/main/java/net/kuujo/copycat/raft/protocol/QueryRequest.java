@@ -49,6 +49,7 @@ public class QueryRequest extends AbstractRequest {
 
   private ByteBuffer entry;
   private Consistency consistency = Consistency.DEFAULT;
+  private Long index;
 
   /**
    * Returns the query entry.
@@ -68,9 +69,18 @@ public class QueryRequest extends AbstractRequest {
     return consistency;
   }
 
+  /**
+   * Returns the minimum index that must be applied to the state machine before the query is applied.
+   *
+   * @return The minimum query index or {@code null} if the query doesn't require a minimum index.
+   */
+  public Long index() {
+    return index;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(member, entry, consistency);
+    return Objects.hash(member, entry, consistency, index);
   }
 
   @Override
@@ -79,14 +89,15 @@ public class QueryRequest extends AbstractRequest {
       QueryRequest request = (QueryRequest) object;
       return request.member.equals(member)
         && request.entry.equals(entry)
-        && request.consistency == consistency;
+        && request.consistency == consistency
+        && Objects.equals(request.index, index);
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[entry=%s, consistency=%s]", getClass().getSimpleName(), entry.toString(), consistency);
+    return String.format("%s[entry=%s, consistency=%s, index=%s]", getClass().getSimpleName(), entry.toString(), consistency, index);
   }
 
   /**
@@ -123,6 +134,17 @@ public class QueryRequest extends AbstractRequest {
       return this;
     }
 
+    /**
+     * Sets the minimum index that must be applied to the state machine before the query is applied.
+     *
+     * @param index The minimum query index.
+     * @return The request builder.
+     */
+    public Builder withIndex(Long index) {
+      request.index = Assert.index(index, index == null || index > 0, "index must be greater than zero");
+      return this;
+    }
+
     @Override
     public QueryRequest build() {
       super.build();
@@ -90,6 +90,35 @@ public interface RaftProtocol extends Managed<Void> {
    */
   RaftProtocol appendHandler(MessageHandler<AppendRequest, AppendResponse> handler);
 
+  /**
+   * Registers a protocol heartbeat handler.<p>
+   *
+   * Heartbeats are empty append requests sent by an idle leader on its heartbeat interval. Since no reads or writes
+   * are waiting on them, heartbeats may be delayed and batched with heartbeats for other resources. Heartbeats are
+   * handled by the receiver's append handler, and are sent with the append handler if no heartbeat handler is
+   * registered.
+   *
+   * @param handler A protocol heartbeat handler.
+   * @return The Raft protocol.
+   */
+  RaftProtocol heartbeatHandler(MessageHandler<AppendRequest, AppendResponse> handler);
+
+  /**
+   * Sends a protocol install snapshot request.
+   *
+   * @param request The protocol install snapshot request.
+   * @return A completable future to be completed with the install snapshot response.
+   */
+  CompletableFuture<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request);
+
+  /**
+   * Registers a protocol install snapshot request handler.
+   *
+   * @param handler A protocol install snapshot request handler.
+   * @return The Raft protocol.
+   */
+  RaftProtocol installSnapshotHandler(MessageHandler<InstallSnapshotRequest, InstallSnapshotResponse> handler);
+
   /**
    * Sends a protocol query request.
    *
@@ -106,6 +135,22 @@ public interface RaftProtocol extends Managed<Void> {
    */
   RaftProtocol queryHandler(MessageHandler<QueryRequest, QueryResponse> handler);
 
+  /**
+   * Sends a protocol read index request.
+   *
+   * @param request The protocol read index request.
+   * @return A completable future to be completed with the read index response.
+   */
+  CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request);
+
+  /**
+   * Registers a protocol read index request handler.
+   *
+   * @param handler A protocol read index request handler.
+   * @return The Raft protocol.
+   */
+  RaftProtocol readIndexHandler(MessageHandler<ReadIndexRequest, ReadIndexResponse> handler);
+
   /**
    * Sends a protocol commit request.
    *
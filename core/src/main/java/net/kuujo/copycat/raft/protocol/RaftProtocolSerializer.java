@@ -0,0 +1,680 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft.protocol;
+
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.util.serializer.KryoSerializer;
+import net.kuujo.copycat.util.serializer.SerializationException;
+import net.kuujo.copycat.util.serializer.Serializer;
+import net.kuujo.copycat.util.serializer.SerializerConfig;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raft protocol serializer.<p>
+ *
+ * Serializes Raft protocol requests and responses in a compact binary format rather than through reflection. Each
+ * message starts with a fixed layout header of a format version, a message type, and a flags byte in which boolean
+ * fields and the response status are stored, followed by the message's member URI and body. Terms, indexes and lengths
+ * are written as variable length integers, and optional values are written offset by one so that zero indicates a
+ * missing value. Entries and other binary fields are length prefixed and are read as slices of the message buffer
+ * rather than being copied, so the buffer passed to {@link #readObject(java.nio.ByteBuffer)} must not be reused by
+ * the caller. Response errors are rare and may be of any type, so they're serialized with the {@link KryoSerializer}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class RaftProtocolSerializer extends SerializerConfig {
+  private static final byte VERSION = 1;
+
+  private static final byte SYNC_REQUEST = 1;
+  private static final byte SYNC_RESPONSE = 2;
+  private static final byte POLL_REQUEST = 3;
+  private static final byte POLL_RESPONSE = 4;
+  private static final byte VOTE_REQUEST = 5;
+  private static final byte VOTE_RESPONSE = 6;
+  private static final byte APPEND_REQUEST = 7;
+  private static final byte APPEND_RESPONSE = 8;
+  private static final byte QUERY_REQUEST = 9;
+  private static final byte QUERY_RESPONSE = 10;
+  private static final byte COMMIT_REQUEST = 11;
+  private static final byte COMMIT_RESPONSE = 12;
+  private static final byte INSTALL_SNAPSHOT_REQUEST = 13;
+  private static final byte INSTALL_SNAPSHOT_RESPONSE = 14;
+  private static final byte READ_INDEX_REQUEST = 15;
+  private static final byte READ_INDEX_RESPONSE = 16;
+
+  // Consistency levels are encoded with fixed codes rather than ordinals so that they're stable across versions.
+  private static final byte CONSISTENCY_NONE = 0;
+  private static final byte CONSISTENCY_WEAK = 1;
+  private static final byte CONSISTENCY_DEFAULT = 2;
+  private static final byte CONSISTENCY_BOUNDED = 3;
+  private static final byte CONSISTENCY_LEASE = 4;
+  private static final byte CONSISTENCY_STRONG = 5;
+
+  private static final int FLAG_ERROR = 0x01;
+  private static final int FLAG_HAS_ERROR = 0x02;
+  private static final int FLAG_VALUE = 0x04; // The value of the message's boolean field, if any.
+
+  private static final int INITIAL_BUFFER_SIZE = 128;
+
+  private final Serializer errorSerializer = new KryoSerializer();
+
+  public RaftProtocolSerializer() {
+    super();
+  }
+
+  public RaftProtocolSerializer(Map<String, Object> config) {
+    super(config);
+  }
+
+  public RaftProtocolSerializer(String resource) {
+    super(resource);
+  }
+
+  public RaftProtocolSerializer(RaftProtocolSerializer serializer) {
+    super(serializer);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T readObject(ByteBuffer buffer) {
+    try {
+      byte version = buffer.get();
+      if (version != VERSION) {
+        throw new SerializationException("Unsupported protocol version %d", version);
+      }
+      byte type = buffer.get();
+      int flags = buffer.get();
+      String uri = readString(buffer);
+      switch (type) {
+        case SYNC_REQUEST:
+          return (T) readSyncRequest(buffer, flags, SyncRequest.builder().withUri(uri));
+        case SYNC_RESPONSE:
+          return (T) readResponse(buffer, flags, readSyncResponse(buffer, SyncResponse.builder().withUri(uri)));
+        case POLL_REQUEST:
+          return (T) readPollRequest(buffer, PollRequest.builder().withUri(uri));
+        case POLL_RESPONSE:
+          return (T) readResponse(buffer, flags, readPollResponse(buffer, flags, PollResponse.builder().withUri(uri)));
+        case VOTE_REQUEST:
+          return (T) readVoteRequest(buffer, VoteRequest.builder().withUri(uri));
+        case VOTE_RESPONSE:
+          return (T) readResponse(buffer, flags, readVoteResponse(buffer, flags, VoteResponse.builder().withUri(uri)));
+        case APPEND_REQUEST:
+          return (T) readAppendRequest(buffer, flags, AppendRequest.builder().withUri(uri));
+        case APPEND_RESPONSE:
+          return (T) readResponse(buffer, flags, readAppendResponse(buffer, flags, AppendResponse.builder().withUri(uri)));
+        case QUERY_REQUEST:
+          return (T) readQueryRequest(buffer, QueryRequest.builder().withUri(uri));
+        case QUERY_RESPONSE:
+          return (T) readResponse(buffer, flags, readQueryResponse(buffer, QueryResponse.builder().withUri(uri)));
+        case COMMIT_REQUEST:
+          return (T) readCommitRequest(buffer, CommitRequest.builder().withUri(uri));
+        case COMMIT_RESPONSE:
+          return (T) readResponse(buffer, flags, readCommitResponse(buffer, CommitResponse.builder().withUri(uri)));
+        case INSTALL_SNAPSHOT_REQUEST:
+          return (T) readInstallSnapshotRequest(buffer, flags, InstallSnapshotRequest.builder().withUri(uri));
+        case INSTALL_SNAPSHOT_RESPONSE:
+          return (T) readResponse(buffer, flags, readInstallSnapshotResponse(buffer, flags, InstallSnapshotResponse.builder().withUri(uri)));
+        case READ_INDEX_REQUEST:
+          return (T) readReadIndexRequest(buffer, ReadIndexRequest.builder().withUri(uri));
+        case READ_INDEX_RESPONSE:
+          return (T) readResponse(buffer, flags, readReadIndexResponse(buffer, ReadIndexResponse.builder().withUri(uri)));
+        default:
+          throw new SerializationException("Unknown protocol message type %d", type);
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new SerializationException(e, "Malformed protocol message");
+    }
+  }
+
+  @Override
+  public ByteBuffer writeObject(Object object) {
+    Output output;
+    if (object instanceof AppendRequest) {
+      AppendRequest request = (AppendRequest) object;
+      output = new Output(APPEND_REQUEST, request.firstIndex() ? FLAG_VALUE : 0, request.uri(), sizeOf(request.entries()));
+      output.writeLong(request.term());
+      output.writeString(request.leader());
+      output.writeNullableLong(request.logIndex());
+      output.writeNullableLong(request.logTerm());
+      output.writeNullableLong(request.commitIndex());
+      output.writeEntries(request.entries());
+    } else if (object instanceof AppendResponse) {
+      AppendResponse response = (AppendResponse) object;
+      output = new Output(APPEND_RESPONSE, flags(response) | (response.succeeded() ? FLAG_VALUE : 0), response.uri(), 0);
+      output.writeLong(response.term());
+      output.writeNullableLong(response.logIndex());
+      output.writeNullableLong(response.conflictTerm());
+      output.writeNullableLong(response.conflictIndex());
+      writeError(output, response);
+    } else if (object instanceof SyncRequest) {
+      SyncRequest request = (SyncRequest) object;
+      output = new Output(SYNC_REQUEST, request.firstIndex() ? FLAG_VALUE : 0, request.uri(), sizeOf(request.entries()));
+      output.writeLong(request.term());
+      output.writeString(request.leader());
+      output.writeNullableLong(request.logIndex());
+      output.writeEntries(request.entries());
+      output.writeMembers(request.members());
+    } else if (object instanceof SyncResponse) {
+      SyncResponse response = (SyncResponse) object;
+      output = new Output(SYNC_RESPONSE, flags(response), response.uri(), 0);
+      output.writeMembers(response.members());
+      writeError(output, response);
+    } else if (object instanceof PollRequest) {
+      PollRequest request = (PollRequest) object;
+      output = new Output(POLL_REQUEST, 0, request.uri(), 0);
+      output.writeLong(request.term());
+      output.writeString(request.candidate());
+      output.writeNullableLong(request.logIndex());
+      output.writeNullableLong(request.logTerm());
+    } else if (object instanceof PollResponse) {
+      PollResponse response = (PollResponse) object;
+      output = new Output(POLL_RESPONSE, flags(response) | (response.accepted() ? FLAG_VALUE : 0), response.uri(), 0);
+      output.writeLong(response.term());
+      writeError(output, response);
+    } else if (object instanceof VoteRequest) {
+      VoteRequest request = (VoteRequest) object;
+      output = new Output(VOTE_REQUEST, 0, request.uri(), 0);
+      output.writeLong(request.term());
+      output.writeString(request.candidate());
+      output.writeNullableLong(request.logIndex());
+      output.writeNullableLong(request.logTerm());
+    } else if (object instanceof VoteResponse) {
+      VoteResponse response = (VoteResponse) object;
+      output = new Output(VOTE_RESPONSE, flags(response) | (response.voted() ? FLAG_VALUE : 0), response.uri(), 0);
+      output.writeLong(response.term());
+      writeError(output, response);
+    } else if (object instanceof QueryRequest) {
+      QueryRequest request = (QueryRequest) object;
+      output = new Output(QUERY_REQUEST, 0, request.uri(), sizeOf(request.entry()));
+      output.writeBytes(request.entry());
+      output.writeConsistency(request.consistency());
+      output.writeNullableLong(request.index());
+    } else if (object instanceof QueryResponse) {
+      QueryResponse response = (QueryResponse) object;
+      output = new Output(QUERY_RESPONSE, flags(response), response.uri(), sizeOf(response.result()));
+      output.writeBytes(response.result());
+      writeError(output, response);
+    } else if (object instanceof CommitRequest) {
+      CommitRequest request = (CommitRequest) object;
+      output = new Output(COMMIT_REQUEST, 0, request.uri(), sizeOf(request.entry()));
+      output.writeBytes(request.entry());
+    } else if (object instanceof CommitResponse) {
+      CommitResponse response = (CommitResponse) object;
+      output = new Output(COMMIT_RESPONSE, flags(response), response.uri(), sizeOf(response.result()));
+      output.writeBytes(response.result());
+      output.writeNullableLong(response.index());
+      writeError(output, response);
+    } else if (object instanceof InstallSnapshotRequest) {
+      InstallSnapshotRequest request = (InstallSnapshotRequest) object;
+      output = new Output(INSTALL_SNAPSHOT_REQUEST, request.complete() ? FLAG_VALUE : 0, request.uri(), sizeOf(request.data()));
+      output.writeLong(request.term());
+      output.writeString(request.leader());
+      output.writeLong(request.index());
+      output.writeLong(request.snapshotTerm());
+      output.writeLong(request.offset());
+      output.writeBytes(request.data());
+    } else if (object instanceof InstallSnapshotResponse) {
+      InstallSnapshotResponse response = (InstallSnapshotResponse) object;
+      output = new Output(INSTALL_SNAPSHOT_RESPONSE, flags(response) | (response.succeeded() ? FLAG_VALUE : 0), response.uri(), 0);
+      output.writeLong(response.term());
+      output.writeLong(response.offset());
+      writeError(output, response);
+    } else if (object instanceof ReadIndexRequest) {
+      ReadIndexRequest request = (ReadIndexRequest) object;
+      output = new Output(READ_INDEX_REQUEST, 0, request.uri(), 0);
+      output.writeConsistency(request.consistency());
+    } else if (object instanceof ReadIndexResponse) {
+      ReadIndexResponse response = (ReadIndexResponse) object;
+      output = new Output(READ_INDEX_RESPONSE, flags(response), response.uri(), 0);
+      output.writeLong(response.term());
+      output.writeLong(response.index());
+      writeError(output, response);
+    } else {
+      throw new SerializationException("Cannot serialize %s", object != null ? object.getClass().getName() : null);
+    }
+    return output.flip();
+  }
+
+  /**
+   * Returns the header flags for a response's status and error.
+   */
+  private static int flags(Response response) {
+    int flags = 0;
+    if (response.status() == Response.Status.ERROR) {
+      flags |= FLAG_ERROR;
+    }
+    if (response.error() != null) {
+      flags |= FLAG_HAS_ERROR;
+    }
+    return flags;
+  }
+
+  /**
+   * Writes a response error if the response has one.
+   */
+  private void writeError(Output output, Response response) {
+    if (response.error() != null) {
+      output.writeBytes(errorSerializer.writeObject(response.error()));
+    }
+  }
+
+  /**
+   * Reads a response's status and error and builds the response.
+   */
+  private <T extends Response.Builder<T, U>, U extends Response> U readResponse(ByteBuffer buffer, int flags, T builder) {
+    if ((flags & FLAG_ERROR) != 0) {
+      builder.withStatus(Response.Status.ERROR);
+    }
+    if ((flags & FLAG_HAS_ERROR) != 0) {
+      builder.withError(errorSerializer.readObject(readBytes(buffer)));
+    }
+    return builder.build();
+  }
+
+  private static SyncRequest readSyncRequest(ByteBuffer buffer, int flags, SyncRequest.Builder builder) {
+    return builder.withTerm(readLong(buffer))
+      .withLeader(readString(buffer))
+      .withLogIndex(readNullableLong(buffer))
+      .withFirstIndex((flags & FLAG_VALUE) != 0)
+      .withEntries(readEntries(buffer))
+      .withMembers(readMembers(buffer))
+      .build();
+  }
+
+  private static SyncResponse.Builder readSyncResponse(ByteBuffer buffer, SyncResponse.Builder builder) {
+    return builder.withMembers(readMembers(buffer));
+  }
+
+  private static PollRequest readPollRequest(ByteBuffer buffer, PollRequest.Builder builder) {
+    return builder.withTerm(readLong(buffer))
+      .withCandidate(readString(buffer))
+      .withLogIndex(readNullableLong(buffer))
+      .withLogTerm(readNullableLong(buffer))
+      .build();
+  }
+
+  private static PollResponse.Builder readPollResponse(ByteBuffer buffer, int flags, PollResponse.Builder builder) {
+    return builder.withTerm(readLong(buffer)).withAccepted((flags & FLAG_VALUE) != 0);
+  }
+
+  private static VoteRequest readVoteRequest(ByteBuffer buffer, VoteRequest.Builder builder) {
+    long term = readLong(buffer);
+    if (term != 0) {
+      builder.withTerm(term);
+    }
+    return builder.withCandidate(readString(buffer))
+      .withLogIndex(readNullableLong(buffer))
+      .withLogTerm(readNullableLong(buffer))
+      .build();
+  }
+
+  private static VoteResponse.Builder readVoteResponse(ByteBuffer buffer, int flags, VoteResponse.Builder builder) {
+    long term = readLong(buffer);
+    if (term != 0) {
+      builder.withTerm(term);
+    }
+    return builder.withVoted((flags & FLAG_VALUE) != 0);
+  }
+
+  private static AppendRequest readAppendRequest(ByteBuffer buffer, int flags, AppendRequest.Builder builder) {
+    long term = readLong(buffer);
+    if (term != 0) {
+      builder.withTerm(term);
+    }
+    String leader = readString(buffer);
+    if (leader != null) {
+      builder.withLeader(leader);
+    }
+    return builder.withLogIndex(readNullableLong(buffer))
+      .withLogTerm(readNullableLong(buffer))
+      .withCommitIndex(readNullableLong(buffer))
+      .withEntries(readEntries(buffer))
+      .withFirstIndex((flags & FLAG_VALUE) != 0)
+      .build();
+  }
+
+  private static AppendResponse.Builder readAppendResponse(ByteBuffer buffer, int flags, AppendResponse.Builder builder) {
+    return builder.withTerm(readLong(buffer))
+      .withSucceeded((flags & FLAG_VALUE) != 0)
+      .withLogIndex(readNullableLong(buffer))
+      .withConflict(readNullableLong(buffer), readNullableLong(buffer));
+  }
+
+  private static QueryRequest readQueryRequest(ByteBuffer buffer, QueryRequest.Builder builder) {
+    ByteBuffer entry = readBytes(buffer);
+    if (entry != null) {
+      builder.withEntry(entry);
+    }
+    Consistency consistency = readConsistency(buffer);
+    if (consistency != null) {
+      builder.withConsistency(consistency);
+    }
+    return builder.withIndex(readNullableLong(buffer)).build();
+  }
+
+  private static QueryResponse.Builder readQueryResponse(ByteBuffer buffer, QueryResponse.Builder builder) {
+    return builder.withResult(readBytes(buffer));
+  }
+
+  private static CommitRequest readCommitRequest(ByteBuffer buffer, CommitRequest.Builder builder) {
+    ByteBuffer entry = readBytes(buffer);
+    if (entry != null) {
+      builder.withEntry(entry);
+    }
+    return builder.build();
+  }
+
+  private static CommitResponse.Builder readCommitResponse(ByteBuffer buffer, CommitResponse.Builder builder) {
+    return builder.withResult(readBytes(buffer)).withIndex(readNullableLong(buffer));
+  }
+
+  private static InstallSnapshotRequest readInstallSnapshotRequest(ByteBuffer buffer, int flags, InstallSnapshotRequest.Builder builder) {
+    long term = readLong(buffer);
+    if (term != 0) {
+      builder.withTerm(term);
+    }
+    String leader = readString(buffer);
+    if (leader != null) {
+      builder.withLeader(leader);
+    }
+    long index = readLong(buffer);
+    if (index != 0) {
+      builder.withIndex(index);
+    }
+    long snapshotTerm = readLong(buffer);
+    if (snapshotTerm != 0) {
+      builder.withSnapshotTerm(snapshotTerm);
+    }
+    builder.withOffset(readLong(buffer));
+    ByteBuffer data = readBytes(buffer);
+    if (data != null) {
+      builder.withData(data);
+    }
+    return builder.withComplete((flags & FLAG_VALUE) != 0).build();
+  }
+
+  private static InstallSnapshotResponse.Builder readInstallSnapshotResponse(ByteBuffer buffer, int flags, InstallSnapshotResponse.Builder builder) {
+    return builder.withTerm(readLong(buffer))
+      .withOffset(readLong(buffer))
+      .withSucceeded((flags & FLAG_VALUE) != 0);
+  }
+
+  private static ReadIndexRequest readReadIndexRequest(ByteBuffer buffer, ReadIndexRequest.Builder builder) {
+    Consistency consistency = readConsistency(buffer);
+    if (consistency != null) {
+      builder.withConsistency(consistency);
+    }
+    return builder.build();
+  }
+
+  private static ReadIndexResponse.Builder readReadIndexResponse(ByteBuffer buffer, ReadIndexResponse.Builder builder) {
+    return builder.withTerm(readLong(buffer)).withIndex(readLong(buffer));
+  }
+
+  /**
+   * Returns the maximum serialized size of a binary field.
+   */
+  private static int sizeOf(ByteBuffer bytes) {
+    return bytes != null ? bytes.limit() + 5 : 1;
+  }
+
+  /**
+   * Returns the maximum serialized size of a list of entries.
+   */
+  private static int sizeOf(List<ByteBuffer> entries) {
+    int size = 5;
+    if (entries != null) {
+      for (ByteBuffer entry : entries) {
+        size += sizeOf(entry);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Reads a variable length unsigned long.
+   */
+  private static long readLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new SerializationException("Malformed variable length integer");
+  }
+
+  /**
+   * Reads a variable length unsigned long that may be {@code null}.
+   */
+  private static Long readNullableLong(ByteBuffer buffer) {
+    long value = readLong(buffer);
+    return value != 0 ? value - 1 : null;
+  }
+
+  /**
+   * Reads a length prefixed binary field as a slice of the message buffer.
+   */
+  private static ByteBuffer readBytes(ByteBuffer buffer) {
+    long length = readLong(buffer);
+    if (length == 0) {
+      return null;
+    } else if (length - 1 > buffer.remaining()) {
+      throw new SerializationException("Malformed protocol message");
+    }
+    ByteBuffer bytes = buffer.slice();
+    bytes.limit((int) length - 1);
+    buffer.position(buffer.position() + bytes.limit());
+    return bytes;
+  }
+
+  /**
+   * Reads a length prefixed string.
+   */
+  private static String readString(ByteBuffer buffer) {
+    ByteBuffer bytes = readBytes(buffer);
+    if (bytes == null) {
+      return null;
+    } else if (bytes.hasArray()) {
+      return new String(bytes.array(), bytes.arrayOffset(), bytes.limit(), StandardCharsets.UTF_8);
+    }
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  /**
+   * Reads a list of entries.
+   */
+  private static List<ByteBuffer> readEntries(ByteBuffer buffer) {
+    int count = (int) readLong(buffer);
+    List<ByteBuffer> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ByteBuffer entry = readBytes(buffer);
+      entries.add(entry != null ? entry : ByteBuffer.allocate(0));
+    }
+    return entries;
+  }
+
+  /**
+   * Reads a collection of replicas.
+   */
+  private static Collection<ReplicaInfo> readMembers(ByteBuffer buffer) {
+    int count = (int) readLong(buffer);
+    List<ReplicaInfo> members = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      members.add(new ReplicaInfo(readString(buffer), readLong(buffer), readNullableLong(buffer)));
+    }
+    return members;
+  }
+
+  /**
+   * Reads a consistency level.
+   */
+  private static Consistency readConsistency(ByteBuffer buffer) {
+    byte code = buffer.get();
+    switch (code) {
+      case CONSISTENCY_NONE:
+        return null;
+      case CONSISTENCY_WEAK:
+        return Consistency.WEAK;
+      case CONSISTENCY_DEFAULT:
+        return Consistency.DEFAULT;
+      case CONSISTENCY_BOUNDED:
+        return Consistency.BOUNDED;
+      case CONSISTENCY_LEASE:
+        return Consistency.LEASE;
+      case CONSISTENCY_STRONG:
+        return Consistency.STRONG;
+      default:
+        throw new SerializationException("Unknown consistency %d", code);
+    }
+  }
+
+  /**
+   * Growable message output.
+   */
+  private static class Output {
+    private ByteBuffer buffer;
+
+    private Output(byte type, int flags, String uri, int size) {
+      buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE + size);
+      buffer.put(VERSION);
+      buffer.put(type);
+      buffer.put((byte) flags);
+      writeString(uri);
+    }
+
+    /**
+     * Ensures the buffer has room for the given number of bytes.
+     */
+    private void ensure(int size) {
+      if (buffer.remaining() < size) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + size));
+        this.buffer.flip();
+        buffer.put(this.buffer);
+        this.buffer = buffer;
+      }
+    }
+
+    /**
+     * Writes a variable length unsigned long.
+     */
+    private void writeLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a variable length unsigned long that may be {@code null}.
+     */
+    private void writeNullableLong(Long value) {
+      writeLong(value != null ? value + 1 : 0);
+    }
+
+    /**
+     * Writes a length prefixed binary field. Binary fields are written from the start of the buffer to its limit.
+     */
+    private void writeBytes(ByteBuffer bytes) {
+      if (bytes == null) {
+        writeLong(0);
+      } else {
+        ByteBuffer source = bytes.duplicate();
+        source.rewind();
+        writeLong(source.limit() + 1);
+        ensure(source.limit());
+        buffer.put(source);
+      }
+    }
+
+    /**
+     * Writes a length prefixed string.
+     */
+    private void writeString(String value) {
+      writeBytes(value != null ? ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)) : null);
+    }
+
+    /**
+     * Writes a list of entries.
+     */
+    private void writeEntries(List<ByteBuffer> entries) {
+      writeLong(entries.size());
+      for (ByteBuffer entry : entries) {
+        writeBytes(entry);
+      }
+    }
+
+    /**
+     * Writes a collection of replicas.
+     */
+    private void writeMembers(Collection<ReplicaInfo> members) {
+      writeLong(members.size());
+      for (ReplicaInfo member : members) {
+        writeString(member.getUri());
+        writeLong(member.getVersion());
+        writeNullableLong(member.getIndex());
+      }
+    }
+
+    /**
+     * Writes a consistency level.
+     */
+    private void writeConsistency(Consistency consistency) {
+      ensure(1);
+      buffer.put(consistency != null ? consistencyCode(consistency) : CONSISTENCY_NONE);
+    }
+
+    /**
+     * Returns the code with which a consistency level is encoded.
+     */
+    private byte consistencyCode(Consistency consistency) {
+      switch (consistency) {
+        case WEAK:
+          return CONSISTENCY_WEAK;
+        case DEFAULT:
+          return CONSISTENCY_DEFAULT;
+        case BOUNDED:
+          return CONSISTENCY_BOUNDED;
+        case LEASE:
+          return CONSISTENCY_LEASE;
+        case STRONG:
+          return CONSISTENCY_STRONG;
+        default:
+          throw new SerializationException("Unknown consistency %s", consistency);
+      }
+    }
+
+    /**
+     * Flips the buffer for reading.
+     */
+    private ByteBuffer flip() {
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+}
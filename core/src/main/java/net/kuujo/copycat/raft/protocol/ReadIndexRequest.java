@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft.protocol;
+
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.Objects;
+
+/**
+ * Protocol read index request.<p>
+ *
+ * Read index requests are sent by followers to the leader to learn the index up to which the follower must apply
+ * entries before it can serve a linearizable query from its own state.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class ReadIndexRequest extends AbstractRequest {
+
+  /**
+   * Returns a new read index request builder.
+   *
+   * @return A new read index request builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns a read index request builder for an existing request.
+   *
+   * @param request The request to build.
+   * @return The read index request builder.
+   */
+  public static Builder builder(ReadIndexRequest request) {
+    return new Builder(request);
+  }
+
+  private Consistency consistency = Consistency.STRONG;
+
+  /**
+   * Returns the consistency level of the queries awaiting the read index.
+   *
+   * @return The read consistency level.
+   */
+  public Consistency consistency() {
+    return consistency;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(member, consistency);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof ReadIndexRequest) {
+      ReadIndexRequest request = (ReadIndexRequest) object;
+      return request.member.equals(member)
+        && request.consistency == consistency;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[consistency=%s]", getClass().getSimpleName(), consistency);
+  }
+
+  /**
+   * Read index request builder.
+   */
+  public static class Builder extends AbstractRequest.Builder<Builder, ReadIndexRequest> {
+    private Builder() {
+      this(new ReadIndexRequest());
+    }
+
+    private Builder(ReadIndexRequest request) {
+      super(request);
+    }
+
+    /**
+     * Sets the request consistency level.
+     *
+     * @param consistency The request consistency level.
+     * @return The request builder.
+     */
+    public Builder withConsistency(Consistency consistency) {
+      request.consistency = Assert.isNotNull(consistency, "consistency");
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(request);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).request.equals(request);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[request=%s]", getClass().getCanonicalName(), request);
+    }
+
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft.protocol;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.Objects;
+
+/**
+ * Protocol read index response.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class ReadIndexResponse extends AbstractResponse {
+
+  /**
+   * Returns a new read index response builder.
+   *
+   * @return A new read index response builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns a read index response builder for an existing response.
+   *
+   * @param response The response to build.
+   * @return The read index response builder.
+   */
+  public static Builder builder(ReadIndexResponse response) {
+    return new Builder(response);
+  }
+
+  private long term;
+  private long index;
+
+  /**
+   * Returns the leader's current term.
+   *
+   * @return The leader's current term.
+   */
+  public long term() {
+    return term;
+  }
+
+  /**
+   * Returns the read index.
+   *
+   * @return The index up to which entries must be applied before a query can be served.
+   */
+  public long index() {
+    return index;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(member, status, term, index);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof ReadIndexResponse) {
+      ReadIndexResponse response = (ReadIndexResponse) object;
+      return response.member.equals(member)
+        && response.status == status
+        && response.term == term
+        && response.index == index;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[term=%d, index=%d]", getClass().getSimpleName(), term, index);
+  }
+
+  /**
+   * Read index response builder.
+   */
+  public static class Builder extends AbstractResponse.Builder<Builder, ReadIndexResponse> {
+    protected Builder() {
+      this(new ReadIndexResponse());
+    }
+
+    protected Builder(ReadIndexResponse response) {
+      super(response);
+    }
+
+    /**
+     * Sets the response term.
+     *
+     * @param term The response term.
+     * @return The read index response builder.
+     */
+    public Builder withTerm(long term) {
+      response.term = Assert.arg(term, term >= 0, "term must be greater than or equal to zero");
+      return this;
+    }
+
+    /**
+     * Sets the response read index.
+     *
+     * @param index The response read index.
+     * @return The read index response builder.
+     */
+    public Builder withIndex(long index) {
+      response.index = Assert.arg(index, index >= 0, "index must be greater than or equal to zero");
+      return this;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(response);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).response.equals(response);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[response=%s]", getClass().getCanonicalName(), response);
+    }
+
+  }
+
+}
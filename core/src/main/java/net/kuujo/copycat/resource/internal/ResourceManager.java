@@ -19,7 +19,10 @@ import net.kuujo.copycat.cluster.internal.coordinator.CoordinatedResourceConfig;
 import net.kuujo.copycat.cluster.internal.coordinator.DefaultClusterCoordinator;
 import net.kuujo.copycat.cluster.internal.manager.ClusterManager;
 import net.kuujo.copycat.log.LogManager;
+import net.kuujo.copycat.log.Snapshot;
+import net.kuujo.copycat.log.SnapshotStore;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.raft.EntryBatch;
 import net.kuujo.copycat.raft.RaftContext;
 import net.kuujo.copycat.raft.protocol.CommitRequest;
 import net.kuujo.copycat.raft.protocol.QueryRequest;
@@ -33,8 +36,12 @@ import net.kuujo.copycat.util.internal.Assert;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Default resource context.
@@ -47,6 +54,7 @@ public class ResourceManager implements Managed<ResourceManager> {
   private final ClusterManager cluster;
   private final RaftContext context;
   private final DefaultClusterCoordinator coordinator;
+  private final AtomicLong commitIndex = new AtomicLong();
   private volatile boolean open;
 
   public ResourceManager(String name, CoordinatedResourceConfig config, ClusterManager cluster, RaftContext context, DefaultClusterCoordinator coordinator) {
@@ -102,6 +110,15 @@ public class ResourceManager implements Managed<ResourceManager> {
     return context.log();
   }
 
+  /**
+   * Returns the Copycat snapshot store.
+   *
+   * @return The Copycat snapshot store.
+   */
+  public SnapshotStore snapshots() {
+    return context.snapshots();
+  }
+
   /**
    * Executes a command on the context.
    *
@@ -161,6 +178,19 @@ public class ResourceManager implements Managed<ResourceManager> {
     return context.executor().scheduleWithFixedDelay(command, initialDelay, delay, unit);
   }
 
+  /**
+   * Returns the executor on which entries and queries are applied to the state machine.<p>
+   *
+   * Tasks submitted to the apply executor run after all entries that have already been applied, so the apply executor
+   * can be used to access the state machine consistently with the consumer.
+   *
+   * @return The apply executor.
+   * @throws IllegalStateException If the context is not open
+   */
+  public Executor applyExecutor() {
+    return context.applyExecutor();
+  }
+
   /**
    * Registers an entry consumer on the context.
    *
@@ -172,6 +202,55 @@ public class ResourceManager implements Managed<ResourceManager> {
     return this;
   }
 
+  /**
+   * Registers a batch consumer on the context.<p>
+   *
+   * If a batch consumer is registered then committed entries are passed to the batch consumer in contiguous batches
+   * instead of being passed to the entry consumer, which then only receives queries.
+   *
+   * @param batchConsumer The batch consumer.
+   * @return The Copycat context.
+   */
+  public synchronized ResourceManager batchConsumer(Consumer<EntryBatch> batchConsumer) {
+    context.batchConsumer(batchConsumer);
+    return this;
+  }
+
+  /**
+   * Registers a snapshot installer on the context.
+   *
+   * @param installer The snapshot installer.
+   * @return The Copycat context.
+   */
+  public synchronized ResourceManager installer(Consumer<Snapshot> installer) {
+    context.installer(installer);
+    return this;
+  }
+
+  /**
+   * Registers an entry decoder on the context.<p>
+   *
+   * The decoder is used to decode entries in parallel when large ranges of entries are replayed, and must be
+   * threadsafe.
+   *
+   * @param decoder The entry decoder.
+   * @return The Copycat context.
+   */
+  public synchronized ResourceManager decoder(Function<ByteBuffer, Object> decoder) {
+    context.decoder(decoder);
+    return this;
+  }
+
+  /**
+   * Returns the decoded entry that is being applied.
+   *
+   * @param index The index of the entry being applied.
+   * @return The entry as decoded by the registered decoder or {@code null} if the entry was not decoded.
+   */
+  public Object decodedEntry(long index) {
+    return context.decodedEntry(index);
+  }
+
   /**
    * Submits a synchronous entry to the context.
    *
@@ -183,12 +262,27 @@ public class ResourceManager implements Managed<ResourceManager> {
   }
 
   /**
-   * Submits a synchronous entry to the context.
+   * Submits a synchronous entry to the context.<p>
+   *
+   * The query is applied only once the local state machine has applied all entries committed through this resource,
+   * ensuring that queries observe the resource's own writes.
    *
    * @param entry The entry to query.
    * @return A completable future to be completed once the cluster has been synchronized.
    */
   public synchronized CompletableFuture<ByteBuffer> query(ByteBuffer entry, Consistency consistency) {
+    return query(entry, consistency, commitIndex.get());
+  }
+
+  /**
+   * Submits a synchronous entry to the context.
+   *
+   * @param entry The entry to query.
+   * @param consistency The query consistency.
+   * @param index The minimum index that must be applied to the state machine before the query is applied.
+   * @return A completable future to be completed once the cluster has been synchronized.
+   */
+  public synchronized CompletableFuture<ByteBuffer> query(ByteBuffer entry, Consistency consistency, long index) {
     if (!open) {
       return Futures.exceptionalFuture(new IllegalStateException("Context not open"));
     }
@@ -198,6 +292,7 @@ public class ResourceManager implements Managed<ResourceManager> {
       .withUri(context.getLocalMember())
       .withEntry(entry)
       .withConsistency(consistency)
+      .withIndex(index > 0 ? index : null)
       .build();
     context.query(request).whenComplete((response, error) -> {
       if (error == null) {
@@ -232,6 +327,9 @@ public class ResourceManager implements Managed<ResourceManager> {
     context.commit(request).whenComplete((response, error) -> {
       if (error == null) {
         if (response.status() == Response.Status.OK) {
+          if (response.index() != null) {
+            commitIndex.accumulateAndGet(response.index(), Math::max);
+          }
           future.complete(response.result());
         } else {
           future.completeExceptionally(response.error());
@@ -243,6 +341,18 @@ public class ResourceManager implements Managed<ResourceManager> {
     return future;
   }
 
+  /**
+   * Returns the highest index committed through this resource.<p>
+   *
+   * The commit index can be used as a consistency token. Queries that are given the token as a minimum index are
+   * guaranteed to observe all entries committed through this resource up to the token.
+   *
+   * @return The highest index committed through this resource or {@code 0} if no entries have been committed.
+   */
+  public long commitIndex() {
+    return commitIndex.get();
+  }
+
   @Override
   public synchronized CompletableFuture<ResourceManager> open() {
     return coordinator.acquireResource(name)
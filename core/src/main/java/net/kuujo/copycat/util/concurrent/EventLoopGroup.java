@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.util.concurrent;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size group of single threaded event loops.<p>
+ *
+ * Each event loop is a single threaded scheduled executor, so all tasks submitted to a loop run on the same thread.
+ * Components that must run on a single thread are pinned to one loop via {@link #next()}, and loops are assigned
+ * round robin so that many components can share a small number of threads. Since components share threads, tasks
+ * submitted to a loop should not block.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class EventLoopGroup {
+  private final ScheduledExecutorService[] loops;
+  private final AtomicInteger counter = new AtomicInteger();
+
+  /**
+   * Creates an event loop group.
+   *
+   * @param size The number of event loops in the group.
+   * @param nameFormat The event loop thread name format, which is supplied a single argument representing the thread
+   *                   number.
+   * @throws java.lang.IllegalArgumentException If the size is not positive
+   */
+  public EventLoopGroup(int size, String nameFormat) {
+    Assert.arg(size, size > 0, "event loop group size must be positive");
+    ThreadFactory threadFactory = new NamedThreadFactory(nameFormat);
+    this.loops = new ScheduledExecutorService[size];
+    for (int i = 0; i < size; i++) {
+      loops[i] = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+  }
+
+  /**
+   * Returns the next event loop in the group.
+   *
+   * @return The next event loop in the group.
+   */
+  public ScheduledExecutorService next() {
+    return loops[Math.abs(counter.getAndIncrement() % loops.length)];
+  }
+
+  /**
+   * Returns the number of event loops in the group.
+   *
+   * @return The number of event loops in the group.
+   */
+  public int size() {
+    return loops.length;
+  }
+
+  /**
+   * Shuts down all event loops in the group.
+   */
+  public void shutdown() {
+    for (ScheduledExecutorService loop : loops) {
+      loop.shutdown();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[size=%d]", getClass().getSimpleName(), loops.length);
+  }
+
+}
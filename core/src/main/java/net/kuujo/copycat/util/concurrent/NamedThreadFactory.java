@@ -25,18 +25,33 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class NamedThreadFactory implements ThreadFactory {
   private final AtomicInteger threadNumber = new AtomicInteger(1);
   private final String nameFormat;
+  private final boolean daemon;
 
   /**
    * Creates a thread factory that names threads according to the {@code nameFormat} by supplying a
    * single argument to the format representing the thread number.
    */
   public NamedThreadFactory(String nameFormat) {
+    this(nameFormat, false);
+  }
+
+  /**
+   * Creates a thread factory that names threads according to the {@code nameFormat} by supplying a
+   * single argument to the format representing the thread number.
+   *
+   * @param nameFormat The thread name format.
+   * @param daemon Whether created threads are daemon threads.
+   */
+  public NamedThreadFactory(String nameFormat, boolean daemon) {
     this.nameFormat = nameFormat;
+    this.daemon = daemon;
   }
 
   @Override
   public Thread newThread(Runnable r) {
-    return new Thread(r, String.format(nameFormat, threadNumber.getAndIncrement()));
+    Thread thread = new Thread(r, String.format(nameFormat, threadNumber.getAndIncrement()));
+    thread.setDaemon(daemon);
+    return thread;
   }
 
 }
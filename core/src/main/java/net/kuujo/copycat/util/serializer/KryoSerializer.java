@@ -17,18 +17,28 @@ package net.kuujo.copycat.util.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.ByteBufferInput;
-import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.Output;
 import com.typesafe.config.ConfigObject;
 import com.typesafe.config.ConfigValueFactory;
 import net.kuujo.copycat.util.ConfigurationException;
 import net.kuujo.copycat.util.internal.Assert;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Kryo serializer.
+ * Kryo serializer.<p>
+ *
+ * {@link com.esotericsoftware.kryo.Kryo} instances are not thread safe, so rather than synchronizing on a single
+ * instance the serializer keeps a lock-free pool of Kryo instances, each with its own input and output. Instances are
+ * created only when all pooled instances are in use, so the pool is only as large as the number of threads that have
+ * concurrently used the serializer. Output buffers start small and grow on demand up to the configured
+ * {@link #getBufferSize() buffer size}, and buffers that grow large are shrunk when returned to the pool.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -37,11 +47,13 @@ public class KryoSerializer extends SerializerConfig {
   private static final String KRYO_SERIALIZER_REGISTRATIONS = "registrations";
 
   private static final int DEFAULT_KRYO_SERIALIZER_BUFFER_SIZE = 1024 * 1024 * 16;
+  private static final int INITIAL_BUFFER_SIZE = 1024 * 4;
+  private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 64;
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
 
-  private Kryo kryo = new Kryo();
-  private ByteBufferOutput output;
-  private ByteBufferInput input;
-  private AtomicBoolean init = new AtomicBoolean();
+  private final Queue<KryoContext> pool = new ConcurrentLinkedQueue<>();
+  private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+  private volatile boolean init;
 
   public KryoSerializer() {
     super();
@@ -63,10 +75,13 @@ public class KryoSerializer extends SerializerConfig {
    * Lazily initializes the serializer.
    */
   private void init() {
-    if (init.compareAndSet(false, true)) {
-      input = new ByteBufferInput();
-      output = new ByteBufferOutput(ByteBuffer.allocateDirect(getBufferSize()));
-      register();
+    if (!init) {
+      synchronized (this) {
+        if (!init) {
+          register();
+          init = true;
+        }
+      }
     }
   }
 
@@ -93,30 +108,37 @@ public class KryoSerializer extends SerializerConfig {
   }
 
   /**
-   * Registers a class for serialization.
+   * Registers a class for serialization.<p>
+   *
+   * Registrations are applied to each pooled Kryo instance the next time it's used.
    *
    * @param type The class to register.
    * @return The Kryo serializer.
    */
-  public synchronized KryoSerializer register(Class<?> type) {
-    kryo.register(type);
+  public KryoSerializer register(Class<?> type) {
+    registrations.add(new Registration(type, null));
     return this;
   }
 
   /**
-   * Registers a class for serialization.
+   * Registers a class for serialization.<p>
+   *
+   * Registrations are applied to each pooled Kryo instance the next time it's used.
    *
    * @param type The class to register.
    * @param id The registration ID.
    * @return The Kryo serializer.
    */
-  public synchronized KryoSerializer register(Class<?> type, int id) {
-    kryo.register(type, id);
+  public KryoSerializer register(Class<?> type, int id) {
+    registrations.add(new Registration(type, id));
     return this;
   }
 
   /**
-   * Sets the serializer buffer size.
+   * Sets the serializer buffer size.<p>
+   *
+   * The buffer size is the maximum size of a serialized object. Output buffers are allocated small and grow on demand
+   * up to the buffer size.
    *
    * @param bufferSize The serializer buffer size.
    * @throws java.lang.IllegalArgumentException If the buffer size is not positive
@@ -146,21 +168,107 @@ public class KryoSerializer extends SerializerConfig {
     return this;
   }
 
+  /**
+   * Borrows a Kryo context from the pool, creating a new context if none is available.
+   */
+  private KryoContext borrow() {
+    init();
+    KryoContext context = pool.poll();
+    if (context == null) {
+      context = new KryoContext(Math.min(INITIAL_BUFFER_SIZE, getBufferSize()), getBufferSize());
+    }
+    context.register(registrations);
+    return context;
+  }
+
+  /**
+   * Returns a Kryo context to the pool.
+   */
+  private void release(KryoContext context) {
+    context.reset();
+    pool.offer(context);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
-  public synchronized <T> T readObject(ByteBuffer buffer) {
-    init();
-    input.setBuffer(buffer);
-    return (T) kryo.readClassAndObject(input);
+  public <T> T readObject(ByteBuffer buffer) {
+    KryoContext context = borrow();
+    try {
+      context.input.setBuffer(buffer);
+      return (T) context.kryo.readClassAndObject(context.input);
+    } finally {
+      release(context);
+    }
   }
 
   @Override
-  public synchronized ByteBuffer writeObject(Object object) {
-    init();
-    kryo.writeClassAndObject(output, object);
-    byte[] bytes = output.toBytes();
-    output.clear();
-    return ByteBuffer.wrap(bytes);
+  public ByteBuffer writeObject(Object object) {
+    KryoContext context = borrow();
+    try {
+      context.kryo.writeClassAndObject(context.output, object);
+      return ByteBuffer.wrap(Arrays.copyOf(context.output.getBuffer(), context.output.position()));
+    } finally {
+      release(context);
+    }
+  }
+
+  /**
+   * Pooled Kryo instance with its input and output.
+   */
+  private static class KryoContext {
+    private final Kryo kryo = new Kryo();
+    private final ByteBufferInput input = new ByteBufferInput();
+    private final Output output;
+    private final int initialBufferSize;
+    private final int maxBufferSize;
+    private int registered;
+
+    private KryoContext(int initialBufferSize, int maxBufferSize) {
+      this.output = new Output(initialBufferSize, maxBufferSize);
+      this.initialBufferSize = initialBufferSize;
+      this.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Applies registrations added since the context was last used.
+     */
+    private void register(List<Registration> registrations) {
+      for (int i = registered; i < registrations.size(); i++) {
+        Registration registration = registrations.get(i);
+        if (registration.id != null) {
+          kryo.register(registration.type, registration.id);
+        } else {
+          kryo.register(registration.type);
+        }
+      }
+      registered = registrations.size();
+    }
+
+    /**
+     * Resets the context for reuse, shrinking the output buffer if it grew large.
+     */
+    private void reset() {
+      if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+        output.setBuffer(new byte[initialBufferSize], maxBufferSize);
+      } else {
+        output.clear();
+      }
+      // Release the last input buffer so that pooled contexts don't hold on to received messages.
+      input.setBuffer(EMPTY_BUFFER);
+    }
+  }
+
+  /**
+   * Class registration.
+   */
+  private static class Registration {
+    private final Class<?> type;
+    private final Integer id;
+
+    private Registration(Class<?> type, Integer id) {
+      this.type = type;
+      this.id = id;
+    }
   }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.cluster.internal.coordinator;
+
+import net.kuujo.copycat.cluster.Member;
+import net.kuujo.copycat.cluster.internal.MemberInfo;
+import net.kuujo.copycat.cluster.internal.Topics;
+import net.kuujo.copycat.protocol.LocalProtocol;
+import net.kuujo.copycat.util.concurrent.Futures;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Heartbeat multiplexer test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class HeartbeatMultiplexerTest {
+  private ScheduledExecutorService executor;
+  private DefaultLocalMemberCoordinator localMember;
+  private DefaultRemoteMemberCoordinator remoteMember;
+  private HeartbeatMultiplexer sender;
+  private HeartbeatMultiplexer receiver;
+  private AtomicInteger messages;
+
+  @BeforeMethod
+  protected void beforeMethod() throws Exception {
+    LocalProtocol.reset();
+    LocalProtocol protocol = new LocalProtocol();
+    executor = Executors.newSingleThreadScheduledExecutor();
+    localMember = new DefaultLocalMemberCoordinator(new MemberInfo("local://foo", Member.Type.ACTIVE, Member.Status.ALIVE), protocol, executor);
+    remoteMember = new DefaultRemoteMemberCoordinator(new MemberInfo("local://foo", Member.Type.ACTIVE, Member.Status.ALIVE), protocol, executor);
+    localMember.open().get();
+    remoteMember.open().get();
+
+    // Count the multiplexed messages received by the member.
+    messages = new AtomicInteger();
+    receiver = new HeartbeatMultiplexer(localMember, uri -> null, executor);
+    localMember.register(Topics.HEARTBEAT, 0, 0, message -> {
+      messages.incrementAndGet();
+      return receiver.handle(message);
+    });
+    sender = new HeartbeatMultiplexer(localMember, uri -> uri.equals(remoteMember.uri()) ? remoteMember : null, executor);
+  }
+
+  @AfterMethod
+  protected void afterMethod() throws Exception {
+    remoteMember.close().get();
+    localMember.close().get();
+    executor.shutdown();
+  }
+
+  /**
+   * Registers an append handler that responds with the request address.
+   */
+  private void registerHandler(int address) {
+    localMember.register(Topics.APPEND, address, 1, message -> CompletableFuture.completedFuture(ByteBuffer.allocate(4).putInt(0, address)));
+  }
+
+  /**
+   * Tests that heartbeats sent to the same member are sent in a single message and responses are split per resource.
+   */
+  public void testHeartbeatsAreMultiplexed() throws Exception {
+    registerHandler(1);
+    registerHandler(2);
+    registerHandler(3);
+    CompletableFuture<ByteBuffer> future1 = sender.send(remoteMember.uri(), 1, 1, ByteBuffer.allocate(8));
+    CompletableFuture<ByteBuffer> future2 = sender.send(remoteMember.uri(), 2, 1, ByteBuffer.allocate(16));
+    CompletableFuture<ByteBuffer> future3 = sender.send(remoteMember.uri(), 3, 1, ByteBuffer.allocate(0));
+    assertEquals(future1.get(5, TimeUnit.SECONDS).getInt(0), 1);
+    assertEquals(future2.get(5, TimeUnit.SECONDS).getInt(0), 2);
+    assertEquals(future3.get(5, TimeUnit.SECONDS).getInt(0), 3);
+    assertEquals(messages.get(), 1);
+  }
+
+  /**
+   * Tests that a single heartbeat is sent directly to its resource.
+   */
+  public void testSingleHeartbeatIsNotMultiplexed() throws Exception {
+    registerHandler(1);
+    assertEquals(sender.send(remoteMember.uri(), 1, 1, ByteBuffer.allocate(8)).get(5, TimeUnit.SECONDS).getInt(0), 1);
+    assertEquals(messages.get(), 0);
+  }
+
+  /**
+   * Tests that a failed heartbeat fails only the heartbeat's sender.
+   */
+  public void testFailedHeartbeatFailsOnlySender() throws Exception {
+    registerHandler(1);
+    localMember.register(Topics.APPEND, 2, 1, message -> Futures.exceptionalFuture(new IllegalStateException("failed")));
+    CompletableFuture<ByteBuffer> future1 = sender.send(remoteMember.uri(), 1, 1, ByteBuffer.allocate(8));
+    CompletableFuture<ByteBuffer> future2 = sender.send(remoteMember.uri(), 2, 1, ByteBuffer.allocate(8));
+    CompletableFuture<ByteBuffer> future3 = sender.send(remoteMember.uri(), 3, 1, ByteBuffer.allocate(8));
+    assertEquals(future1.get(5, TimeUnit.SECONDS).getInt(0), 1);
+    try {
+      future2.get(5, TimeUnit.SECONDS);
+      fail("Expected heartbeat to fail");
+    } catch (ExecutionException e) {
+      assertEquals(e.getCause().getMessage(), "failed");
+    }
+    try {
+      future3.get(5, TimeUnit.SECONDS);
+      fail("Expected heartbeat to fail");
+    } catch (ExecutionException e) {
+      assertEquals(e.getCause().getMessage(), "No handlers");
+    }
+    assertEquals(messages.get(), 1);
+  }
+
+  /**
+   * Tests that a heartbeat that isn't responded to in time is failed without holding back other heartbeats.
+   */
+  public void testSlowHeartbeatDoesNotDelayOtherHeartbeats() throws Exception {
+    registerHandler(1);
+    localMember.register(Topics.APPEND, 2, 1, message -> new CompletableFuture<>());
+    CompletableFuture<ByteBuffer> future1 = sender.send(remoteMember.uri(), 1, 1, ByteBuffer.allocate(8));
+    CompletableFuture<ByteBuffer> future2 = sender.send(remoteMember.uri(), 2, 1, ByteBuffer.allocate(8));
+    assertEquals(future1.get(5, TimeUnit.SECONDS).getInt(0), 1);
+    try {
+      future2.get(5, TimeUnit.SECONDS);
+      fail("Expected heartbeat to fail");
+    } catch (ExecutionException e) {
+      assertEquals(e.getCause().getMessage(), "Heartbeat timed out");
+    }
+    assertEquals(messages.get(), 1);
+  }
+
+  /**
+   * Tests that heartbeats to an unknown member fail.
+   */
+  @Test(expectedExceptions = ExecutionException.class)
+  public void testHeartbeatToUnknownMemberFails() throws Exception {
+    sender.send("local://bar", 1, 1, ByteBuffer.allocate(8)).get(5, TimeUnit.SECONDS);
+  }
+
+}
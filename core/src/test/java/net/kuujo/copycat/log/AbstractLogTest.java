@@ -22,6 +22,7 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -91,6 +92,70 @@ public abstract class AbstractLogTest {
       assertEquals(log.appendEntry(Bytes.of(i)), i);
   }
 
+  /**
+   * Asserts that a batch of entries spanning 3 segments is appended with the expected indexes.
+   */
+  public void testAppendEntries() throws Exception {
+    List<ByteBuffer> entries = IntStream.range(1, entriesPerSegment * 3 + 1).mapToObj(Bytes::of).collect(Collectors.toList());
+    List<Long> indexes = log.appendEntries(entries);
+    assertIndexes(indexes, 1, entriesPerSegment * 3);
+    assertEquals(log.segments().size(), 3);
+    indexes.stream().forEach(i -> assertBytesEqual(log.getEntry(i), i));
+
+    // Append another batch after the first batch.
+    assertIndexes(log.appendEntries(Arrays.asList(Bytes.of(entriesPerSegment * 3 + 1))), entriesPerSegment * 3 + 1, entriesPerSegment * 3 + 1);
+    assertBytesEqual(log.getEntry(entriesPerSegment * 3 + 1), entriesPerSegment * 3 + 1);
+  }
+
+  /**
+   * Asserts that entry terms are indexed as entries are appended and removed.
+   */
+  public void testTermAt() throws Exception {
+    for (long term : new long[]{1, 1, 2, 2, 2, 3, 3, 5, 5, 5, 5, 5}) {
+      log.appendEntry(termEntry(term));
+    }
+    assertNull(log.termAt(0));
+    assertEquals(log.termAt(1).longValue(), 1);
+    assertEquals(log.termAt(3).longValue(), 2);
+    assertEquals(log.termAt(5).longValue(), 2);
+    assertEquals(log.termAt(7).longValue(), 3);
+    assertEquals(log.termAt(12).longValue(), 5);
+    assertNull(log.termAt(13));
+
+    log.removeAfter(6);
+    assertNull(log.termAt(7));
+    log.appendEntries(Arrays.asList(termEntry(4), termEntry(4)));
+    assertEquals(log.termAt(6).longValue(), 3);
+    assertEquals(log.termAt(7).longValue(), 4);
+    assertEquals(log.termAt(8).longValue(), 4);
+  }
+
+  /**
+   * Asserts that the range of indexes of each term is found in the log.
+   */
+  public void testIndexesOfTerm() throws Exception {
+    assertNull(log.firstIndexOf(1));
+    assertNull(log.lastIndexOf(1));
+    for (long term : new long[]{1, 1, 2, 2, 2, 3, 3, 5, 5, 5, 5, 5}) {
+      log.appendEntry(termEntry(term));
+    }
+    assertEquals(log.firstIndexOf(1).longValue(), 1);
+    assertEquals(log.lastIndexOf(1).longValue(), 2);
+    assertEquals(log.firstIndexOf(2).longValue(), 3);
+    assertEquals(log.lastIndexOf(2).longValue(), 5);
+    assertEquals(log.firstIndexOf(5).longValue(), 8);
+    assertEquals(log.lastIndexOf(5).longValue(), 12);
+    assertNull(log.firstIndexOf(4));
+    assertNull(log.lastIndexOf(4));
+    assertNull(log.firstIndexOf(6));
+
+    log.removeAfter(9);
+    assertEquals(log.lastIndexOf(5).longValue(), 9);
+    log.removeAfter(6);
+    assertNull(log.firstIndexOf(5));
+    assertEquals(log.lastIndexOf(3).longValue(), 6);
+  }
+
   /**
    * Asserts that appending and getting entries works as expected across segments.
    */
@@ -255,6 +320,27 @@ public abstract class AbstractLogTest {
       assertBytesEqual(log.getEntry(i), i);
   }
 
+  /**
+   * Tests {@link AbstractLogManager#getEntries(long, long)} across segments.
+   */
+  public void testGetEntries() {
+    appendEntries(entriesPerSegment * 3);
+    List<ByteBuffer> entries = log.getEntries(2, entriesPerSegment * 3 - 1);
+    assertEquals(entries.size(), entriesPerSegment * 3 - 2);
+    for (int i = 0; i < entries.size(); i++)
+      assertBytesEqual(entries.get(i), i + 2);
+    assertTrue(log.getEntries(2, 1).isEmpty());
+  }
+
+  /**
+   * Tests {@link AbstractLogManager#getEntries(long, long)} with a range outside the log.
+   */
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testGetEntriesHighIndex() {
+    appendEntries(entriesPerSegment);
+    log.getEntries(1, entriesPerSegment + 1);
+  }
+
   /**
    * Tests {@link AbstractLogManager#isOpen()}.
    */
@@ -342,6 +428,14 @@ public abstract class AbstractLogTest {
     }).collect(Collectors.toList());
   }
 
+  protected static ByteBuffer termEntry(long term) {
+    ByteBuffer entry = ByteBuffer.allocate(12);
+    entry.putLong(term);
+    entry.putInt(0);
+    entry.flip();
+    return entry;
+  }
+
   protected static void assertBytesEqual(ByteBuffer b1, long number) {
     assertBytesEqual(b1, (int) number);
   }
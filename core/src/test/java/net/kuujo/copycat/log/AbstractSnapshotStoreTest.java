@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests snapshot store implementations.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public abstract class AbstractSnapshotStoreTest {
+  protected SnapshotStore store;
+
+  /**
+   * Creates a test snapshot store instance.
+   */
+  protected abstract SnapshotStore createStore() throws Throwable;
+
+  @BeforeMethod
+  protected void beforeMethod() throws Throwable {
+    store = createStore();
+    store.open();
+  }
+
+  @AfterMethod
+  protected void afterMethod() throws Throwable {
+    try {
+      store.close();
+    } catch (Exception ignore) {
+    }
+    store.delete();
+  }
+
+  /**
+   * Returns a buffer of the given size filled with sequential bytes starting at the given offset.
+   */
+  protected static ByteBuffer bytes(int offset, int size) {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (int i = 0; i < size; i++) {
+      buffer.put((byte) (offset + i));
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Writes a snapshot in chunks of the given size.
+   */
+  protected Snapshot writeSnapshot(long index, long term, int size, int chunkSize) throws Throwable {
+    try (SnapshotWriter writer = store.createSnapshot(index, term)) {
+      for (int offset = 0; offset < size; offset += chunkSize) {
+        writer.write(bytes(offset, Math.min(chunkSize, size - offset)));
+      }
+      assertEquals(writer.size(), size);
+      return writer.complete();
+    }
+  }
+
+  public void testEmptyStoreHasNoSnapshot() {
+    assertNull(store.currentSnapshot());
+  }
+
+  public void testSnapshotIsNotVisibleUntilCompleted() throws Throwable {
+    try (SnapshotWriter writer = store.createSnapshot(10, 2)) {
+      writer.write(bytes(0, 100));
+      assertNull(store.currentSnapshot());
+    }
+    assertNull(store.currentSnapshot());
+  }
+
+  public void testCompletingOlderSnapshotDoesNotReplaceNewerSnapshot() throws Throwable {
+    SnapshotWriter writer = store.createSnapshot(10, 2);
+    writer.write(bytes(0, 100));
+    Snapshot newer = writeSnapshot(20, 3, 50, 50);
+    Snapshot completed = writer.complete();
+    writer.close();
+    assertEquals(completed.index(), 20);
+    assertEquals(store.currentSnapshot().index(), 20);
+    assertEquals(store.currentSnapshot().size(), newer.size());
+  }
+
+  public void testCompleteSnapshot() throws Throwable {
+    writeSnapshot(10, 2, 100, 30);
+    Snapshot snapshot = store.currentSnapshot();
+    assertNotNull(snapshot);
+    assertEquals(snapshot.index(), 10);
+    assertEquals(snapshot.term(), 2);
+    assertEquals(snapshot.size(), 100);
+  }
+
+  public void testReadSnapshotChunksAcrossWrites() throws Throwable {
+    Snapshot snapshot = writeSnapshot(10, 2, 100, 30);
+    assertEquals(snapshot.read(0, 100), bytes(0, 100));
+    assertEquals(snapshot.read(25, 40), bytes(25, 40));
+    assertEquals(snapshot.read(90, 40), bytes(90, 10));
+    assertEquals(snapshot.read(100, 40).remaining(), 0);
+  }
+
+  public void testNewSnapshotReplacesCurrentSnapshot() throws Throwable {
+    writeSnapshot(10, 2, 100, 30);
+    writeSnapshot(20, 3, 50, 50);
+    Snapshot snapshot = store.currentSnapshot();
+    assertEquals(snapshot.index(), 20);
+    assertEquals(snapshot.term(), 3);
+    assertEquals(snapshot.read(0, 100), bytes(0, 50));
+  }
+
+  public void testEmptySnapshot() throws Throwable {
+    Snapshot snapshot = writeSnapshot(10, 2, 0, 10);
+    assertEquals(snapshot.size(), 0);
+    assertEquals(snapshot.read(0, 10).remaining(), 0);
+  }
+
+}
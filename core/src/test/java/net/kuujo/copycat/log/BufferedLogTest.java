@@ -15,7 +15,13 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.internal.Bytes;
 import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.testng.Assert.*;
 
 /**
@@ -37,6 +43,20 @@ public class BufferedLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), Long.MAX_VALUE);
     log.setSegmentInterval(60000);
     assertEquals(log.getSegmentInterval(), 60000);
+    assertEquals(log.getCacheSize(), 0);
+  }
+
+  /**
+   * Tests that in-memory logs don't cache entries even if a cache size is configured.
+   */
+  public void testEntriesAreNotCached() throws Throwable {
+    log.close();
+    log = (AbstractLogManager) new BufferedLog().withSegmentSize(segmentSize).withCacheSize(1024).getLogManager("test");
+    log.open();
+    appendEntries(5);
+    assertBytesEqual(log.getEntry(5), 5);
+    assertEquals(log.cacheHits(), 0);
+    assertEquals(log.cacheMisses(), 0);
   }
 
   /**
@@ -48,6 +68,39 @@ public class BufferedLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), 60000);
   }
 
+  /**
+   * Tests that pending grouped flushes are failed rather than left incomplete if the log fails to flush on close.
+   */
+  public void testPendingFlushesFailedWhenCloseFails() throws Throwable {
+    log.close();
+    log = new BufferedLogManager(new BufferedLog().withGroupCommit(true).withGroupCommitInterval(60000)) {
+      @Override
+      protected LogSegment createSegment(long segmentNumber, long firstIndex) {
+        return new BufferedLogSegment(this, segmentNumber, firstIndex) {
+          @Override
+          public void flush() {
+            throw new LogException("Failed to flush segment");
+          }
+        };
+      }
+    };
+    log.open();
+
+    CompletableFuture<Long> future = log.flush(log.appendEntry(Bytes.of(1)));
+    assertFalse(future.isDone());
+    try {
+      log.close();
+      fail();
+    } catch (LogException e) {
+    }
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof LogException);
+    }
+  }
+
   @Override
   protected AbstractLogManager createLog() throws Throwable {
     return (AbstractLogManager) new BufferedLog().withSegmentSize(segmentSize).getLogManager("test");
@@ -15,6 +15,7 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.internal.Bytes;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.Test;
 
@@ -23,8 +24,12 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Buffered log test.
@@ -56,6 +61,96 @@ public class FileLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), 60000);
   }
 
+  /**
+   * Tests that the mapped segment index is recovered when the log is reopened.
+   */
+  public void testReopenRecoversIndex() throws Throwable {
+    appendEntries(10);
+    log.removeAfter(7);
+    log.close();
+    log.open();
+    assertEquals(log.firstIndex().longValue(), 1);
+    assertEquals(log.lastIndex().longValue(), 7);
+    assertFalse(log.containsIndex(8));
+    for (long index = 1; index <= 7; index++) {
+      assertBytesEqual(log.getEntry(index), index);
+    }
+    assertEquals(log.appendEntry(Bytes.of(8)), 8);
+  }
+
+  /**
+   * Tests that flushes are grouped when group commit is enabled.
+   */
+  public void testGroupCommit() throws Throwable {
+    log.close();
+    String id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withGroupCommit(true)
+      .withGroupCommitInterval(10)
+      .withDirectory(new File(String.format("target/test-logs/%s", id)))
+      .getLogManager(id);
+    log.open();
+
+    CompletableFuture<Long> first = log.flush(log.appendEntry(Bytes.of(1)));
+    CompletableFuture<Long> second = log.flush(log.appendEntry(Bytes.of(2)));
+    assertEquals(second.get(5, TimeUnit.SECONDS).longValue(), 2);
+    assertTrue(first.isDone());
+    assertEquals(first.get().longValue(), 1);
+    assertTrue(log.flush(1).isDone());
+
+    CompletableFuture<Long> third = log.flush(log.appendEntry(Bytes.of(3)));
+    log.close();
+    assertEquals(third.get(5, TimeUnit.SECONDS).longValue(), 3);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), 3);
+  }
+
+  /**
+   * Tests that recently appended entries are served from the entry cache.
+   */
+  public void testEntryCache() throws Throwable {
+    log.close();
+    String id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withCacheSize(entrySize() * 5)
+      .withDirectory(new File(String.format("target/test-logs/%s", id)))
+      .getLogManager(id);
+    log.open();
+
+    appendEntries(10);
+    for (long index = 6; index <= 10; index++) {
+      assertBytesEqual(log.getEntry(index), index);
+      assertBytesEqual(log.getEntry(index), index);
+    }
+    assertEquals(log.cacheHits(), 10);
+    assertEquals(log.cacheMisses(), 0);
+
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(log.cacheMisses(), 1);
+
+    log.removeAfter(8);
+    assertEquals(log.appendEntry(Bytes.of(99)), 9);
+    assertBytesEqual(log.getEntry(9), 99);
+    assertEquals(log.cacheHits(), 11);
+  }
+
+  /**
+   * Tests that the term index is rebuilt when the log is reopened.
+   */
+  public void testReopenRebuildsTermIndex() throws Throwable {
+    long[] terms = new long[]{1, 1, 1, 2, 2, 4, 4, 4, 4, 4, 7, 8, 8, 8, 8, 8, 8, 8, 8, 9};
+    for (long term : terms) {
+      log.appendEntry(termEntry(term));
+    }
+    log.close();
+    log.open();
+    for (int i = 0; i < terms.length; i++) {
+      assertEquals(log.termAt(i + 1).longValue(), terms[i]);
+    }
+  }
+
   @AfterTest
   protected void cleanLogDir() throws IOException {
     Path directory = Paths.get("target/test-logs/");
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+/**
+ * File snapshot store test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
+  private File directory;
+  private String name;
+
+  @Override
+  protected SnapshotStore createStore() {
+    name = UUID.randomUUID().toString();
+    directory = new File(String.format("target/test-logs/%s", name));
+    return new FileLog().withDirectory(directory).getSnapshotStore(name);
+  }
+
+  /**
+   * Tests that the most recent completed snapshot is recovered when the store is reopened.
+   */
+  public void testReopenRecoversSnapshot() throws Throwable {
+    writeSnapshot(10, 2, 100, 30);
+    writeSnapshot(20, 3, 50, 50);
+    store.close();
+    store.open();
+    Snapshot snapshot = store.currentSnapshot();
+    assertNotNull(snapshot);
+    assertEquals(snapshot.index(), 20);
+    assertEquals(snapshot.term(), 3);
+    assertEquals(snapshot.read(0, 100), bytes(0, 50));
+    assertEquals(directory.listFiles().length, 1);
+  }
+
+  /**
+   * Tests that a snapshot that was not completed is discarded when the store is reopened.
+   */
+  public void testReopenDiscardsIncompleteSnapshot() throws Throwable {
+    writeSnapshot(10, 2, 100, 30);
+    SnapshotWriter writer = store.createSnapshot(20, 3);
+    writer.write(bytes(0, 50));
+    store.close();
+    store.open();
+    assertEquals(store.currentSnapshot().index(), 10);
+    assertEquals(directory.listFiles().length, 1);
+    writer.close();
+  }
+
+  /**
+   * Tests that stores whose names share a prefix don't load or delete each other's snapshots.
+   */
+  public void testStoresWithSharedPrefix() throws Throwable {
+    SnapshotStore other = new FileLog().withDirectory(directory).getSnapshotStore(name + "-2");
+    other.open();
+    SnapshotWriter writer = other.createSnapshot(30, 1);
+    writer.write(bytes(0, 10));
+    writer.complete();
+
+    // Completing a snapshot deletes the store's older snapshots but not the other store's snapshot.
+    writeSnapshot(10, 2, 100, 30);
+    writeSnapshot(20, 3, 50, 50);
+    assertEquals(directory.listFiles().length, 2);
+
+    store.close();
+    store.open();
+    assertEquals(store.currentSnapshot().index(), 20);
+
+    store.delete();
+    assertEquals(directory.listFiles().length, 1);
+    other.close();
+    other.open();
+    assertEquals(other.currentSnapshot().index(), 30);
+    assertEquals(other.currentSnapshot().read(0, 100), bytes(0, 10));
+    other.close();
+  }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Bytes;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Shared file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class SharedFileLogTest extends AbstractLogTest {
+
+  /**
+   * Creates a shared log for the given resource in the given directory. The segment size is large enough that the
+   * journal is not checkpointed by the test.
+   */
+  private AbstractLogManager createLog(String directory, String name, boolean groupCommit) {
+    return createLog(directory, name, groupCommit, 1024 * 1024);
+  }
+
+  /**
+   * Creates a shared log for the given resource in the given directory.
+   */
+  private AbstractLogManager createLog(String directory, String name, boolean groupCommit, int segmentSize) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withShared(true)
+      .withGroupCommit(groupCommit)
+      .withDirectory(new File(directory))
+      .getLogManager(name);
+  }
+
+  /**
+   * Returns a new log directory. Journals are configured by the first log opened in a directory, so tests that
+   * configure logs differently than the test log use their own directory.
+   */
+  private static String newDirectory() {
+    return String.format("target/test-logs/%s", UUID.randomUUID().toString());
+  }
+
+  /**
+   * Copies the log directory as it would be found after a crash, truncating the given resource's first segment to
+   * simulate entries that were not flushed to the resource's segments.
+   */
+  private static String crash(String directory, String name) throws IOException {
+    Path source = Paths.get(directory);
+    Path target = Paths.get(newDirectory());
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        Files.createDirectories(target.resolve(source.relativize(dir)));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.copy(file, target.resolve(source.relativize(file)));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    File segment = target.resolve(String.format("%s-1.log", name)).toFile();
+    if (segment.exists()) {
+      try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+        file.setLength(0);
+      }
+    }
+    return target.toString();
+  }
+
+  /**
+   * Tests that entries that were not flushed to the log's segments are recovered from the journal.
+   */
+  public void testRecoverEntriesFromJournal() throws Throwable {
+    String directory = newDirectory();
+    String name = UUID.randomUUID().toString();
+    AbstractLogManager log = createLog(directory, name, false);
+    log.open();
+    try {
+      appendEntries(log, 1, 5);
+      log.flush();
+      String crashed = crash(directory, name);
+
+      AbstractLogManager recovered = createLog(crashed, name, false);
+      recovered.open();
+      try {
+        assertEquals(recovered.firstIndex().longValue(), 1);
+        assertEquals(recovered.lastIndex().longValue(), 5);
+        for (long index = 1; index <= 5; index++) {
+          assertBytesEqual(recovered.getEntry(index), index);
+        }
+      } finally {
+        recovered.close();
+      }
+    } finally {
+      log.close();
+      log.delete();
+    }
+  }
+
+  /**
+   * Tests that removed entries are not recovered from the journal.
+   */
+  public void testRecoverRemovedEntriesFromJournal() throws Throwable {
+    String directory = newDirectory();
+    String name = UUID.randomUUID().toString();
+    AbstractLogManager log = createLog(directory, name, false);
+    log.open();
+    try {
+      appendEntries(log, 1, 5);
+      log.removeAfter(3);
+      log.appendEntry(Bytes.of(40));
+      log.flush();
+      String crashed = crash(directory, name);
+
+      AbstractLogManager recovered = createLog(crashed, name, false);
+      recovered.open();
+      try {
+        assertEquals(recovered.lastIndex().longValue(), 4);
+        assertBytesEqual(recovered.getEntry(3), 3);
+        assertBytesEqual(recovered.getEntry(4), 40);
+      } finally {
+        recovered.close();
+      }
+    } finally {
+      log.close();
+      log.delete();
+    }
+  }
+
+  /**
+   * Tests that logs in the same directory share a journal with a single group commit.
+   */
+  public void testSharedGroupCommit() throws Throwable {
+    String directory = newDirectory();
+    String name1 = UUID.randomUUID().toString();
+    String name2 = UUID.randomUUID().toString();
+    AbstractLogManager log1 = createLog(directory, name1, true);
+    AbstractLogManager log2 = createLog(directory, name2, true);
+    log1.open();
+    log2.open();
+    try {
+      CompletableFuture<Long> first = log1.flush(log1.appendEntry(Bytes.of(1)));
+      CompletableFuture<Long> second = log2.flush(log2.appendEntry(Bytes.of(2)));
+      assertEquals(second.get(5, TimeUnit.SECONDS).longValue(), 1);
+      assertEquals(first.get(5, TimeUnit.SECONDS).longValue(), 1);
+      assertTrue(log1.flush(1).isDone());
+
+      String crashed = crash(directory, name1);
+      try (RandomAccessFile file = new RandomAccessFile(new File(crashed, String.format("%s-1.log", name2)), "rw")) {
+        file.setLength(0);
+      }
+      AbstractLogManager recovered1 = createLog(crashed, name1, true);
+      AbstractLogManager recovered2 = createLog(crashed, name2, true);
+      recovered1.open();
+      recovered2.open();
+      try {
+        assertBytesEqual(recovered1.getEntry(1), 1);
+        assertBytesEqual(recovered2.getEntry(1), 2);
+      } finally {
+        recovered1.close();
+        recovered2.close();
+      }
+    } finally {
+      log1.close();
+      log2.close();
+      log1.delete();
+      log2.delete();
+    }
+  }
+
+  /**
+   * Tests that entries of a deleted log are not recovered from the journal.
+   */
+  public void testDeletedEntriesAreNotRecovered() throws Throwable {
+    String directory = newDirectory();
+    String name = UUID.randomUUID().toString();
+    AbstractLogManager log = createLog(directory, name, false);
+    log.open();
+    try {
+      appendEntries(log, 1, 5);
+      log.delete();
+      String crashed = crash(directory, name);
+
+      AbstractLogManager recovered = createLog(crashed, name, false);
+      recovered.open();
+      try {
+        assertTrue(recovered.isEmpty());
+      } finally {
+        recovered.close();
+      }
+    } finally {
+      log.close();
+    }
+  }
+
+  /**
+   * Tests that deleting a log that was never reopened releases the journal segments retained for its records.
+   */
+  public void testDeletedLogDoesNotRetainJournal() throws Throwable {
+    String directory = newDirectory();
+    String name = UUID.randomUUID().toString();
+    AbstractLogManager log = createLog(directory, name, false);
+    log.open();
+    String crashed;
+    try {
+      appendEntries(log, 1, 5);
+      log.flush();
+      crashed = crash(directory, name);
+    } finally {
+      log.close();
+      log.delete();
+    }
+
+    File segment = new File(crashed, "journal/journal-1.log");
+    assertTrue(segment.exists());
+    createLog(crashed, name, false).delete();
+    assertFalse(segment.exists());
+  }
+
+  /**
+   * Tests that entries are readable after the journal has been checkpointed and reopened.
+   */
+  public void testCheckpointedEntriesAreRetained() throws Throwable {
+    String directory = newDirectory();
+    String name = UUID.randomUUID().toString();
+    AbstractLogManager log = createLog(directory, name, true, segmentSize);
+    log.open();
+    try {
+      for (int i = 1; i <= 50; i++) {
+        log.flush(log.appendEntry(Bytes.of(i))).get(5, TimeUnit.SECONDS);
+      }
+      log.close();
+      log.open();
+      assertEquals(log.lastIndex().longValue(), 50);
+      for (long index = 1; index <= 50; index++) {
+        assertBytesEqual(log.getEntry(index), index);
+      }
+    } finally {
+      log.close();
+      log.delete();
+    }
+  }
+
+  /**
+   * Appends a range of numbered entries to the given log.
+   */
+  private static void appendEntries(AbstractLogManager log, int start, int end) throws IOException {
+    for (int i = start; i <= end; i++) {
+      log.appendEntry(Bytes.of(i));
+    }
+  }
+
+  @AfterTest
+  protected void cleanLogDir() throws IOException {
+    Path directory = Paths.get("target/test-logs/");
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Override
+  protected AbstractLogManager createLog() throws Throwable {
+    return createLog(newDirectory(), UUID.randomUUID().toString(), false, segmentSize);
+  }
+
+}
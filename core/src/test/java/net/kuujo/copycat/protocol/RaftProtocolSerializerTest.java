@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.protocol;
+
+import net.kuujo.copycat.raft.protocol.*;
+import net.kuujo.copycat.util.serializer.SerializationException;
+import net.kuujo.copycat.util.serializer.Serializer;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.*;
+
+/**
+ * Raft protocol serializer test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class RaftProtocolSerializerTest {
+  private final Serializer serializer = new RaftProtocolSerializer();
+
+  /**
+   * Serializes and deserializes a message.
+   */
+  private <T> T roundTrip(Object message) {
+    return serializer.readObject(serializer.writeObject(message));
+  }
+
+  /**
+   * Tests that an append request is serialized with its entries.
+   */
+  public void testAppendRequest() {
+    AppendRequest request = AppendRequest.builder()
+      .withUri("foo")
+      .withTerm(3)
+      .withLeader("bar")
+      .withLogIndex(200L)
+      .withLogTerm(2L)
+      .withEntries(ByteBuffer.wrap("Hello".getBytes()), ByteBuffer.wrap("world!".getBytes()))
+      .withFirstIndex(true)
+      .withCommitIndex(150L)
+      .build();
+    assertEquals(roundTrip(request), request);
+  }
+
+  /**
+   * Tests that missing optional fields of a heartbeat are serialized as missing.
+   */
+  public void testHeartbeat() {
+    AppendRequest request = roundTrip(AppendRequest.builder()
+      .withUri("foo")
+      .withTerm(1)
+      .withLeader("bar")
+      .withEntries(Collections.emptyList())
+      .build());
+    assertEquals(request.uri(), "foo");
+    assertEquals(request.term(), 1);
+    assertEquals(request.leader(), "bar");
+    assertNull(request.logIndex());
+    assertNull(request.logTerm());
+    assertNull(request.commitIndex());
+    assertTrue(request.entries().isEmpty());
+    assertFalse(request.firstIndex());
+  }
+
+  /**
+   * Tests that entries are read as slices of the message buffer.
+   */
+  public void testEntriesAreNotCopied() {
+    ByteBuffer buffer = serializer.writeObject(AppendRequest.builder()
+      .withUri("foo")
+      .withTerm(1)
+      .withLeader("bar")
+      .withEntries(ByteBuffer.wrap("Hello world!".getBytes()))
+      .build());
+    AppendRequest request = serializer.readObject(buffer);
+    ByteBuffer entry = request.entries().get(0);
+    assertEquals(entry.position(), 0);
+    assertEquals(entry.limit(), 12);
+    assertSame(entry.array(), buffer.array());
+  }
+
+  /**
+   * Tests that an append response is serialized with its conflict.
+   */
+  public void testAppendResponse() {
+    AppendResponse response = AppendResponse.builder()
+      .withUri("foo")
+      .withTerm(2)
+      .withSucceeded(false)
+      .withLogIndex(100L)
+      .withConflict(1L, 50L)
+      .build();
+    assertEquals(roundTrip(response), response);
+  }
+
+  /**
+   * Tests that a sync request is serialized with its members.
+   */
+  public void testSyncRequest() {
+    SyncRequest request = roundTrip(SyncRequest.builder()
+      .withUri("foo")
+      .withTerm(1)
+      .withLeader("bar")
+      .withLogIndex(10L)
+      .withEntries(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withMembers(Arrays.asList(new ReplicaInfo("foo", 2, 10L), new ReplicaInfo("bar")))
+      .build());
+    assertEquals(request.term(), 1);
+    assertEquals(request.leader(), "bar");
+    assertEquals(request.logIndex().longValue(), 10);
+    assertEquals(request.entries().get(0), ByteBuffer.wrap("Hello world!".getBytes()));
+    assertEquals(request.members().size(), 2);
+    ReplicaInfo member = request.members().iterator().next();
+    assertEquals(member.getUri(), "foo");
+    assertEquals(member.getVersion(), 2);
+    assertEquals(member.getIndex().longValue(), 10);
+  }
+
+  /**
+   * Tests that a vote request is serialized.
+   */
+  public void testVoteRequest() {
+    VoteRequest request = VoteRequest.builder()
+      .withUri("foo")
+      .withTerm(5)
+      .withCandidate("bar")
+      .withLogIndex(1000000000000L)
+      .withLogTerm(4L)
+      .build();
+    assertEquals(roundTrip(request), request);
+  }
+
+  /**
+   * Tests that a query request is serialized with its consistency.
+   */
+  public void testQueryRequest() {
+    QueryRequest request = roundTrip(QueryRequest.builder()
+      .withUri("foo")
+      .withEntry(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withConsistency(Consistency.LEASE)
+      .build());
+    assertEquals(request.entry(), ByteBuffer.wrap("Hello world!".getBytes()));
+    assertEquals(request.consistency(), Consistency.LEASE);
+    assertNull(request.index());
+  }
+
+  /**
+   * Tests that consistency levels are encoded with stable codes regardless of their order in the enum.
+   */
+  public void testConsistencyCodes() {
+    Consistency[] consistencies = new Consistency[]{Consistency.WEAK, Consistency.DEFAULT, Consistency.BOUNDED, Consistency.LEASE, Consistency.STRONG};
+    for (int i = 0; i < consistencies.length; i++) {
+      ByteBuffer buffer = writeQuery(consistencies[i]);
+      assertEquals(buffer.get(buffer.limit() - 2), i + 1);
+      QueryRequest request = serializer.readObject(buffer);
+      assertEquals(request.consistency(), consistencies[i]);
+    }
+  }
+
+  /**
+   * Tests that unknown consistency codes are rejected.
+   */
+  public void testUnknownConsistencyFails() {
+    for (byte code : new byte[]{-1, 6}) {
+      ByteBuffer buffer = writeQuery(Consistency.STRONG);
+      buffer.put(buffer.limit() - 2, code);
+      try {
+        serializer.readObject(buffer);
+        fail();
+      } catch (SerializationException e) {
+        assertFalse(e.getCause() instanceof IndexOutOfBoundsException);
+      }
+    }
+  }
+
+  /**
+   * Writes a query request without a minimum index, in which case the consistency level is the second to last byte.
+   */
+  private ByteBuffer writeQuery(Consistency consistency) {
+    return serializer.writeObject(QueryRequest.builder()
+      .withUri("foo")
+      .withEntry(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withConsistency(consistency)
+      .build());
+  }
+
+  /**
+   * Tests that a response status is serialized.
+   */
+  public void testResponseStatus() {
+    QueryResponse response = roundTrip(QueryResponse.builder()
+      .withUri("foo")
+      .withStatus(Response.Status.ERROR)
+      .build());
+    assertEquals(response.status(), Response.Status.ERROR);
+    assertNull(response.result());
+    assertNull(response.error());
+  }
+
+  /**
+   * Tests that messages of an unknown version are rejected.
+   */
+  @Test(expectedExceptions = SerializationException.class)
+  public void testUnknownVersionFails() {
+    ByteBuffer buffer = serializer.writeObject(ReadIndexRequest.builder().withUri("foo").build());
+    buffer.put(0, (byte) 2);
+    serializer.readObject(buffer);
+  }
+
+}
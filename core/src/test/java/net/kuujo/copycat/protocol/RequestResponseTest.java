@@ -130,6 +130,17 @@ public class RequestResponseTest {
     assertEquals(new String(response.result().array()), "Hello world!");
   }
 
+  /**
+   * Tests that the commit response builder sets the commit index.
+   */
+  public void testCommitResponseBuilderSucceedsWithIndex() {
+    CommitResponse response = CommitResponse.builder()
+      .withUri("foo")
+      .withIndex(10L)
+      .build();
+    assertEquals(response.index(), Long.valueOf(10));
+  }
+
   /**
    * Tests that the append request builder when not configured.
    */
@@ -435,6 +446,35 @@ public class RequestResponseTest {
       .build();
   }
 
+  /**
+   * Tests that the append response builder fails with a conflict term and no conflict index.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAppendResponseBuilderFailsWithConflictTermWithoutIndex() {
+    AppendResponse.builder()
+      .withUri("foo")
+      .withTerm(2L)
+      .withSucceeded(false)
+      .withLogIndex(4L)
+      .withConflict(1L, null)
+      .build();
+  }
+
+  /**
+   * Tests that the append response builder sets the conflict term and index.
+   */
+  public void testAppendResponseBuilderSucceedsWithConflict() {
+    AppendResponse response = AppendResponse.builder()
+      .withUri("foo")
+      .withTerm(2L)
+      .withSucceeded(false)
+      .withLogIndex(4L)
+      .withConflict(1L, 3L)
+      .build();
+    assertEquals(response.conflictTerm().longValue(), 1);
+    assertEquals(response.conflictIndex().longValue(), 3);
+  }
+
   /**
    * Tests that the append response builder fails with an invalid index.
    */
@@ -992,6 +1032,26 @@ public class RequestResponseTest {
     assertEquals(request.consistency(), Consistency.STRONG);
   }
 
+  /**
+   * Tests that the query request builder fails with an invalid minimum index.
+   */
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testQueryRequestBuilderFailsWithInvalidIndex() {
+    QueryRequest.builder().withIndex(0L).build();
+  }
+
+  /**
+   * Tests that the query request builder sets the minimum index.
+   */
+  public void testQueryRequestBuilderSucceedsWithIndex() {
+    QueryRequest request = QueryRequest.builder()
+      .withUri("foo")
+      .withEntry(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withIndex(10L)
+      .build();
+    assertEquals(request.index(), Long.valueOf(10));
+  }
+
   /**
    * Tests that the query response builder fails without being properly configured.
    */
@@ -1040,4 +1100,140 @@ public class RequestResponseTest {
     assertEquals(new String(response.result().array()), "Hello world!");
   }
 
+  /**
+   * Tests that the read index request builder fails without a configured member.
+   */
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testReadIndexRequestBuilderFailsWithoutMember() {
+    ReadIndexRequest.builder().build();
+  }
+
+  /**
+   * Tests that the read index request builder fails when a null consistency is provided.
+   */
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testReadIndexRequestBuilderFailsWithNullConsistency() {
+    ReadIndexRequest.builder().withConsistency(null).build();
+  }
+
+  /**
+   * Tests that the read index request builder succeeds when properly configured.
+   */
+  public void testReadIndexRequestBuilderSucceedsWithValidConfiguration() {
+    ReadIndexRequest request = ReadIndexRequest.builder()
+      .withUri("foo")
+      .withConsistency(Consistency.LEASE)
+      .build();
+    assertEquals(request.uri(), "foo");
+    assertEquals(request.consistency(), Consistency.LEASE);
+  }
+
+  /**
+   * Tests that the read index response builder fails without a member.
+   */
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testReadIndexResponseBuilderFailsWithoutMember() {
+    ReadIndexResponse.builder().withTerm(1).withIndex(1).build();
+  }
+
+  /**
+   * Tests that the read index response builder fails with an invalid index.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testReadIndexResponseBuilderFailsWithInvalidIndex() {
+    ReadIndexResponse.builder().withUri("foo").withIndex(-1).build();
+  }
+
+  /**
+   * Tests that the read index response builder succeeds with a valid configuration.
+   */
+  public void testReadIndexResponseBuilderSucceedsWithValidConfiguration() {
+    ReadIndexResponse response = ReadIndexResponse.builder()
+      .withUri("foo")
+      .withTerm(2)
+      .withIndex(10)
+      .build();
+    assertEquals(response.uri(), "foo");
+    assertEquals(response.term(), 2);
+    assertEquals(response.index(), 10);
+  }
+
+  /**
+   * Tests that the install snapshot request builder fails without a leader.
+   */
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testInstallSnapshotRequestBuilderFailsWithoutLeader() {
+    InstallSnapshotRequest.builder()
+      .withUri("foo")
+      .withTerm(1)
+      .withIndex(10)
+      .withSnapshotTerm(1)
+      .withData(ByteBuffer.allocate(0))
+      .build();
+  }
+
+  /**
+   * Tests that the install snapshot request builder fails with an invalid index.
+   */
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testInstallSnapshotRequestBuilderFailsWithInvalidIndex() {
+    InstallSnapshotRequest.builder().withIndex(0);
+  }
+
+  /**
+   * Tests that the install snapshot request builder fails with a negative offset.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInstallSnapshotRequestBuilderFailsWithNegativeOffset() {
+    InstallSnapshotRequest.builder().withOffset(-1);
+  }
+
+  /**
+   * Tests that the install snapshot request builder succeeds when properly configured.
+   */
+  public void testInstallSnapshotRequestBuilderSucceedsWithValidConfiguration() {
+    InstallSnapshotRequest request = InstallSnapshotRequest.builder()
+      .withUri("foo")
+      .withTerm(2)
+      .withLeader("bar")
+      .withIndex(10)
+      .withSnapshotTerm(1)
+      .withOffset(1024)
+      .withData(ByteBuffer.allocate(10))
+      .withComplete(true)
+      .build();
+    assertEquals(request.uri(), "foo");
+    assertEquals(request.term(), 2);
+    assertEquals(request.leader(), "bar");
+    assertEquals(request.index(), 10);
+    assertEquals(request.snapshotTerm(), 1);
+    assertEquals(request.offset(), 1024);
+    assertEquals(request.data().remaining(), 10);
+    assertTrue(request.complete());
+  }
+
+  /**
+   * Tests that the install snapshot response builder fails with a negative offset.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInstallSnapshotResponseBuilderFailsWithNegativeOffset() {
+    InstallSnapshotResponse.builder().withUri("foo").withOffset(-1).build();
+  }
+
+  /**
+   * Tests that the install snapshot response builder succeeds with a valid configuration.
+   */
+  public void testInstallSnapshotResponseBuilderSucceedsWithValidConfiguration() {
+    InstallSnapshotResponse response = InstallSnapshotResponse.builder()
+      .withUri("foo")
+      .withTerm(2)
+      .withSucceeded(true)
+      .withOffset(2048)
+      .build();
+    assertEquals(response.uri(), "foo");
+    assertEquals(response.term(), 2);
+    assertTrue(response.succeeded());
+    assertEquals(response.offset(), 2048);
+  }
+
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft;
+
+import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.raft.protocol.*;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Follower state test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class FollowerStateTest {
+  private static final String FOLLOWER = "local://a";
+  private static final String LEADER = "local://b";
+  private ScheduledExecutorService executor;
+  private RaftContext context;
+  private BlockingQueue<QueryRequest> forwardedQueries;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    forwardedQueries = new LinkedBlockingQueue<>();
+    context = new RaftContext("test", FOLLOWER, new RaftConfig()
+      .withReplicas(FOLLOWER, LEADER, "local://c")
+      .withElectionTimeout(1, TimeUnit.MINUTES)
+      .withHeartbeatInterval(10, TimeUnit.SECONDS)
+      .withApplyQueueSize(1)
+      .withLog(new BufferedLog()), executor);
+    context.queryHandler(request -> {
+      forwardedQueries.add(request);
+      return CompletableFuture.completedFuture(QueryResponse.builder()
+        .withUri(request.uri())
+        .withResult(ByteBuffer.wrap("leader".getBytes()))
+        .build());
+    });
+    context.consumer((term, index, entry) -> entry);
+
+    // The context is opened once it hears from a leader, which replicates and commits a single entry.
+    CompletableFuture<Void> openFuture = context.open();
+    executor.submit(() -> {}).get();
+    ByteBuffer entry = ByteBuffer.allocate(11);
+    entry.putLong(1).put("foo".getBytes()).flip();
+    AppendResponse response = context.append(AppendRequest.builder()
+      .withUri(FOLLOWER)
+      .withTerm(1)
+      .withLeader(LEADER)
+      .withEntries(entry)
+      .withFirstIndex(true)
+      .withCommitIndex(1L)
+      .build()).get(5, TimeUnit.SECONDS);
+    assertEquals(response.succeeded(), true);
+    openFuture.get(5, TimeUnit.SECONDS);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    context.close().get(5, TimeUnit.SECONDS);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Submits a query to the follower.
+   */
+  private QueryResponse query(Consistency consistency, Long index) throws Exception {
+    return context.query(QueryRequest.builder()
+      .withUri(FOLLOWER)
+      .withEntry(ByteBuffer.wrap("bar".getBytes()))
+      .withConsistency(consistency)
+      .withIndex(index)
+      .build()).get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that a weak query is applied locally once the follower has applied the query's minimum index.
+   */
+  public void testWeakQueryAppliedLocally() throws Exception {
+    QueryResponse response = query(Consistency.WEAK, 1L);
+    assertEquals(response.status(), Response.Status.OK);
+    assertEquals(response.result(), ByteBuffer.wrap("bar".getBytes()));
+    assertEquals(forwardedQueries.size(), 0);
+  }
+
+  /**
+   * Tests that a weak query is forwarded to the leader rather than waiting for the follower to catch up to the
+   * query's minimum index.
+   */
+  public void testWeakQueryBehindMinimumIndexForwarded() throws Exception {
+    QueryResponse response = query(Consistency.WEAK, 5L);
+    assertEquals(response.status(), Response.Status.OK);
+    assertEquals(response.result(), ByteBuffer.wrap("leader".getBytes()));
+    QueryRequest request = forwardedQueries.poll();
+    assertEquals(request.uri(), LEADER);
+    assertEquals(request.index().longValue(), 5);
+  }
+
+  /**
+   * Tests that a slow state machine doesn't block the follower from handling requests once the apply queue is full,
+   * and that the last applied index is only advanced once the state machine has applied entries.
+   */
+  public void testSlowStateMachineDoesNotBlockRequests() throws Exception {
+    awaitLastApplied(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    context.consumer((term, index, entry) -> {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return entry;
+    });
+
+    try {
+      List<ByteBuffer> entries = new ArrayList<>();
+      for (int i = 2; i <= 1000; i++) {
+        ByteBuffer entry = ByteBuffer.allocate(12);
+        entry.putLong(1).putInt(i).flip();
+        entries.add(entry);
+      }
+      assertEquals(append(1L, entries, 1000L).succeeded(), true);
+      assertEquals(executor.submit(context::getLastApplied).get().longValue(), 1);
+      assertEquals(executor.submit(context::getQueuedIndex).get().longValue(), 257);
+
+      // Heartbeats are still handled while the state machine is blocked.
+      assertEquals(append(1000L, new ArrayList<>(), 1000L).succeeded(), true);
+      assertEquals(executor.submit(context::getLastApplied).get().longValue(), 1);
+    } finally {
+      latch.countDown();
+    }
+
+    awaitLastApplied(1000);
+  }
+
+  /**
+   * Waits for the state machine to apply entries up to the given index.
+   */
+  private void awaitLastApplied(long index) throws Exception {
+    long timeout = System.currentTimeMillis() + 5000;
+    Long lastApplied = executor.submit(context::getLastApplied).get();
+    while ((lastApplied == null || lastApplied < index) && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+      lastApplied = executor.submit(context::getLastApplied).get();
+    }
+    assertEquals(lastApplied, Long.valueOf(index));
+  }
+
+  /**
+   * Tests that a large range of committed entries is decoded ahead of the state machine and applied in order.
+   */
+  public void testLargeCommitReplayedInOrder() throws Exception {
+    awaitLastApplied(1);
+    List<Long> applied = new CopyOnWriteArrayList<>();
+    List<Object> decoded = new CopyOnWriteArrayList<>();
+    context.decoder(entry -> entry.getInt(0));
+    context.consumer((term, index, entry) -> {
+      applied.add(index);
+      decoded.add(context.decodedEntry(index));
+      return entry;
+    });
+
+    List<ByteBuffer> entries = new ArrayList<>();
+    for (int i = 2; i <= 3000; i++) {
+      ByteBuffer entry = ByteBuffer.allocate(12);
+      entry.putLong(1).putInt(i).flip();
+      entries.add(entry);
+    }
+    assertEquals(append(1L, entries, 3000L).succeeded(), true);
+    awaitLastApplied(3000);
+
+    assertEquals(applied.size(), 2999);
+    for (int i = 0; i < applied.size(); i++) {
+      assertEquals(applied.get(i).longValue(), i + 2);
+      assertEquals(decoded.get(i), i + 2);
+    }
+  }
+
+  /**
+   * Sends an append request from the leader to the follower.
+   */
+  private AppendResponse append(Long logIndex, List<ByteBuffer> entries, Long commitIndex) throws Exception {
+    return context.append(AppendRequest.builder()
+      .withUri(FOLLOWER)
+      .withTerm(1)
+      .withLeader(LEADER)
+      .withLogIndex(logIndex)
+      .withLogTerm(1L)
+      .withEntries(entries)
+      .withCommitIndex(commitIndex)
+      .build()).get(5, TimeUnit.SECONDS);
+  }
+
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.raft;
+
+import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.raft.protocol.*;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Leader state test.
+ *
+ * The leader replicates to two replicas. Append requests to the first replica are answered by the test, which keeps
+ * the replica's log, and requests to the second replica are never answered.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class LeaderStateTest {
+  private static final String LEADER = "local://a";
+  private static final String REPLICA = "local://b";
+  private static final String UNAVAILABLE_REPLICA = "local://c";
+  private ScheduledExecutorService executor;
+  private RaftContext context;
+  private BlockingQueue<Append> appends;
+  private BlockingQueue<AppendRequest> heartbeats;
+  private List<Long> replicaLog;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    appends = new LinkedBlockingQueue<>();
+    heartbeats = new LinkedBlockingQueue<>();
+    replicaLog = new ArrayList<>();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (context != null) {
+      context.close().get(5, TimeUnit.SECONDS);
+      context = null;
+    }
+    executor.shutdownNow();
+  }
+
+  /**
+   * Opens a context that is elected leader. The heartbeat interval is long enough that heartbeats are only sent
+   * when the test triggers them.
+   */
+  private RaftContext openLeader(RaftConfig config) throws Exception {
+    return openLeader(config, TimeUnit.DAYS.toMillis(1));
+  }
+
+  /**
+   * Opens a context that is elected leader. Idle heartbeats to the replica are acknowledged as soon as they're sent.
+   */
+  private RaftContext openLeader(RaftConfig config, long heartbeatInterval) throws Exception {
+    context = new RaftContext("test", LEADER, config
+      .withReplicas(LEADER, REPLICA, UNAVAILABLE_REPLICA)
+      .withElectionTimeout(100)
+      .withHeartbeatInterval(heartbeatInterval)
+      .withLog(new BufferedLog()), executor);
+    context.pollHandler(request -> CompletableFuture.completedFuture(PollResponse.builder()
+      .withUri(request.uri())
+      .withTerm(request.term())
+      .withAccepted(true)
+      .build()));
+    context.voteHandler(request -> CompletableFuture.completedFuture(VoteResponse.builder()
+      .withUri(request.uri())
+      .withTerm(request.term())
+      .withVoted(true)
+      .build()));
+    context.appendHandler(request -> {
+      CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+      if (request.uri().equals(REPLICA)) {
+        appends.add(new Append(request, future));
+      }
+      return future;
+    });
+    context.heartbeatHandler(request -> {
+      if (request.uri().equals(REPLICA)) {
+        heartbeats.add(request);
+        return CompletableFuture.completedFuture(AppendResponse.builder()
+          .withUri(REPLICA)
+          .withTerm(request.term())
+          .withSucceeded(true)
+          .build());
+      }
+      return new CompletableFuture<>();
+    });
+    context.consumer((term, index, entry) -> entry);
+    context.open().get(5, TimeUnit.SECONDS);
+    assertEquals(context.getLeader(), LEADER);
+    return context;
+  }
+
+  /**
+   * Submits an entry to the leader.
+   */
+  private CompletableFuture<CommitResponse> commit(String entry) {
+    return context.commit(CommitRequest.builder()
+      .withUri(LEADER)
+      .withEntry(ByteBuffer.wrap(entry.getBytes()))
+      .build());
+  }
+
+  /**
+   * Submits an entry and answers append requests until it has been committed.
+   */
+  private void commitAndSync(String entry) throws Exception {
+    CompletableFuture<CommitResponse> future = commit(entry);
+    sync();
+    assertEquals(future.get(5, TimeUnit.SECONDS).status(), Response.Status.OK);
+  }
+
+  /**
+   * Returns the next append request sent to the replica.
+   */
+  private Append next() throws InterruptedException {
+    Append append = appends.poll(5, TimeUnit.SECONDS);
+    assertNotNull(append);
+    return append;
+  }
+
+  /**
+   * Asserts that no append request is sent to the replica.
+   */
+  private void assertNoAppend() throws InterruptedException {
+    assertNull(appends.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Answers append requests until no more requests are sent.
+   */
+  private void sync() throws InterruptedException {
+    Append append;
+    while ((append = appends.poll(200, TimeUnit.MILLISECONDS)) != null) {
+      respond(append);
+    }
+  }
+
+  /**
+   * Answers an append request as the replica would, appending the request's entries if the replica's log contains
+   * the previous entry.
+   */
+  private void respond(Append append) {
+    AppendRequest request = append.request;
+    long prevIndex = request.logIndex() != null ? request.logIndex() : 0;
+    boolean succeeded = prevIndex <= replicaLog.size();
+    if (succeeded) {
+      for (int i = 0; i < request.entries().size(); i++) {
+        int index = (int) prevIndex + i;
+        if (index < replicaLog.size()) {
+          replicaLog.set(index, request.term());
+        } else {
+          replicaLog.add(request.term());
+        }
+      }
+    }
+    append.future.complete(AppendResponse.builder()
+      .withUri(REPLICA)
+      .withTerm(request.term())
+      .withSucceeded(succeeded)
+      .withLogIndex(replicaLog.isEmpty() ? null : (long) replicaLog.size())
+      .build());
+  }
+
+  /**
+   * Tests that append requests are pipelined up to the replication window.
+   */
+  public void testPipelineBoundedByReplicationWindow() throws Exception {
+    openLeader(new RaftConfig().withReplicationWindow(2).withReplicationBatchSize(1));
+    sync();
+    commitAndSync("foo");
+
+    List<CompletableFuture<CommitResponse>> futures = new ArrayList<>();
+    for (String entry : new String[]{"bar", "baz", "foo", "bar"}) {
+      futures.add(commit(entry));
+    }
+
+    // Two requests are sent before either is acknowledged, and the remaining entries wait for the window.
+    Append first = next();
+    Append second = next();
+    assertNoAppend();
+    assertEquals(first.request.logIndex().longValue(), 1);
+    assertEquals(first.request.entries().size(), 1);
+    assertEquals(second.request.logIndex().longValue(), 2);
+    assertEquals(second.request.entries().size(), 1);
+
+    // Acknowledging a request frees a slot for the next entry.
+    respond(first);
+    Append third = next();
+    assertNoAppend();
+    assertEquals(third.request.logIndex().longValue(), 3);
+
+    respond(second);
+    respond(third);
+    sync();
+    for (CompletableFuture<CommitResponse> future : futures) {
+      assertEquals(future.get(5, TimeUnit.SECONDS).status(), Response.Status.OK);
+    }
+    assertEquals(replicaLog.size(), 5);
+  }
+
+  /**
+   * Tests that the pipeline is restarted from the replica's log when a request is rejected.
+   */
+  public void testPipelineResetAfterRejection() throws Exception {
+    openLeader(new RaftConfig().withReplicationWindow(2).withReplicationBatchSize(1));
+    sync();
+    commitAndSync("foo");
+
+    CompletableFuture<CommitResponse> future1 = commit("bar");
+    CompletableFuture<CommitResponse> future2 = commit("baz");
+    Append first = next();
+    Append second = next();
+
+    // The replica rejects the first request, so entries are resent from the end of the replica's log.
+    first.future.complete(AppendResponse.builder()
+      .withUri(REPLICA)
+      .withTerm(first.request.term())
+      .withSucceeded(false)
+      .withLogIndex(1L)
+      .build());
+    Append third = next();
+    assertNoAppend();
+    assertEquals(third.request.logIndex().longValue(), 1);
+
+    // The request pipelined behind the rejected request is rejected as well, which does not reset the pipeline again.
+    respond(second);
+    Append fourth = next();
+    assertNoAppend();
+    assertEquals(fourth.request.logIndex().longValue(), 2);
+
+    respond(third);
+    respond(fourth);
+    assertEquals(future1.get(5, TimeUnit.SECONDS).index().longValue(), 2);
+    assertEquals(future2.get(5, TimeUnit.SECONDS).index().longValue(), 3);
+    assertEquals(replicaLog.size(), 3);
+  }
+
+  /**
+   * Tests that the pipeline is restarted from the match index when a request fails.
+   */
+  public void testPipelineResetAfterFailure() throws Exception {
+    openLeader(new RaftConfig().withReplicationWindow(2).withReplicationBatchSize(1));
+    sync();
+    commitAndSync("foo");
+
+    CompletableFuture<CommitResponse> future1 = commit("bar");
+    CompletableFuture<CommitResponse> future2 = commit("baz");
+    Append first = next();
+    Append second = next();
+
+    // The first request fails, so the replica never receives the second request's previous entry.
+    first.future.completeExceptionally(new CopycatException("request timed out"));
+    respond(second);
+    Append third = next();
+    Append fourth = next();
+    assertNoAppend();
+    assertEquals(third.request.logIndex().longValue(), 1);
+    assertEquals(fourth.request.logIndex().longValue(), 2);
+
+    respond(third);
+    respond(fourth);
+    assertEquals(future1.get(5, TimeUnit.SECONDS).index().longValue(), 2);
+    assertEquals(future2.get(5, TimeUnit.SECONDS).index().longValue(), 3);
+    assertEquals(replicaLog.size(), 3);
+  }
+
+  /**
+   * Tests that each entry in a batched commit is completed with its own result or error.
+   */
+  public void testBatchedCommitCompletesEachEntry() throws Exception {
+    List<Integer> batches = new CopyOnWriteArrayList<>();
+    openLeader(new RaftConfig().withCommitBatchCount(3).withCommitBatchDelay(1, TimeUnit.MINUTES));
+    context.batchConsumer(batch -> {
+      batches.add(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        byte[] bytes = new byte[batch.entry(i).remaining()];
+        batch.entry(i).duplicate().get(bytes);
+        String entry = new String(bytes);
+        if (entry.equals("foo")) {
+          batch.complete(i, ByteBuffer.wrap("FOO".getBytes()));
+        } else if (entry.equals("bar")) {
+          batch.fail(i, new IllegalArgumentException("bar"));
+        }
+      }
+    });
+    sync();
+
+    CompletableFuture<CommitResponse> future1 = commit("foo");
+    CompletableFuture<CommitResponse> future2 = commit("bar");
+    CompletableFuture<CommitResponse> future3 = commit("baz");
+    sync();
+
+    CommitResponse response1 = future1.get(5, TimeUnit.SECONDS);
+    assertEquals(response1.status(), Response.Status.OK);
+    assertEquals(response1.result(), ByteBuffer.wrap("FOO".getBytes()));
+    assertEquals(response1.index().longValue(), 1);
+
+    CommitResponse response2 = future2.get(5, TimeUnit.SECONDS);
+    assertEquals(response2.status(), Response.Status.ERROR);
+    assertTrue(response2.error() instanceof IllegalArgumentException);
+
+    // Entries that the batch consumer doesn't complete are failed.
+    CommitResponse response3 = future3.get(5, TimeUnit.SECONDS);
+    assertEquals(response3.status(), Response.Status.ERROR);
+    assertTrue(response3.error() instanceof IllegalStateException);
+
+    assertEquals(batches.size(), 1);
+    assertEquals(batches.get(0).intValue(), 3);
+  }
+
+  /**
+   * Tests that a heartbeat round started while the replication window is full is completed once a slot is freed.
+   */
+  public void testHeartbeatWithFullReplicationWindow() throws Exception {
+    openLeader(new RaftConfig().withReplicationWindow(1));
+    sync();
+    commitAndSync("foo");
+
+    CompletableFuture<CommitResponse> commitFuture = commit("bar");
+    Append first = next();
+
+    // The window is full, so the query's heartbeat round can't be sent yet.
+    CompletableFuture<QueryResponse> queryFuture = context.query(QueryRequest.builder()
+      .withUri(LEADER)
+      .withEntry(ByteBuffer.wrap("baz".getBytes()))
+      .withConsistency(Consistency.STRONG)
+      .build());
+    assertNoAppend();
+
+    // The in-flight request was sent before the round started and doesn't confirm leadership, so once it's
+    // acknowledged a heartbeat is sent in its place.
+    respond(first);
+    assertEquals(commitFuture.get(5, TimeUnit.SECONDS).status(), Response.Status.OK);
+    assertFalse(queryFuture.isDone());
+    Append second = next();
+    assertTrue(second.request.entries().isEmpty());
+
+    respond(second);
+    QueryResponse response = queryFuture.get(5, TimeUnit.SECONDS);
+    assertEquals(response.status(), Response.Status.OK);
+    assertEquals(response.result(), ByteBuffer.wrap("baz".getBytes()));
+  }
+
+  /**
+   * Tests that idle heartbeats are sent with the heartbeat handler and heartbeats for reads with the append handler.
+   */
+  public void testReadsAreNotSentAsIdleHeartbeats() throws Exception {
+    openLeader(new RaftConfig(), 50);
+    sync();
+
+    AppendRequest heartbeat = heartbeats.poll(5, TimeUnit.SECONDS);
+    assertNotNull(heartbeat);
+    assertTrue(heartbeat.entries().isEmpty());
+
+    CompletableFuture<QueryResponse> queryFuture = context.query(QueryRequest.builder()
+      .withUri(LEADER)
+      .withEntry(ByteBuffer.wrap("foo".getBytes()))
+      .withConsistency(Consistency.STRONG)
+      .build());
+    Append append = next();
+    assertTrue(append.request.entries().isEmpty());
+    respond(append);
+    assertEquals(queryFuture.get(5, TimeUnit.SECONDS).status(), Response.Status.OK);
+  }
+
+  /**
+   * Append request sent to the replica.
+   */
+  private static class Append {
+    private final AppendRequest request;
+    private final CompletableFuture<AppendResponse> future;
+
+    private Append(AppendRequest request, CompletableFuture<AppendResponse> future) {
+      this.request = request;
+      this.future = future;
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.util.concurrent;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.testng.Assert.*;
+
+/**
+ * Event loop group test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class EventLoopGroupTest {
+  private EventLoopGroup group;
+
+  @BeforeMethod
+  protected void beforeMethod() {
+    group = new EventLoopGroup(2, "test-event-loop-%d");
+  }
+
+  @AfterMethod
+  protected void afterMethod() {
+    group.shutdown();
+  }
+
+  /**
+   * Tests that loops are assigned round robin.
+   */
+  public void testNextAssignsLoopsRoundRobin() {
+    ScheduledExecutorService loop1 = group.next();
+    ScheduledExecutorService loop2 = group.next();
+    assertNotSame(loop1, loop2);
+    assertSame(group.next(), loop1);
+    assertSame(group.next(), loop2);
+  }
+
+  /**
+   * Tests that all tasks submitted to a loop run on the same thread.
+   */
+  public void testLoopRunsTasksOnSingleThread() throws Exception {
+    ScheduledExecutorService loop = group.next();
+    Set<Thread> threads = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      threads.add(loop.submit(Thread::currentThread).get());
+    }
+    assertEquals(threads.size(), 1);
+    assertNotEquals(group.next().submit(Thread::currentThread).get(), threads.iterator().next());
+  }
+
+  /**
+   * Tests that an empty group cannot be created.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testGroupFailsWithoutLoops() {
+    new EventLoopGroup(0, "test-event-loop-%d");
+  }
+
+}
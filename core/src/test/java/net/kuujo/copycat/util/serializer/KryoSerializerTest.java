@@ -20,6 +20,7 @@ import static org.testng.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -90,4 +91,43 @@ public class KryoSerializerTest {
     threads.forEach(t -> t.start());
     waiter.await(5000, 10);
   }
+
+  /**
+   * Tests that objects larger than the initial output buffer are serialized.
+   */
+  public void testSerializeLargeObject() {
+    Serializer serializer = new KryoSerializer();
+    byte[] bytes = new byte[1024 * 128];
+    Arrays.fill(bytes, (byte) 1);
+    assertTrue(Arrays.equals(serializer.readObject(serializer.writeObject(bytes)), bytes));
+    assertEquals(serializer.readObject(serializer.writeObject("foo")), "foo");
+  }
+
+  /**
+   * Tests that classes registered after the serializer has been used are registered with pooled instances.
+   */
+  public void testRegisterAfterSerializing() {
+    KryoSerializer serializer = new KryoSerializer();
+    assertEquals(serializer.readObject(serializer.writeObject("foo")), "foo");
+    int size = new KryoSerializer().writeObject(new TestObject("foo")).remaining();
+    serializer.register(TestObject.class, 1000);
+    ByteBuffer buffer = serializer.writeObject(new TestObject("foo"));
+    assertTrue(buffer.remaining() < size);
+    TestObject object = serializer.readObject(buffer);
+    assertEquals(object.value, "foo");
+  }
+
+  /**
+   * Test object.
+   */
+  public static class TestObject {
+    private String value;
+
+    public TestObject() {
+    }
+
+    public TestObject(String value) {
+      this.value = value;
+    }
+  }
 }
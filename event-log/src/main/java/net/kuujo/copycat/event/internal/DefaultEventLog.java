@@ -19,12 +19,15 @@ import net.kuujo.copycat.EventListener;
 import net.kuujo.copycat.event.EventLog;
 import net.kuujo.copycat.event.EventLogConfig;
 import net.kuujo.copycat.log.LogSegment;
+import net.kuujo.copycat.raft.EntryBatch;
 import net.kuujo.copycat.resource.internal.AbstractResource;
 import net.kuujo.copycat.resource.internal.ResourceManager;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
@@ -38,11 +41,11 @@ import java.util.concurrent.TimeUnit;
 public class DefaultEventLog<T> extends AbstractResource<EventLog<T>> implements EventLog<T> {
   private EventListener<T> consumer;
   private ScheduledFuture<?> retentionFuture;
-  private Long commitIndex;
+  private volatile Long commitIndex;
 
   public DefaultEventLog(ResourceManager context) {
     super(context);
-    context.consumer(this::consume);
+    context.batchConsumer(this::consume);
   }
 
   @Override
@@ -76,18 +79,30 @@ public class DefaultEventLog<T> extends AbstractResource<EventLog<T>> implements
   }
 
   /**
-   * Handles a log write.
+   * Handles a batch of log writes.<p>
+   *
+   * Entries in the batch are passed to the event consumer in a single task on the event log executor.
    */
-  private ByteBuffer consume(long term, Long index, ByteBuffer entry) {
-    ByteBuffer result = ByteBuffer.allocateDirect(8);
-    result.putLong(index);
-    if (consumer != null) {
-      T value = serializer.readObject(entry);
-      executor.execute(() -> consumer.accept(value));
+  private void consume(EntryBatch batch) {
+    EventListener<T> consumer = this.consumer;
+    List<T> values = consumer != null ? new ArrayList<>(batch.size()) : null;
+    for (int i = 0; i < batch.size(); i++) {
+      try {
+        if (values != null) {
+          values.add(serializer.readObject(batch.entry(i)));
+        }
+        ByteBuffer result = ByteBuffer.allocate(8);
+        result.putLong(batch.index(i));
+        result.flip();
+        batch.complete(i, result);
+      } catch (Exception e) {
+        batch.fail(i, e);
+      }
+    }
+    if (values != null && !values.isEmpty()) {
+      executor.execute(() -> values.forEach(consumer::accept));
     }
-    commitIndex = index;
-    result.flip();
-    return result;
+    commitIndex = batch.lastIndex();
   }
 
   /**
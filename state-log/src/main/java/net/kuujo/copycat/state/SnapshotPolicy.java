@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+import com.typesafe.config.ConfigValueFactory;
+import net.kuujo.copycat.util.AbstractConfigurable;
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State log snapshot policy.<p>
+ *
+ * The snapshot policy determines when the state log takes a snapshot and compacts its log. A snapshot is taken when
+ * any of the configured triggers fires: once a number of entries or bytes have been applied since the last snapshot,
+ * once an interval has elapsed since the last snapshot, or once the log has grown to a multiple of the size of the
+ * last snapshot. Triggers are checked as entries are applied and a trigger set to {@code 0} is disabled. If no
+ * trigger is enabled, snapshots are taken each time a log segment is completed.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SnapshotPolicy extends AbstractConfigurable {
+  private static final String SNAPSHOT_ENTRIES = "entries";
+  private static final String SNAPSHOT_SIZE = "size";
+  private static final String SNAPSHOT_INTERVAL = "interval";
+  private static final String SNAPSHOT_RATIO = "ratio";
+
+  public SnapshotPolicy() {
+    super(new HashMap<>(4));
+  }
+
+  public SnapshotPolicy(Map<String, Object> config) {
+    super(config);
+  }
+
+  protected SnapshotPolicy(SnapshotPolicy policy) {
+    super(policy);
+  }
+
+  @Override
+  public SnapshotPolicy copy() {
+    return new SnapshotPolicy(this);
+  }
+
+  /**
+   * Sets the number of entries after which to take a snapshot.
+   *
+   * @param entries The number of entries applied since the last snapshot after which to take a snapshot, or
+   *                {@code 0} to disable the trigger.
+   * @throws java.lang.IllegalArgumentException If the number of entries is negative
+   */
+  public void setEntries(long entries) {
+    this.config = config.withValue(SNAPSHOT_ENTRIES, ConfigValueFactory.fromAnyRef(Assert.arg(entries, entries >= 0, "entries must not be negative")));
+  }
+
+  /**
+   * Returns the number of entries after which to take a snapshot.
+   *
+   * @return The number of entries applied since the last snapshot after which to take a snapshot.
+   */
+  public long getEntries() {
+    return config.hasPath(SNAPSHOT_ENTRIES) ? config.getLong(SNAPSHOT_ENTRIES) : 0;
+  }
+
+  /**
+   * Sets the number of entries after which to take a snapshot, returning the policy for method chaining.
+   *
+   * @param entries The number of entries applied since the last snapshot after which to take a snapshot, or
+   *                {@code 0} to disable the trigger.
+   * @return The snapshot policy.
+   * @throws java.lang.IllegalArgumentException If the number of entries is negative
+   */
+  public SnapshotPolicy withEntries(long entries) {
+    setEntries(entries);
+    return this;
+  }
+
+  /**
+   * Sets the number of bytes after which to take a snapshot.
+   *
+   * @param size The number of entry bytes applied since the last snapshot after which to take a snapshot, or
+   *             {@code 0} to disable the trigger.
+   * @throws java.lang.IllegalArgumentException If the size is negative
+   */
+  public void setSize(long size) {
+    this.config = config.withValue(SNAPSHOT_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(size, size >= 0, "size must not be negative")));
+  }
+
+  /**
+   * Returns the number of bytes after which to take a snapshot.
+   *
+   * @return The number of entry bytes applied since the last snapshot after which to take a snapshot.
+   */
+  public long getSize() {
+    return config.hasPath(SNAPSHOT_SIZE) ? config.getLong(SNAPSHOT_SIZE) : 0;
+  }
+
+  /**
+   * Sets the number of bytes after which to take a snapshot, returning the policy for method chaining.
+   *
+   * @param size The number of entry bytes applied since the last snapshot after which to take a snapshot, or
+   *             {@code 0} to disable the trigger.
+   * @return The snapshot policy.
+   * @throws java.lang.IllegalArgumentException If the size is negative
+   */
+  public SnapshotPolicy withSize(long size) {
+    setSize(size);
+    return this;
+  }
+
+  /**
+   * Sets the interval after which to take a snapshot.
+   *
+   * @param interval The interval in milliseconds since the last snapshot after which to take a snapshot, or
+   *                 {@code 0} to disable the trigger.
+   * @throws java.lang.IllegalArgumentException If the interval is negative
+   */
+  public void setInterval(long interval) {
+    this.config = config.withValue(SNAPSHOT_INTERVAL, ConfigValueFactory.fromAnyRef(Assert.arg(interval, interval >= 0, "interval must not be negative")));
+  }
+
+  /**
+   * Returns the interval after which to take a snapshot.
+   *
+   * @return The interval in milliseconds since the last snapshot after which to take a snapshot.
+   */
+  public long getInterval() {
+    return config.hasPath(SNAPSHOT_INTERVAL) ? config.getLong(SNAPSHOT_INTERVAL) : 0;
+  }
+
+  /**
+   * Sets the interval after which to take a snapshot, returning the policy for method chaining.
+   *
+   * @param interval The interval in milliseconds since the last snapshot after which to take a snapshot, or
+   *                 {@code 0} to disable the trigger.
+   * @return The snapshot policy.
+   * @throws java.lang.IllegalArgumentException If the interval is negative
+   */
+  public SnapshotPolicy withInterval(long interval) {
+    setInterval(interval);
+    return this;
+  }
+
+  /**
+   * Sets the ratio of log size to snapshot size after which to take a snapshot.<p>
+   *
+   * The size of the last snapshot is used as an estimate of the size of the state. The trigger only fires once a
+   * snapshot would allow at least one log segment to be compacted.
+   *
+   * @param ratio The ratio of log size to snapshot size after which to take a snapshot, or {@code 0} to disable
+   *              the trigger.
+   * @throws java.lang.IllegalArgumentException If the ratio is negative
+   */
+  public void setRatio(double ratio) {
+    this.config = config.withValue(SNAPSHOT_RATIO, ConfigValueFactory.fromAnyRef(Assert.arg(ratio, ratio >= 0, "ratio must not be negative")));
+  }
+
+  /**
+   * Returns the ratio of log size to snapshot size after which to take a snapshot.
+   *
+   * @return The ratio of log size to snapshot size after which to take a snapshot.
+   */
+  public double getRatio() {
+    return config.hasPath(SNAPSHOT_RATIO) ? config.getDouble(SNAPSHOT_RATIO) : 0;
+  }
+
+  /**
+   * Sets the ratio of log size to snapshot size after which to take a snapshot, returning the policy for method
+   * chaining.
+   *
+   * @param ratio The ratio of log size to snapshot size after which to take a snapshot, or {@code 0} to disable
+   *              the trigger.
+   * @return The snapshot policy.
+   * @throws java.lang.IllegalArgumentException If the ratio is negative
+   */
+  public SnapshotPolicy withRatio(double ratio) {
+    setRatio(ratio);
+    return this;
+  }
+
+  /**
+   * Returns a boolean indicating whether any snapshot trigger is enabled.
+   *
+   * @return Indicates whether any snapshot trigger is enabled.
+   */
+  public boolean isEnabled() {
+    return getEntries() > 0 || getSize() > 0 || getInterval() > 0 || getRatio() > 0;
+  }
+
+}
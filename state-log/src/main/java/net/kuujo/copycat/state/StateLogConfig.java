@@ -33,6 +33,7 @@ import java.util.Map;
  */
 public class StateLogConfig extends ResourceConfig<StateLogConfig> {
   private static final String STATE_LOG_CONSISTENCY = "consistency";
+  private static final String STATE_LOG_SNAPSHOT = "snapshot";
 
   private static final String DEFAULT_CONFIGURATION = "event-log-defaults";
   private static final String CONFIGURATION = "event-log";
@@ -120,6 +121,37 @@ public class StateLogConfig extends ResourceConfig<StateLogConfig> {
     return this;
   }
 
+  /**
+   * Sets the state log snapshot policy.
+   *
+   * @param policy The state log snapshot policy.
+   * @throws java.lang.NullPointerException If the policy is {@code null}
+   */
+  public void setSnapshotPolicy(SnapshotPolicy policy) {
+    this.config = config.withValue(STATE_LOG_SNAPSHOT, ConfigValueFactory.fromMap(Assert.isNotNull(policy, "policy").toMap()));
+  }
+
+  /**
+   * Returns the state log snapshot policy.
+   *
+   * @return The state log snapshot policy.
+   */
+  public SnapshotPolicy getSnapshotPolicy() {
+    return config.hasPath(STATE_LOG_SNAPSHOT) ? new SnapshotPolicy(config.getObject(STATE_LOG_SNAPSHOT).unwrapped()) : new SnapshotPolicy();
+  }
+
+  /**
+   * Sets the state log snapshot policy, returning the configuration for method chaining.
+   *
+   * @param policy The state log snapshot policy.
+   * @return The state log configuration.
+   * @throws java.lang.NullPointerException If the policy is {@code null}
+   */
+  public StateLogConfig withSnapshotPolicy(SnapshotPolicy policy) {
+    setSnapshotPolicy(policy);
+    return this;
+  }
+
   @Override
   public CoordinatedResourceConfig resolve(ClusterConfig cluster) {
     Assert.config(getReplicas(), getReplicas().isEmpty() || cluster.getMembers().containsAll(getReplicas()), "Resource replica set must contain only active cluster members");
@@ -16,24 +16,31 @@
 package net.kuujo.copycat.state.internal;
 
 import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.log.Snapshot;
+import net.kuujo.copycat.log.SnapshotWriter;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.raft.EntryBatch;
 import net.kuujo.copycat.resource.internal.AbstractResource;
 import net.kuujo.copycat.resource.internal.ResourceManager;
+import net.kuujo.copycat.state.SnapshotPolicy;
 import net.kuujo.copycat.state.StateLog;
 import net.kuujo.copycat.state.StateLogConfig;
 import net.kuujo.copycat.util.concurrent.Futures;
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.internal.Assert;
+import net.kuujo.copycat.util.serializer.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -46,26 +53,45 @@ import java.util.function.Supplier;
 @SuppressWarnings("rawtypes")
 public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements StateLog<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStateLog.class);
-  private static final int SNAPSHOT_ENTRY = 0;
   private static final int COMMAND_ENTRY = 1;
   private static final int SNAPSHOT_CHUNK_SIZE = 1024 * 1024;
-  private static final int SNAPSHOT_INFO = 0;
-  private static final int SNAPSHOT_CHUNK = 1;
   private final Map<Integer, OperationInfo> operations = new ConcurrentHashMap<>(128);
   private final Consistency defaultConsistency;
+  private final boolean snapshotPolicyEnabled;
+  private final long snapshotEntries;
+  private final long snapshotSize;
+  private final long snapshotInterval;
+  private final double snapshotRatio;
   private final SnapshottableLogManager log;
   private Supplier snapshotter;
   private Consumer installer;
-  private SnapshotInfo snapshotInfo;
-  private List<ByteBuffer> snapshotChunks;
+  private final ThreadLocal<Serializer> decodeSerializer = ThreadLocal.withInitial(() -> serializer.copy());
+  private Serializer snapshotSerializer;
+  private volatile ExecutorService snapshotExecutor;
+  private volatile boolean snapshotting;
+  private volatile boolean snapshotCheckScheduled;
+  private volatile long appliedIndex;
+  private volatile long appliedTerm;
+  private volatile long snapshotIndex;
+  private long snapshotTime = System.currentTimeMillis();
+  private long snapshotBytes;
+  private volatile long stateSize;
 
   public DefaultStateLog(ResourceManager context) {
     super(context);
     this.log = (SnapshottableLogManager) context.log();
-    defaultConsistency = context.config()
-      .<StateLogConfig>getResourceConfig()
-      .getDefaultConsistency();
+    StateLogConfig config = context.config().getResourceConfig();
+    defaultConsistency = config.getDefaultConsistency();
+    SnapshotPolicy snapshotPolicy = config.getSnapshotPolicy();
+    snapshotPolicyEnabled = snapshotPolicy.isEnabled();
+    snapshotEntries = snapshotPolicy.getEntries();
+    snapshotSize = snapshotPolicy.getSize();
+    snapshotInterval = snapshotPolicy.getInterval();
+    snapshotRatio = snapshotPolicy.getRatio();
     context.consumer(this::consume);
+    context.batchConsumer(this::consume);
+    context.decoder(this::decode);
+    context.installer(this::installSnapshot);
   }
 
   @Override
@@ -171,6 +197,12 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
 
   @Override
   public synchronized CompletableFuture<StateLog<T>> open() {
+    // Snapshots are serialized with a separate serializer so that serializing a large snapshot doesn't block
+    // serialization of commands on the context thread.
+    if (snapshotExecutor == null) {
+      snapshotSerializer = serializer.copy();
+      snapshotExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-" + context.name() + "-snapshot-%d"));
+    }
     return runStartupTasks()
       .thenComposeAsync(v -> context.open(), executor)
       .thenApply(v -> this);
@@ -178,29 +210,120 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
 
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return context.close()
+    return takeFinalSnapshot()
+      .thenCompose(v -> context.close())
+      .thenRun(this::closeSnapshotExecutor)
       .thenComposeAsync(v -> runShutdownTasks(), executor);
   }
 
   /**
-   * Consumes a log entry.
+   * Takes a snapshot of all applied entries before the log is closed.<p>
+   *
+   * Snapshots are persisted along with the index and term of the last entry they include, so taking a snapshot when
+   * the log is closed ensures that no applied entries have to be replayed when the log is reopened.
+   */
+  private CompletableFuture<Void> takeFinalSnapshot() {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Executor applyExecutor;
+    try {
+      applyExecutor = context.applyExecutor();
+    } catch (IllegalStateException e) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // The snapshot is captured on the apply thread once all queued entries have been applied.
+    applyExecutor.execute(() -> {
+      ExecutorService executor = snapshotExecutor;
+      if (executor == null || snapshotter == null || !context.isOpen() || appliedIndex <= snapshotIndex) {
+        future.complete(null);
+        return;
+      }
+
+      long index = appliedIndex;
+      long term = appliedTerm;
+      LOGGER.info("{} - Taking snapshot at index {}", context.name(), index);
+      Object snapshot = snapshotter.get();
+      try {
+        executor.execute(() -> {
+          try {
+            writeSnapshot(term, index, snapshot);
+            snapshotIndex = index;
+          } catch (Exception e) {
+            LOGGER.warn("{} - Failed to take snapshot at index {}: {}", context.name(), index, e.getMessage());
+          } finally {
+            future.complete(null);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        future.complete(null);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Shuts down the snapshot executor, allowing any snapshot that's being written to complete.
+   */
+  private synchronized void closeSnapshotExecutor() {
+    if (snapshotExecutor != null) {
+      snapshotExecutor.shutdown();
+      snapshotExecutor = null;
+    }
+  }
+
+  /**
+   * Consumes a query entry.
    *
    * @param index The entry index.
    * @param entry The log entry.
    * @return The entry output.
    */
-  @SuppressWarnings({"unchecked"})
   private ByteBuffer consume(long term, Long index, ByteBuffer entry) {
+    return execute(entry, null);
+  }
+
+  /**
+   * Consumes a batch of committed command entries.<p>
+   *
+   * Commands that fail only fail their own entry. The snapshot policy is checked once the whole batch has been
+   * applied, and the applied index is only updated between batches since snapshots are only ever captured on the
+   * apply thread.
+   *
+   * @param batch The batch of entries.
+   */
+  private void consume(EntryBatch batch) {
+    for (int i = 0; i < batch.size(); i++) {
+      ByteBuffer entry = batch.entry(i);
+      snapshotBytes += entry.limit();
+      try {
+        batch.complete(i, execute(entry, batch.decodedEntry(i)));
+      } catch (Exception e) {
+        batch.fail(i, e);
+      }
+    }
+    if (!batch.isEmpty()) {
+      appliedTerm = batch.term(batch.size() - 1);
+      appliedIndex = batch.lastIndex();
+      checkSnapshot(appliedTerm, appliedIndex);
+    }
+  }
+
+  /**
+   * Executes a command entry.
+   *
+   * @param entry The log entry.
+   * @param decoded The decoded command argument or {@code null} if the entry has not been decoded.
+   * @return The command output.
+   */
+  @SuppressWarnings({"unchecked"})
+  private ByteBuffer execute(ByteBuffer entry, Object decoded) {
     int entryType = entry.getInt();
     switch (entryType) {
-      case SNAPSHOT_ENTRY: // Snapshot entry
-        installSnapshot(entry.slice());
-        return ByteBuffer.allocate(0);
       case COMMAND_ENTRY: // Command entry
         int commandCode = entry.getInt();
         OperationInfo operationInfo = operations.get(commandCode);
         if (operationInfo != null) {
-          return serializer.writeObject(operationInfo.execute(term, index, serializer.readObject(entry.slice())));
+          return serializer.writeObject(operationInfo.execute(decoded != null ? decoded : serializer.readObject(entry.slice())));
         }
         throw new IllegalStateException("Invalid state log operation");
       default:
@@ -209,170 +332,224 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
   }
 
   /**
-   * Checks whether to take a snapshot.
+   * Decodes the argument of a command entry that is being replayed.<p>
+   *
+   * Replayed entries are decoded in parallel on replay threads, so each thread decodes entries with its own copy of
+   * the serializer.
+   */
+  private Object decode(ByteBuffer entry) {
+    if (entry.getInt() == COMMAND_ENTRY) {
+      entry.getInt();
+      return decodeSerializer.get().readObject(entry.slice());
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether to take a snapshot.<p>
+   *
+   * This method is called on the apply thread. Triggers that depend upon the state of the log are checked on the
+   * context thread since the log may only be read there.
    */
   private void checkSnapshot(long term, long index) {
-    // If the given index is the last index of a lot segment and the segment is not the last segment in the log
-    // then the index is considered snapshottable.
-    if (log.isSnapshottable(index)) {
+    // Only one snapshot is written at a time, so if a snapshot is still being written the index is skipped and the
+    // snapshot policy is checked again once the next entry has been applied.
+    if (snapshotting) {
+      return;
+    } else if (isSnapshotRequired(index)) {
       takeSnapshot(term, index);
+    } else if ((!snapshotPolicyEnabled || snapshotRatio > 0) && !snapshotCheckScheduled) {
+      snapshotCheckScheduled = true;
+      context.execute(this::checkLogSnapshot);
     }
   }
 
   /**
-   * Takes a snapshot and compacts the log.
+   * Returns a boolean indicating whether the snapshot policy requires a snapshot at the given index.
    */
-  private void takeSnapshot(long term, long index) {
-    String id = UUID.randomUUID().toString();
-    LOGGER.info("{} - Taking snapshot {}", context.name(), id);
+  private boolean isSnapshotRequired(long index) {
+    if (!snapshotPolicyEnabled || index <= snapshotIndex) {
+      return false;
+    } else if (snapshotEntries > 0 && index - snapshotIndex >= snapshotEntries) {
+      return true;
+    } else if (snapshotSize > 0 && snapshotBytes >= snapshotSize) {
+      return true;
+    } else if (snapshotInterval > 0 && System.currentTimeMillis() - snapshotTime >= snapshotInterval) {
+      return true;
+    }
+    return false;
+  }
 
-    Object snapshot = snapshotter != null ? snapshotter.get() : null;
-    ByteBuffer snapshotBuffer = snapshot != null ? serializer.writeObject(snapshot) : ByteBuffer.allocate(0);
-
-    // Create a unique snapshot ID and calculate the number of chunks for the snapshot.
-    LOGGER.debug("{} - Calculating snapshot chunk size for snapshot {}", context.name(), id);
-    byte[] snapshotId = id.getBytes();
-    int numChunks = (int) Math.ceil(snapshotBuffer.limit() / (double) SNAPSHOT_CHUNK_SIZE);
-
-    LOGGER.debug("{} - Creating {} chunks for snapshot {}", context.name(), numChunks, id);
-    List<ByteBuffer> chunks = new ArrayList<>(numChunks + 1);
-
-    // The first entry in the snapshot is snapshot metadata.
-    ByteBuffer info = ByteBuffer.allocate(28 + snapshotId.length);
-    info.putLong(term);
-    info.putInt(SNAPSHOT_ENTRY);
-    info.putInt(SNAPSHOT_INFO);
-    info.putInt(snapshotId.length);
-    info.put(snapshotId);
-    info.putInt(snapshotBuffer.limit());
-    info.putInt(numChunks);
-    chunks.add(info);
-
-    // Now we append a list of snapshot chunks. This ensures that snapshots can be easily replicated in chunks.
-    int i = 0;
-    int position = 0;
-    while (position < snapshotBuffer.limit()) {
-      byte[] bytes = new byte[Math.min(snapshotBuffer.limit() - position, SNAPSHOT_CHUNK_SIZE)];
-      snapshotBuffer.get(bytes);
-      ByteBuffer chunk = ByteBuffer.allocate(24 + bytes.length);
-      chunk.putLong(term);
-      chunk.putInt(SNAPSHOT_ENTRY); // Indicates the entry is a snapshot entry.
-      chunk.putInt(SNAPSHOT_CHUNK);
-      chunk.putInt(i++); // The position of the chunk in the snapshot.
-      chunk.putInt(bytes.length); // The snapshot chunk length.
-      chunk.put(bytes); // The snapshot chunk bytes.
-      chunk.flip();
-      chunks.add(chunk);
-      position += bytes.length;
+  /**
+   * Checks the snapshot triggers that depend upon the state of the log on the context thread.<p>
+   *
+   * If no snapshot trigger is configured then a snapshot is taken as soon as one would allow another segment to be
+   * compacted from the log. If a size ratio is configured then a snapshot is taken once such a snapshot is possible
+   * and the log has grown to the configured ratio of the state size. In either case the snapshot is taken on the
+   * apply thread at the last applied index.
+   */
+  private void checkLogSnapshot() {
+    snapshotCheckScheduled = false;
+    long index = appliedIndex;
+    if (snapshotting || index <= snapshotIndex || !log.isOpen()) {
+      return;
+    }
+
+    // A snapshot is only useful if it allows the log to be compacted beyond the point allowed by the last snapshot.
+    Long compactIndex = compactIndex(index);
+    if (compactIndex == null || compactIndex <= snapshotIndex + 1) {
+      return;
+    } else if (snapshotPolicyEnabled && (stateSize == 0 || log.size() < snapshotRatio * stateSize)) {
+      return;
     }
 
     try {
-      LOGGER.debug("{} - Appending {} chunks for snapshot {} at index {}", context.name(), chunks.size(), id, index);
-      log.appendSnapshot(index, chunks);
-    } catch (IOException e) {
-      throw new CopycatException("Failed to compact state log", e);
+      context.applyExecutor().execute(() -> {
+        if (!snapshotting && appliedIndex > snapshotIndex) {
+          takeSnapshot(appliedTerm, appliedIndex);
+        }
+      });
+    } catch (IllegalStateException | RejectedExecutionException e) {
+      // The context is closing, in which case a final snapshot is taken once all entries have been applied.
+      LOGGER.debug("{} - Skipping snapshot at index {}: {}", context.name(), index, e.getMessage());
     }
   }
 
   /**
-   * Installs a snapshot.
+   * Returns the index at which the log can be compacted once a snapshot has been taken at the given index.<p>
    *
-   * This method operates on the assumption that snapshots will always be replicated with an initial metadata entry.
-   * The metadata entry specifies a set of chunks that complete the entire snapshot.
+   * Logs are compacted a segment at a time, so the log can be compacted up to the first index of the last segment
+   * that begins after the snapshot index.
+   *
+   * @return The compaction index or {@code null} if a snapshot at the given index would not allow any segments to
+   *         be compacted.
    */
-  @SuppressWarnings("unchecked")
-  private void installSnapshot(ByteBuffer snapshotChunk) {
-    // Get the snapshot entry type.
-    int type = snapshotChunk.getInt();
-    if (type == SNAPSHOT_INFO) {
-      // The snapshot info defines the snapshot ID and number of chunks. When a snapshot info entry is processed,
-      // reset the current snapshot chunks and store the snapshot info. The next entries to be applied should be the
-      // snapshot chunks themselves.
-      int idLength = snapshotChunk.getInt();
-      byte[] idBytes = new byte[idLength];
-      snapshotChunk.get(idBytes);
-      String id = new String(idBytes);
-      int size = snapshotChunk.getInt();
-      int numChunks = snapshotChunk.getInt();
-      if (snapshotInfo == null || !snapshotInfo.id.equals(id)) {
-        LOGGER.debug("{} - Processing snapshot metadata for snapshot {}", context.name(), id);
-        snapshotInfo = new SnapshotInfo(id, size, numChunks);
-        snapshotChunks = new ArrayList<>(numChunks);
-      }
-    } else if (type == SNAPSHOT_CHUNK && snapshotInfo != null) {
-      // When a chunk is received, use the chunk's position in the snapshot to ensure consistency. Extract the chunk
-      // bytes and only append the the chunk if it matches the expected position in the local chunks list.
-      int index = snapshotChunk.getInt();
-      int chunkLength = snapshotChunk.getInt();
-      byte[] chunkBytes = new byte[chunkLength];
-      snapshotChunk.get(chunkBytes);
-      if (snapshotChunks.size() == index) {
-        LOGGER.debug("{} - Processing snapshot chunk {} for snapshot {}", context.name(), index, snapshotInfo.id);
-        snapshotChunks.add(ByteBuffer.wrap(chunkBytes));
-
-        // Once the number of chunks has grown to the complete expected chunk count, combine and install the snapshot.
-        if (snapshotChunks.size() == snapshotInfo.chunks) {
-          LOGGER.debug("{} - Completed assembly of snapshot {} from log", context.name(), snapshotInfo.id);
-          if (installer != null) {
-            // Calculate the total aggregated size of the snapshot.
-            int size = 0;
-            for (ByteBuffer chunk : snapshotChunks) {
-              size += chunk.limit();
-            }
-
-            // Make sure the combined snapshot size is equal to the expected snapshot size.
-            Assert.state(size == snapshotInfo.size, "Received inconsistent snapshot");
-
-            LOGGER.debug("{} - Assembled snapshot size: {} bytes", context.name(), size);
-
-            if (size > 0) {
-              // Create a complete view of the snapshot by appending all chunks to each other.
-              ByteBuffer completeSnapshot = ByteBuffer.allocate(size);
-              snapshotChunks.forEach(completeSnapshot::put);
-              completeSnapshot.flip();
-
-              // Once a view of the snapshot has been created, deserialize and install the snapshot.
-              LOGGER.info("{} - Installing snapshot {}", context.name(), snapshotInfo.id);
-
-              try {
-                installer.accept(serializer.readObject(completeSnapshot));
-              } catch (Exception e) {
-                LOGGER.warn("{} - Failed to install snapshot: {}", context.name(), e.getMessage());
-              }
-            }
-          }
-          snapshotInfo = null;
-          snapshotChunks = null;
+  private Long compactIndex(long index) {
+    Long firstIndex = log.firstIndex();
+    Long compactIndex = log.segments().floorKey(index + 1);
+    if (firstIndex != null && compactIndex != null && compactIndex > firstIndex && log.containsIndex(compactIndex)) {
+      return compactIndex;
+    }
+    return null;
+  }
+
+  /**
+   * Takes a snapshot and compacts the log once the snapshot has been written.<p>
+   *
+   * The snapshot is captured on the apply thread, but it's serialized and written to the snapshot store on the
+   * snapshot thread so that commands can continue to be applied in the meantime. For this reason, the snapshotter
+   * must return a point-in-time view of the state that will not be modified by subsequent commands. The log is
+   * compacted back on the context thread once the snapshot has been completed.
+   */
+  private void takeSnapshot(long term, long index) {
+    LOGGER.info("{} - Taking snapshot at index {}", context.name(), index);
+
+    ExecutorService executor = snapshotExecutor;
+    if (executor == null) {
+      return;
+    }
+
+    // The snapshot policy is only reset once the snapshot has been written, so a failed snapshot is retried the next
+    // time the policy is checked.
+    Object snapshot = snapshotter != null ? snapshotter.get() : null;
+    long bytes = snapshotBytes;
+    snapshotting = true;
+    try {
+      executor.execute(() -> {
+        Snapshot completed;
+        try {
+          completed = writeSnapshot(term, index, snapshot);
+        } catch (Exception e) {
+          LOGGER.warn("{} - Failed to take snapshot at index {}: {}", context.name(), index, e.getMessage());
+          snapshotting = false;
+          return;
         }
-      }
+        completeSnapshot(index, bytes);
+        context.execute(() -> compactSnapshot(completed));
+      });
+    } catch (RejectedExecutionException e) {
+      snapshotting = false;
+    }
+  }
+
+  /**
+   * Resets the snapshot policy on the apply thread once a snapshot has been written.
+   */
+  private void completeSnapshot(long index, long bytes) {
+    try {
+      context.applyExecutor().execute(() -> {
+        if (index > snapshotIndex) {
+          snapshotIndex = index;
+          snapshotTime = System.currentTimeMillis();
+          snapshotBytes = Math.max(snapshotBytes - bytes, 0);
+        }
+        snapshotting = false;
+      });
+    } catch (IllegalStateException | RejectedExecutionException e) {
+      snapshotting = false;
     }
   }
 
   /**
-   * Current snapshot info.
+   * Serializes and writes a snapshot to the snapshot store.
    */
-  private static class SnapshotInfo {
-    private final String id;
-    private final int size;
-    private final int chunks;
-
-    private SnapshotInfo(String id, int size, int chunks) {
-      this.id = id;
-      this.size = size;
-      this.chunks = chunks;
+  private Snapshot writeSnapshot(long term, long index, Object snapshot) throws IOException {
+    ByteBuffer snapshotBuffer = snapshot != null ? snapshotSerializer.writeObject(snapshot) : ByteBuffer.allocate(0);
+
+    // Write the snapshot to the snapshot store in chunks. Once the snapshot has been completed it's durable and
+    // replaces all entries up to and including the snapshot index.
+    try (SnapshotWriter writer = context.snapshots().createSnapshot(index, term)) {
+      while (snapshotBuffer.hasRemaining()) {
+        ByteBuffer chunk = snapshotBuffer.duplicate();
+        chunk.limit(Math.min(snapshotBuffer.limit(), snapshotBuffer.position() + SNAPSHOT_CHUNK_SIZE));
+        writer.write(chunk);
+        snapshotBuffer.position(chunk.position());
+      }
+      return writer.complete();
     }
   }
 
   /**
-   * Snapshot chunk.
+   * Compacts the log up to a completed snapshot.
    */
-  private static class SnapshotChunk {
-    private final int index;
-    private final ByteBuffer chunk;
+  private void compactSnapshot(Snapshot snapshot) {
+    // A newer snapshot may have been installed while the snapshot was being written, in which case the log has
+    // already been compacted to the installed snapshot.
+    Snapshot current = context.snapshots().currentSnapshot();
+    if (current == null || current.index() != snapshot.index() || !log.isOpen()) {
+      return;
+    }
+
+    stateSize = snapshot.size();
+    Long index = compactIndex(snapshot.index());
+    if (index != null) {
+      LOGGER.debug("{} - Compacting log at index {}", context.name(), index);
+      try {
+        log.compact(index);
+      } catch (IOException e) {
+        LOGGER.warn("{} - Failed to compact log at index {}: {}", context.name(), index, e.getMessage());
+      }
+    }
+  }
 
-    private SnapshotChunk(int index, ByteBuffer chunk) {
-      this.index = index;
-      this.chunk = chunk;
+  /**
+   * Installs a snapshot.
+   */
+  @SuppressWarnings("unchecked")
+  private void installSnapshot(Snapshot snapshot) {
+    snapshotIndex = snapshot.index();
+    snapshotTime = System.currentTimeMillis();
+    snapshotBytes = 0;
+    stateSize = snapshot.size();
+    if (installer != null && snapshot.size() > 0) {
+      LOGGER.info("{} - Installing snapshot at index {}", context.name(), snapshot.index());
+      // Entries up to the snapshot index are never applied once the snapshot has been installed, so a failure to
+      // install the snapshot must not be ignored.
+      try {
+        installer.accept(serializer.readObject(snapshot.read(0, (int) snapshot.size())));
+      } catch (IOException e) {
+        throw new CopycatException("Failed to install snapshot", e);
+      }
     }
   }
 
@@ -399,9 +576,7 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
       this.consistency = consistency;
     }
 
-    private U execute(long term, Long index, TT entry) {
-      if (index != null)
-        checkSnapshot(term, index);
+    private U execute(TT entry) {
       return function.apply(entry);
     }
   }
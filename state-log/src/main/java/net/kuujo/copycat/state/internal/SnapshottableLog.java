@@ -18,6 +18,7 @@ package net.kuujo.copycat.state.internal;
 import com.typesafe.config.ConfigValueFactory;
 import net.kuujo.copycat.log.Log;
 import net.kuujo.copycat.log.LogManager;
+import net.kuujo.copycat.log.SnapshotStore;
 import net.kuujo.copycat.util.Configurable;
 
 import java.util.Map;
@@ -50,9 +51,13 @@ public class SnapshottableLog extends Log {
   @Override
   public LogManager getLogManager(String name) {
     Log log = Configurable.load(config.getObject("log").unwrapped());
-    LogManager logManager = log.getLogManager(name);
-    return new SnapshottableLogManager(logManager, log.copy()
-      .getLogManager(String.format("%s.snapshot", name)));
+    return new SnapshottableLogManager(log.getLogManager(name));
+  }
+
+  @Override
+  public SnapshotStore getSnapshotStore(String name) {
+    Log log = Configurable.load(config.getObject("log").unwrapped());
+    return log.getSnapshotStore(name);
   }
 
 }
@@ -18,27 +18,27 @@ package net.kuujo.copycat.state.internal;
 import net.kuujo.copycat.log.LogConfig;
 import net.kuujo.copycat.log.LogManager;
 import net.kuujo.copycat.log.LogSegment;
-import net.kuujo.copycat.util.internal.Assert;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Snapshottable log manager.
+ * Snapshottable log manager.<p>
+ *
+ * Snapshots themselves are stored in the resource's {@link net.kuujo.copycat.log.SnapshotStore}. This log manager
+ * delegates to the underlying log and determines the indexes at which a snapshot can be taken such that the log
+ * can be compacted once the snapshot has been completed.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class SnapshottableLogManager implements LogManager {
   private final LogManager logManager;
-  private final LogManager snapshotManager;
 
-  public SnapshottableLogManager(LogManager logManager, LogManager snapshotManager) {
+  public SnapshottableLogManager(LogManager logManager) {
     this.logManager = logManager;
-    this.snapshotManager = snapshotManager;
   }
 
   @Override
@@ -58,12 +58,12 @@ public class SnapshottableLogManager implements LogManager {
 
   @Override
   public LogSegment segment(long index) {
-    return snapshotManager.lastIndex() == null || index > snapshotManager.lastIndex() ? logManager.segment(index) : snapshotManager.segment(index);
+    return logManager.segment(index);
   }
 
   @Override
   public LogSegment firstSegment() {
-    return snapshotManager.isEmpty() ? logManager.firstSegment() : snapshotManager.firstSegment();
+    return logManager.firstSegment();
   }
 
   @Override
@@ -73,28 +73,27 @@ public class SnapshottableLogManager implements LogManager {
 
   @Override
   public void open() throws IOException {
-    snapshotManager.open();
     logManager.open();
   }
 
   @Override
   public boolean isEmpty() {
-    return snapshotManager.isEmpty() && logManager.isEmpty();
+    return logManager.isEmpty();
   }
 
   @Override
   public boolean isOpen() {
-    return snapshotManager.isOpen() && logManager.isOpen();
+    return logManager.isOpen();
   }
 
   @Override
   public long size() {
-    return snapshotManager.size() + logManager.size();
+    return logManager.size();
   }
 
   @Override
   public long entryCount() {
-    return snapshotManager.entryCount() + logManager.entryCount();
+    return logManager.entryCount();
   }
 
   /**
@@ -118,50 +117,24 @@ public class SnapshottableLogManager implements LogManager {
     return true;
   }
 
-  /**
-   * Appends a snapshot to the log.
-   *
-   * @param index The index at which to write the snapshot.
-   * @param snapshot The snapshot to append to the snapshot log.
-   * @return The index at which the snapshot was written.
-   * @throws IOException If the log could not be rolled over.
-   */
-  public long appendSnapshot(long index, List<ByteBuffer> snapshot) throws IOException {
-    LogSegment segment = logManager.segment(index);
-    if (segment == null) {
-      throw new IndexOutOfBoundsException("Invalid snapshot index " + index);
-    } else if (segment.lastIndex() != index) {
-      throw new IllegalArgumentException("Snapshot index must be the last index of a segment");
-    } else if (segment == logManager.lastSegment()) {
-      throw new IllegalArgumentException("Cannot snapshot current log segment");
-    }
-
-    // When appending a snapshot, force the snapshot log manager to roll over to a new segment, append the snapshot
-    // to the log, and then compact the log once the snapshot has been appended.
-    snapshotManager.rollOver(index - snapshot.size() + 1);
-    for (ByteBuffer entry : snapshot) {
-      snapshotManager.appendEntry(entry);
-    }
-
-    // Compact the snapshot and user logs in order to ensure old entries do not remain in the logs.
-    snapshotManager.compact(index - snapshot.size() + 1);
-    logManager.compact(index + 1);
-    return index;
-  }
-
   @Override
   public long appendEntry(ByteBuffer entry) throws IOException {
     return logManager.appendEntry(entry);
   }
 
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    return logManager.appendEntries(entries);
+  }
+
   @Override
   public long index() {
-    return snapshotManager.index();
+    return logManager.index();
   }
 
   @Override
   public Long firstIndex() {
-    return !snapshotManager.isEmpty() ? snapshotManager.firstIndex() : logManager.firstIndex();
+    return logManager.firstIndex();
   }
 
   @Override
@@ -171,38 +144,47 @@ public class SnapshottableLogManager implements LogManager {
 
   @Override
   public boolean containsIndex(long index) {
-    Assert.state(isOpen(), "Log is not open");
-    return logManager.containsIndex(index) || snapshotManager.containsIndex(index);
+    return logManager.containsIndex(index);
   }
 
   @Override
   public ByteBuffer getEntry(long index) {
-    Assert.state(isOpen(), "Log is not open");
-    if (logManager.containsIndex(index)) {
-      return logManager.getEntry(index);
-    } else if (snapshotManager.containsIndex(index)) {
-      return snapshotManager.getEntry(index);
-    }
-    throw new IndexOutOfBoundsException("No entry at index " + index);
+    return logManager.getEntry(index);
+  }
+
+  @Override
+  public List<ByteBuffer> getEntries(long from, long to) {
+    return logManager.getEntries(from, to);
+  }
+
+  @Override
+  public Long termAt(long index) {
+    return logManager.termAt(index);
+  }
+
+  @Override
+  public Long firstIndexOf(long term) {
+    return logManager.firstIndexOf(term);
+  }
+
+  @Override
+  public Long lastIndexOf(long term) {
+    return logManager.lastIndexOf(term);
   }
 
   @Override
   public void removeAfter(long index) {
-    Assert.state(isOpen(), "Log is not open");
-    Assert.index(index, logManager.containsIndex(index), "Log index out of bounds");
     logManager.removeAfter(index);
   }
 
   @Override
   public void rollOver(long index) throws IOException {
     logManager.rollOver(index);
-    snapshotManager.rollOver(index);
   }
 
   @Override
   public void compact(long index) throws IOException {
     logManager.compact(index);
-    snapshotManager.compact(index);
   }
 
   @Override
@@ -210,10 +192,14 @@ public class SnapshottableLogManager implements LogManager {
     logManager.flush();
   }
 
+  @Override
+  public CompletableFuture<Long> flush(long index) {
+    return logManager.flush(index);
+  }
+
   @Override
   public void close() throws IOException {
     logManager.close();
-    snapshotManager.close();
   }
 
   @Override
@@ -224,7 +210,6 @@ public class SnapshottableLogManager implements LogManager {
   @Override
   public void delete() {
     logManager.delete();
-    snapshotManager.delete();
   }
 
 }
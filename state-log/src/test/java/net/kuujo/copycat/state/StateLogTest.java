@@ -15,15 +15,26 @@
  */
 package net.kuujo.copycat.state;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import net.jodah.concurrentunit.ConcurrentTestCase;
 import net.kuujo.copycat.cluster.ClusterConfig;
+import net.kuujo.copycat.cluster.Member;
 import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.log.FileLog;
 import net.kuujo.copycat.protocol.Consistency;
 import net.kuujo.copycat.protocol.LocalProtocol;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * State log test.
@@ -63,6 +74,144 @@ public class StateLogTest extends ConcurrentTestCase {
     await(5000);
   }
 
+  /**
+   * Tests querying every member with strong consistency.
+   */
+  @SuppressWarnings("unchecked")
+  public void testQueryAllMembersWithStrongConsistency() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String> log1 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://foo"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.STRONG)).registerQuery("test", v -> v);
+    StateLog<String> log2 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://bar"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.STRONG)).registerQuery("test", v -> v);
+    StateLog<String> log3 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://baz"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.STRONG)).registerQuery("test", v -> v);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+    futures[2] = log3.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(15000);
+
+    expectResumes(3);
+    for (StateLog<String> log : Arrays.asList(log1, log2, log3)) {
+      log.submit("test", "Hello world!").thenAccept(result -> {
+        threadAssertEquals(result, "Hello world!");
+        resume();
+      });
+    }
+    await(5000);
+  }
+
+  /**
+   * Tests querying with lease consistency.
+   */
+  @SuppressWarnings("unchecked")
+  public void testQueryWithLeaseConsistency() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String> log1 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://foo"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.LEASE)).registerQuery("test", v -> v);
+    StateLog<String> log2 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://bar"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.LEASE)).registerQuery("test", v -> v);
+    StateLog<String> log3 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://baz"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.LEASE)).registerQuery("test", v -> v);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+    futures[2] = log3.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(15000);
+
+    expectResume();
+    log1.submit("test", "Hello world!").thenAccept(result -> {
+      threadAssertEquals(result, "Hello world!");
+      resume();
+    });
+    await(5000);
+  }
+
+  /**
+   * Tests querying every member with bounded consistency.
+   */
+  @SuppressWarnings("unchecked")
+  public void testQueryAllMembersWithBoundedConsistency() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String> log1 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://foo"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.DEFAULT)).registerQuery("test", v -> v, Consistency.BOUNDED);
+    StateLog<String> log2 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://bar"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.DEFAULT)).registerQuery("test", v -> v, Consistency.BOUNDED);
+    StateLog<String> log3 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://baz"), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.DEFAULT)).registerQuery("test", v -> v, Consistency.BOUNDED);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+    futures[2] = log3.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(15000);
+
+    expectResumes(3);
+    for (StateLog<String> log : Arrays.asList(log1, log2, log3)) {
+      log.submit("test", "Hello world!").thenAccept(result -> {
+        threadAssertEquals(result, "Hello world!");
+        resume();
+      });
+    }
+    await(5000);
+  }
+
+  /**
+   * Tests that weak queries observe commands previously submitted through the same log.
+   */
+  @SuppressWarnings("unchecked")
+  public void testWeakQueryReadsOwnWrites() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String>[] logs = new StateLog[3];
+    String[] members = {"local://foo", "local://bar", "local://baz"};
+    for (int i = 0; i < logs.length; i++) {
+      AtomicReference<String> value = new AtomicReference<>();
+      logs[i] = StateLog.<String>create("test", cluster.copy().withLocalMember(members[i]), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.DEFAULT))
+        .registerCommand("write", v -> {
+          value.set(v);
+          return v;
+        })
+        .registerQuery("read", v -> value.get(), Consistency.WEAK);
+    }
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    for (int i = 0; i < logs.length; i++) {
+      futures[i] = logs[i].open();
+    }
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(15000);
+
+    for (int i = 0; i < logs.length; i++) {
+      StateLog<String> log = logs[i];
+      String value = "value" + i;
+      expectResume();
+      log.submit("write", value)
+        .thenCompose(v -> log.submit("read", ""))
+        .thenAccept(result -> {
+          threadAssertEquals(result, value);
+          resume();
+        });
+      await(5000);
+    }
+  }
+
   /**
    * Tests snapshot replication.
    */
@@ -123,7 +272,393 @@ public class StateLogTest extends ConcurrentTestCase {
     // This should cause two resumes. One when the log is opened and one when the snapshot is installed.
     expectResumes(2);
     log3.open().thenRun(this::resume);
+    await(15000);
+  }
+
+  /**
+   * Tests that the snapshot policy triggers snapshots within a log segment.
+   */
+  @SuppressWarnings("unchecked")
+  public void testSnapshotPolicyEntries() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    AtomicBoolean snapshotted = new AtomicBoolean();
+    StateLog<String> log1 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://foo"), new StateLogConfig()
+      .withLog(new BufferedLog().withSegmentSize(1024 * 1024))
+      .withSnapshotPolicy(new SnapshotPolicy().withEntries(5))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> v)
+      .snapshotWith(() -> {
+        if (snapshotted.compareAndSet(false, true)) {
+          resume();
+        }
+        return "Snapshot data";
+      });
+    StateLog<String> log2 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://bar"), new StateLogConfig()
+      .withLog(new BufferedLog().withSegmentSize(1024 * 1024))
+      .withSnapshotPolicy(new SnapshotPolicy().withEntries(5))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> v)
+      .snapshotWith(() -> "Snapshot data");
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[2];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    // The segment is far larger than the entries, so only the snapshot policy can trigger a snapshot.
+    expectResumes(11);
+    for (int i = 0; i < 10; i++) {
+      log1.submit("command", "Hello world!").thenRun(this::resume);
+    }
+    await(5000);
+  }
+
+  /**
+   * Tests that a snapshot that fails to be written is retried without waiting for the snapshot policy to be met again.
+   */
+  @SuppressWarnings("unchecked")
+  public void testFailedSnapshotIsRetried() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    AtomicInteger attempts = new AtomicInteger();
+    StateLog<String> log1 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://foo"), new StateLogConfig()
+      .withLog(new BufferedLog().withSegmentSize(1024 * 1024))
+      .withSnapshotPolicy(new SnapshotPolicy().withEntries(5))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> v)
+      .snapshotWith(() -> new FailingSnapshot(attempts.incrementAndGet() == 1));
+    StateLog<String> log2 = StateLog.<String>create("test", cluster.copy().withLocalMember("local://bar"), new StateLogConfig()
+      .withLog(new BufferedLog().withSegmentSize(1024 * 1024))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> v);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[2];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    // Apply commands until the first snapshot is attempted, and allow time for the write to fail.
+    for (int i = 0; i < 20 && attempts.get() == 0; i++) {
+      log1.submit("command", "Hello world!").get();
+    }
+    threadAssertEquals(attempts.get(), 1);
+    Thread.sleep(500);
+
+    // A single command is far fewer than the policy's entries, so only a retry can trigger another snapshot.
+    log1.submit("command", "Hello world!").get();
+    long timeout = System.currentTimeMillis() + 5000;
+    while (attempts.get() < 2 && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    threadAssertEquals(attempts.get(), 2);
+  }
+
+  /**
+   * Snapshot that fails to be serialized if requested.
+   */
+  public static class FailingSnapshot implements KryoSerializable {
+    private boolean fail;
+
+    public FailingSnapshot() {
+    }
+
+    private FailingSnapshot(boolean fail) {
+      this.fail = fail;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+      if (fail) {
+        throw new IllegalStateException("Failed to serialize snapshot");
+      }
+      output.writeBoolean(fail);
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+      fail = input.readBoolean();
+    }
+  }
+
+  /**
+   * Tests that restarted logs recover from their snapshots rather than replaying applied entries.
+   */
+  @SuppressWarnings("unchecked")
+  public void testRestartFromSnapshot() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    File directory = new File(String.format("target/test-logs/%s", UUID.randomUUID().toString()));
+    AtomicInteger count1 = new AtomicInteger();
+    StateLog<String> log1 = createCountingLog(cluster, "local://foo", new File(directory, "foo"), count1);
+    AtomicInteger count2 = new AtomicInteger();
+    StateLog<String> log2 = createCountingLog(cluster, "local://bar", new File(directory, "bar"), count2);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[2];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    expectResumes(10);
+    for (int i = 0; i < 10; i++) {
+      log1.submit("command", "Hello world!").thenRun(this::resume);
+    }
     await(5000);
+
+    // Wait for both members to apply the commands, since the follower learns that the commands have been committed
+    // from the leader's next heartbeat.
+    long applyTimeout = System.currentTimeMillis() + 5000;
+    while ((count1.get() < 10 || count2.get() < 10) && System.currentTimeMillis() < applyTimeout) {
+      Thread.sleep(10);
+    }
+
+    // Snapshots of all applied entries are taken when the logs are closed.
+    expectResumes(2);
+    log1.close().thenRun(this::resume);
+    log2.close().thenRun(this::resume);
+    await(5000);
+
+    // Reopen the logs from the same directories. The snapshots should be installed when the logs are opened, and
+    // entries that they include should not be applied again.
+    AtomicInteger count3 = new AtomicInteger();
+    StateLog<String> log3 = createCountingLog(cluster, "local://foo", new File(directory, "foo"), count3);
+    AtomicInteger count4 = new AtomicInteger();
+    StateLog<String> log4 = createCountingLog(cluster, "local://bar", new File(directory, "bar"), count4);
+
+    futures[0] = log3.open();
+    futures[1] = log4.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+    threadAssertEquals(count3.get(), 10);
+
+    expectResume();
+    log3.submit("command", "Hello world!").thenRun(this::resume);
+    await(5000);
+
+    long timeout = System.currentTimeMillis() + 5000;
+    while (count3.get() < 11 && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+    threadAssertEquals(count3.get(), 11);
+  }
+
+  /**
+   * Tests that a slow command does not delay heartbeats long enough for a new leader to be elected.
+   */
+  @SuppressWarnings("unchecked")
+  public void testSlowCommandDoesNotDelayHeartbeats() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String> log1 = createLeaderSleepingLog(cluster, "local://foo");
+    StateLog<String> log2 = createLeaderSleepingLog(cluster, "local://bar");
+    StateLog<String> log3 = createLeaderSleepingLog(cluster, "local://baz");
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+    futures[2] = log3.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    // The command takes several election timeouts to apply on the leader, so if it blocked the Raft protocol the
+    // followers would time out and elect a new leader.
+    long term = log1.cluster().term();
+    expectResume();
+    log1.submit("sleep", "Hello world!").thenRun(this::resume);
+    await(10000);
+
+    // Allow time for any election that was started while the command was being applied to complete.
+    Thread.sleep(1000);
+    threadAssertEquals(log1.cluster().term(), term);
+    threadAssertEquals(log2.cluster().term(), term);
+    threadAssertEquals(log3.cluster().term(), term);
+  }
+
+  /**
+   * Creates a state log with a command that sleeps for several election timeouts when applied on the leader.
+   */
+  private StateLog<String> createLeaderSleepingLog(ClusterConfig cluster, String member) {
+    AtomicReference<StateLog<String>> log = new AtomicReference<>();
+    log.set(StateLog.<String>create("test", cluster.copy().withLocalMember(member), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("sleep", v -> {
+        Member leader = log.get().cluster().leader();
+        if (leader != null && leader.uri().equals(member)) {
+          try {
+            Thread.sleep(2000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return v;
+      }));
+    return log.get();
+  }
+
+  /**
+   * Tests that a failed command only fails its own entry when commands are applied in a batch.
+   */
+  @SuppressWarnings("unchecked")
+  public void testFailedCommandInBatch() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    StateLog<String> log1 = createFailingLog(cluster, "local://foo");
+    StateLog<String> log2 = createFailingLog(cluster, "local://bar");
+    StateLog<String> log3 = createFailingLog(cluster, "local://baz");
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[3];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+    futures[2] = log3.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    // Commands are submitted without waiting for one another so that they're committed and applied together.
+    AtomicInteger succeeded = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    expectResumes(100);
+    for (int i = 0; i < 100; i++) {
+      String value = i == 50 ? "fail" : String.valueOf(i);
+      log1.submit("command", value).whenComplete((result, error) -> {
+        if (error == null) {
+          threadAssertEquals(result, value);
+          succeeded.incrementAndGet();
+        } else {
+          failed.incrementAndGet();
+        }
+        resume();
+      });
+    }
+    await(10000);
+
+    threadAssertEquals(succeeded.get(), 99);
+    threadAssertEquals(failed.get(), 1);
+
+    expectResumes(3);
+    log1.close().thenRun(this::resume);
+    log2.close().thenRun(this::resume);
+    log3.close().thenRun(this::resume);
+    await(5000);
+  }
+
+  /**
+   * Creates a state log with a command that fails for the value {@code fail}.
+   */
+  private StateLog<String> createFailingLog(ClusterConfig cluster, String member) {
+    return StateLog.<String>create("test", cluster.copy().withLocalMember(member), new StateLogConfig().withLog(new BufferedLog()).withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> {
+        if (v.equals("fail")) {
+          throw new IllegalArgumentException("failed");
+        }
+        return v;
+      });
+  }
+
+  /**
+   * Tests replaying a large log when a cluster is restarted without snapshots.
+   */
+  @SuppressWarnings("unchecked")
+  public void testRestartReplaysLog() throws Throwable {
+    LocalProtocol.reset();
+    ClusterConfig cluster = new ClusterConfig()
+      .withProtocol(new LocalProtocol())
+      .withMembers("local://foo", "local://bar", "local://baz");
+    File directory = new File(String.format("target/test-logs/%s", UUID.randomUUID().toString()));
+    AtomicInteger count1 = new AtomicInteger();
+    StateLog<String> log1 = createReplayLog(cluster, "local://foo", new File(directory, "foo"), count1);
+    AtomicInteger count2 = new AtomicInteger();
+    StateLog<String> log2 = createReplayLog(cluster, "local://bar", new File(directory, "bar"), count2);
+
+    CompletableFuture<StateLog<String>>[] futures = new CompletableFuture[2];
+    futures[0] = log1.open();
+    futures[1] = log2.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    int commands = 2000;
+    expectResumes(commands);
+    for (int i = 0; i < commands; i++) {
+      log1.submit("command", "Hello world!").thenRun(this::resume);
+    }
+    await(30000);
+
+    expectResumes(2);
+    log1.close().thenRun(this::resume);
+    log2.close().thenRun(this::resume);
+    await(5000);
+
+    // Reopen the logs from the same directories. Without a snapshot, all committed commands must be replayed from the
+    // log in order.
+    AtomicInteger count3 = new AtomicInteger();
+    StateLog<String> log3 = createReplayLog(cluster, "local://foo", new File(directory, "foo"), count3);
+    AtomicInteger count4 = new AtomicInteger();
+    StateLog<String> log4 = createReplayLog(cluster, "local://bar", new File(directory, "bar"), count4);
+
+    futures[0] = log3.open();
+    futures[1] = log4.open();
+
+    expectResume();
+    CompletableFuture.allOf(futures).thenRun(this::resume);
+    await(5000);
+
+    long timeout = System.currentTimeMillis() + 10000;
+    while ((count3.get() < commands || count4.get() < commands) && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    threadAssertEquals(count3.get(), commands);
+    threadAssertEquals(count4.get(), commands);
+  }
+
+  /**
+   * Creates a file based state log that counts applied commands without taking snapshots.
+   */
+  private StateLog<String> createReplayLog(ClusterConfig cluster, String member, File directory, AtomicInteger count) {
+    return StateLog.<String>create("test", cluster.copy().withLocalMember(member), new StateLogConfig()
+      .withLog(new FileLog().withDirectory(directory))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> {
+        threadAssertEquals(v, "Hello world!");
+        return count.incrementAndGet();
+      });
+  }
+
+  /**
+   * Creates a file based state log that counts applied commands and snapshots the count.
+   */
+  private StateLog<String> createCountingLog(ClusterConfig cluster, String member, File directory, AtomicInteger count) {
+    return StateLog.<String>create("test", cluster.copy().withLocalMember(member), new StateLogConfig()
+      .withLog(new FileLog().withDirectory(directory))
+      .withDefaultConsistency(Consistency.STRONG))
+      .registerCommand("command", v -> count.incrementAndGet())
+      .snapshotWith(count::get)
+      .installWith(v -> count.set((Integer) v));
   }
 
 }
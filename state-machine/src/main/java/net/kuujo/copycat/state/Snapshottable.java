@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+/**
+ * State that can capture a point-in-time view of itself.<p>
+ *
+ * State machine snapshots are serialized and written on a background thread while the state machine continues to
+ * apply commands, so state stored in the {@link StateContext} must either be immutable or implement this interface.
+ * When a snapshot is taken, {@link #snapshot()} is called on the state machine thread and the returned view is
+ * serialized in place of the state itself. The returned view must not be modified by subsequent commands.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface Snapshottable<T> {
+
+  /**
+   * Returns a point-in-time view of the state.
+   *
+   * @return A view of the state that will not be modified by subsequent commands.
+   */
+  T snapshot();
+
+}
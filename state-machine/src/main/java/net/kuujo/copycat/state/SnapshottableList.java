@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+import java.util.*;
+
+/**
+ * Copy-on-write snapshottable list.<p>
+ *
+ * Taking a snapshot freezes the backing list and returns it as the snapshot. The list is copied the first time it's
+ * modified after a snapshot has been taken, so snapshots are taken in constant time and the cost of copying is paid
+ * at most once per snapshot. Snapshots are plain {@link ArrayList} instances. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SnapshottableList<T> extends AbstractList<T> implements Snapshottable<List<T>>, RandomAccess {
+  private ArrayList<T> list;
+  private boolean shared;
+
+  public SnapshottableList() {
+    this.list = new ArrayList<>();
+  }
+
+  public SnapshottableList(Collection<? extends T> list) {
+    this.list = new ArrayList<>(list);
+  }
+
+  @Override
+  public List<T> snapshot() {
+    shared = true;
+    return list;
+  }
+
+  /**
+   * Returns the backing list, copying it first if it's shared with a snapshot.
+   */
+  private ArrayList<T> mutable() {
+    if (shared) {
+      list = new ArrayList<>(list);
+      shared = false;
+    }
+    return list;
+  }
+
+  @Override
+  public int size() {
+    return list.size();
+  }
+
+  @Override
+  public T get(int index) {
+    return list.get(index);
+  }
+
+  @Override
+  public T set(int index, T value) {
+    return mutable().set(index, value);
+  }
+
+  @Override
+  public void add(int index, T value) {
+    mutable().add(index, value);
+    modCount++;
+  }
+
+  @Override
+  public T remove(int index) {
+    T value = mutable().remove(index);
+    modCount++;
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    if (shared) {
+      list = new ArrayList<>();
+      shared = false;
+    } else {
+      list.clear();
+    }
+    modCount++;
+  }
+
+}
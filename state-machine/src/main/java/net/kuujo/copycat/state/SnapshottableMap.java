@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+import java.util.*;
+
+/**
+ * Copy-on-write snapshottable map.<p>
+ *
+ * Taking a snapshot freezes the backing map and returns it as the snapshot. The map is copied the first time it's
+ * modified after a snapshot has been taken, so snapshots are taken in constant time and the cost of copying is paid
+ * at most once per snapshot. Snapshots are plain {@link HashMap} instances. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SnapshottableMap<K, V> extends AbstractMap<K, V> implements Snapshottable<Map<K, V>> {
+  private HashMap<K, V> map;
+  private boolean shared;
+
+  public SnapshottableMap() {
+    this.map = new HashMap<>();
+  }
+
+  public SnapshottableMap(Map<? extends K, ? extends V> map) {
+    this.map = new HashMap<>(map);
+  }
+
+  @Override
+  public Map<K, V> snapshot() {
+    shared = true;
+    return map;
+  }
+
+  /**
+   * Returns the backing map, copying it first if it's shared with a snapshot.
+   */
+  private HashMap<K, V> mutable() {
+    if (shared) {
+      map = new HashMap<>(map);
+      shared = false;
+    }
+    return map;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return map.containsValue(value);
+  }
+
+  @Override
+  public V get(Object key) {
+    return map.get(key);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return mutable().put(key, value);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return map.containsKey(key) ? mutable().remove(key) : null;
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    mutable().putAll(m);
+  }
+
+  @Override
+  public void clear() {
+    if (shared) {
+      map = new HashMap<>();
+      shared = false;
+    } else {
+      map.clear();
+    }
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return map.size();
+      }
+    };
+  }
+
+  /**
+   * Entry iterator.<p>
+   *
+   * The iterator iterates the map that was current when it was created. If the map is copied during iteration then
+   * modifications are applied to the copy while iteration continues over the original, which is no longer modified.
+   */
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+    private final HashMap<K, V> source = map;
+    private final Iterator<Entry<K, V>> iterator = source.entrySet().iterator();
+    private Entry<K, V> last;
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      Entry<K, V> entry = iterator.next();
+      last = entry;
+      return new SimpleEntry<K, V>(entry) {
+        @Override
+        public V setValue(V value) {
+          super.setValue(value);
+          return put(entry.getKey(), value);
+        }
+      };
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      if (source == map && !shared) {
+        iterator.remove();
+      } else {
+        mutable().remove(last.getKey());
+      }
+      last = null;
+    }
+  }
+
+}
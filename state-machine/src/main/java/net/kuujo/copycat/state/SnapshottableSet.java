@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+import java.util.*;
+
+/**
+ * Copy-on-write snapshottable set.<p>
+ *
+ * Taking a snapshot freezes the backing set and returns it as the snapshot. The set is copied the first time it's
+ * modified after a snapshot has been taken, so snapshots are taken in constant time and the cost of copying is paid
+ * at most once per snapshot. Snapshots are plain {@link HashSet} instances. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SnapshottableSet<T> extends AbstractSet<T> implements Snapshottable<Set<T>> {
+  private HashSet<T> set;
+  private boolean shared;
+
+  public SnapshottableSet() {
+    this.set = new HashSet<>();
+  }
+
+  public SnapshottableSet(Collection<? extends T> set) {
+    this.set = new HashSet<>(set);
+  }
+
+  @Override
+  public Set<T> snapshot() {
+    shared = true;
+    return set;
+  }
+
+  /**
+   * Returns the backing set, copying it first if it's shared with a snapshot.
+   */
+  private HashSet<T> mutable() {
+    if (shared) {
+      set = new HashSet<>(set);
+      shared = false;
+    }
+    return set;
+  }
+
+  @Override
+  public int size() {
+    return set.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return set.isEmpty();
+  }
+
+  @Override
+  public boolean contains(Object value) {
+    return set.contains(value);
+  }
+
+  @Override
+  public boolean add(T value) {
+    return !set.contains(value) && mutable().add(value);
+  }
+
+  @Override
+  public boolean remove(Object value) {
+    return set.contains(value) && mutable().remove(value);
+  }
+
+  @Override
+  public void clear() {
+    if (shared) {
+      set = new HashSet<>();
+      shared = false;
+    } else {
+      set.clear();
+    }
+  }
+
+  /**
+   * Returns an iterator over the set.<p>
+   *
+   * The iterator iterates the set that was current when it was created. If the set is copied during iteration then
+   * removals are applied to the copy while iteration continues over the original, which is no longer modified.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private final HashSet<T> source = set;
+      private final Iterator<T> iterator = source.iterator();
+      private T last;
+      private boolean removable;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        last = iterator.next();
+        removable = true;
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (!removable) {
+          throw new IllegalStateException();
+        }
+        if (source == set && !shared) {
+          iterator.remove();
+        } else {
+          mutable().remove(last);
+        }
+        removable = false;
+      }
+    };
+  }
+
+}
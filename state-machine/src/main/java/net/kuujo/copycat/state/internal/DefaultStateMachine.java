@@ -103,12 +103,21 @@ public class DefaultStateMachine<T> extends AbstractResource<StateMachine<T>> im
   }
 
   /**
-   * Takes a snapshot of the state machine state.
+   * Takes a snapshot of the state machine state.<p>
+   *
+   * The snapshot is serialized on a background thread while commands continue to be applied, so the context data is
+   * copied and {@link Snapshottable} values are replaced with their point-in-time views.
    */
+  @SuppressWarnings("rawtypes")
   private Map<String, Object> snapshot() {
+    Map<String, Object> snapshotData = new HashMap<>(data.size());
+    for (Map.Entry<String, Object> entry : data.entrySet()) {
+      Object value = entry.getValue();
+      snapshotData.put(entry.getKey(), value instanceof Snapshottable ? ((Snapshottable) value).snapshot() : value);
+    }
     Map<String, Object> snapshot = new HashMap<>(2);
     snapshot.put("state", state.getClass().getName());
-    snapshot.put("data", data);
+    snapshot.put("data", snapshotData);
     return snapshot;
   }
 
@@ -121,6 +130,9 @@ public class DefaultStateMachine<T> extends AbstractResource<StateMachine<T>> im
     if (stateClassName == null) {
       throw new IllegalStateException("Invalid snapshot");
     }
+    // The snapshot data must be installed before the state is initialized since initializers read from the data.
+    Map<String, Object> data = (Map<String, Object>) snapshot.get("data");
+    this.data = data != null ? new HashMap<>(data) : new HashMap<>(1024);
     try {
       Class<?> stateClass = Class.forName(stateClassName.toString());
       this.state = (T) stateClass.newInstance();
@@ -128,7 +140,6 @@ public class DefaultStateMachine<T> extends AbstractResource<StateMachine<T>> im
     } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
       throw new IllegalStateException("Invalid snapshot state");
     }
-    this.data = (Map<String, Object>) snapshot.get("data");
   }
 
   @Override
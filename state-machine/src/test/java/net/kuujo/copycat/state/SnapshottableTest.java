@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Snapshottable state test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class SnapshottableTest {
+
+  public void testMapSnapshotIsNotModified() {
+    SnapshottableMap<String, String> map = new SnapshottableMap<>();
+    map.put("foo", "bar");
+    map.put("bar", "baz");
+    Map<String, String> snapshot = map.snapshot();
+    map.put("baz", "foo");
+    map.remove("foo");
+    map.entrySet().iterator().next().setValue("changed");
+    assertEquals(snapshot.size(), 2);
+    assertEquals(snapshot.get("foo"), "bar");
+    assertEquals(snapshot.get("bar"), "baz");
+    assertFalse(snapshot.containsKey("baz"));
+    assertEquals(map.size(), 2);
+    assertFalse(map.containsKey("foo"));
+  }
+
+  public void testMapIteratorRemoveAfterSnapshot() {
+    SnapshottableMap<Integer, Integer> map = new SnapshottableMap<>();
+    for (int i = 0; i < 10; i++) {
+      map.put(i, i);
+    }
+    Map<Integer, Integer> snapshot = map.snapshot();
+    map.entrySet().removeIf(entry -> entry.getKey() % 2 == 0);
+    assertEquals(snapshot.size(), 10);
+    assertEquals(map.size(), 5);
+    assertFalse(map.containsKey(2));
+    assertTrue(map.containsKey(3));
+  }
+
+  public void testSetSnapshotIsNotModified() {
+    SnapshottableSet<String> set = new SnapshottableSet<>(Arrays.asList("foo", "bar"));
+    Set<String> snapshot = set.snapshot();
+    set.add("baz");
+    set.removeIf(value -> value.equals("foo"));
+    assertEquals(snapshot, new HashSet<>(Arrays.asList("foo", "bar")));
+    assertEquals(set, new HashSet<>(Arrays.asList("bar", "baz")));
+  }
+
+  public void testListSnapshotIsNotModified() {
+    SnapshottableList<String> list = new SnapshottableList<>(Arrays.asList("foo", "bar"));
+    List<String> snapshot = list.snapshot();
+    list.add("baz");
+    list.remove(0);
+    list.set(0, "changed");
+    assertEquals(snapshot, Arrays.asList("foo", "bar"));
+    assertEquals(list, Arrays.asList("changed", "baz"));
+  }
+
+  public void testSnapshotIsOnlyCopiedOnce() {
+    SnapshottableList<String> list = new SnapshottableList<>();
+    list.add("foo");
+    List<String> first = list.snapshot();
+    list.add("bar");
+    List<String> second = list.snapshot();
+    assertTrue(first != second);
+    assertSame(list.snapshot(), second);
+  }
+
+}